@@ -62,6 +62,20 @@ CREATE TABLE `container_info` (
                                   KEY `idx01_container_info` (`app_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+-- ----------------------------
+-- Table structure for id_segment
+-- ----------------------------
+DROP TABLE IF EXISTS `id_segment`;
+CREATE TABLE `id_segment` (
+                              `id` bigint NOT NULL AUTO_INCREMENT,
+                              `biz_tag` varchar(255) DEFAULT NULL,
+                              `gmt_create` datetime(6) DEFAULT NULL,
+                              `gmt_modified` datetime(6) DEFAULT NULL,
+                              `max_id` bigint DEFAULT NULL,
+                              PRIMARY KEY (`id`),
+                              UNIQUE KEY `uidx01_id_segment` (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
 -- ----------------------------
 -- Table structure for instance_info
 -- ----------------------------
@@ -92,7 +106,43 @@ CREATE TABLE `instance_info` (
                                  KEY `idx01_instance_info` (`job_id`,`status`),
                                  KEY `idx02_instance_info` (`app_id`,`status`),
                                  KEY `idx03_instance_info` (`instance_id`,`status`),
-                                 KEY `idx04_instance_info_outer_key` (`outer_key`)
+                                 KEY `idx04_instance_info_outer_key` (`outer_key`),
+                                 KEY `idx05_instance_info` (`app_id`,`type`,`id`),
+                                 KEY `idx06_instance_info` (`job_id`,`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- ----------------------------
+-- Table structure for instance_info_archive
+-- ----------------------------
+DROP TABLE IF EXISTS `instance_info_archive`;
+CREATE TABLE `instance_info_archive` (
+                                         `id` bigint NOT NULL,
+                                         `actual_trigger_time` bigint DEFAULT NULL,
+                                         `app_id` bigint DEFAULT NULL,
+                                         `expected_trigger_time` bigint DEFAULT NULL,
+                                         `extend_value` varchar(255) DEFAULT NULL,
+                                         `finished_time` bigint DEFAULT NULL,
+                                         `gmt_create` datetime(6) DEFAULT NULL,
+                                         `gmt_modified` datetime(6) DEFAULT NULL,
+                                         `instance_id` bigint DEFAULT NULL,
+                                         `instance_params` longtext,
+                                         `job_id` bigint DEFAULT NULL,
+                                         `job_params` longtext,
+                                         `last_report_time` bigint DEFAULT NULL,
+                                         `meta` varchar(255) DEFAULT NULL,
+                                         `outer_key` varchar(255) DEFAULT NULL,
+                                         `result` longtext,
+                                         `running_times` bigint DEFAULT NULL,
+                                         `status` int DEFAULT NULL,
+                                         `task_tracker_address` varchar(255) DEFAULT NULL,
+                                         `type` int DEFAULT NULL,
+                                         `wf_instance_id` bigint DEFAULT NULL,
+                                         PRIMARY KEY (`id`),
+                                         KEY `idx01_instance_info_archive` (`app_id`,`type`,`id`),
+                                         KEY `idx02_instance_info_archive` (`job_id`,`id`),
+                                         KEY `idx03_instance_info_archive` (`app_id`,`status`),
+                                         KEY `idx04_instance_info_archive` (`instance_id`),
+                                         KEY `idx05_instance_info_archive` (`gmt_modified`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 -- ----------------------------
@@ -158,6 +208,23 @@ CREATE TABLE `namespace` (
                              UNIQUE KEY `uidx01_namespace` (`code`)
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+-- ----------------------------
+-- Table structure for oms_lease_lock
+-- ----------------------------
+DROP TABLE IF EXISTS `oms_lease_lock`;
+CREATE TABLE `oms_lease_lock` (
+                                  `id` bigint NOT NULL AUTO_INCREMENT,
+                                  `fencing_token` bigint DEFAULT NULL,
+                                  `gmt_create` datetime(6) DEFAULT NULL,
+                                  `gmt_modified` datetime(6) DEFAULT NULL,
+                                  `lease_expire_time` bigint DEFAULT NULL,
+                                  `lock_name` varchar(255) DEFAULT NULL,
+                                  `owner_token` varchar(255) DEFAULT NULL,
+                                  `partition_id` int DEFAULT NULL,
+                                  PRIMARY KEY (`id`),
+                                  UNIQUE KEY `uidx01_oms_lease_lock` (`partition_id`,`lock_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
 -- ----------------------------
 -- Table structure for oms_lock
 -- ----------------------------
@@ -0,0 +1,59 @@
+-- 号段 ID 生成器（oms.id-generator.type=segment）
+CREATE TABLE IF NOT EXISTS `id_segment` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `biz_tag` varchar(255) DEFAULT NULL,
+    `gmt_create` datetime(6) DEFAULT NULL,
+    `gmt_modified` datetime(6) DEFAULT NULL,
+    `max_id` bigint DEFAULT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uidx01_id_segment` (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- 租约锁（oms.lock.type=lease），仅在全部 server 停机后统一切换，不可与 oms_lock 实现混跑
+CREATE TABLE IF NOT EXISTS `oms_lease_lock` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `fencing_token` bigint DEFAULT NULL,
+    `gmt_create` datetime(6) DEFAULT NULL,
+    `gmt_modified` datetime(6) DEFAULT NULL,
+    `lease_expire_time` bigint DEFAULT NULL,
+    `lock_name` varchar(255) DEFAULT NULL,
+    `owner_token` varchar(255) DEFAULT NULL,
+    `partition_id` int DEFAULT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uidx01_oms_lease_lock` (`partition_id`,`lock_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- 任务实例游标分页（/instance/scroll）
+ALTER TABLE `instance_info` ADD INDEX `idx05_instance_info`(`app_id` ASC, `type` ASC, `id` ASC) USING BTREE;
+ALTER TABLE `instance_info` ADD INDEX `idx06_instance_info`(`job_id` ASC, `id` ASC) USING BTREE;
+
+-- 任务实例归档表（冷热分离，oms.instanceinfo.archive.grace-minutes），主键沿用 instance_info 的 ID
+CREATE TABLE IF NOT EXISTS `instance_info_archive` (
+    `id` bigint NOT NULL,
+    `actual_trigger_time` bigint DEFAULT NULL,
+    `app_id` bigint DEFAULT NULL,
+    `expected_trigger_time` bigint DEFAULT NULL,
+    `extend_value` varchar(255) DEFAULT NULL,
+    `finished_time` bigint DEFAULT NULL,
+    `gmt_create` datetime(6) DEFAULT NULL,
+    `gmt_modified` datetime(6) DEFAULT NULL,
+    `instance_id` bigint DEFAULT NULL,
+    `instance_params` longtext,
+    `job_id` bigint DEFAULT NULL,
+    `job_params` longtext,
+    `last_report_time` bigint DEFAULT NULL,
+    `meta` varchar(255) DEFAULT NULL,
+    `outer_key` varchar(255) DEFAULT NULL,
+    `result` longtext,
+    `running_times` bigint DEFAULT NULL,
+    `status` int DEFAULT NULL,
+    `task_tracker_address` varchar(255) DEFAULT NULL,
+    `type` int DEFAULT NULL,
+    `wf_instance_id` bigint DEFAULT NULL,
+    PRIMARY KEY (`id`),
+    KEY `idx01_instance_info_archive` (`app_id`,`type`,`id`),
+    KEY `idx02_instance_info_archive` (`job_id`,`id`),
+    KEY `idx03_instance_info_archive` (`app_id`,`status`),
+    KEY `idx04_instance_info_archive` (`instance_id`),
+    KEY `idx05_instance_info_archive` (`gmt_modified`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -68,4 +68,24 @@ public class ClientConfig implements Serializable {
      * 客户端行为扩展
      */
     private ClientExtension clientExtension;
+
+    /**
+     * 异步接口（xxxAsync）使用的线程数，同时也是 HTTP 连接池保留的空闲连接数
+     */
+    private int asyncThreadNum = 8;
+
+    /**
+     * 异步接口的等待队列长度，队列满时由调用线程直接执行，避免提交速度过快时无限堆积
+     */
+    private int asyncQueueSize = 1024;
+
+    /**
+     * 故障转移时对冲请求的间隔（毫秒），上一个 server 超过该时间未响应则并行请求下一个 server（仅用于只读接口）
+     */
+    private long hedgeDelayMillis = 200;
+
+    /**
+     * 平均响应时间超过该值（毫秒）的 server 会被降级，优先请求其他 server
+     */
+    private long slowThresholdMillis = 1000;
 }
@@ -1,5 +1,6 @@
 package tech.powerjob.client;
 
+import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.request.http.SaveWorkflowNodeRequest;
@@ -8,7 +9,10 @@ import tech.powerjob.common.request.query.InstancePageQuery;
 import tech.powerjob.common.request.query.JobInfoQuery;
 import tech.powerjob.common.response.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * PowerJobClient, the client for OpenAPI.
@@ -42,6 +46,14 @@ public interface IPowerJobClient {
 
     PowerResultDTO<Long> runJob(RunJobRequest runJobRequest);
 
+    /**
+     * 批量运行任务，同一批次的实例要么全部创建要么全部失败
+     * 默认实现无法保证该语义，需要使用支持批量接口的 PowerJobClient
+     */
+    default ResultDTO<List<Long>> batchRunJob(List<RunJobRequest> runJobRequests) {
+        throw new PowerJobException("batchRunJob is not supported by " + getClass().getName() + ", please use " + PowerJobClient.class.getName() + " instead");
+    }
+
     /* ************* Instance API list ************* */
 
     ResultDTO<Void> stopInstance(Long instanceId);
@@ -56,6 +68,36 @@ public interface IPowerJobClient {
 
     ResultDTO<PageResult<InstanceInfoDTO>> queryInstanceInfo(InstancePageQuery instancePageQuery);
 
+    /**
+     * 批量停止任务实例，默认实现逐个调用 {@link #stopInstance(Long)}
+     * @return 停止失败的实例ID -> 失败原因
+     */
+    default ResultDTO<Map<Long, String>> batchStopInstance(List<Long> instanceIds) {
+        Map<Long, String> failed = new HashMap<>();
+        for (Long instanceId : instanceIds) {
+            ResultDTO<Void> result = stopInstance(instanceId);
+            if (!result.isSuccess()) {
+                failed.put(instanceId, result.getMessage());
+            }
+        }
+        return ResultDTO.success(failed);
+    }
+
+    /**
+     * 批量查询实例状态，默认实现逐个调用 {@link #fetchInstanceStatus(Long)}
+     * @return 实例ID -> 状态，查询失败的实例不返回
+     */
+    default ResultDTO<Map<Long, Integer>> batchFetchInstanceStatus(List<Long> instanceIds) {
+        Map<Long, Integer> ret = new HashMap<>();
+        for (Long instanceId : instanceIds) {
+            ResultDTO<Integer> result = fetchInstanceStatus(instanceId);
+            if (result.isSuccess()) {
+                ret.put(instanceId, result.getData());
+            }
+        }
+        return ResultDTO.success(ret);
+    }
+
     /* ************* Workflow API list ************* */
     ResultDTO<Long> saveWorkflow(SaveWorkflowRequest request);
 
@@ -82,4 +124,31 @@ public interface IPowerJobClient {
     ResultDTO<Void> markWorkflowNodeAsSuccess(Long wfInstanceId, Long nodeId);
 
     ResultDTO<WorkflowInstanceInfoDTO> fetchWorkflowInstanceInfo(Long wfInstanceId);
+
+    /* ************* Async API list ************* */
+    /* 默认实现在 ForkJoinPool.commonPool() 中调用同步接口，PowerJobClient 使用独立的有界线程池 */
+
+    default CompletableFuture<PowerResultDTO<Long>> runJobAsync(RunJobRequest runJobRequest) {
+        return CompletableFuture.supplyAsync(() -> runJob(runJobRequest));
+    }
+
+    default CompletableFuture<ResultDTO<List<Long>>> batchRunJobAsync(List<RunJobRequest> runJobRequests) {
+        return CompletableFuture.supplyAsync(() -> batchRunJob(runJobRequests));
+    }
+
+    default CompletableFuture<ResultDTO<Void>> stopInstanceAsync(Long instanceId) {
+        return CompletableFuture.supplyAsync(() -> stopInstance(instanceId));
+    }
+
+    default CompletableFuture<ResultDTO<Map<Long, String>>> batchStopInstanceAsync(List<Long> instanceIds) {
+        return CompletableFuture.supplyAsync(() -> batchStopInstance(instanceIds));
+    }
+
+    default CompletableFuture<ResultDTO<Integer>> fetchInstanceStatusAsync(Long instanceId) {
+        return CompletableFuture.supplyAsync(() -> fetchInstanceStatus(instanceId));
+    }
+
+    default CompletableFuture<ResultDTO<Map<Long, Integer>>> batchFetchInstanceStatusAsync(List<Long> instanceIds) {
+        return CompletableFuture.supplyAsync(() -> batchFetchInstanceStatus(instanceIds));
+    }
 }
@@ -3,6 +3,7 @@ package tech.powerjob.client;
 import com.alibaba.fastjson.JSON;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import tech.powerjob.client.module.AppAuthRequest;
@@ -14,6 +15,8 @@ import tech.powerjob.common.OpenAPIConstant;
 import tech.powerjob.common.enums.EncryptType;
 import tech.powerjob.common.enums.InstanceStatus;
 import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.common.request.http.BatchInstanceRequest;
+import tech.powerjob.common.request.http.BatchRunJobRequest;
 import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.request.http.SaveWorkflowNodeRequest;
@@ -29,6 +32,13 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static tech.powerjob.client.TypeStore.*;
 
@@ -45,6 +55,11 @@ public class PowerJobClient implements IPowerJobClient, Closeable {
     
     private final RequestService requestService;
 
+    /**
+     * 异步接口的执行线程池，空闲时线程自动回收，队列满时由调用线程执行
+     */
+    private final ThreadPoolExecutor asyncExecutor;
+
     public PowerJobClient(ClientConfig config) {
         
         List<String> addressList = config.getAddressList();
@@ -55,6 +70,8 @@ public class PowerJobClient implements IPowerJobClient, Closeable {
 
         this.requestService = new ClusterRequestServiceOkHttp3Impl(config);
 
+        this.asyncExecutor = newAsyncExecutor(config.getAsyncThreadNum(), config.getAsyncQueueSize());
+
         AppAuthRequest appAuthRequest = new AppAuthRequest();
         appAuthRequest.setAppName(appName);
         appAuthRequest.setEncryptedPassword(DigestUtils.md5(config.getPassword()));
@@ -255,6 +272,20 @@ public class PowerJobClient implements IPowerJobClient, Closeable {
         return JSON.parseObject(post, LONG_POWER_RESULT_TYPE);
     }
 
+    /**
+     * Run jobs in batch, the server checks permission once and persists all instances in one transaction
+     *
+     * @param runJobRequests requests, at most {@link OpenAPIConstant#MAX_BATCH_SIZE} per call
+     * @return instanceIds, in the same order as runJobRequests
+     */
+    @Override
+    public ResultDTO<List<Long>> batchRunJob(List<RunJobRequest> runJobRequests) {
+        runJobRequests.forEach(r -> r.setAppId(appId));
+        BatchRunJobRequest batchRunJobRequest = new BatchRunJobRequest().setRequests(runJobRequests).setAppId(appId);
+        String post = requestService.request(OpenAPIConstant.BATCH_RUN_JOB, PowerRequestBody.newJsonRequestBody(batchRunJobRequest));
+        return JSON.parseObject(post, LIST_LONG_RESULT_TYPE);
+    }
+
     /* ************* Instance API list ************* */
 
     /**
@@ -336,6 +367,32 @@ public class PowerJobClient implements IPowerJobClient, Closeable {
         return JSON.parseObject(post, INSTANCE_RESULT_TYPE);
     }
 
+    /**
+     * Stop job instances in batch, the failure of one instance does not affect the others
+     *
+     * @param instanceIds instanceIds, at most {@link OpenAPIConstant#MAX_BATCH_SIZE} per call
+     * @return instanceId -> failure reason of the instances failed to stop, empty means all succeeded
+     */
+    @Override
+    public ResultDTO<Map<Long, String>> batchStopInstance(List<Long> instanceIds) {
+        BatchInstanceRequest request = new BatchInstanceRequest().setInstanceIds(instanceIds).setAppId(appId);
+        String post = requestService.request(OpenAPIConstant.BATCH_STOP_INSTANCE, PowerRequestBody.newJsonRequestBody(request));
+        return JSON.parseObject(post, MAP_LONG_STRING_RESULT_TYPE);
+    }
+
+    /**
+     * Query status about job instances in batch
+     *
+     * @param instanceIds instanceIds, at most {@link OpenAPIConstant#MAX_BATCH_SIZE} per call
+     * @return instanceId -> {@link InstanceStatus}, instances that do not exist are not included
+     */
+    @Override
+    public ResultDTO<Map<Long, Integer>> batchFetchInstanceStatus(List<Long> instanceIds) {
+        BatchInstanceRequest request = new BatchInstanceRequest().setInstanceIds(instanceIds).setAppId(appId);
+        String post = requestService.request(OpenAPIConstant.BATCH_FETCH_INSTANCE_STATUS, PowerRequestBody.newJsonRequestBody(request));
+        return JSON.parseObject(post, MAP_LONG_INTEGER_RESULT_TYPE);
+    }
+
     @Override
     public ResultDTO<PageResult<InstanceInfoDTO>> queryInstanceInfo(InstancePageQuery instancePageQuery) {
         instancePageQuery.setAppIdEq(appId);
@@ -556,8 +613,66 @@ public class PowerJobClient implements IPowerJobClient, Closeable {
         return JSON.parseObject(post, WF_INSTANCE_RESULT_TYPE);
     }
 
+    /* ************* Async API list ************* */
+
+    @Override
+    public CompletableFuture<PowerResultDTO<Long>> runJobAsync(RunJobRequest runJobRequest) {
+        return async(() -> runJob(runJobRequest));
+    }
+
+    @Override
+    public CompletableFuture<ResultDTO<List<Long>>> batchRunJobAsync(List<RunJobRequest> runJobRequests) {
+        return async(() -> batchRunJob(runJobRequests));
+    }
+
+    @Override
+    public CompletableFuture<ResultDTO<Void>> stopInstanceAsync(Long instanceId) {
+        return async(() -> stopInstance(instanceId));
+    }
+
+    @Override
+    public CompletableFuture<ResultDTO<Map<Long, String>>> batchStopInstanceAsync(List<Long> instanceIds) {
+        return async(() -> batchStopInstance(instanceIds));
+    }
+
+    @Override
+    public CompletableFuture<ResultDTO<Integer>> fetchInstanceStatusAsync(Long instanceId) {
+        return async(() -> fetchInstanceStatus(instanceId));
+    }
+
+    @Override
+    public CompletableFuture<ResultDTO<Map<Long, Integer>>> batchFetchInstanceStatusAsync(List<Long> instanceIds) {
+        return async(() -> batchFetchInstanceStatus(instanceIds));
+    }
+
+    /**
+     * 创建异步接口的线程池，队列有界，队列满时由调用线程直接执行（背压），client 关闭后拒绝提交
+     * @param threadNum 线程数
+     * @param queueSize 等待队列长度
+     * @return 线程池
+     */
+    static ThreadPoolExecutor newAsyncExecutor(int threadNum, int queueSize) {
+        int poolSize = Math.max(1, threadNum);
+        RejectedExecutionHandler handler = (r, executor) -> {
+            // CallerRunsPolicy 在线程池关闭后会静默丢弃任务，CompletableFuture 将永远无法完成
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("PowerJobClient has been closed");
+            }
+            r.run();
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadFactoryBuilder().setNameFormat("powerjob-client-async-%d").setDaemon(true).build(), handler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, asyncExecutor);
+    }
+
     @Override
     public void close() throws IOException {
+        asyncExecutor.shutdown();
         requestService.close();
     }
 }
@@ -6,6 +6,7 @@ import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.response.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * TypeReference store.
@@ -23,6 +24,12 @@ public class TypeStore {
     public static final TypeReference<ResultDTO<Long>> LONG_RESULT_TYPE = new TypeReference<ResultDTO<Long>>(){};
     public static final TypeReference<PowerResultDTO<Long>> LONG_POWER_RESULT_TYPE = new TypeReference<PowerResultDTO<Long>>(){};
 
+    public static final TypeReference<ResultDTO<List<Long>>> LIST_LONG_RESULT_TYPE = new TypeReference<ResultDTO<List<Long>>>(){};
+
+    public static final TypeReference<ResultDTO<Map<Long, Integer>>> MAP_LONG_INTEGER_RESULT_TYPE = new TypeReference<ResultDTO<Map<Long, Integer>>>(){};
+
+    public static final TypeReference<ResultDTO<Map<Long, String>>> MAP_LONG_STRING_RESULT_TYPE = new TypeReference<ResultDTO<Map<Long, String>>>(){};
+
     public static final TypeReference<ResultDTO<JobInfoDTO>> JOB_RESULT_TYPE = new TypeReference<ResultDTO<JobInfoDTO>>(){};
 
     public static final TypeReference<ResultDTO<SaveJobInfoRequest>> SAVE_JOB_INFO_REQUEST_RESULT_TYPE = new TypeReference<ResultDTO<SaveJobInfoRequest>>(){};
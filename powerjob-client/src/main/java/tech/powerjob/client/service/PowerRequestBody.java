@@ -19,7 +19,10 @@ public class PowerRequestBody {
 
     private Object payload;
 
-    private final Map<String, String> headers = Maps.newHashMap();
+    /**
+     * 故障转移时可能被多个线程并发请求，需线程安全
+     */
+    private final Map<String, String> headers = Maps.newConcurrentMap();
 
     private PowerRequestBody() {
     }
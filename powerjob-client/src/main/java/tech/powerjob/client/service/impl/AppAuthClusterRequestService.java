@@ -4,7 +4,6 @@ import com.alibaba.fastjson.JSONObject;
 import com.google.common.collect.Maps;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import tech.powerjob.client.ClientConfig;
 import tech.powerjob.client.TypeStore;
 import tech.powerjob.client.module.AppAuthRequest;
@@ -16,7 +15,6 @@ import tech.powerjob.common.enums.EncryptType;
 import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.response.ResultDTO;
 import tech.powerjob.common.utils.DigestUtils;
-import tech.powerjob.common.utils.MapUtils;
 
 import java.util.Map;
 
@@ -29,7 +27,7 @@ import java.util.Map;
 @Slf4j
 abstract class AppAuthClusterRequestService extends ClusterRequestService {
 
-    protected AppAuthResult appAuthResult;
+    protected volatile AppAuthResult appAuthResult;
 
     public AppAuthClusterRequestService(ClientConfig config) {
         super(config);
@@ -46,12 +44,7 @@ abstract class AppAuthClusterRequestService extends ClusterRequestService {
         HttpResponse httpResponse = doRequest(path, powerRequestBody);
 
         // 如果 auth 成功，则代表请求有效，直接返回
-        String authStatus = MapUtils.getString(httpResponse.getHeaders(), OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS);
-        // 继续尝试获取转为小写之后的 auth header (Nginx代理默认会将自定义header转为纯小写, 实现针对该情况的兼容)
-        if (StringUtils.isEmpty(authStatus)) {
-            authStatus = MapUtils.getString(httpResponse.getHeaders(),
-                    OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS.toLowerCase());
-        }
+        String authStatus = getHeader(httpResponse, OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS);
         if (Boolean.TRUE.toString().equalsIgnoreCase(authStatus)) {
             return httpResponse.getResponse();
         }
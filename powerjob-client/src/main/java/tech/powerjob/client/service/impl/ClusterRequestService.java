@@ -1,6 +1,10 @@
 package tech.powerjob.client.service.impl;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import tech.powerjob.client.ClientConfig;
 import tech.powerjob.client.extension.ClientExtension;
 import tech.powerjob.client.extension.ExtensionContext;
@@ -10,12 +14,17 @@ import tech.powerjob.client.service.RequestService;
 import tech.powerjob.common.OpenAPIConstant;
 import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.utils.CollectionUtils;
+import tech.powerjob.common.utils.MapUtils;
 
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * 集群请求服务
@@ -32,7 +41,19 @@ abstract class ClusterRequestService implements RequestService {
     /**
      * 当前地址（上次请求成功的地址）
      */
-    protected String currentAddress;
+    protected volatile String currentAddress;
+
+    /**
+     * 当前负责该 app 的 server 地址，由 server 通过响应头告知
+     */
+    protected volatile String leaderAddress;
+
+    protected final ServerHealthTracker healthTracker;
+
+    /**
+     * 对冲请求使用的线程池
+     */
+    private final ExecutorService hedgeExecutor;
 
     /**
      * 地址格式
@@ -47,9 +68,41 @@ abstract class ClusterRequestService implements RequestService {
 
     protected static final int HTTP_SUCCESS_CODE = 200;
 
+    /**
+     * 只读接口，故障转移时可以并行请求多个 server
+     */
+    private static final Set<String> IDEMPOTENT_PATHS = Sets.newHashSet(
+            OpenAPIConstant.ASSERT, OpenAPIConstant.AUTH_APP,
+            OpenAPIConstant.FETCH_JOB, OpenAPIConstant.FETCH_ALL_JOB, OpenAPIConstant.QUERY_JOB, OpenAPIConstant.EXPORT_JOB,
+            OpenAPIConstant.FETCH_INSTANCE_STATUS, OpenAPIConstant.FETCH_INSTANCE_INFO, OpenAPIConstant.QUERY_INSTANCE, OpenAPIConstant.BATCH_FETCH_INSTANCE_STATUS,
+            OpenAPIConstant.FETCH_WORKFLOW, OpenAPIConstant.FETCH_WORKFLOW_INSTANCE_INFO
+    );
+
+    /**
+     * 批量接口，耗时随批次大小变化，不计入平均响应时间，避免正常的大批次请求导致 server 被判定为过慢
+     */
+    private static final Set<String> BULK_PATHS = Sets.newHashSet(
+            OpenAPIConstant.BATCH_RUN_JOB, OpenAPIConstant.BATCH_STOP_INSTANCE, OpenAPIConstant.BATCH_FETCH_INSTANCE_STATUS
+    );
+
+    /**
+     * 对冲请求线程池的最大线程数，超出后由调用线程直接发送请求（退化为依次重试）
+     */
+    private static final int MAX_HEDGE_THREAD_NUM = 16;
+
     public ClusterRequestService(ClientConfig config) {
         this.config = config;
         this.currentAddress = config.getAddressList().get(0);
+        this.healthTracker = new ServerHealthTracker(config.getSlowThresholdMillis(), System::currentTimeMillis);
+        RejectedExecutionHandler handler = (r, executor) -> {
+            // 线程池关闭后直接拒绝，否则任务被丢弃，等待结果的调用线程将永远阻塞
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("ClusterRequestService has been closed");
+            }
+            r.run();
+        };
+        this.hedgeExecutor = new ThreadPoolExecutor(0, MAX_HEDGE_THREAD_NUM, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("powerjob-client-hedge-%d").setDaemon(true).build(), handler);
     }
 
     /**
@@ -63,40 +116,155 @@ abstract class ClusterRequestService implements RequestService {
 
     /**
      * 封装集群请求能力
+     * 优先请求负责当前 app 的 server（未知时使用上次请求成功的地址），失败后按健康度对其余 server 进行故障转移：
+     * 只读接口并行对冲请求，取最先成功的响应；写接口依次重试，避免重复执行
      * @param path 请求 PATH
      * @param powerRequestBody 请求体
      * @return 响应
      */
     protected HttpResponse clusterHaRequest(String path, PowerRequestBody powerRequestBody) {
 
-        // 先尝试默认地址
-        String url = getUrl(path, currentAddress);
+        List<String> addressList = healthTracker.rank(fetchAddressList());
+        String primary = choosePrimary(addressList);
         try {
-            return sendHttpRequest(url, powerRequestBody);
-        } catch (IOException e) {
-            log.warn("[ClusterRequestService] request url:{} failed, reason is {}.", url, e.toString());
+            return send(primary, path, powerRequestBody);
+        } catch (IOException ignore) {
         }
 
-        List<String> addressList = fetchAddressList();
+        // 失败，开始故障转移
+        List<String> backupList = addressList.stream().filter(addr -> !Objects.equals(addr, primary)).collect(Collectors.toList());
+        HttpResponse res = IDEMPOTENT_PATHS.contains(path) ? hedgedRequest(backupList, path, powerRequestBody) : sequentialRequest(backupList, path, powerRequestBody);
+        if (res != null) {
+            return res;
+        }
 
-        // 失败，开始重试
-        for (String addr : addressList) {
-            if (Objects.equals(addr, currentAddress)) {
-                continue;
+        log.error("[ClusterRequestService] do post for path: {} failed because of no server available in {}.", path, addressList);
+        throw new PowerJobException("no server available when send post request");
+    }
+
+    private String choosePrimary(List<String> addressList) {
+        if (CollectionUtils.isEmpty(addressList)) {
+            return currentAddress;
+        }
+        for (String addr : Lists.newArrayList(leaderAddress, currentAddress)) {
+            if (addr != null && addressList.contains(addr) && healthTracker.isAvailable(addr)) {
+                return addr;
             }
-            url = getUrl(path, addr);
+        }
+        return addressList.get(0);
+    }
+
+    private HttpResponse sequentialRequest(List<String> addressList, String path, PowerRequestBody powerRequestBody) {
+        for (String addr : addressList) {
             try {
-                HttpResponse res = sendHttpRequest(url, powerRequestBody);
-                log.warn("[ClusterRequestService] server change: from({}) -> to({}).", currentAddress, addr);
-                currentAddress = addr;
-                return res;
-            } catch (IOException e) {
-                log.warn("[ClusterRequestService] request url:{} failed, reason is {}.", url, e.toString());
+                return send(addr, path, powerRequestBody);
+            } catch (IOException ignore) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 对冲请求：先请求第一个 server，超过 hedgeDelayMillis 未响应或请求失败时并行请求下一个，返回最先成功的响应
+     * 未完成的请求不会被取消，其结果依旧计入健康度统计
+     */
+    private HttpResponse hedgedRequest(List<String> addressList, String path, PowerRequestBody powerRequestBody) {
+        if (addressList.isEmpty()) {
+            return null;
+        }
+        CompletionService<HttpResponse> completionService = new ExecutorCompletionService<>(hedgeExecutor);
+        int launched = 0;
+        int failed = 0;
+        try {
+            while (failed < addressList.size()) {
+                if (launched == failed) {
+                    String addr = addressList.get(launched++);
+                    completionService.submit(() -> send(addr, path, powerRequestBody));
+                }
+                Future<HttpResponse> future;
+                if (launched < addressList.size()) {
+                    future = completionService.poll(config.getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+                    if (future == null) {
+                        String addr = addressList.get(launched++);
+                        log.info("[ClusterRequestService] no response within {}ms, send hedged request to {}.", config.getHedgeDelayMillis(), addr);
+                        completionService.submit(() -> send(addr, path, powerRequestBody));
+                        continue;
+                    }
+                } else {
+                    future = completionService.take();
+                }
+                try {
+                    return future.get();
+                } catch (ExecutionException ignore) {
+                    failed++;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PowerJobException("interrupted when send post request");
+        }
+        return null;
+    }
+
+    private HttpResponse send(String address, String path, PowerRequestBody powerRequestBody) throws IOException {
+        String url = getUrl(path, address);
+        long startMs = System.currentTimeMillis();
+        HttpResponse res;
+        try {
+            res = sendHttpRequest(url, powerRequestBody);
+        } catch (IOException e) {
+            healthTracker.recordFailure(address);
+            log.warn("[ClusterRequestService] request url:{} failed, reason is {}.", url, e.toString());
+            throw e;
+        }
+        if (BULK_PATHS.contains(path)) {
+            healthTracker.recordSuccess(address);
+        } else {
+            healthTracker.recordSuccess(address, System.currentTimeMillis() - startMs);
         }
 
-        log.error("[ClusterRequestService] do post for path: {} failed because of no server available in {}.", path, addressList);
-        throw new PowerJobException("no server available when send post request");
+        if (!Objects.equals(address, currentAddress)) {
+            log.warn("[ClusterRequestService] server change: from({}) -> to({}).", currentAddress, address);
+            currentAddress = address;
+        }
+        refreshLeaderAddress(res);
+        return res;
+    }
+
+    /**
+     * 根据 server 返回的路由信息更新 leader，仅接受地址列表中存在的地址
+     */
+    private void refreshLeaderAddress(HttpResponse res) {
+        String appServer = getHeader(res, OpenAPIConstant.RESPONSE_HEADER_APP_SERVER);
+        if (StringUtils.isEmpty(appServer) || Objects.equals(appServer, leaderAddress)) {
+            return;
+        }
+        if (!fetchAddressList().contains(appServer)) {
+            log.debug("[ClusterRequestService] app server({}) not in address list, ignore it.", appServer);
+            return;
+        }
+        log.info("[ClusterRequestService] app server change: from({}) -> to({}).", leaderAddress, appServer);
+        leaderAddress = appServer;
+    }
+
+    /**
+     * 获取响应头，HTTP header 名称不区分大小写（Nginx 代理默认会将自定义 header 转为纯小写，实现针对该情况的兼容）
+     */
+    protected static String getHeader(HttpResponse httpResponse, String name) {
+        Map<String, String> headers = httpResponse.getHeaders();
+        if (MapUtils.isEmpty(headers)) {
+            return null;
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        return headers.entrySet().stream().filter(e -> name.equalsIgnoreCase(e.getKey())).map(Map.Entry::getValue).findFirst().orElse(null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        hedgeExecutor.shutdown();
     }
 
     private List<String> fetchAddressList() {
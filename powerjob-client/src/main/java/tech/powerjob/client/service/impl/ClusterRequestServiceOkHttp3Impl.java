@@ -30,6 +30,11 @@ public class ClusterRequestServiceOkHttp3Impl extends AppAuthClusterRequestServi
 
     private final OkHttpClient okHttpClient;
 
+    /**
+     * OkHttp 默认保留的空闲连接数
+     */
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
 
     public ClusterRequestServiceOkHttp3Impl(ClientConfig config) {
         super(config);
@@ -123,6 +128,8 @@ public class ClusterRequestServiceOkHttp3Impl extends AppAuthClusterRequestServi
 
     private OkHttpClient.Builder commonOkHttpBuilder() {
         return new OkHttpClient.Builder()
+                // 异步接口并发请求时复用连接
+                .connectionPool(new ConnectionPool(Math.max(DEFAULT_MAX_IDLE_CONNECTIONS, config.getAsyncThreadNum()), 5, TimeUnit.MINUTES))
                 // 设置读取超时时间
                 .readTimeout(Optional.ofNullable(config.getReadTimeout()).orElse(DEFAULT_TIMEOUT_SECONDS), TimeUnit.SECONDS)
                 // 设置写的超时时间
@@ -135,6 +142,8 @@ public class ClusterRequestServiceOkHttp3Impl extends AppAuthClusterRequestServi
     @Override
     public void close() throws IOException {
 
+        super.close();
+
         // 关闭 Dispatcher
         okHttpClient.dispatcher().executorService().shutdown();
         // 清理连接池
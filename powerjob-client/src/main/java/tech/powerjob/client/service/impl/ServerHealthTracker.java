@@ -0,0 +1,124 @@
+package tech.powerjob.client.service.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * server 健康度统计
+ * 记录每个 server 的平均响应时间（EWMA）及连续失败次数，请求失败或响应过慢的 server 会被降级一段时间，降级期间仅作为兜底
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+class ServerHealthTracker {
+
+    /**
+     * 平均响应时间的平滑系数，越大越偏向最近一次请求
+     */
+    private static final double EWMA_ALPHA = 0.3;
+
+    /**
+     * 降级时长，连续失败时翻倍
+     */
+    static final long DEMOTE_MILLIS = 10000;
+    private static final long MAX_DEMOTE_MILLIS = 300000;
+    private static final int MAX_DEMOTE_SHIFT = 5;
+
+    private final long slowThresholdMillis;
+
+    private final LongSupplier clock;
+
+    private final Map<String, Health> address2Health = Maps.newConcurrentMap();
+
+    ServerHealthTracker(long slowThresholdMillis, LongSupplier clock) {
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.clock = clock;
+    }
+
+    void recordSuccess(String address, long costMillis) {
+        Health health = address2Health.computeIfAbsent(address, ignore -> new Health());
+        synchronized (health) {
+            health.latency = health.latency < 0 ? costMillis : EWMA_ALPHA * costMillis + (1 - EWMA_ALPHA) * health.latency;
+            health.failures = 0;
+            if (health.latency > slowThresholdMillis) {
+                health.demoteUntil = clock.getAsLong() + DEMOTE_MILLIS;
+                log.warn("[ServerHealthTracker] server({}) is too slow(avg {}ms), demote it for {}ms.", address, (long) health.latency, DEMOTE_MILLIS);
+            } else {
+                health.demoteUntil = 0;
+            }
+        }
+    }
+
+    /**
+     * 记录一次不参与平均响应时间统计的成功请求（如批量接口，耗时随批次大小变化），仅清除连续失败导致的降级
+     * @param address server 地址
+     */
+    void recordSuccess(String address) {
+        Health health = address2Health.computeIfAbsent(address, ignore -> new Health());
+        synchronized (health) {
+            health.failures = 0;
+            if (health.latency <= slowThresholdMillis) {
+                health.demoteUntil = 0;
+            }
+        }
+    }
+
+    void recordFailure(String address) {
+        Health health = address2Health.computeIfAbsent(address, ignore -> new Health());
+        synchronized (health) {
+            health.failures++;
+            long demoteMillis = Math.min(DEMOTE_MILLIS << Math.min(health.failures - 1, MAX_DEMOTE_SHIFT), MAX_DEMOTE_MILLIS);
+            health.demoteUntil = clock.getAsLong() + demoteMillis;
+        }
+    }
+
+    /**
+     * 是否可用（未被降级）
+     * @param address server 地址
+     * @return 未被降级或从未请求过时返回 true
+     */
+    boolean isAvailable(String address) {
+        Health health = address2Health.get(address);
+        return health == null || clock.getAsLong() >= health.demoteUntil;
+    }
+
+    /**
+     * 按健康度排序：可用的 server 按平均响应时间升序（未请求过的优先），降级的 server 按恢复时间升序排在最后
+     * @param addressList 地址列表
+     * @return 排序后的新列表，同等条件下保持原有顺序
+     */
+    List<String> rank(List<String> addressList) {
+        long now = clock.getAsLong();
+        Map<String, double[]> snapshot = Maps.newHashMap();
+        for (String address : addressList) {
+            Health health = address2Health.get(address);
+            if (health == null) {
+                snapshot.put(address, new double[]{0, 0});
+                continue;
+            }
+            synchronized (health) {
+                boolean available = now >= health.demoteUntil;
+                snapshot.put(address, available ? new double[]{0, Math.max(health.latency, 0)} : new double[]{1, health.demoteUntil});
+            }
+        }
+        List<String> ranked = Lists.newArrayList(addressList);
+        ranked.sort(Comparator.<String>comparingDouble(address -> snapshot.get(address)[0]).thenComparingDouble(address -> snapshot.get(address)[1]));
+        return ranked;
+    }
+
+    private static class Health {
+        /**
+         * 平均响应时间，-1 代表尚无成功请求
+         */
+        private double latency = -1;
+        private int failures;
+        private long demoteUntil;
+    }
+}
@@ -0,0 +1,53 @@
+package tech.powerjob.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步接口线程池测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class PowerJobClientTest {
+
+    @Test
+    void testAsyncExecutorCallerRunsWhenFull() throws Exception {
+        ThreadPoolExecutor executor = PowerJobClient.newAsyncExecutor(1, 1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            // 占满工作线程与队列
+            executor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> {});
+            Assertions.assertEquals(1, executor.getQueue().size());
+
+            // 继续提交由调用线程直接执行，队列不再增长
+            Thread caller = Thread.currentThread();
+            Assertions.assertSame(caller, CompletableFuture.supplyAsync(Thread::currentThread, executor).get(1, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, executor.getQueue().size());
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncExecutorRejectAfterShutdown() {
+        ThreadPoolExecutor executor = PowerJobClient.newAsyncExecutor(1, 1);
+        executor.shutdown();
+        // 关闭后提交直接失败，而不是返回永远不会完成的 future
+        Assertions.assertThrows(RejectedExecutionException.class, () -> CompletableFuture.supplyAsync(() -> 1, executor));
+    }
+}
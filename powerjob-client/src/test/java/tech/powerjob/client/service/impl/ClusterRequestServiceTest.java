@@ -0,0 +1,266 @@
+package tech.powerjob.client.service.impl;
+
+import com.google.common.collect.Lists;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.client.ClientConfig;
+import tech.powerjob.client.service.PowerRequestBody;
+import tech.powerjob.common.OpenAPIConstant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 集群请求路由及故障转移测试，使用本地 HTTP 桩模拟宕机、响应慢的 server
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class ClusterRequestServiceTest {
+
+    private final List<Closeable> resources = Lists.newArrayList();
+
+    @AfterEach
+    void destroy() throws IOException {
+        for (Closeable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void testRouteToAppServer() throws Exception {
+        StubServer a = new StubServer();
+        StubServer b = new StubServer();
+        a.appServer = b.address();
+        b.appServer = b.address();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(a.address(), b.address());
+
+        // 鉴权请求落到 a，a 告知该 app 由 b 负责，后续请求直接发往 b
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(b.address()));
+        }
+        Assertions.assertEquals(0, a.hits.get());
+        Assertions.assertEquals(3, b.hits.get());
+        Assertions.assertEquals(b.address(), requestService.leaderAddress);
+    }
+
+    @Test
+    void testIgnoreUnknownAppServer() throws Exception {
+        StubServer a = new StubServer();
+        a.appServer = "10.0.0.1:7700";
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(a.address());
+
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(a.address()));
+        Assertions.assertNull(requestService.leaderAddress);
+    }
+
+    @Test
+    void testFailoverSkipDeadServer() throws Exception {
+        String refused = refusedAddress();
+        String hang = hangAddress();
+        StubServer a = new StubServer();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(refused, hang, a.address());
+
+        // refused 立即失败，hang 超过对冲间隔未响应后并行请求 a，无需等待 hang 超时
+        long startMs = System.currentTimeMillis();
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.FETCH_INSTANCE_STATUS, body()).contains(a.address()));
+        Assertions.assertTrue(System.currentTimeMillis() - startMs < 900);
+        Assertions.assertFalse(requestService.healthTracker.isAvailable(refused));
+
+        // 失败的 server 被降级，后续请求直接发往 a
+        startMs = System.currentTimeMillis();
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(a.address()));
+        Assertions.assertTrue(System.currentTimeMillis() - startMs < 500);
+    }
+
+    @Test
+    void testHedgedReadRequest() throws Exception {
+        StubServer timeout = new StubServer();
+        timeout.delayMs = 1500;
+        StubServer slow = new StubServer();
+        slow.delayMs = 400;
+        StubServer fast = new StubServer();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(timeout.address(), slow.address(), fast.address());
+
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.FETCH_INSTANCE_STATUS, body()).contains(fast.address()));
+        Assertions.assertEquals(1, slow.hits.get());
+        Assertions.assertFalse(requestService.healthTracker.isAvailable(timeout.address()));
+    }
+
+    @Test
+    void testWriteRequestNotHedged() throws Exception {
+        StubServer timeout = new StubServer();
+        timeout.delayMs = 1500;
+        StubServer slow = new StubServer();
+        slow.delayMs = 400;
+        StubServer fast = new StubServer();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(timeout.address(), slow.address(), fast.address());
+
+        // 写请求依次重试，不会并行发往多个 server
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(slow.address()));
+        Assertions.assertEquals(0, fast.hits.get());
+    }
+
+    @Test
+    void testSlowServerDemoted() throws Exception {
+        StubServer slow = new StubServer();
+        slow.delayMs = 800;
+        StubServer fast = new StubServer();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(slow.address(), fast.address());
+
+        // 平均响应时间逐步上升，超过阈值后被降级
+        while (requestService.healthTracker.isAvailable(slow.address()) && slow.hits.get() < 5) {
+            Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(slow.address()));
+        }
+        Assertions.assertFalse(requestService.healthTracker.isAvailable(slow.address()));
+        int slowHits = slow.hits.get();
+        Assertions.assertTrue(requestService.request(OpenAPIConstant.RUN_JOB, body()).contains(fast.address()));
+        Assertions.assertEquals(slowHits, slow.hits.get());
+    }
+
+    @Test
+    void testBulkRequestNotDemoted() throws Exception {
+        StubServer slow = new StubServer();
+        slow.delayMs = 800;
+        StubServer fast = new StubServer();
+        ClusterRequestServiceOkHttp3Impl requestService = newRequestService(slow.address(), fast.address());
+
+        // 批量接口耗时随批次大小变化，不计入平均响应时间
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(requestService.request(OpenAPIConstant.BATCH_RUN_JOB, body()).contains(slow.address()));
+        }
+        Assertions.assertTrue(requestService.healthTracker.isAvailable(slow.address()));
+    }
+
+    @Test
+    void testHealthTrackerBulkSuccess() {
+        long[] now = {0};
+        ServerHealthTracker tracker = new ServerHealthTracker(500, () -> now[0]);
+        tracker.recordFailure("a");
+        Assertions.assertFalse(tracker.isAvailable("a"));
+        // 成功的批量请求清除失败降级，但不影响平均响应时间
+        tracker.recordSuccess("a");
+        Assertions.assertTrue(tracker.isAvailable("a"));
+        tracker.recordSuccess("b", 20);
+        Assertions.assertEquals(Lists.newArrayList("a", "b"), tracker.rank(Lists.newArrayList("b", "a")));
+
+        // 因过慢被降级的 server 不会因批量请求成功而恢复
+        tracker.recordSuccess("b", 2000);
+        tracker.recordSuccess("b");
+        Assertions.assertFalse(tracker.isAvailable("b"));
+    }
+
+    @Test
+    void testHealthTrackerRank() {
+        long[] now = {0};
+        ServerHealthTracker tracker = new ServerHealthTracker(500, () -> now[0]);
+        tracker.recordSuccess("a", 100);
+        tracker.recordSuccess("b", 20);
+        tracker.recordFailure("c");
+        Assertions.assertEquals(Lists.newArrayList("d", "b", "a", "c"), tracker.rank(Lists.newArrayList("a", "b", "c", "d")));
+
+        // 降级到期后恢复
+        now[0] += ServerHealthTracker.DEMOTE_MILLIS;
+        Assertions.assertTrue(tracker.isAvailable("c"));
+        // 连续失败，降级时间翻倍
+        tracker.recordFailure("c");
+        now[0] += ServerHealthTracker.DEMOTE_MILLIS;
+        Assertions.assertFalse(tracker.isAvailable("c"));
+    }
+
+    private ClusterRequestServiceOkHttp3Impl newRequestService(String... addressList) {
+        ClientConfig config = new ClientConfig()
+                .setAppName("powerjob-worker-samples")
+                .setPassword("powerjob123")
+                .setAddressList(Lists.newArrayList(addressList))
+                .setConnectionTimeout(1)
+                .setReadTimeout(1)
+                .setWriteTimeout(1)
+                .setHedgeDelayMillis(100)
+                .setSlowThresholdMillis(500);
+        ClusterRequestServiceOkHttp3Impl requestService = new ClusterRequestServiceOkHttp3Impl(config);
+        resources.add(requestService);
+        return requestService;
+    }
+
+    private static PowerRequestBody body() {
+        return PowerRequestBody.newJsonRequestBody(Collections.emptyMap());
+    }
+
+    /**
+     * 端口未监听，连接被拒绝
+     */
+    private static String refusedAddress() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return "127.0.0.1:" + serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * 能建立连接但永远不响应，模拟假死
+     */
+    private String hangAddress() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0);
+        resources.add(serverSocket);
+        return "127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * 模拟 server，响应体中携带自身地址；鉴权请求不计入请求次数，也不受延迟影响
+     */
+    private class StubServer {
+
+        private final HttpServer server;
+
+        private final AtomicInteger hits = new AtomicInteger();
+
+        private volatile long delayMs;
+
+        private volatile String appServer;
+
+        StubServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(null);
+            server.createContext("/", exchange -> {
+                String response;
+                if (exchange.getRequestURI().getPath().endsWith(OpenAPIConstant.AUTH_APP)) {
+                    response = "{\"success\":true,\"data\":{\"appId\":1,\"token\":\"token\"}}";
+                } else {
+                    hits.incrementAndGet();
+                    try {
+                        Thread.sleep(delayMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    response = "{\"success\":true,\"data\":\"" + address() + "\"}";
+                }
+                exchange.getResponseHeaders().add(OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS, Boolean.TRUE.toString());
+                if (appServer != null) {
+                    exchange.getResponseHeaders().add(OpenAPIConstant.RESPONSE_HEADER_APP_SERVER, appServer);
+                }
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes);
+                } catch (IOException ignore) {
+                    // client 已超时断开
+                }
+            });
+            server.start();
+            resources.add(() -> server.stop(0));
+        }
+
+        String address() {
+            return "127.0.0.1:" + server.getAddress().getPort();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package tech.powerjob.client.test;
 
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.common.request.http.RunJobRequest;
@@ -10,6 +11,12 @@ import tech.powerjob.common.response.PowerResultDTO;
 import tech.powerjob.common.response.ResultDTO;
 import tech.powerjob.common.serialize.JsonUtils;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 /**
  * 测试任务实例
  *
@@ -41,4 +48,38 @@ public class TestInstance extends ClientInitializer {
 
         assert pageResultResultDTO.getData().getData().get(0).getInstanceId().equals(instanceId);
     }
+
+    @Test
+    void testBatchApi() {
+        List<RunJobRequest> runJobRequests = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            runJobRequests.add(new RunJobRequest().setJobId(jobId).setInstanceParams("Batch-" + i).setDelay(60000L));
+        }
+        ResultDTO<List<Long>> runResult = powerJobClient.batchRunJob(runJobRequests);
+        log.info("[TestInstance] batchRunJob: {}", runResult);
+        List<Long> instanceIds = runResult.getData();
+        assert instanceIds.size() == 10;
+
+        ResultDTO<Map<Long, Integer>> statusResult = powerJobClient.batchFetchInstanceStatus(instanceIds);
+        log.info("[TestInstance] batchFetchInstanceStatus: {}", statusResult);
+        assert statusResult.getData().size() == 10;
+
+        ResultDTO<Map<Long, String>> stopResult = powerJobClient.batchStopInstance(instanceIds);
+        log.info("[TestInstance] batchStopInstance: {}", stopResult);
+        assert stopResult.getData().isEmpty();
+    }
+
+    @Test
+    void testAsyncApi() throws Exception {
+        List<CompletableFuture<PowerResultDTO<Long>>> futures = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            futures.add(powerJobClient.runJobAsync(new RunJobRequest().setJobId(jobId).setInstanceParams("Async-" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        List<Long> instanceIds = futures.stream().map(f -> f.join().getData()).collect(Collectors.toList());
+
+        Map<Long, Integer> statusMap = powerJobClient.batchFetchInstanceStatusAsync(instanceIds).get(10, TimeUnit.SECONDS).getData();
+        log.info("[TestInstance] batchFetchInstanceStatusAsync: {}", statusMap);
+        assert statusMap.keySet().containsAll(instanceIds);
+    }
 }
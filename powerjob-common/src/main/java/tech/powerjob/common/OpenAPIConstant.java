@@ -32,6 +32,7 @@ public class OpenAPIConstant {
     public static final String DELETE_JOB = "/deleteJob";
     public static final String RUN_JOB = "/runJob";
     public static final String RUN_JOB2 = "/runJob2";
+    public static final String BATCH_RUN_JOB = "/batchRunJob";
 
     /* ************* Instance 区 ************* */
 
@@ -41,6 +42,13 @@ public class OpenAPIConstant {
     public static final String FETCH_INSTANCE_STATUS = "/fetchInstanceStatus";
     public static final String FETCH_INSTANCE_INFO = "/fetchInstanceInfo";
     public static final String QUERY_INSTANCE = "/queryInstance";
+    public static final String BATCH_STOP_INSTANCE = "/batchStopInstance";
+    public static final String BATCH_FETCH_INSTANCE_STATUS = "/batchFetchInstanceStatus";
+
+    /**
+     * 批量接口单次请求的最大条数
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
 
     /* ************* Workflow 区 ************* */
 
@@ -67,4 +75,11 @@ public class OpenAPIConstant {
     public static final String REQUEST_HEADER_APP_ID = "X-POWERJOB-APP-ID";
 
     public static final String RESPONSE_HEADER_AUTH_STATUS = "X-POWERJOB-AUTH-PASSED";
+
+    /* ************* 路由 ************* */
+
+    /**
+     * 当前负责该 app 的 server 的 OpenAPI 地址（ip:port），client 据此直接路由，减少 server 间转发
+     */
+    public static final String RESPONSE_HEADER_APP_SERVER = "X-POWERJOB-APP-SERVER";
 }
@@ -35,10 +35,18 @@ public class RemoteConstant {
      * server 处理在线日志
      */
     public static final String S4W_HANDLER_REPORT_LOG = "reportLog";
+    /**
+     * server 日志写缓冲已满，要求 worker 降低上报速度（日志上报响应中的错误信息）
+     */
+    public static final String S4W_LOG_REPORT_BUSY = "BUSY";
     /**
      * server 处理 worker 心跳
      */
     public static final String S4W_HANDLER_WORKER_HEARTBEAT = "workerHeartbeat";
+    /**
+     * server 要求 worker 重新发送全量心跳（心跳响应中的错误信息）
+     */
+    public static final String S4W_HEARTBEAT_RESYNC = "RESYNC";
 
     /**
      * server 处理 TaskTracker 上报的任务实例状态
@@ -32,4 +32,15 @@ public class DeployedContainerInfo implements PowerSerializable {
      * No need to report to the server
      */
     private String workerAddress;
+    /**
+     * Download URL of the jar file provided by the worker, null if peer download is disabled.
+     */
+    private String downloadURL;
+
+    public DeployedContainerInfo(Long containerId, String version, long deployedTime, String workerAddress) {
+        this.containerId = containerId;
+        this.version = version;
+        this.deployedTime = deployedTime;
+        this.workerAddress = workerAddress;
+    }
 }
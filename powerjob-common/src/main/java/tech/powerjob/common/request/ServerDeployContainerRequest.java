@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * Worker部署Container请求
  *
@@ -32,4 +34,19 @@ public class ServerDeployContainerRequest implements PowerSerializable {
      * 下载地址
      */
     private String downloadURL;
+    /**
+     * Jar 文件的 MD5 值，worker 以此为 key 缓存 Jar 文件、复用类加载器，并校验下载结果
+     */
+    private String fileHash;
+    /**
+     * 已部署该版本的 worker 提供的下载地址，worker 优先从这些地址下载，全部失败后再从 server 下载
+     */
+    private List<String> peerDownloadURLs;
+
+    public ServerDeployContainerRequest(Long containerId, String containerName, String version, String downloadURL) {
+        this.containerId = containerId;
+        this.containerName = containerName;
+        this.version = version;
+        this.downloadURL = downloadURL;
+    }
 }
@@ -10,6 +10,7 @@ import java.util.List;
 
 /**
  * Worker 上报健康信息（worker定时发送的heartbeat）
+ * 连接建立或状态版本不一致时发送全量心跳，其余情况只发送增量心跳（delta = true），增量心跳中值为 null 的字段表示未发生变化
  *
  * @author tjq
  * @since 2020/3/25
@@ -68,4 +69,17 @@ public class WorkerHeartbeat implements PowerSerializable {
 
 
     private SystemMetrics systemMetrics;
+
+    /**
+     * 是否为增量心跳
+     */
+    private boolean delta;
+    /**
+     * 应用本次心跳后 worker 的状态版本
+     */
+    private long stateVersion;
+    /**
+     * 增量心跳所基于的状态版本，与 server 端记录的版本不一致时需要重新发送全量心跳
+     */
+    private long baseVersion;
 }
@@ -0,0 +1,25 @@
+package tech.powerjob.common.request.http;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 批量操作任务实例（停止、查询状态）
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+@Accessors(chain = true)
+public class BatchInstanceRequest {
+
+    /**
+     * 任务实例ID，单次最多 {@link tech.powerjob.common.OpenAPIConstant#MAX_BATCH_SIZE} 个
+     */
+    private List<Long> instanceIds;
+
+    /* 无需填写，系统自动填充 */
+    private Long appId;
+}
@@ -0,0 +1,25 @@
+package tech.powerjob.common.request.http;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 批量运行任务，一次请求只做一次鉴权，实例批量落库
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+@Accessors(chain = true)
+public class BatchRunJobRequest {
+
+    /**
+     * 运行请求，单次最多 {@link tech.powerjob.common.OpenAPIConstant#MAX_BATCH_SIZE} 条
+     */
+    private List<RunJobRequest> requests;
+
+    /* 无需填写，系统自动填充 */
+    private Long appId;
+}
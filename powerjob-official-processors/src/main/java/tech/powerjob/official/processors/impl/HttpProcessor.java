@@ -3,22 +3,30 @@ package tech.powerjob.official.processors.impl;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.JSONValidator;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import tech.powerjob.worker.core.processor.ProcessResult;
 import tech.powerjob.worker.core.processor.TaskContext;
 import tech.powerjob.worker.log.OmsLogger;
 import lombok.Data;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
 import tech.powerjob.official.processors.CommonBasicProcessor;
 import tech.powerjob.official.processors.util.CommonUtils;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * common http processor
+ * 所有请求共享同一个 Dispatcher 与连接池，异步发送并限制全局及单个 host 的并发数；
+ * 配置 urls 时进入批量模式，同一个任务向多个地址并发发送相同的请求并汇总结果
  *
  * @author tjq
  * @author Jiang Jining
@@ -31,6 +39,19 @@ public class HttpProcessor extends CommonBasicProcessor {
      */
     private static final int DEFAULT_TIMEOUT = 60;
     private static final int HTTP_SUCCESS_CODE = 200;
+    /**
+     * 批量模式下结果中最多展示的失败地址数量
+     */
+    private static final int MAX_FAILED_URLS_IN_RESULT = 10;
+
+    public static final String MAX_REQUESTS_DKEY = "powerjob.official-processor.http.max-requests";
+    public static final String MAX_REQUESTS_PER_HOST_DKEY = "powerjob.official-processor.http.max-requests-per-host";
+    public static final String MAX_IDLE_CONNECTIONS_DKEY = "powerjob.official-processor.http.max-idle-connections";
+
+    private static final OkHttpClient BASE_CLIENT = buildBaseClient();
+    /**
+     * 不同超时时间的 client 均由 BASE_CLIENT 派生，共享 Dispatcher 与连接池
+     */
     private static final Map<Integer, OkHttpClient> CLIENT_STORE = new ConcurrentHashMap<>();
 
     @Override
@@ -44,15 +65,11 @@ public class HttpProcessor extends CommonBasicProcessor {
             return new ProcessResult(false, message);
         }
 
-        if (StringUtils.isEmpty(httpParams.url)) {
+        boolean batchMode = httpParams.urls != null && !httpParams.urls.isEmpty();
+        if (!batchMode && StringUtils.isEmpty(httpParams.url)) {
             return new ProcessResult(false, "url can't be empty!");
         }
 
-        if (!httpParams.url.startsWith("http")) {
-            httpParams.url = "http://" + httpParams.url;
-        }
-        omsLogger.info("request url: {}", httpParams.url);
-
         // set default method
         if (StringUtils.isEmpty(httpParams.method)) {
             httpParams.method = "GET";
@@ -82,11 +99,66 @@ public class HttpProcessor extends CommonBasicProcessor {
         omsLogger.info("request timeout: {} seconds", httpParams.timeout);
         OkHttpClient client = getClient(httpParams.timeout);
 
-        Request.Builder builder = new Request.Builder().url(httpParams.url);
+        if (batchMode) {
+            return batchProcess(client, httpParams, omsLogger);
+        }
+
+        String url = normalizeUrl(httpParams.url);
+        omsLogger.info("request url: {}", url);
+        HttpResult httpResult = waitFor(Lists.newArrayList(send(client, buildRequest(url, httpParams, omsLogger)))).get(0);
+        if (httpResult.exception != null) {
+            return ExceptionUtils.rethrow(httpResult.exception);
+        }
+        omsLogger.info("response code: {}", httpResult.code);
+
+        String res = String.format("code:%d, body:%s", httpResult.code, httpResult.body);
+        boolean success = true;
+        if (httpResult.code != HTTP_SUCCESS_CODE) {
+            success = false;
+            omsLogger.warn("{} url: {} failed, response code is {}, response body is {}",
+                    httpParams.method, url, httpResult.code, httpResult.body);
+        }
+        return new ProcessResult(success, res);
+    }
+
+    /**
+     * 批量模式：并发请求所有地址，全部成功时任务才成功
+     */
+    private ProcessResult batchProcess(OkHttpClient client, HttpParams httpParams, OmsLogger omsLogger) throws InterruptedException {
+        List<String> urls = httpParams.urls.stream().filter(StringUtils::isNotEmpty).map(HttpProcessor::normalizeUrl).distinct().collect(Collectors.toList());
+        omsLogger.info("batch mode, request {} urls", urls.size());
+
+        List<CompletableFuture<HttpResult>> futures = Lists.newArrayListWithCapacity(urls.size());
+        for (String url : urls) {
+            futures.add(send(client, buildRequest(url, httpParams, null)));
+        }
+        List<HttpResult> results = waitFor(futures);
+
+        List<String> failedUrls = Lists.newLinkedList();
+        for (HttpResult result : results) {
+            if (result.success()) {
+                omsLogger.info("{} url: {} succeed, response body is {}", httpParams.method, result.url, result.body);
+            } else {
+                failedUrls.add(result.url);
+                omsLogger.warn("{} url: {} failed, response code is {}, response body is {}, exception is {}",
+                        httpParams.method, result.url, result.code, result.body, result.exception == null ? null : ExceptionUtils.getMessage(result.exception));
+            }
+        }
+        String res = String.format("total:%d, succeed:%d, failed:%d", results.size(), results.size() - failedUrls.size(), failedUrls.size());
+        if (!failedUrls.isEmpty()) {
+            res += ", failedUrls:" + failedUrls.stream().limit(MAX_FAILED_URLS_IN_RESULT).collect(Collectors.toList());
+        }
+        return new ProcessResult(failedUrls.isEmpty(), res);
+    }
+
+    private static Request buildRequest(String url, HttpParams httpParams, OmsLogger omsLogger) {
+        Request.Builder builder = new Request.Builder().url(url);
         if (httpParams.headers != null) {
             httpParams.headers.forEach((k, v) -> {
                 builder.addHeader(k, v);
-                omsLogger.info("add header {}:{}", k, v);
+                if (omsLogger != null) {
+                    omsLogger.info("add header {}:{}", k, v);
+                }
             });
         }
 
@@ -95,31 +167,69 @@ public class HttpProcessor extends CommonBasicProcessor {
             case "DELETE":
             case "POST":
                 MediaType mediaType = MediaType.parse(httpParams.mediaType);
-                omsLogger.info("mediaType: {}", mediaType);
+                if (omsLogger != null) {
+                    omsLogger.info("mediaType: {}", mediaType);
+                }
                 RequestBody requestBody = RequestBody.create(mediaType, httpParams.body);
                 builder.method(httpParams.method, requestBody);
                 break;
             default:
                 builder.get();
         }
+        return builder.build();
+    }
 
-        Response response = client.newCall(builder.build()).execute();
-        omsLogger.info("response: {}", response);
+    /**
+     * 通过共享 Dispatcher 异步发送请求，Dispatcher 负责全局及单个 host 的并发控制
+     */
+    private static CompletableFuture<HttpResult> send(OkHttpClient client, Request request) {
+        String url = request.url().toString();
+        Call call = client.newCall(request);
+        CompletableFuture<HttpResult> future = new CompletableFuture<HttpResult>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                call.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.complete(new HttpResult(url, -1, null, e));
+            }
 
-        String msgBody = "";
-        if (response.body() != null) {
-            msgBody = response.body().string();
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (ResponseBody body = response.body()) {
+                    future.complete(new HttpResult(url, response.code(), body == null ? "" : body.string(), null));
+                } catch (Exception e) {
+                    future.complete(new HttpResult(url, response.code(), null, e));
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 等待所有请求完成，执行线程被中断（如任务被停止）时取消所有未完成的请求
+     */
+    private static List<HttpResult> waitFor(List<CompletableFuture<HttpResult>> futures) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        } catch (ExecutionException ignore) {
+            // 回调中只会正常完成，不会走到这里
         }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
 
-        int responseCode = response.code();
-        String res = String.format("code:%d, body:%s", responseCode, msgBody);
-        boolean success = true;
-        if (responseCode != HTTP_SUCCESS_CODE) {
-            success = false;
-            omsLogger.warn("{} url: {} failed, response code is {}, response body is {}",
-                    httpParams.method, httpParams.url, responseCode, msgBody);
+    private static String normalizeUrl(String url) {
+        if (!url.startsWith("http")) {
+            return "http://" + url;
         }
-        return new ProcessResult(success, res);
+        return url;
     }
 
     @Data
@@ -132,6 +242,10 @@ public class HttpProcessor extends CommonBasicProcessor {
          * the request url
          */
         private String url;
+        /**
+         * batch mode: the same request is sent to all urls concurrently, and the task succeeds only if all requests succeed
+         */
+        private List<String> urls;
         /**
          * application/json
          * application/xml
@@ -151,12 +265,46 @@ public class HttpProcessor extends CommonBasicProcessor {
         private Integer timeout;
     }
 
+    private static class HttpResult {
+
+        private final String url;
+        private final int code;
+        private final String body;
+        private final Exception exception;
+
+        HttpResult(String url, int code, String body, Exception exception) {
+            this.url = url;
+            this.code = code;
+            this.body = body;
+            this.exception = exception;
+        }
+
+        boolean success() {
+            return exception == null && code == HTTP_SUCCESS_CODE;
+        }
+    }
+
     private static OkHttpClient getClient(Integer timeout) {
-        return CLIENT_STORE.computeIfAbsent(timeout, ignore -> new OkHttpClient.Builder()
+        return CLIENT_STORE.computeIfAbsent(timeout, ignore -> BASE_CLIENT.newBuilder()
+                .callTimeout(timeout, TimeUnit.SECONDS)
+                .build());
+    }
+
+    private static OkHttpClient buildBaseClient() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("powerjob-http-processor-%d").setDaemon(true).build();
+        int maxRequests = Integer.getInteger(MAX_REQUESTS_DKEY, 256);
+        // Dispatcher 保证同时执行的请求不超过 maxRequests，线程数随之有界；队列仅用于吸收请求结束与线程归还之间的短暂重叠
+        ThreadPoolExecutor executorService = new ThreadPoolExecutor(maxRequests, maxRequests, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxRequests), threadFactory);
+        executorService.allowCoreThreadTimeOut(true);
+        Dispatcher dispatcher = new Dispatcher(executorService);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(Integer.getInteger(MAX_REQUESTS_PER_HOST_DKEY, 32));
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(Integer.getInteger(MAX_IDLE_CONNECTIONS_DKEY, 32), 5, TimeUnit.MINUTES))
                 .connectTimeout(Duration.ZERO)
                 .readTimeout(Duration.ZERO)
                 .writeTimeout(Duration.ZERO)
-                .callTimeout(timeout, TimeUnit.SECONDS)
-                .build());
+                .build();
     }
 }
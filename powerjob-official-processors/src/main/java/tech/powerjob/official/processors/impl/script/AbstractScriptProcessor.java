@@ -6,24 +6,24 @@ import tech.powerjob.worker.core.processor.ProcessResult;
 import tech.powerjob.worker.core.processor.TaskContext;
 import tech.powerjob.worker.log.OmsLogger;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import tech.powerjob.official.processors.CommonBasicProcessor;
 import tech.powerjob.official.processors.util.CommonUtils;
 
-import java.io.*;
-import java.net.URL;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 
 /**
  * 脚本处理器
+ * 脚本按内容哈希缓存在本地（下载的脚本通过条件请求校验是否变化），输出逐行流式同步到在线日志并按速率限流，任务结果只保留最后若干行
  *
  * @author tjq
  * @author Jiang Jining
@@ -38,6 +38,12 @@ public abstract class AbstractScriptProcessor extends CommonBasicProcessor {
     protected static final String CMD_SHELL = "cmd.exe";
 
     private static final String WORKER_DIR = PowerFileUtils.workspace() + "/official_script_processor/";
+    /**
+     * 每秒最多同步到在线日志的输出行数
+     */
+    public static final String MAX_LOG_LINES_PER_SECOND_DKEY = "powerjob.official-processor.script.max-log-lines-per-second";
+
+    private static final ScriptFileCache SCRIPT_CACHE = new ScriptFileCache(WORKER_DIR + "scripts/");
 
     @Override
     protected ProcessResult process0(TaskContext context) throws Exception {
@@ -73,19 +79,17 @@ public abstract class AbstractScriptProcessor extends CommonBasicProcessor {
                 : new ProcessBuilder(getRunCommand(), scriptPath);
         Process process = pb.start();
 
-        StringBuilder inputBuilder = new StringBuilder();
-        StringBuilder errorBuilder = new StringBuilder();
-
         boolean success = true;
         String result;
 
-        final Charset charset = getCharset();
+        final Charset charset = getCharset() == null ? Charset.defaultCharset() : getCharset();
+        // stdout 与 stderr 共享限流器
+        RateLimiter rateLimiter = RateLimiter.create(Integer.getInteger(MAX_LOG_LINES_PER_SECOND_DKEY, 200));
+        ScriptOutputCollector inputCollector = new ScriptOutputCollector(process.getInputStream(), charset, omsLogger, rateLimiter);
+        ScriptOutputCollector errorCollector = new ScriptOutputCollector(process.getErrorStream(), charset, omsLogger, rateLimiter);
         try {
-            InputStream is = process.getInputStream();
-            InputStream es = process.getErrorStream();
-
-            ForkJoinTask<?> inputSubmit = POOL.submit(() -> copyStream(is, inputBuilder, omsLogger, charset));
-            ForkJoinTask<?> errorSubmit = POOL.submit(() -> copyStream(es, errorBuilder, omsLogger, charset));
+            ForkJoinTask<?> inputSubmit = POOL.submit(inputCollector);
+            ForkJoinTask<?> errorSubmit = POOL.submit(errorCollector);
 
             success = process.waitFor() == 0;
 
@@ -95,72 +99,26 @@ public abstract class AbstractScriptProcessor extends CommonBasicProcessor {
 
         } catch (InterruptedException ie) {
             omsLogger.info("[SYSTEM] ScriptProcessor has been interrupted");
+            process.destroy();
         } finally {
-            result = String.format("[INPUT]: %s;[ERROR]: %s", inputBuilder, errorBuilder);
+            result = String.format("[INPUT]: %s;[ERROR]: %s", inputCollector.tail(), errorCollector.tail());
         }
         return new ProcessResult(success, result);
     }
 
     private String prepareScriptFile(Long instanceId, String processorInfo) throws IOException {
-        String scriptPath = WORKER_DIR + getScriptName(instanceId);
-        File script = new File(scriptPath);
-        if (script.exists()) {
-            return scriptPath;
-        }
-        File dir = new File(script.getParent());
-        boolean success = dir.mkdirs();
-        success = script.createNewFile();
-        if (!success) {
-            throw new RuntimeException("create script file failed");
-        }
+        // 脚本文件按内容哈希命名，getScriptName 仅用于确定扩展名
+        String extension = FilenameUtils.getExtension(getScriptName(instanceId));
 
         // 如果是下载链接，则从网络获取
         for (String protocol : DOWNLOAD_PROTOCOL) {
             if (processorInfo.startsWith(protocol)) {
-                FileUtils.copyURLToFile(new URL(processorInfo), script, 5000, 300000);
-                return scriptPath;
+                return SCRIPT_CACHE.fetchRemote(processorInfo, extension).getAbsolutePath();
             }
         }
 
-        final Charset charset = getCharset();
-
-        if(charset != null)
-        {
-            try (Writer fstream = new OutputStreamWriter(Files.newOutputStream(script.toPath()), charset); BufferedWriter out = new BufferedWriter(fstream)) {
-                out.write(processorInfo);
-                out.flush();
-            }
-        }
-        else {
-            try (FileWriter fw = new FileWriter(script); BufferedWriter bw = new BufferedWriter(fw)) {
-                bw.write(processorInfo);
-                bw.flush();
-            }
-        }
-        return scriptPath;
-    }
-
-    private void copyStream(InputStream is, StringBuilder sb, OmsLogger omsLogger, Charset charset) {
-        String line;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, charset))) {
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append(System.lineSeparator());
-                // 同步到在线日志
-                omsLogger.info(line);
-            }
-        } catch (Exception e) {
-            log.warn("[ScriptProcessor] copyStream failed.", e);
-            omsLogger.warn("[SYSTEM] copyStream failed.", e);
-
-            sb.append("Exception: ").append(e);
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                log.warn("[ScriptProcessor] close stream failed.", e);
-                omsLogger.warn("[SYSTEM] close stream failed.", e);
-            }
-        }
+        final Charset charset = getCharset() == null ? Charset.defaultCharset() : getCharset();
+        return SCRIPT_CACHE.fetchInline(processorInfo, charset, extension).getAbsolutePath();
     }
 
     /**
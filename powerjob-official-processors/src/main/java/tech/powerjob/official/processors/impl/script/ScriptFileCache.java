@@ -0,0 +1,119 @@
+package tech.powerjob.official.processors.impl.script;
+
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 脚本文件缓存，脚本按内容的 SHA-256 命名存放，相同内容只落盘一次
+ * 下载的脚本记录 ETag / Last-Modified，再次执行时发起条件请求，服务端返回 304 时直接复用本地文件，跳过下载
+ *
+ * @author tjq
+ * @since 2024/3/11
+ */
+@Slf4j
+class ScriptFileCache {
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 300000;
+
+    private final File cacheDir;
+
+    private final Map<String, RemoteScript> remoteScripts = new ConcurrentHashMap<>();
+
+    ScriptFileCache(String cacheDir) {
+        this.cacheDir = new File(cacheDir);
+    }
+
+    /**
+     * 获取内联脚本对应的本地文件
+     * @param content 脚本内容
+     * @param charset 字符集
+     * @param extension 文件扩展名
+     * @return 脚本文件
+     */
+    File fetchInline(String content, Charset charset, String extension) throws IOException {
+        byte[] bytes = content.getBytes(charset);
+        return store(Hashing.sha256().hashBytes(bytes).toString(), extension, bytes);
+    }
+
+    /**
+     * 获取远程脚本对应的本地文件
+     * @param url 下载地址
+     * @param extension 文件扩展名
+     * @return 脚本文件
+     */
+    File fetchRemote(String url, String extension) throws IOException {
+        RemoteScript cached = remoteScripts.get(url);
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        if (cached != null && cached.file.exists() && connection instanceof HttpURLConnection) {
+            if (cached.eTag != null) {
+                connection.setRequestProperty("If-None-Match", cached.eTag);
+            }
+            if (cached.lastModified > 0) {
+                connection.setIfModifiedSince(cached.lastModified);
+            }
+        }
+        try {
+            if (connection instanceof HttpURLConnection && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                log.debug("[ScriptFileCache] script({}) not modified, use local file: {}", url, cached.file);
+                return cached.file;
+            }
+            byte[] bytes;
+            try (InputStream is = connection.getInputStream()) {
+                bytes = IOUtils.toByteArray(is);
+            }
+            File file = store(Hashing.sha256().hashBytes(bytes).toString(), extension, bytes);
+            remoteScripts.put(url, new RemoteScript(file, connection.getHeaderField("ETag"), connection.getLastModified()));
+            return file;
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    private File store(String hash, String extension, byte[] bytes) throws IOException {
+        File file = new File(cacheDir, extension == null || extension.isEmpty() ? hash : hash + "." + extension);
+        if (file.exists() && file.length() == bytes.length) {
+            return file;
+        }
+        FileUtils.forceMkdir(cacheDir);
+        // 先写临时文件再原子替换，避免并发执行同一脚本时读到写了一半的文件
+        File tmp = File.createTempFile(hash, ".tmp", cacheDir);
+        try {
+            FileUtils.writeByteArrayToFile(tmp, bytes);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+        return file;
+    }
+
+    private static class RemoteScript {
+        private final File file;
+        private final String eTag;
+        private final long lastModified;
+
+        RemoteScript(File file, String eTag, long lastModified) {
+            this.file = file;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package tech.powerjob.official.processors.impl.script;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import tech.powerjob.worker.log.OmsLogger;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 逐行读取脚本输出并同步到在线日志
+ * 1. 单行长度有上限，超长部分直接丢弃，不会因为没有换行的超大输出撑爆内存
+ * 2. 在线日志按速率限流（stdout 与 stderr 共享同一个限流器），超出速率的行只计数，并周期性输出被丢弃的行数
+ * 3. 只保留最后若干行作为任务结果
+ *
+ * @author tjq
+ * @since 2024/3/11
+ */
+@Slf4j
+class ScriptOutputCollector implements Runnable {
+
+    static final int MAX_LINE_LENGTH = 4096;
+    static final int MAX_TAIL_LINES = 20;
+
+    private final InputStream is;
+    private final Charset charset;
+    private final OmsLogger omsLogger;
+    private final RateLimiter rateLimiter;
+
+    private final Deque<String> tailLines = new ArrayDeque<>(MAX_TAIL_LINES);
+
+    private long totalLines;
+    private long suppressedLines;
+    private long pendingSuppressedLines;
+
+    ScriptOutputCollector(InputStream is, Charset charset, OmsLogger omsLogger, RateLimiter rateLimiter) {
+        this.is = is;
+        this.charset = charset;
+        this.omsLogger = omsLogger;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void run() {
+        char[] buffer = new char[8192];
+        StringBuilder line = new StringBuilder();
+        boolean truncated = false;
+        try (Reader reader = new InputStreamReader(is, charset)) {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    char c = buffer[i];
+                    if (c == '\n') {
+                        onLine(line, truncated);
+                        line.setLength(0);
+                        truncated = false;
+                    } else if (c != '\r') {
+                        if (line.length() < MAX_LINE_LENGTH) {
+                            line.append(c);
+                        } else {
+                            truncated = true;
+                        }
+                    }
+                }
+            }
+            if (line.length() > 0 || truncated) {
+                onLine(line, truncated);
+            }
+        } catch (Exception e) {
+            log.warn("[ScriptProcessor] copyStream failed.", e);
+            omsLogger.warn("[SYSTEM] copyStream failed.", e);
+            appendTail("Exception: " + e);
+        } finally {
+            if (pendingSuppressedLines > 0) {
+                omsLogger.warn("[SYSTEM] {} lines of output are not logged due to the log rate limit, total lines: {}, total suppressed lines: {}", pendingSuppressedLines, totalLines, suppressedLines);
+            }
+        }
+    }
+
+    private void onLine(StringBuilder sb, boolean truncated) {
+        String line = truncated ? sb.append("...(truncated)").toString() : sb.toString();
+        totalLines++;
+        appendTail(line);
+        if (rateLimiter.tryAcquire()) {
+            if (pendingSuppressedLines > 0) {
+                omsLogger.warn("[SYSTEM] {} lines of output are not logged due to the log rate limit.", pendingSuppressedLines);
+                pendingSuppressedLines = 0;
+            }
+            omsLogger.info(line);
+        } else {
+            suppressedLines++;
+            pendingSuppressedLines++;
+        }
+    }
+
+    private void appendTail(String line) {
+        synchronized (tailLines) {
+            if (tailLines.size() >= MAX_TAIL_LINES) {
+                tailLines.pollFirst();
+            }
+            tailLines.addLast(line);
+        }
+    }
+
+    /**
+     * @return 最后若干行输出
+     */
+    String tail() {
+        synchronized (tailLines) {
+            StringBuilder sb = new StringBuilder();
+            if (totalLines > tailLines.size()) {
+                sb.append("...(").append(totalLines - tailLines.size()).append(" lines omitted)").append(System.lineSeparator());
+            }
+            tailLines.forEach(l -> sb.append(l).append(System.lineSeparator()));
+            return sb.toString();
+        }
+    }
+
+    long getTotalLines() {
+        return totalLines;
+    }
+
+    long getSuppressedLines() {
+        return suppressedLines;
+    }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import lombok.Data;
 import lombok.SneakyThrows;
+import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 import tech.powerjob.official.processors.CommonBasicProcessor;
@@ -15,6 +16,7 @@ import tech.powerjob.worker.core.processor.TaskContext;
 import tech.powerjob.worker.log.OmsLogger;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -31,6 +33,14 @@ import java.util.function.Predicate;
  * 可以通过 {@link AbstractSqlProcessor#registerSqlValidator} 方法注册 SQL 校验器拦截非法 SQL
  * 可以通过指定 {@link AbstractSqlProcessor.SqlParser} 来实现定制 SQL 解析逻辑的需求（比如 宏变量替换，参数替换等）
  *
+ * 流式模式（指定 fetchSize 或 batchSql 时启用）：
+ * * * 查询通过游标按 fetchSize 分批读取，不在内存中缓冲整个结果集
+ * * * 指定 batchSql 时，查询出的每一行按列顺序绑定到 batchSql 的参数上批量执行，每 batchSize 行提交一次
+ * * * 指定 keyColumn 时按主键顺序读取，并将已提交的最后一个主键作为检查点写入任务结果，失败后可通过 startKey = lastKey + 1 续跑
+ * * * 批次只在主键变化处切分，keyColumn 不唯一时单个批次可能超过 batchSize
+ * * * 已提交的批次不会回滚，任务重试或续跑范围有重叠时 batchSql 会被重复执行，因此 batchSql 需要是幂等的（如 upsert、按主键覆盖写）
+ * * * MySQL 需要在 jdbcUrl 中开启 useCursorFetch=true 才能使用游标
+ *
  * @author Echo009
  * @since 2021/3/12
  */
@@ -41,6 +51,10 @@ public abstract class AbstractSqlProcessor extends CommonBasicProcessor {
      * 默认超时时间
      */
     protected static final int DEFAULT_TIMEOUT = 60;
+    /**
+     * 流式模式下默认的批量大小
+     */
+    protected static final int DEFAULT_BATCH_SIZE = 1000;
     /**
      * name => SQL validator
      * 注意 ：
@@ -83,8 +97,11 @@ public abstract class AbstractSqlProcessor extends CommonBasicProcessor {
         stopWatch.stop();
 
         // 执行
-        stopWatch.start("Execute SQL");
         omsLogger.info("final sql params: {}", JSON.toJSON(sqlParams));
+        if (sqlParams.streaming()) {
+            return executeStreamingSql(sqlParams, taskContext);
+        }
+        stopWatch.start("Execute SQL");
         executeSql(sqlParams, taskContext);
         stopWatch.stop();
 
@@ -128,6 +145,156 @@ public abstract class AbstractSqlProcessor extends CommonBasicProcessor {
         }
     }
 
+    /**
+     * 流式执行 SQL：游标读取 + 批量 DML + 分批提交，任务结果为 {@link SqlCheckpoint} 的 JSON
+     * 读写使用两个连接，避免部分驱动在游标未关闭时不允许同一连接执行其他语句
+     * @param sqlParams SQL processor 参数信息
+     * @param ctx 任务上下文
+     * @return 执行结果，无论成功失败都携带检查点
+     */
+    protected ProcessResult executeStreamingSql(SqlParams sqlParams, TaskContext ctx) {
+
+        OmsLogger omsLogger = ctx.getOmsLogger();
+        long startTime = System.currentTimeMillis();
+        int batchSize = sqlParams.getBatchSize() == null ? DEFAULT_BATCH_SIZE : sqlParams.getBatchSize();
+        boolean hasDml = sqlParams.getBatchSql() != null && !sqlParams.getBatchSql().isEmpty();
+
+        SqlCheckpoint checkpoint = new SqlCheckpoint()
+                .setStartKey(sqlParams.getStartKey())
+                .setEndKey(sqlParams.getEndKey());
+
+        try (Connection readConnection = getConnection(sqlParams, ctx);
+             Connection writeConnection = hasDml ? getConnection(sqlParams, ctx) : null) {
+
+            // 部分数据库（如 PostgreSQL）仅在非自动提交模式下使用游标
+            readConnection.setAutoCommit(false);
+            if (writeConnection != null) {
+                writeConnection.setAutoCommit(false);
+            }
+
+            try (PreparedStatement query = readConnection.prepareStatement(buildStreamingQuery(sqlParams), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 PreparedStatement dml = writeConnection == null ? null : writeConnection.prepareStatement(sqlParams.getBatchSql())) {
+
+                query.setQueryTimeout(sqlParams.getTimeout() == null ? DEFAULT_TIMEOUT : sqlParams.getTimeout());
+                query.setFetchSize(sqlParams.getFetchSize() == null ? batchSize : sqlParams.getFetchSize());
+                int paramIndex = 1;
+                if (sqlParams.getKeyColumn() != null && sqlParams.getStartKey() != null) {
+                    query.setLong(paramIndex++, sqlParams.getStartKey());
+                }
+                if (sqlParams.getKeyColumn() != null && sqlParams.getEndKey() != null) {
+                    query.setLong(paramIndex, sqlParams.getEndKey());
+                }
+                int dmlParamCount = dml == null ? 0 : dml.getParameterMetaData().getParameterCount();
+
+                try (ResultSet rs = query.executeQuery()) {
+                    int columnCount = rs.getMetaData().getColumnCount();
+                    if (dmlParamCount > columnCount) {
+                        throw new IllegalArgumentException(String.format("batchSql needs %d parameters but the query only returns %d columns", dmlParamCount, columnCount));
+                    }
+                    if (sqlParams.isShowResult()) {
+                        List<String> columnNames = Lists.newLinkedList();
+                        for (int i = 1; i <= columnCount; i++) {
+                            columnNames.add(rs.getMetaData().getColumnName(i));
+                        }
+                        omsLogger.info("[Result] [Columns] {}", JOINER.join(columnNames));
+                    }
+
+                    int pendingNum = 0;
+                    Long lastKey = null;
+                    while (rs.next()) {
+                        Long currentKey = sqlParams.getKeyColumn() == null ? null : rs.getLong(sqlParams.getKeyColumn());
+                        // 批次只在主键变化处切分，同一主键的行总在同一批次提交，keyColumn 不唯一时 lastKey + 1 依然是准确的续跑起点
+                        if (pendingNum >= batchSize && (currentKey == null || !currentKey.equals(lastKey))) {
+                            flush(dml, writeConnection, checkpoint, lastKey, omsLogger);
+                            pendingNum = 0;
+                        }
+                        if (sqlParams.isShowResult()) {
+                            List<Object> row = Lists.newArrayListWithCapacity(columnCount);
+                            for (int i = 1; i <= columnCount; i++) {
+                                row.add(rs.getObject(i));
+                            }
+                            omsLogger.info("[Result] [Row-{}] {}", checkpoint.getProcessedRows(), JOINER.join(row));
+                        }
+                        if (dml != null) {
+                            for (int i = 1; i <= dmlParamCount; i++) {
+                                dml.setObject(i, rs.getObject(i));
+                            }
+                            dml.addBatch();
+                        }
+                        checkpoint.setProcessedRows(checkpoint.getProcessedRows() + 1);
+                        pendingNum++;
+                        lastKey = currentKey;
+                    }
+                    if (pendingNum > 0 || checkpoint.getBatchNum() == 0) {
+                        flush(dml, writeConnection, checkpoint, lastKey, omsLogger);
+                    }
+                }
+                checkpoint.setFinished(true);
+            } catch (Throwable t) {
+                omsLogger.error("execute streaming sql failed, rollback uncommitted batch, checkpoint: {}", JSON.toJSONString(checkpoint), t);
+                if (writeConnection != null) {
+                    writeConnection.rollback();
+                }
+                checkpoint.setError(t.getMessage());
+            } finally {
+                readConnection.rollback();
+            }
+        } catch (SQLException e) {
+            omsLogger.error("get connection failed", e);
+            checkpoint.setError(e.getMessage());
+        }
+
+        checkpoint.setCost(System.currentTimeMillis() - startTime);
+        omsLogger.info("streaming sql finished, checkpoint: {}", JSON.toJSONString(checkpoint));
+        return new ProcessResult(checkpoint.isFinished(), JSON.toJSONString(checkpoint));
+    }
+
+    private static void flush(PreparedStatement dml, Connection writeConnection, SqlCheckpoint checkpoint, Long currentKey, OmsLogger omsLogger) throws SQLException {
+        if (dml != null) {
+            int[] counts = dml.executeBatch();
+            writeConnection.commit();
+            for (int count : counts) {
+                // SUCCESS_NO_INFO(-2) 时无法得知影响行数，按 1 行计
+                checkpoint.setAffectedRows(checkpoint.getAffectedRows() + (count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0)));
+            }
+        }
+        checkpoint.setBatchNum(checkpoint.getBatchNum() + 1);
+        if (currentKey != null) {
+            checkpoint.setLastKey(currentKey);
+        }
+        omsLogger.info("[Progress] batch: {}, processed rows: {}, affected rows: {}, last key: {}",
+                checkpoint.getBatchNum(), checkpoint.getProcessedRows(), checkpoint.getAffectedRows(), checkpoint.getLastKey());
+    }
+
+    /**
+     * 指定 keyColumn 时将原始查询包装为按主键范围 [startKey, endKey) 有序读取的查询
+     */
+    static String buildStreamingQuery(SqlParams sqlParams) {
+        String keyColumn = sqlParams.getKeyColumn();
+        if (keyColumn == null) {
+            return sqlParams.getSql();
+        }
+        StringBuilder sb = new StringBuilder("SELECT * FROM (").append(trimSemicolon(sqlParams.getSql())).append(") t");
+        if (sqlParams.getStartKey() != null || sqlParams.getEndKey() != null) {
+            sb.append(" WHERE ");
+            if (sqlParams.getStartKey() != null) {
+                sb.append("t.").append(keyColumn).append(" >= ?");
+            }
+            if (sqlParams.getEndKey() != null) {
+                sb.append(sqlParams.getStartKey() != null ? " AND " : "").append("t.").append(keyColumn).append(" < ?");
+            }
+        }
+        return sb.append(" ORDER BY t.").append(keyColumn).toString();
+    }
+
+    static String trimSemicolon(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
     private void outputSqlResult(Statement statement, OmsLogger omsLogger) throws SQLException {
         omsLogger.info("====== SQL EXECUTE RESULT ======");
 
@@ -211,7 +378,7 @@ public abstract class AbstractSqlProcessor extends CommonBasicProcessor {
     /**
      * 校验 SQL 合法性
      */
-    private void validateSql(String sql, OmsLogger omsLogger) {
+    protected void validateSql(String sql, OmsLogger omsLogger) {
         if (sqlValidatorMap.isEmpty()) {
             return;
         }
@@ -248,6 +415,59 @@ public abstract class AbstractSqlProcessor extends CommonBasicProcessor {
          * 是否展示 SQL 执行结果
          */
         private boolean showResult;
+        /**
+         * 流式模式：游标每次读取的行数
+         */
+        private Integer fetchSize;
+        /**
+         * 流式模式：对查询出的每一行执行的 DML，参数按查询结果的列顺序绑定
+         * 失败重试时会从头执行，已提交的批次会被再次执行，需保证幂等
+         */
+        private String batchSql;
+        /**
+         * 流式模式：每批次（提交一次）处理的行数
+         */
+        private Integer batchSize;
+        /**
+         * 流式模式：主键列（数值类型，允许不唯一），指定后按主键顺序读取并记录检查点
+         */
+        private String keyColumn;
+        /**
+         * 流式模式：主键范围起点（包含），可用于从检查点续跑
+         */
+        private Long startKey;
+        /**
+         * 流式模式：主键范围终点（不包含）
+         */
+        private Long endKey;
+        /**
+         * MapReduce 模式：切分的子任务数量
+         */
+        private Integer shardNum;
+
+        public boolean streaming() {
+            return (fetchSize != null && fetchSize > 0) || (batchSql != null && !batchSql.isEmpty());
+        }
+    }
+
+    /**
+     * 流式执行的检查点（进度），作为任务结果返回
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class SqlCheckpoint {
+        private Long startKey;
+        private Long endKey;
+        /**
+         * 已提交的最后一个主键，该主键对应的行均已提交，续跑时以 lastKey + 1 作为 startKey
+         */
+        private Long lastKey;
+        private long processedRows;
+        private long affectedRows;
+        private int batchNum;
+        private boolean finished;
+        private String error;
+        private long cost;
     }
 
 
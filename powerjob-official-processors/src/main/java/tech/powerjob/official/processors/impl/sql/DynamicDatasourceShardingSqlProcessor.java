@@ -0,0 +1,200 @@
+package tech.powerjob.official.processors.impl.sql;
+
+import com.alibaba.fastjson.JSON;
+import com.google.common.collect.Lists;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+import tech.powerjob.worker.core.processor.ProcessResult;
+import tech.powerjob.worker.core.processor.TaskContext;
+import tech.powerjob.worker.core.processor.TaskResult;
+import tech.powerjob.worker.core.processor.sdk.MapReduceProcessor;
+import tech.powerjob.worker.log.OmsLogger;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MapReduce 版本的动态数据源 SQL 处理器
+ * 根任务按 keyColumn 的取值范围（未指定 startKey/endKey 时查询 min/max）切分为 shardNum 个子任务，
+ * 每个子任务以流式模式处理 [startKey, endKey) 范围内的数据，reduce 阶段汇总各子任务的检查点
+ * 子任务失败重试时会重新处理整个分片，已提交的批次会被再次执行，batchSql 需要是幂等的
+ *
+ * @author tjq
+ * @since 2024/3/10
+ */
+public class DynamicDatasourceShardingSqlProcessor extends DynamicDatasourceSqlProcessor implements MapReduceProcessor {
+
+    static final String SHARD_TASK_NAME = "SQL_SHARD";
+
+    private static final int DEFAULT_SHARD_NUM = 8;
+
+    @Override
+    protected void validateParams(SqlParams sqlParams) {
+        super.validateParams(sqlParams);
+        if (sqlParams.getKeyColumn() == null || sqlParams.getKeyColumn().isEmpty()) {
+            throw new IllegalArgumentException("keyColumn can't be empty in DynamicDatasourceShardingSqlProcessor!");
+        }
+    }
+
+    @Override
+    protected SqlParams extractParams(TaskContext taskContext) {
+        SqlParams sqlParams = super.extractParams(taskContext);
+        if (taskContext.getSubTask() instanceof SqlShard) {
+            SqlShard shard = (SqlShard) taskContext.getSubTask();
+            sqlParams.setStartKey(shard.getStartKey());
+            sqlParams.setEndKey(shard.getEndKey());
+            // 子任务总是以流式模式执行
+            if (sqlParams.getFetchSize() == null) {
+                sqlParams.setFetchSize(sqlParams.getBatchSize() == null ? DEFAULT_BATCH_SIZE : sqlParams.getBatchSize());
+            }
+        }
+        return sqlParams;
+    }
+
+    @Override
+    @SneakyThrows
+    public ProcessResult process0(TaskContext taskContext) {
+        if (taskContext.getSubTask() instanceof SqlShard) {
+            if (taskContext.getCurrentRetryTimes() > 0) {
+                taskContext.getOmsLogger().warn("retry shard {} from its start key({} times), committed batches will be executed again, make sure batchSql is idempotent",
+                        JSON.toJSONString(taskContext.getSubTask()), taskContext.getCurrentRetryTimes());
+            }
+            return super.process0(taskContext);
+        }
+
+        OmsLogger omsLogger = taskContext.getOmsLogger();
+        SqlParams sqlParams = extractParams(taskContext);
+        validateParams(sqlParams);
+        if (sqlParser != null) {
+            sqlParams.setSql(sqlParser.parse(sqlParams.getSql(), taskContext));
+        }
+        validateSql(sqlParams.getSql(), omsLogger);
+
+        List<SqlShard> shards = split(sqlParams, taskContext);
+        omsLogger.info("split key range[{}, {}) into {} shards", sqlParams.getStartKey(), sqlParams.getEndKey(), shards.size());
+        if (shards.isEmpty()) {
+            return new ProcessResult(true, "no data to process");
+        }
+        map(shards, SHARD_TASK_NAME);
+        return new ProcessResult(true, "map " + shards.size() + " shards successfully");
+    }
+
+    @Override
+    public ProcessResult reduce(TaskContext context, List<TaskResult> taskResults) {
+        int shardNum = 0;
+        int failedNum = 0;
+        long processedRows = 0;
+        long affectedRows = 0;
+        List<SqlCheckpoint> failedShards = Lists.newLinkedList();
+        for (TaskResult taskResult : taskResults) {
+            SqlCheckpoint checkpoint = parseCheckpoint(taskResult.getResult());
+            if (checkpoint == null) {
+                if (!taskResult.isSuccess()) {
+                    failedNum++;
+                }
+                continue;
+            }
+            shardNum++;
+            processedRows += checkpoint.getProcessedRows();
+            affectedRows += checkpoint.getAffectedRows();
+            if (!taskResult.isSuccess() || !checkpoint.isFinished()) {
+                failedNum++;
+                failedShards.add(checkpoint);
+            }
+        }
+        String result = String.format("shards:%d, failed:%d, processedRows:%d, affectedRows:%d", shardNum, failedNum, processedRows, affectedRows);
+        if (!failedShards.isEmpty()) {
+            result += ", failedShards:" + JSON.toJSONString(failedShards);
+        }
+        context.getOmsLogger().info("reduce result: {}", result);
+        return new ProcessResult(failedNum == 0, result);
+    }
+
+    /**
+     * 切分主键范围
+     */
+    @SneakyThrows
+    List<SqlShard> split(SqlParams sqlParams, TaskContext taskContext) {
+        Long startKey = sqlParams.getStartKey();
+        Long endKey = sqlParams.getEndKey();
+        // 最大主键为 Long.MAX_VALUE 时无法表示为开区间终点，最后一个分片不设上限
+        boolean openEnd = false;
+        if (startKey == null || endKey == null) {
+            String rangeSql = String.format("SELECT MIN(t.%s), MAX(t.%s) FROM (%s) t", sqlParams.getKeyColumn(), sqlParams.getKeyColumn(), trimSemicolon(sqlParams.getSql()));
+            try (Connection connection = getConnection(sqlParams, taskContext);
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(sqlParams.getTimeout() == null ? DEFAULT_TIMEOUT : sqlParams.getTimeout());
+                try (ResultSet rs = statement.executeQuery(rangeSql)) {
+                    if (!rs.next() || rs.getObject(1) == null) {
+                        return Collections.emptyList();
+                    }
+                    startKey = startKey == null ? rs.getLong(1) : startKey;
+                    if (endKey == null) {
+                        long maxKey = rs.getLong(2);
+                        openEnd = maxKey == Long.MAX_VALUE;
+                        endKey = openEnd ? maxKey : maxKey + 1;
+                    }
+                }
+            }
+            sqlParams.setStartKey(startKey);
+            sqlParams.setEndKey(openEnd ? null : endKey);
+        }
+        List<SqlShard> shards = splitKeyRange(startKey, endKey, sqlParams.getShardNum() == null ? DEFAULT_SHARD_NUM : sqlParams.getShardNum());
+        if (openEnd) {
+            if (shards.isEmpty()) {
+                return Collections.singletonList(new SqlShard(startKey, null));
+            }
+            shards.get(shards.size() - 1).setEndKey(null);
+        }
+        return shards;
+    }
+
+    /**
+     * 将 [startKey, endKey) 均匀切分为最多 shardNum 个分片
+     * 范围跨度可能超出 long（如 [Long.MIN_VALUE, Long.MAX_VALUE)），使用 BigInteger 计算分片边界
+     */
+    static List<SqlShard> splitKeyRange(long startKey, long endKey, int shardNum) {
+        if (endKey <= startKey || shardNum <= 0) {
+            return Collections.emptyList();
+        }
+        BigInteger start = BigInteger.valueOf(startKey);
+        BigInteger total = BigInteger.valueOf(endKey).subtract(start);
+        BigInteger num = total.min(BigInteger.valueOf(shardNum));
+        List<SqlShard> shards = Lists.newArrayListWithCapacity(num.intValue());
+        long shardStart = startKey;
+        for (int i = 1; i <= num.intValue(); i++) {
+            long shardEnd = start.add(total.multiply(BigInteger.valueOf(i)).divide(num)).longValue();
+            shards.add(new SqlShard(shardStart, shardEnd));
+            shardStart = shardEnd;
+        }
+        return shards;
+    }
+
+    private static SqlCheckpoint parseCheckpoint(String result) {
+        if (result == null || !result.startsWith("{")) {
+            return null;
+        }
+        try {
+            return JSON.parseObject(result, SqlCheckpoint.class);
+        } catch (Exception ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * 子任务：主键范围 [startKey, endKey)，endKey 为空代表不设上限
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SqlShard {
+        private Long startKey;
+        private Long endKey;
+    }
+}
@@ -3,6 +3,7 @@ package tech.powerjob.official.processors.impl;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import tech.powerjob.worker.core.processor.TaskContext;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.official.processors.TestUtils;
 
@@ -51,6 +52,7 @@ class FileCleanupProcessorTest {
     }
 
     @Test
+    @Tag("manual")
     void testCleanWorkerScript() throws Exception {
         JSONObject params = new JSONObject();
         params.put("dirPath", "/");
@@ -1,8 +1,23 @@
 package tech.powerjob.official.processors.impl;
 
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.official.processors.TestUtils;
+import tech.powerjob.worker.core.processor.ProcessResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * HttpProcessorTest
@@ -11,6 +26,93 @@ import tech.powerjob.official.processors.TestUtils;
  * @since 2021/1/31
  */
 class HttpProcessorTest {
+
+    private static HttpServer server;
+    private static String localAddress;
+
+    private static final AtomicInteger CONCURRENCY = new AtomicInteger();
+    private static final AtomicInteger MAX_CONCURRENCY = new AtomicInteger();
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> respond(exchange, 200, "ok:" + exchange.getRequestMethod()));
+        server.createContext("/error", exchange -> respond(exchange, 500, "error"));
+        server.createContext("/slow", exchange -> {
+            MAX_CONCURRENCY.accumulateAndGet(CONCURRENCY.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignore) {
+            }
+            CONCURRENCY.decrementAndGet();
+            respond(exchange, 200, "slow");
+        });
+        server.setExecutor(Executors.newFixedThreadPool(64));
+        server.start();
+        localAddress = "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Test
+    void testLocalServer() throws Exception {
+        JSONObject params = new JSONObject();
+        params.put("url", localAddress + "/ok");
+        ProcessResult result = new HttpProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        Assertions.assertTrue(result.isSuccess());
+        Assertions.assertEquals("code:200, body:ok:GET", result.getMsg());
+
+        params.put("url", "http://" + localAddress + "/error");
+        params.put("method", "POST");
+        result = new HttpProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertEquals("code:500, body:error", result.getMsg());
+    }
+
+    @Test
+    void testBatchMode() throws Exception {
+        JSONObject params = new JSONObject();
+        params.put("urls", Lists.newArrayList(localAddress + "/ok", "http://" + localAddress + "/ok?a=1", localAddress + "/error"));
+        params.put("method", "POST");
+        ProcessResult result = new HttpProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertTrue(result.getMsg().startsWith("total:3, succeed:2, failed:1"), result.getMsg());
+        Assertions.assertTrue(result.getMsg().contains("/error"));
+
+        params.put("urls", Lists.newArrayList(localAddress + "/ok", localAddress + "/ok?a=1"));
+        result = new HttpProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        Assertions.assertTrue(result.isSuccess());
+        Assertions.assertEquals("total:2, succeed:2, failed:0", result.getMsg());
+    }
+
+    @Test
+    void testBatchModeConcurrencyPerHost() throws Exception {
+        List<String> urls = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            urls.add(localAddress + "/slow?i=" + i);
+        }
+        JSONObject params = new JSONObject();
+        params.put("urls", urls);
+
+        ProcessResult result = new HttpProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+
+        Assertions.assertTrue(result.isSuccess(), result.getMsg());
+        // 默认单个 host 最多 32 个并发请求，且请求确实是并发发送的
+        Assertions.assertTrue(MAX_CONCURRENCY.get() <= 32, "max concurrency: " + MAX_CONCURRENCY.get());
+        Assertions.assertTrue(MAX_CONCURRENCY.get() > 1, "max concurrency: " + MAX_CONCURRENCY.get());
+        Assertions.assertEquals("total:100, succeed:100, failed:0", result.getMsg());
+    }
     
     @Test
     void testDefaultMethod() throws Exception {
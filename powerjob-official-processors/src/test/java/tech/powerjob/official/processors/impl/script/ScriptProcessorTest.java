@@ -0,0 +1,152 @@
+package tech.powerjob.official.processors.impl.script;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import tech.powerjob.official.processors.TestUtils;
+import tech.powerjob.worker.core.processor.ProcessResult;
+import tech.powerjob.worker.log.OmsLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 脚本处理器测试
+ *
+ * @author tjq
+ * @since 2024/3/11
+ */
+class ScriptProcessorTest {
+
+    @Test
+    void testOutputThrottleAndTail() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            output.append("line-").append(i).append('\n');
+        }
+        CountingLogger omsLogger = new CountingLogger();
+        ScriptOutputCollector collector = new ScriptOutputCollector(new ByteArrayInputStream(output.toString().getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, omsLogger, RateLimiter.create(100));
+        collector.run();
+
+        Assertions.assertEquals(10000, collector.getTotalLines());
+        // 限流后绝大部分输出不会进入在线日志
+        Assertions.assertTrue(omsLogger.info.get() < 1000, "logged lines: " + omsLogger.info.get());
+        Assertions.assertEquals(10000, omsLogger.info.get() + collector.getSuppressedLines());
+        Assertions.assertTrue(omsLogger.warn.get() > 0);
+
+        String tail = collector.tail();
+        Assertions.assertTrue(tail.startsWith("...(9980 lines omitted)"), tail);
+        Assertions.assertTrue(tail.contains("line-9999"));
+        Assertions.assertFalse(tail.contains("line-9979" + System.lineSeparator()));
+    }
+
+    @Test
+    void testLongLineTruncated() {
+        String longLine = StringUtils.repeat('x', ScriptOutputCollector.MAX_LINE_LENGTH * 10);
+        CountingLogger omsLogger = new CountingLogger();
+        ScriptOutputCollector collector = new ScriptOutputCollector(new ByteArrayInputStream((longLine + "\r\nend").getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, omsLogger, RateLimiter.create(100));
+        collector.run();
+
+        Assertions.assertEquals(2, collector.getTotalLines());
+        String tail = collector.tail();
+        Assertions.assertTrue(tail.length() < ScriptOutputCollector.MAX_LINE_LENGTH + 100);
+        Assertions.assertTrue(tail.contains("...(truncated)"));
+        Assertions.assertTrue(tail.endsWith("end" + System.lineSeparator()));
+    }
+
+    @Test
+    void testInlineScriptCache() throws Exception {
+        File dir = Files.createTempDirectory("script_cache").toFile();
+        ScriptFileCache cache = new ScriptFileCache(dir.getAbsolutePath());
+        File a = cache.fetchInline("echo 1", StandardCharsets.UTF_8, "sh");
+        File b = cache.fetchInline("echo 1", StandardCharsets.UTF_8, "sh");
+        File c = cache.fetchInline("echo 2", StandardCharsets.UTF_8, "sh");
+        Assertions.assertEquals(a, b);
+        Assertions.assertNotEquals(a, c);
+        Assertions.assertEquals("echo 1", FileUtils.readFileToString(a, StandardCharsets.UTF_8));
+        Assertions.assertTrue(a.getName().endsWith(".sh"));
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    void testRemoteScriptCache() throws Exception {
+        AtomicInteger downloads = new AtomicInteger();
+        byte[] script = "echo remote".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/script.sh", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            exchange.sendResponseHeaders(200, script.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(script);
+            }
+        });
+        server.start();
+
+        File dir = Files.createTempDirectory("script_cache").toFile();
+        try {
+            ScriptFileCache cache = new ScriptFileCache(dir.getAbsolutePath());
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/script.sh";
+            File first = cache.fetchRemote(url, "sh");
+            File second = cache.fetchRemote(url, "sh");
+            Assertions.assertEquals(first, second);
+            Assertions.assertEquals(1, downloads.get());
+            Assertions.assertEquals("echo remote", FileUtils.readFileToString(second, StandardCharsets.UTF_8));
+        } finally {
+            server.stop(0);
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testShellProcessor() throws Exception {
+        String script = "for i in $(seq 1 3000); do echo \"out-$i\"; done; echo err >&2";
+        ProcessResult result = new ShellProcessor().process(TestUtils.genTaskContext(script));
+        Assertions.assertTrue(result.isSuccess(), result.getMsg());
+        Assertions.assertTrue(result.getMsg().contains("out-3000"));
+        Assertions.assertTrue(result.getMsg().contains("[ERROR]: err"));
+        Assertions.assertFalse(result.getMsg().contains("out-1" + System.lineSeparator()));
+    }
+
+    private static class CountingLogger implements OmsLogger {
+
+        private final AtomicInteger info = new AtomicInteger();
+        private final AtomicInteger warn = new AtomicInteger();
+
+        @Override
+        public void debug(String messagePattern, Object... args) {
+        }
+
+        @Override
+        public void info(String messagePattern, Object... args) {
+            info.incrementAndGet();
+        }
+
+        @Override
+        public void warn(String messagePattern, Object... args) {
+            warn.incrementAndGet();
+        }
+
+        @Override
+        public void error(String messagePattern, Object... args) {
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package tech.powerjob.official.processors.impl.sql;
 
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.official.processors.TestUtils;
 import tech.powerjob.official.processors.util.SecurityUtils;
 import tech.powerjob.worker.core.processor.ProcessResult;
 import tech.powerjob.worker.core.processor.TaskContext;
+import tech.powerjob.worker.core.processor.TaskResult;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,6 +26,193 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class DynamicDatasourceSqlProcessorTest {
 
+    private static final String H2_URL = "jdbc:h2:mem:powerjob_streaming_sql;DB_CLOSE_DELAY=-1";
+    private static final int ROW_NUM = 2500;
+
+    @BeforeEach
+    void initH2() throws Exception {
+        try (Connection connection = DriverManager.getConnection(H2_URL); Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists source_table");
+            statement.execute("drop table if exists target_table");
+            statement.execute("create table source_table (id bigint primary key, content varchar(64))");
+            statement.execute("create table target_table (id bigint primary key, content varchar(64))");
+            statement.execute("insert into source_table select x, concat('content-', x) from system_range(0, " + (ROW_NUM - 1) + ")");
+        }
+    }
+
+    @Test
+    void testStreamingBatchDml() throws Exception {
+        System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
+        JSONObject params = genH2Params();
+        params.put("fetchSize", 100);
+        params.put("batchSize", 1000);
+        params.put("keyColumn", "id");
+        params.put("batchSql", "insert into target_table (id, content) values (?, ?)");
+
+        ProcessResult ps = new DynamicDatasourceSqlProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        assertTrue(ps.isSuccess(), ps.getMsg());
+        AbstractSqlProcessor.SqlCheckpoint checkpoint = JSON.parseObject(ps.getMsg(), AbstractSqlProcessor.SqlCheckpoint.class);
+        assertEquals(ROW_NUM, checkpoint.getProcessedRows());
+        assertEquals(ROW_NUM, checkpoint.getAffectedRows());
+        assertEquals(3, checkpoint.getBatchNum());
+        assertEquals(ROW_NUM - 1, checkpoint.getLastKey());
+        assertEquals(ROW_NUM, count("target_table"));
+    }
+
+    @Test
+    void testStreamingCheckpointAndResume() throws Exception {
+        System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
+        // 制造冲突，第二个批次失败
+        try (Connection connection = DriverManager.getConnection(H2_URL); Statement statement = connection.createStatement()) {
+            statement.execute("insert into target_table values (1500, 'conflict')");
+        }
+        JSONObject params = genH2Params();
+        params.put("batchSize", 1000);
+        params.put("keyColumn", "id");
+        params.put("batchSql", "insert into target_table (id, content) values (?, ?)");
+
+        ProcessResult ps = new DynamicDatasourceSqlProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        assertFalse(ps.isSuccess());
+        AbstractSqlProcessor.SqlCheckpoint checkpoint = JSON.parseObject(ps.getMsg(), AbstractSqlProcessor.SqlCheckpoint.class);
+        assertFalse(checkpoint.isFinished());
+        assertNotNull(checkpoint.getError());
+        assertEquals(1, checkpoint.getBatchNum());
+        assertEquals(999, checkpoint.getLastKey());
+        // 已提交的批次保留，失败批次回滚
+        assertEquals(1001, count("target_table"));
+
+        // 清理冲突数据后从检查点续跑
+        try (Connection connection = DriverManager.getConnection(H2_URL); Statement statement = connection.createStatement()) {
+            statement.execute("delete from target_table where id = 1500");
+        }
+        params.put("startKey", checkpoint.getLastKey() + 1);
+        ps = new DynamicDatasourceSqlProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        assertTrue(ps.isSuccess(), ps.getMsg());
+        assertEquals(ROW_NUM - 1000, JSON.parseObject(ps.getMsg(), AbstractSqlProcessor.SqlCheckpoint.class).getProcessedRows());
+        assertEquals(ROW_NUM, count("target_table"));
+    }
+
+    @Test
+    void testStreamingQuery() throws Exception {
+        System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
+        JSONObject params = genH2Params();
+        params.put("sql", "select * from source_table where id < 10");
+        params.put("fetchSize", 3);
+        params.put("showResult", true);
+
+        ProcessResult ps = new DynamicDatasourceSqlProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        assertTrue(ps.isSuccess(), ps.getMsg());
+        assertEquals(10, JSON.parseObject(ps.getMsg(), AbstractSqlProcessor.SqlCheckpoint.class).getProcessedRows());
+    }
+
+    @Test
+    void testShardingProcessor() throws Exception {
+        System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
+        JSONObject params = genH2Params();
+        params.put("keyColumn", "id");
+        params.put("shardNum", 4);
+        params.put("batchSize", 200);
+        params.put("batchSql", "insert into target_table (id, content) values (?, ?)");
+
+        DynamicDatasourceShardingSqlProcessor processor = new DynamicDatasourceShardingSqlProcessor();
+        TaskContext rootCtx = TestUtils.genTaskContext(params.toJSONString());
+        List<DynamicDatasourceShardingSqlProcessor.SqlShard> shards = processor.split(processor.extractParams(rootCtx), rootCtx);
+        assertEquals(4, shards.size());
+        assertEquals(0L, shards.get(0).getStartKey());
+        assertEquals((long) ROW_NUM, shards.get(3).getEndKey());
+
+        // 模拟子任务执行
+        List<TaskResult> taskResults = Lists.newArrayList();
+        for (DynamicDatasourceShardingSqlProcessor.SqlShard shard : shards) {
+            TaskContext ctx = TestUtils.genTaskContext(params.toJSONString());
+            ctx.setTaskName(DynamicDatasourceShardingSqlProcessor.SHARD_TASK_NAME);
+            ctx.setSubTask(shard);
+            ProcessResult ps = processor.process(ctx);
+            assertTrue(ps.isSuccess(), ps.getMsg());
+
+            TaskResult taskResult = new TaskResult();
+            taskResult.setSuccess(ps.isSuccess());
+            taskResult.setResult(ps.getMsg());
+            taskResults.add(taskResult);
+        }
+        assertEquals(ROW_NUM, count("target_table"));
+
+        ProcessResult reduceResult = processor.reduce(rootCtx, taskResults);
+        assertTrue(reduceResult.isSuccess());
+        assertEquals("shards:4, failed:0, processedRows:2500, affectedRows:2500", reduceResult.getMsg());
+
+        assertEquals(3, DynamicDatasourceShardingSqlProcessor.splitKeyRange(0, 3, 8).size());
+        assertTrue(DynamicDatasourceShardingSqlProcessor.splitKeyRange(5, 5, 8).isEmpty());
+    }
+
+    @Test
+    void testSplitKeyRangeOverflow() {
+        List<DynamicDatasourceShardingSqlProcessor.SqlShard> shards = DynamicDatasourceShardingSqlProcessor.splitKeyRange(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+        assertEquals(4, shards.size());
+        assertEquals(Long.MIN_VALUE, shards.get(0).getStartKey());
+        assertEquals(Long.MAX_VALUE, shards.get(3).getEndKey());
+        for (int i = 1; i < shards.size(); i++) {
+            assertEquals(shards.get(i - 1).getEndKey(), shards.get(i).getStartKey());
+            assertTrue(shards.get(i).getStartKey() < shards.get(i).getEndKey());
+        }
+        assertEquals(2, DynamicDatasourceShardingSqlProcessor.splitKeyRange(Long.MAX_VALUE - 2, Long.MAX_VALUE, 8).size());
+    }
+
+    @Test
+    void testShardingWithMaxKey() throws Exception {
+        try (Connection connection = DriverManager.getConnection(H2_URL); Statement statement = connection.createStatement()) {
+            statement.execute("insert into source_table values (" + Long.MAX_VALUE + ", 'max')");
+        }
+        JSONObject params = genH2Params();
+        params.put("keyColumn", "id");
+        params.put("shardNum", 4);
+        DynamicDatasourceShardingSqlProcessor processor = new DynamicDatasourceShardingSqlProcessor();
+        TaskContext rootCtx = TestUtils.genTaskContext(params.toJSONString());
+        List<DynamicDatasourceShardingSqlProcessor.SqlShard> shards = processor.split(processor.extractParams(rootCtx), rootCtx);
+        assertEquals(4, shards.size());
+        // 最大主键无法作为开区间终点，最后一个分片不设上限
+        assertNull(shards.get(3).getEndKey());
+    }
+
+    @Test
+    void testStreamingNonUniqueKey() throws Exception {
+        System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
+        try (Connection connection = DriverManager.getConnection(H2_URL); Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists dup_table");
+            statement.execute("create table dup_table (grp bigint, content varchar(64))");
+            statement.execute("insert into dup_table values (0, 'a'), (0, 'b'), (0, 'c'), (1, 'd'), (1, 'e'), (2, 'f')");
+        }
+        JSONObject params = genH2Params();
+        params.put("sql", "select grp, content from dup_table");
+        params.put("fetchSize", 2);
+        params.put("batchSize", 2);
+        params.put("keyColumn", "grp");
+
+        ProcessResult ps = new DynamicDatasourceSqlProcessor().process(TestUtils.genTaskContext(params.toJSONString()));
+        assertTrue(ps.isSuccess(), ps.getMsg());
+        AbstractSqlProcessor.SqlCheckpoint checkpoint = JSON.parseObject(ps.getMsg(), AbstractSqlProcessor.SqlCheckpoint.class);
+        // 同一主键的行不会被拆到两个批次：[0,0,0] [1,1] [2]
+        assertEquals(3, checkpoint.getBatchNum());
+        assertEquals(6, checkpoint.getProcessedRows());
+        assertEquals(2, checkpoint.getLastKey());
+    }
+
+    private static JSONObject genH2Params() {
+        JSONObject params = new JSONObject();
+        params.put("jdbcUrl", H2_URL);
+        params.put("sql", "select id, content from source_table");
+        return params;
+    }
+
+    private static long count(String table) throws Exception {
+        try (Connection connection = DriverManager.getConnection(H2_URL);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
     @Test
     void testSecurity() throws Exception {
         ProcessResult ps = new DynamicDatasourceSqlProcessor().process(genDynamicSqlCtx());
@@ -22,6 +220,7 @@ class DynamicDatasourceSqlProcessorTest {
     }
 
     @Test
+    @Tag("manual")
     void testProcess() throws Exception {
         System.setProperty(SecurityUtils.ENABLE_DYNAMIC_SQL_PROCESSOR, Boolean.TRUE.toString());
         ProcessResult ps = new DynamicDatasourceSqlProcessor().process(genDynamicSqlCtx());
@@ -5,6 +5,7 @@ import tech.powerjob.worker.core.processor.ProcessResult;
 import lombok.extern.slf4j.Slf4j;
 import org.h2.jdbc.JdbcSQLIntegrityConstraintViolationException;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
@@ -50,6 +51,13 @@ class SpringDatasourceSqlProcessorTest {
 
     }
 
+    /**
+     * 各用例共享同一个内存库，执行前清空数据，避免依赖执行顺序
+     */
+    @BeforeEach
+    void cleanTable() {
+        springDatasourceSqlProcessor.process0(TestUtils.genTaskContext(JSON.toJSONString(constructSqlParam("delete from test_table"))));
+    }
 
     @Test
     void testSqlValidator() {
@@ -1,6 +1,6 @@
 create table test_table
 (
-    id           bigint(20) primary key,
+    id           bigint primary key,
     content      varchar(255),
     gmt_create   datetime default now(),
     gmt_modified datetime default now()
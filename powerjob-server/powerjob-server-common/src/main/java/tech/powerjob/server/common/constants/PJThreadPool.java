@@ -18,9 +18,4 @@ public class PJThreadPool {
      */
     public static final String BACKGROUND_POOL = "PowerJobBackgroundPool";
 
-    /**
-     * 本地数据库专用线程池
-     */
-    public static final String LOCAL_DB_POOL = "PowerJobLocalDbPool";
-
 }
@@ -33,6 +33,8 @@ public class WorkerInfo {
 
     private String client;
 
+    private String version;
+
     private String tag;
 
     private int lightTaskTrackerNum;
@@ -47,18 +49,61 @@ public class WorkerInfo {
 
     private List<DeployedContainerInfo> containerInfos;
 
+    /**
+     * worker 状态版本，用于校验增量心跳
+     */
+    private long stateVersion;
+
     private static final long WORKER_TIMEOUT_MS = 60000;
 
+    /**
+     * 使用全量心跳刷新 worker 信息
+     * @param workerHeartbeat 全量心跳
+     */
     public void refresh(WorkerHeartbeat workerHeartbeat) {
         address = workerHeartbeat.getWorkerAddress();
-        lastActiveTime = System.currentTimeMillis();
-        lastActiveWorkerTime = workerHeartbeat.getHeartbeatTime();
         protocol = workerHeartbeat.getProtocol();
         client = workerHeartbeat.getClient();
+        version = workerHeartbeat.getVersion();
         tag = workerHeartbeat.getTag();
         systemMetrics = workerHeartbeat.getSystemMetrics();
         containerInfos = workerHeartbeat.getContainerInfos();
 
+        refreshRuntime(workerHeartbeat);
+    }
+
+    /**
+     * 原地应用增量心跳，值为 null 的字段保持不变
+     * @param workerHeartbeat 增量心跳
+     */
+    public void applyDelta(WorkerHeartbeat workerHeartbeat) {
+        if (workerHeartbeat.getProtocol() != null) {
+            protocol = workerHeartbeat.getProtocol();
+        }
+        if (workerHeartbeat.getClient() != null) {
+            client = workerHeartbeat.getClient();
+        }
+        if (workerHeartbeat.getVersion() != null) {
+            version = workerHeartbeat.getVersion();
+        }
+        if (workerHeartbeat.getTag() != null) {
+            tag = workerHeartbeat.getTag();
+        }
+        if (workerHeartbeat.getSystemMetrics() != null) {
+            systemMetrics = workerHeartbeat.getSystemMetrics();
+        }
+        if (workerHeartbeat.getContainerInfos() != null) {
+            containerInfos = workerHeartbeat.getContainerInfos();
+        }
+
+        refreshRuntime(workerHeartbeat);
+    }
+
+    private void refreshRuntime(WorkerHeartbeat workerHeartbeat) {
+        lastActiveTime = System.currentTimeMillis();
+        lastActiveWorkerTime = workerHeartbeat.getHeartbeatTime();
+        stateVersion = workerHeartbeat.getStateVersion();
+
         lightTaskTrackerNum = workerHeartbeat.getLightTaskTrackerNum();
         heavyTaskTrackerNum = workerHeartbeat.getHeavyTaskTrackerNum();
 
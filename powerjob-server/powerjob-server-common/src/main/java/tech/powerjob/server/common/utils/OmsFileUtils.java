@@ -27,6 +27,14 @@ public class OmsFileUtils {
         return COMMON_PATH + "online_log/";
     }
 
+    /**
+     * 获取秒级任务在线日志分段的存放路径
+     * @return 路径
+     */
+    public static String genLogSegmentPath() {
+        return COMMON_PATH + "online_log_segment/";
+    }
+
     /**
      * 获取用于构建容器的 jar 文件存放路径
      * @return 路径
@@ -35,6 +43,14 @@ public class OmsFileUtils {
         return COMMON_PATH + "container/";
     }
 
+    /**
+     * 获取 DFS 文件本地缓存的存放路径
+     * @return 路径
+     */
+    public static String genDFsCachePath() {
+        return COMMON_PATH + "dfs_cache/";
+    }
+
     /**
      * 获取临时目录（固定目录）
      * @return 目录
@@ -62,6 +78,14 @@ public class OmsFileUtils {
         return genH2BasePath() + CommonUtils.genUUID() + "/";
     }
 
+    /**
+     * 获取监控指标快照的存放路径
+     * @return 路径
+     */
+    public static String genMonitorPath() {
+        return COMMON_PATH + "monitor/";
+    }
+
     /**
      * 将文本写入文件
      * @param content 文本内容
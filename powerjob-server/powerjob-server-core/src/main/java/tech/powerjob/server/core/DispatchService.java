@@ -19,6 +19,7 @@ import tech.powerjob.server.common.Holder;
 import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.core.instance.InstanceManager;
 import tech.powerjob.server.core.instance.InstanceMetadataService;
+import tech.powerjob.server.core.instance.InstanceStatisticsService;
 import tech.powerjob.server.core.lock.UseCacheLock;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.JobInfoDO;
@@ -55,6 +56,8 @@ public class DispatchService {
 
     private final InstanceManager instanceManager;
 
+    private final InstanceStatisticsService instanceStatisticsService;
+
     private final InstanceMetadataService instanceMetadataService;
 
     private final InstanceInfoRepository instanceInfoRepository;
@@ -142,6 +145,7 @@ public class DispatchService {
                 String result = String.format(SystemInstanceResult.TOO_MANY_INSTANCES, runningInstanceCount, maxInstanceNum);
                 log.warn("[Dispatcher-{}|{}] cancel dispatch job due to too much instance is running ({} > {}).", jobId, instanceId, runningInstanceCount, maxInstanceNum);
                 instanceInfoRepository.update4TriggerFailed(instanceId, FAILED.getV(), current, current, RemoteConstant.EMPTY_ADDRESS, result, now);
+                instanceStatisticsService.onStatusChange(instanceInfo.getAppId(), instanceInfo.getStatus(), FAILED.getV(), instanceInfo.getGmtCreate());
                 instanceManager.processFinishedInstance(instanceId, instanceInfo.getWfInstanceId(), FAILED, result);
                 return;
             }
@@ -153,6 +157,7 @@ public class DispatchService {
         if (CollectionUtils.isEmpty(suitableWorkers)) {
             log.warn("[Dispatcher-{}|{}] cancel dispatch job due to no worker available", jobId, instanceId);
             instanceInfoRepository.update4TriggerFailed(instanceId, FAILED.getV(), current, current, RemoteConstant.EMPTY_ADDRESS, SystemInstanceResult.NO_WORKER_AVAILABLE, now);
+            instanceStatisticsService.onStatusChange(instanceInfo.getAppId(), instanceInfo.getStatus(), FAILED.getV(), instanceInfo.getGmtCreate());
 
             instanceManager.processFinishedInstance(instanceId, instanceInfo.getWfInstanceId(), FAILED, SystemInstanceResult.NO_WORKER_AVAILABLE);
             return;
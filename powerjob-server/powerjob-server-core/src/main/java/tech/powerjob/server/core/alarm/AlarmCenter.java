@@ -1,23 +1,37 @@
 package tech.powerjob.server.core.alarm;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import tech.powerjob.common.utils.CollectionUtils;
 import tech.powerjob.common.utils.SysUtils;
+import tech.powerjob.server.core.alarm.module.AlarmDigest;
 import tech.powerjob.server.extension.alarm.Alarm;
 import tech.powerjob.server.extension.alarm.AlarmTarget;
 import tech.powerjob.server.extension.alarm.Alarmable;
+import tech.powerjob.server.monitor.MonitorService;
+import tech.powerjob.server.monitor.events.alarm.AlarmEvent;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 /**
  * 报警服务
+ * 1. 按告警分组（如同一个任务）去重：窗口内只立即发送第一条，其余合并为一条摘要在窗口结束后发送
+ * 2. 按接收人限流：窗口内每个接收人最多收到 target-max-per-window 条告警，超出部分同样合并为摘要
+ * 3. 发送队列有界，队列满时直接丢弃并记录，积压情况通过 {@link AlarmEvent} 上报监控
  *
  * @author tjq
  * @since 2020/4/19
@@ -26,14 +40,46 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class AlarmCenter {
 
-    private final ExecutorService POOL;
+    private final ThreadPoolExecutor POOL;
 
     private final List<Alarmable> BEANS = Lists.newLinkedList();
 
-    public AlarmCenter(List<Alarmable> alarmables) {
+    private final MonitorService monitorService;
+
+    private final long dedupWindow;
+
+    private final int targetMaxPerWindow;
+
+    private final LongSupplier clock;
+
+    private final Map<String, GroupWindow> groupWindows = new ConcurrentHashMap<>();
+
+    private final Map<String, TargetWindow> targetWindows = new ConcurrentHashMap<>();
+
+    private volatile long lastReportedBacklog;
+
+    @Autowired
+    public AlarmCenter(List<Alarmable> alarmables, MonitorService monitorService,
+                       @Value("${oms.alarm.queue-size:1024}") int queueSize,
+                       @Value("${oms.alarm.dedup.window:60000}") long dedupWindow,
+                       @Value("${oms.alarm.target.max-per-window:10}") int targetMaxPerWindow) {
+        this(alarmables, monitorService, queueSize, dedupWindow, targetMaxPerWindow, System::currentTimeMillis);
+    }
+
+    public AlarmCenter(List<Alarmable> alarmables, MonitorService monitorService, int queueSize, long dedupWindow, int targetMaxPerWindow, LongSupplier clock) {
+        this.monitorService = monitorService;
+        this.dedupWindow = dedupWindow;
+        this.targetMaxPerWindow = targetMaxPerWindow;
+        this.clock = clock;
+
         int cores = SysUtils.availableProcessors();
         ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("AlarmPool-%d").build();
-        POOL = new ThreadPoolExecutor(cores, cores, 5, TimeUnit.MINUTES, Queues.newLinkedBlockingQueue(), factory);
+        POOL = new ThreadPoolExecutor(cores, cores, 5, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queueSize), factory, (r, executor) -> {
+            AlarmTask task = (AlarmTask) r;
+            task.rejected = true;
+            log.warn("[AlarmCenter] alarm queue is full, drop alarm: {}", task.alarm.fetchTitle());
+            report(task.alarm, AlarmEvent.Status.DROPPED, task.num);
+        });
 
         alarmables.forEach(bean -> {
             BEANS.add(bean);
@@ -42,12 +88,230 @@ public class AlarmCenter {
     }
 
     public void alarmFailed(Alarm alarm, List<AlarmTarget> alarmTargets) {
-        POOL.execute(() -> BEANS.forEach(alarmable -> {
-            try {
-                alarmable.onFailed(alarm, alarmTargets);
-            }catch (Exception e) {
-                log.warn("[AlarmCenter] alarm failed.", e);
+        final long now = clock.getAsLong();
+        final GroupWindow[] expired = new GroupWindow[1];
+        GroupWindow window = groupWindows.compute(alarm.fetchGroupKey(), (groupKey, w) -> {
+            if (w == null || now - w.startTime >= dedupWindow) {
+                expired[0] = w;
+                return new GroupWindow(groupKey, now, alarm);
+            }
+            w.suppress(alarm, alarmTargets);
+            return w;
+        });
+        if (expired[0] != null) {
+            flushGroup(expired[0], now);
+        }
+        if (window.firstAlarm == alarm) {
+            dispatch(alarm, alarmTargets, now);
+        }
+    }
+
+    /**
+     * 周期性发送已结束窗口的摘要并清理过期窗口
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void flush() {
+        final long now = clock.getAsLong();
+        groupWindows.forEach((groupKey, window) -> {
+            if (now - window.startTime >= dedupWindow && groupWindows.remove(groupKey, window)) {
+                flushGroup(window, now);
+            }
+        });
+        targetWindows.forEach((targetKey, window) -> {
+            if (now - window.startTime >= dedupWindow && targetWindows.remove(targetKey, window)) {
+                flushTarget(targetKey, window, now);
+            }
+        });
+        long backlog = POOL.getQueue().size() + pendingDigest();
+        if (backlog != lastReportedBacklog) {
+            lastReportedBacklog = backlog;
+            report(null, AlarmEvent.Status.BACKLOG, 0);
+        }
+    }
+
+    /**
+     * @return 发送队列中等待执行的告警数量
+     */
+    public int backlog() {
+        return POOL.getQueue().size();
+    }
+
+    private void flushGroup(GroupWindow window, long now) {
+        if (window.suppressedCount == 0) {
+            return;
+        }
+        AlarmDigest digest = new AlarmDigest()
+                .setOriginTitle(window.firstAlarm.fetchTitle())
+                .setGroupKey(window.groupKey)
+                .setSuppressedCount(window.suppressedCount)
+                .setWindowStartTime(window.startTime)
+                .setWindowEndTime(now)
+                .setLatestContent(window.latestAlarm.fetchContent());
+        submit(digest, window.latestTargets, window.suppressedCount);
+    }
+
+    private void flushTarget(String targetKey, TargetWindow window, long now) {
+        if (window.suppressedCount == 0) {
+            return;
+        }
+        AlarmDigest digest = new AlarmDigest()
+                .setOriginTitle("alarms to " + window.target.getName())
+                .setGroupKey("target#" + targetKey)
+                .setSuppressedCount(window.suppressedCount)
+                .setWindowStartTime(window.startTime)
+                .setWindowEndTime(now)
+                .setLatestContent(window.latestTitle);
+        submit(digest, Collections.singletonList(window.target), window.suppressedCount);
+    }
+
+    private void dispatch(Alarm alarm, List<AlarmTarget> alarmTargets, long now) {
+        if (CollectionUtils.isEmpty(alarmTargets)) {
+            submit(alarm, alarmTargets, 1);
+            return;
+        }
+        List<AlarmTarget> allowedTargets = alarmTargets.stream().filter(target -> acquireTarget(target, alarm, now)).collect(Collectors.toList());
+        if (allowedTargets.isEmpty()) {
+            log.info("[AlarmCenter] all targets of alarm({}) exceed the limit, it will be sent as digest.", alarm.fetchGroupKey());
+            return;
+        }
+        submit(alarm, allowedTargets, 1);
+    }
+
+    private boolean acquireTarget(AlarmTarget target, Alarm alarm, long now) {
+        final boolean[] allowed = new boolean[1];
+        final TargetWindow[] expired = new TargetWindow[1];
+        String targetKey = targetKey(target);
+        targetWindows.compute(targetKey, (key, w) -> {
+            if (w == null || now - w.startTime >= dedupWindow) {
+                expired[0] = w;
+                w = new TargetWindow(now, target);
             }
-        }));
+            if (w.sentCount < targetMaxPerWindow) {
+                w.sentCount++;
+                allowed[0] = true;
+            } else {
+                w.suppress(alarm.fetchTitle());
+            }
+            return w;
+        });
+        if (expired[0] != null) {
+            flushTarget(targetKey, expired[0], now);
+        }
+        return allowed[0];
+    }
+
+    private void submit(Alarm alarm, List<AlarmTarget> alarmTargets, long num) {
+        AlarmTask task = new AlarmTask(alarm, alarmTargets, num);
+        POOL.execute(task);
+        // 被拒绝的告警已在拒绝策略中上报 DROPPED（拒绝策略在提交线程内同步执行）
+        if (!task.rejected) {
+            report(alarm, alarm instanceof AlarmDigest ? AlarmEvent.Status.DIGESTED : AlarmEvent.Status.DISPATCHED, num);
+        }
+    }
+
+    private long pendingDigest() {
+        long num = 0;
+        for (GroupWindow window : groupWindows.values()) {
+            num += window.suppressedCount;
+        }
+        for (TargetWindow window : targetWindows.values()) {
+            num += window.suppressedCount;
+        }
+        return num;
+    }
+
+    private void report(Alarm alarm, AlarmEvent.Status status, long num) {
+        try {
+            monitorService.monitor(new AlarmEvent()
+                    .setAlarmType(alarm == null ? null : alarm.getClass().getSimpleName())
+                    .setStatus(status)
+                    .setNum(num)
+                    .setBacklog(POOL.getQueue().size())
+                    .setPendingDigest(pendingDigest()));
+        } catch (Exception e) {
+            log.warn("[AlarmCenter] report alarm event failed.", e);
+        }
+    }
+
+    private static String targetKey(AlarmTarget target) {
+        return String.join("#", String.valueOf(target.getName()), String.valueOf(target.getEmail()), String.valueOf(target.getPhone()), String.valueOf(target.getWebHook()));
+    }
+
+    private class AlarmTask implements Runnable {
+
+        private final Alarm alarm;
+        private final List<AlarmTarget> alarmTargets;
+        /**
+         * 代表的告警数量，摘要为被合并的告警数
+         */
+        private final long num;
+
+        private boolean rejected;
+
+        AlarmTask(Alarm alarm, List<AlarmTarget> alarmTargets, long num) {
+            this.alarm = alarm;
+            this.alarmTargets = alarmTargets;
+            this.num = num;
+        }
+
+        @Override
+        public void run() {
+            BEANS.forEach(alarmable -> {
+                try {
+                    alarmable.onFailed(alarm, alarmTargets);
+                } catch (Exception e) {
+                    log.warn("[AlarmCenter] alarm failed.", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 告警分组的去重窗口，仅在 ConcurrentHashMap#compute 中修改
+     */
+    private static class GroupWindow {
+
+        private final String groupKey;
+        private final long startTime;
+        private final Alarm firstAlarm;
+
+        private int suppressedCount;
+        private Alarm latestAlarm;
+        private List<AlarmTarget> latestTargets;
+
+        GroupWindow(String groupKey, long startTime, Alarm firstAlarm) {
+            this.groupKey = groupKey;
+            this.startTime = startTime;
+            this.firstAlarm = firstAlarm;
+        }
+
+        void suppress(Alarm alarm, List<AlarmTarget> alarmTargets) {
+            suppressedCount++;
+            latestAlarm = alarm;
+            latestTargets = alarmTargets;
+        }
+    }
+
+    /**
+     * 接收人的限流窗口，仅在 ConcurrentHashMap#compute 中修改
+     */
+    private static class TargetWindow {
+
+        private final long startTime;
+        private final AlarmTarget target;
+
+        private int sentCount;
+        private int suppressedCount;
+        private String latestTitle;
+
+        TargetWindow(long startTime, AlarmTarget target) {
+            this.startTime = startTime;
+            this.target = target;
+        }
+
+        void suppress(String title) {
+            suppressedCount++;
+            latestTitle = title;
+        }
     }
 }
@@ -0,0 +1,51 @@
+package tech.powerjob.server.core.alarm.module;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import tech.powerjob.server.extension.alarm.Alarm;
+
+/**
+ * 告警摘要，去重窗口内被抑制的告警合并为一条发送
+ *
+ * @author tjq
+ * @since 2024/3/6
+ */
+@Data
+@Accessors(chain = true)
+public class AlarmDigest implements Alarm {
+
+    /**
+     * 被抑制告警的标题
+     */
+    private String originTitle;
+    /**
+     * 告警分组
+     */
+    private String groupKey;
+    /**
+     * 窗口内被抑制的告警数量
+     */
+    private int suppressedCount;
+    /**
+     * 窗口开始时间
+     */
+    private Long windowStartTime;
+    /**
+     * 窗口结束时间
+     */
+    private Long windowEndTime;
+    /**
+     * 最近一条被抑制告警的内容
+     */
+    private String latestContent;
+
+    @Override
+    public String fetchTitle() {
+        return String.format("PowerJob AlarmService: %d Alarms Suppressed (%s)", suppressedCount, originTitle);
+    }
+
+    @Override
+    public String fetchGroupKey() {
+        return "digest#" + groupKey;
+    }
+}
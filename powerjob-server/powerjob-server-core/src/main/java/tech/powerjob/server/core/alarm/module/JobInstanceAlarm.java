@@ -83,4 +83,9 @@ public class JobInstanceAlarm implements Alarm {
     public String fetchTitle() {
         return "PowerJob AlarmService: Job Running Failed";
     }
+
+    @Override
+    public String fetchGroupKey() {
+        return "job#" + jobId;
+    }
 }
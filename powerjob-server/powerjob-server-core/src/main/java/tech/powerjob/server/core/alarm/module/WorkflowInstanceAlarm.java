@@ -54,4 +54,9 @@ public class WorkflowInstanceAlarm implements Alarm {
     public String fetchTitle() {
         return "PowerJob AlarmService: Workflow Running Failed";
     }
+
+    @Override
+    public String fetchGroupKey() {
+        return "workflow#" + workflowId;
+    }
 }
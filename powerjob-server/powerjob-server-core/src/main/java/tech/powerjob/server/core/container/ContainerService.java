@@ -1,5 +1,7 @@
 package tech.powerjob.server.core.container;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -34,12 +36,12 @@ import tech.powerjob.common.request.ServerDestroyContainerRequest;
 import tech.powerjob.common.serialize.JsonUtils;
 import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.common.utils.NetUtils;
-import tech.powerjob.common.utils.SegmentLock;
 import tech.powerjob.remote.framework.base.URL;
 import tech.powerjob.server.common.constants.ContainerSourceType;
 import tech.powerjob.common.enums.SwitchableStatus;
 import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.core.service.DFsCacheService;
 import tech.powerjob.server.extension.LockService;
 import tech.powerjob.server.extension.dfs.*;
 import tech.powerjob.server.persistence.remote.model.ContainerInfoDO;
@@ -56,7 +58,6 @@ import javax.websocket.Session;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -78,15 +79,21 @@ public class ContainerService {
     @Resource
     private DFsService dFsService;
     @Resource
+    private DFsCacheService dFsCacheService;
+    @Resource
     private TransportService transportService;
 
     @Resource
     private WorkerClusterQueryService workerClusterQueryService;
 
-    // 下载用的分段锁
-    private final SegmentLock segmentLock = new SegmentLock(4);
+    // 版本 -> Jar 文件 MD5
+    private final Cache<String, String> version2FileHash = CacheBuilder.newBuilder().maximumSize(128).build();
     // 并发部署的机器数量
     private static final int DEPLOY_BATCH_NUM = 50;
+    // 每个 worker 最多分配的节点下载地址数量
+    private static final int MAX_PEER_NUM = 3;
+    // 轮询节点部署情况的间隔
+    private static final long PEER_CHECK_INTERVAL = 1000L;
     // 部署间隔
     private static final long DEPLOY_MIN_INTERVAL = 10 * 60 * 1000L;
     // 最长部署时间
@@ -173,13 +180,12 @@ public class ContainerService {
             StoreRequest storeRequest = new StoreRequest().setLocalFile(tmpFile).setFileLocation(fl);
             dFsService.store(storeRequest);
 
-            // 将文件拷贝到正确的路径
-            String finalFileStr = OmsFileUtils.genContainerJarPath() + fileName;
-            File finalFile = new File(finalFileStr);
-            if (finalFile.exists()) {
-                FileUtils.forceDelete(finalFile);
+            // 放入本地缓存，部署时无需再次下载，失败不影响上传结果
+            try {
+                dFsCacheService.put(fl, tmpFile);
+            } catch (Exception e) {
+                log.warn("[ContainerService] put container jar into local cache failed, md5={}", md5, e);
             }
-            FileUtils.moveFile(tmpFile, finalFile);
 
             log.info("[ContainerService] uploadContainerJarFile successfully,md5={}", md5);
             return md5;
@@ -194,31 +200,19 @@ public class ContainerService {
     }
 
     /**
-     * 获取构建容器所需要的 Jar 文件
+     * 获取构建容器所需要的 Jar 文件（优先使用本地缓存）
      * @param version 版本
-     * @return 本地Jar文件
+     * @return 本地Jar文件，不存在时返回空
      */
-    public File fetchContainerJarFile(String version) {
-
-        String fileName = genContainerJarName(version);
-        String filePath = OmsFileUtils.genContainerJarPath() + fileName;
-        File localFile = new File(filePath);
+    public Optional<File> fetchContainerJarFile(String version) {
 
-        if (localFile.exists()) {
-            return localFile;
-        }
-
-        FileLocation fileLocation = new FileLocation().setBucket(Constants.CONTAINER_BUCKET).setName(fileName);
+        FileLocation fileLocation = new FileLocation().setBucket(Constants.CONTAINER_BUCKET).setName(genContainerJarName(version));
         try {
-            Optional<FileMeta> fileMetaOpt = dFsService.fetchFileMeta(fileLocation);
-            if (fileMetaOpt.isPresent()) {
-                dFsService.download(new DownloadRequest().setFileLocation(fileLocation).setTarget(localFile));
-            }
+            return dFsCacheService.fetch(fileLocation);
         } catch (Exception e) {
             log.warn("[ContainerService] fetchContainerJarFile from dsf failed, version: {}", version, e);
         }
-
-        return localFile;
+        return Optional.empty();
     }
 
     /**
@@ -276,23 +270,27 @@ public class ContainerService {
                 return;
             }
 
-            String port = environment.getProperty("local.server.port");
-            String downloadURL = String.format("http://%s:%s/container/downloadJar?version=%s", NetUtils.getLocalHost(), port, container.getVersion());
-            ServerDeployContainerRequest req = new ServerDeployContainerRequest(containerId, container.getContainerName(), container.getVersion(), downloadURL);
+            // 分批部署，每批的 worker 优先从已部署的 worker 下载，随着已部署的 worker 增多，批次间隔随之缩短
+            ServerDeployContainerRequest req = buildDeployRequest(container);
             long sleepTime = calculateSleepTime(jarFile.length());
 
-            AtomicInteger count = new AtomicInteger();
-            allAliveWorkers.forEach(workerInfo -> {
-
-                final URL url = ServerURLFactory.deployContainer2Worker(workerInfo.getAddress());
-                transportService.tell(workerInfo.getProtocol(), url, req);
-
-                remote.sendText("SYSTEM: send deploy request to " + url.getAddress());
-
-                if (count.incrementAndGet() % DEPLOY_BATCH_NUM == 0) {
-                    CommonUtils.executeIgnoreException(() -> Thread.sleep(sleepTime));
+            List<List<WorkerInfo>> batches = Lists.partition(allAliveWorkers, DEPLOY_BATCH_NUM);
+            for (int i = 0; i < batches.size(); i++) {
+                List<String> peers = req.getPeerDownloadURLs();
+                if (!peers.isEmpty()) {
+                    remote.sendText(String.format("SYSTEM: %d workers can provide the jar file for batch %d.", peers.size(), i + 1));
+                }
+                List<WorkerInfo> batch = batches.get(i);
+                for (int j = 0; j < batch.size(); j++) {
+                    WorkerInfo workerInfo = batch.get(j);
+                    final URL url = ServerURLFactory.deployContainer2Worker(workerInfo.getAddress());
+                    transportService.tell(workerInfo.getProtocol(), url, withPeers(req, peers, j));
+                    remote.sendText("SYSTEM: send deploy request to " + url.getAddress());
+                }
+                if (i < batches.size() - 1) {
+                    req.setPeerDownloadURLs(waitForNextBatch(container, sleepTime));
                 }
-            });
+            }
 
             remote.sendText("SYSTEM: deploy finished, congratulations!");
 
@@ -431,15 +429,8 @@ public class ContainerService {
                     remote.sendText("SYSTEM: upload to GridFS successfully~");
                 }
 
-                // 将文件从临时工作目录移动到正式目录
-                String localFileStr = OmsFileUtils.genContainerJarPath() + jarFileName;
-                File localFile = new File(localFileStr);
-                if (localFile.exists()) {
-                    FileUtils.forceDelete(localFile);
-                }
-                FileUtils.copyFile(jarWithDependency, localFile);
-
-                return localFile;
+                // 将文件从临时工作目录移动到本地缓存
+                return dFsCacheService.put(dfsFL, jarWithDependency);
             } catch (Throwable  t) {
                 log.error("[ContainerService] prepareJarFile failed for container: {}", container, t);
                 remote.sendText("SYSTEM: [ERROR] prepare jar file failed: " + ExceptionUtils.getStackTrace(t));
@@ -449,53 +440,95 @@ public class ContainerService {
             }
         }
 
-        // 先查询本地是否存在目标 Jar 文件
+        // 优先使用本地缓存，不存在时从 DFS 下载
         String jarFileName = genContainerJarName(container.getVersion());
-        String localFileStr = OmsFileUtils.genContainerJarPath() + jarFileName;
-        File localFile = new File(localFileStr);
-        if (localFile.exists()) {
-            remote.sendText("SYSTEM: find the jar file in local disk.");
-            return localFile;
+        remote.sendText(String.format("SYSTEM: try to find the jarFile(%s) in local cache or DFS", jarFileName));
+        Optional<File> jarFileOpt = dFsCacheService.fetch(new FileLocation().setBucket(Constants.CONTAINER_BUCKET).setName(jarFileName));
+        if (!jarFileOpt.isPresent()) {
+            log.warn("[ContainerService] can't find container's jar file({}) in DFS.", jarFileName);
+            remote.sendText("SYSTEM: can't find the jar file in DFS, so deploy failed.");
+            return null;
         }
-
-        // 从 MongoDB 下载
-        remote.sendText(String.format("SYSTEM: try to find the jarFile(%s) in GridFS", jarFileName));
-        downloadJarFromGridFS(jarFileName, localFile);
-        remote.sendText("SYSTEM: download jar file from GridFS successfully~");
-        return localFile;
+        remote.sendText("SYSTEM: the jar file is ready~");
+        return jarFileOpt.get();
     }
 
-    private void downloadJarFromGridFS(String mongoFileName, File targetFile) {
-
-        int lockId = mongoFileName.hashCode();
-        try {
-            segmentLock.lockInterruptibleSafe(lockId);
-
-            if (targetFile.exists()) {
-                return;
-            }
-
-            try {
-
-                FileLocation dfsFL = new FileLocation().setBucket(Constants.CONTAINER_BUCKET).setName(mongoFileName);
-                Optional<FileMeta> dfsMetaOpt = dFsService.fetchFileMeta(dfsFL);
-                if (!dfsMetaOpt.isPresent()) {
-                    log.warn("[ContainerService] can't find container's jar file({}) in gridFS.", mongoFileName);
-                    return;
-                }
+    /**
+     * 构建部署请求，包含 Jar 文件的 MD5 以及已部署该版本的 worker 提供的下载地址
+     * @param container 容器信息
+     * @return 部署请求
+     */
+    public ServerDeployContainerRequest buildDeployRequest(ContainerInfoDO container) {
+        String port = environment.getProperty("local.server.port");
+        String downloadURL = String.format("http://%s:%s/container/downloadJar?version=%s", NetUtils.getLocalHost(), port, container.getVersion());
+        ServerDeployContainerRequest req = new ServerDeployContainerRequest(container.getId(), container.getContainerName(), container.getVersion(), downloadURL);
+        req.setFileHash(fetchFileHash(container.getVersion()));
+        req.setPeerDownloadURLs(fetchPeerDownloadURLs(container));
+        return req;
+    }
 
-                FileUtils.forceMkdirParent(targetFile);
+    /**
+     * 为单个 worker 选择节点下载地址，按序号轮转，使下载压力均匀分布到已部署的 worker 上
+     * @param req 部署请求
+     * @param peers 全部节点下载地址
+     * @param index worker 序号
+     * @return 部署请求
+     */
+    public static ServerDeployContainerRequest withPeers(ServerDeployContainerRequest req, List<String> peers, int index) {
+        ServerDeployContainerRequest res = new ServerDeployContainerRequest(req.getContainerId(), req.getContainerName(), req.getVersion(), req.getDownloadURL());
+        res.setFileHash(req.getFileHash());
+        List<String> selected = Lists.newArrayList();
+        for (int i = 0; i < Math.min(MAX_PEER_NUM, peers.size()); i++) {
+            selected.add(peers.get((index + i) % peers.size()));
+        }
+        res.setPeerDownloadURLs(selected);
+        return res;
+    }
 
-                dFsService.download(new DownloadRequest().setTarget(targetFile).setFileLocation(dfsFL));
-            }catch (Exception e) {
-                CommonUtils.executeIgnoreException(() -> FileUtils.forceDelete(targetFile));
-                ExceptionUtils.rethrow(e);
+    /**
+     * 等待下一批部署：可用的下载源（server + 已部署的 worker）越多，等待时间越短，最长不超过 sleepTime
+     * @return 最新的节点下载地址
+     */
+    private List<String> waitForNextBatch(ContainerInfoDO container, long sleepTime) {
+        long start = System.currentTimeMillis();
+        while (true) {
+            List<String> peers = fetchPeerDownloadURLs(container);
+            long remain = start + sleepTime / (peers.size() + 1) - System.currentTimeMillis();
+            if (remain <= 0) {
+                return peers;
             }
+            CommonUtils.executeIgnoreException(() -> Thread.sleep(Math.min(remain, PEER_CHECK_INTERVAL)));
+        }
+    }
 
-        }finally {
-            segmentLock.unlock(lockId);
+    private List<String> fetchPeerDownloadURLs(ContainerInfoDO container) {
+        try {
+            List<String> peers = Lists.newArrayList(workerClusterQueryService.getContainerPeerDownloadURLs(container.getAppId(), container.getId(), container.getVersion()));
+            Collections.shuffle(peers);
+            return peers;
+        } catch (Exception e) {
+            log.warn("[ContainerService] fetch peer download urls of container({}) failed.", container.getId(), e);
+            return Collections.emptyList();
         }
+    }
 
+    private String fetchFileHash(String version) {
+        String fileHash = version2FileHash.getIfPresent(version);
+        if (fileHash != null) {
+            return fileHash;
+        }
+        Optional<File> jarFileOpt = fetchContainerJarFile(version);
+        if (!jarFileOpt.isPresent()) {
+            return null;
+        }
+        try {
+            fileHash = OmsFileUtils.md5(jarFileOpt.get());
+            version2FileHash.put(version, fileHash);
+            return fileHash;
+        } catch (IOException e) {
+            log.warn("[ContainerService] calculate md5 of container jar({}) failed.", version, e);
+            return null;
+        }
     }
 
     private static String genContainerJarName(String version) {
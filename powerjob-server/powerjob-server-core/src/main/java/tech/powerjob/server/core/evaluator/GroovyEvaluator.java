@@ -1,14 +1,36 @@
 package tech.powerjob.server.core.evaluator;
 
-import lombok.SneakyThrows;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import groovy.transform.ThreadInterrupt;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import tech.powerjob.common.exception.PowerJobException;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
+ * Groovy 表达式计算器
+ * 1. 表达式按内容编译为脚本类并缓存（脚本内容变化即视为新版本），缓存有界，淘汰后类及其 ClassLoader 可被回收，避免 metaspace 持续增长
+ * 2. 计算在有界线程池中执行，单次计算超时后中断（脚本循环中会检查中断标记），线程池满时直接拒绝，不会阻塞工作流推进
+ *
  * @author Echo009
  * @since 2021/12/10
  */
@@ -16,15 +38,74 @@ import javax.script.ScriptEngineManager;
 @Component
 public class GroovyEvaluator implements Evaluator {
 
-    private static final ScriptEngine ENGINE = new ScriptEngineManager().getEngineByName("groovy");
+    private static final CompilerConfiguration COMPILER_CONFIGURATION = new CompilerConfiguration();
 
+    static {
+        COMPILER_CONFIGURATION.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+    }
+
+    private final Cache<String, Class<? extends Script>> scriptCache;
+
+    private final ThreadPoolExecutor evaluatePool;
+
+    private final long timeout;
+
+    public GroovyEvaluator() {
+        this(512, 4, 3000);
+    }
+
+    @Autowired
+    public GroovyEvaluator(@Value("${oms.workflow.evaluator.cache-size:512}") int cacheSize,
+                           @Value("${oms.workflow.evaluator.pool-size:4}") int poolSize,
+                           @Value("${oms.workflow.evaluator.timeout:3000}") long timeout) {
+        this.scriptCache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        this.evaluatePool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(poolSize * 16),
+                new ThreadFactoryBuilder().setNameFormat("groovy-evaluator-%d").setDaemon(true).build(), new ThreadPoolExecutor.AbortPolicy());
+        this.evaluatePool.allowCoreThreadTimeOut(true);
+        this.timeout = timeout;
+    }
 
     @Override
-    @SneakyThrows
     public Object evaluate(String expression, Object input) {
-        Bindings bindings = ENGINE.createBindings();
-        bindings.put("context", input);
-        return ENGINE.eval(expression, bindings);
+        Future<Object> future;
+        try {
+            future = evaluatePool.submit(() -> {
+                Binding binding = new Binding();
+                binding.setVariable("context", input);
+                return InvokerHelper.createScript(compile(expression), binding).run();
+            });
+        } catch (RejectedExecutionException e) {
+            throw new PowerJobException("evaluator is busy, please retry later");
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("[GroovyEvaluator] evaluate expression timeout({}ms): {}", timeout, expression);
+            throw new PowerJobException("evaluate expression timeout");
+        } catch (ExecutionException e) {
+            return ExceptionUtils.rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PowerJobException("evaluate expression interrupted");
+        }
     }
 
+    private Class<? extends Script> compile(String expression) throws Exception {
+        try {
+            return scriptCache.get(expression, () -> {
+                // 每个脚本使用独立的 ClassLoader，缓存淘汰后才能卸载对应的类
+                GroovyClassLoader classLoader = new GroovyClassLoader(GroovyEvaluator.class.getClassLoader(), COMPILER_CONFIGURATION);
+                // parseClass 返回原始类型 Class，先收窄为 Class<?> 再转换，避免 unchecked 调用
+                Class<?> scriptClass = classLoader.parseClass(expression);
+                return scriptClass.asSubclass(Script.class);
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
 }
@@ -3,18 +3,17 @@ package tech.powerjob.server.core.handler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.springframework.beans.BeanUtils;
 import org.springframework.core.env.Environment;
 import tech.powerjob.common.enums.InstanceStatus;
 import tech.powerjob.common.request.*;
 import tech.powerjob.common.response.AskResponse;
 import tech.powerjob.common.serialize.JsonUtils;
-import tech.powerjob.common.utils.NetUtils;
 import tech.powerjob.remote.framework.actor.Handler;
 import tech.powerjob.remote.framework.actor.ProcessType;
 import tech.powerjob.common.enums.SwitchableStatus;
 import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.common.utils.SpringUtils;
+import tech.powerjob.server.core.container.ContainerService;
 import tech.powerjob.server.monitor.MonitorService;
 import tech.powerjob.server.monitor.events.w2s.TtReportInstanceStatusEvent;
 import tech.powerjob.server.monitor.events.w2s.WorkerHeartbeatEvent;
@@ -27,7 +26,6 @@ import tech.powerjob.server.remote.worker.WorkerClusterQueryService;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import static tech.powerjob.common.RemoteConstant.*;
@@ -51,16 +49,16 @@ public abstract class AbWorkerRequestHandler implements IWorkerRequestHandler {
 
     private final WorkerClusterQueryService workerClusterQueryService;
 
-    protected abstract void processWorkerHeartbeat0(WorkerHeartbeat heartbeat, WorkerHeartbeatEvent event);
+    protected abstract AskResponse processWorkerHeartbeat0(WorkerHeartbeat heartbeat, WorkerHeartbeatEvent event);
 
     protected abstract AskResponse processTaskTrackerReportInstanceStatus0(TaskTrackerReportInstanceStatusReq req, TtReportInstanceStatusEvent event) throws Exception;
 
-    protected abstract void processWorkerLogReport0(WorkerLogReportReq req, WorkerLogReportEvent event);
+    protected abstract boolean processWorkerLogReport0(WorkerLogReportReq req, WorkerLogReportEvent event);
 
 
     @Override
     @Handler(path = S4W_HANDLER_WORKER_HEARTBEAT, processType = ProcessType.NO_BLOCKING)
-    public void processWorkerHeartbeat(WorkerHeartbeat heartbeat) {
+    public AskResponse processWorkerHeartbeat(WorkerHeartbeat heartbeat) {
         long startMs = System.currentTimeMillis();
         WorkerHeartbeatEvent event = new WorkerHeartbeatEvent()
                 .setAppName(heartbeat.getAppName())
@@ -70,9 +68,12 @@ public abstract class AbWorkerRequestHandler implements IWorkerRequestHandler {
                 .setTag(heartbeat.getTag())
                 .setWorkerAddress(heartbeat.getWorkerAddress())
                 .setDelayMs(startMs - heartbeat.getHeartbeatTime())
-                .setScore(heartbeat.getSystemMetrics().getScore());
-        processWorkerHeartbeat0(heartbeat, event);
+                // 增量心跳中指标未变化时不携带 SystemMetrics
+                .setScore(heartbeat.getSystemMetrics() == null ? null : heartbeat.getSystemMetrics().getScore())
+                .setDelta(heartbeat.isDelta());
+        AskResponse response = processWorkerHeartbeat0(heartbeat, event);
         monitorService.monitor(event);
+        return response;
     }
 
     @Override
@@ -101,19 +102,22 @@ public abstract class AbWorkerRequestHandler implements IWorkerRequestHandler {
 
     @Override
     @Handler(path = S4W_HANDLER_REPORT_LOG, processType = ProcessType.NO_BLOCKING)
-    public void processWorkerLogReport(WorkerLogReportReq req) {
+    public AskResponse processWorkerLogReport(WorkerLogReportReq req) {
 
         WorkerLogReportEvent event = new WorkerLogReportEvent()
                 .setWorkerAddress(req.getWorkerAddress())
                 .setLogNum(req.getInstanceLogContents().size());
         try {
-            processWorkerLogReport0(req, event);
-            event.setStatus(WorkerLogReportEvent.Status.SUCCESS);
-        } catch (RejectedExecutionException re) {
+            if (processWorkerLogReport0(req, event)) {
+                event.setStatus(WorkerLogReportEvent.Status.SUCCESS);
+                return AskResponse.succeed(null);
+            }
             event.setStatus(WorkerLogReportEvent.Status.REJECTED);
+            return AskResponse.failed(S4W_LOG_REPORT_BUSY);
         } catch (Throwable t) {
             event.setStatus(WorkerLogReportEvent.Status.EXCEPTION);
             log.warn("[WorkerRequestHandler] process worker report failed!", t);
+            return AskResponse.failed(ExceptionUtils.getMessage(t));
         } finally {
             monitorService.monitor(event);
         }
@@ -147,8 +151,6 @@ public abstract class AbWorkerRequestHandler implements IWorkerRequestHandler {
     @Override
     @Handler(path = S4W_HANDLER_WORKER_NEED_DEPLOY_CONTAINER, processType = ProcessType.BLOCKING)
     public AskResponse processWorkerNeedDeployContainer(WorkerNeedDeployContainerRequest req) {
-        String port = environment.getProperty("local.server.port");
-
         Optional<ContainerInfoDO> containerInfoOpt = containerInfoRepository.findById(req.getContainerId());
         AskResponse askResponse = new AskResponse();
         if (!containerInfoOpt.isPresent() || containerInfoOpt.get().getStatus() != SwitchableStatus.ENABLE.getV()) {
@@ -158,11 +160,10 @@ public abstract class AbWorkerRequestHandler implements IWorkerRequestHandler {
             ContainerInfoDO containerInfo = containerInfoOpt.get();
             askResponse.setSuccess(true);
 
-            ServerDeployContainerRequest dpReq = new ServerDeployContainerRequest();
-            BeanUtils.copyProperties(containerInfo, dpReq);
-            dpReq.setContainerId(containerInfo.getId());
-            String downloadURL = String.format("http://%s:%s/container/downloadJar?version=%s", NetUtils.getLocalHost(), port, containerInfo.getVersion());
-            dpReq.setDownloadURL(downloadURL);
+            // 携带 Jar 文件的 MD5 及已部署 worker 的下载地址，worker 优先从其他 worker 下载
+            ContainerService containerService = SpringUtils.getBean(ContainerService.class);
+            ServerDeployContainerRequest dpReq = containerService.buildDeployRequest(containerInfo);
+            dpReq = ContainerService.withPeers(dpReq, dpReq.getPeerDownloadURLs(), 0);
 
             askResponse.setData(JsonUtils.toBytes(dpReq));
         }
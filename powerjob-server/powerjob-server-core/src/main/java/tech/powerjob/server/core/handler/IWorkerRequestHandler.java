@@ -14,8 +14,9 @@ public interface IWorkerRequestHandler {
     /**
      * 处理 worker 上报的心跳信息
      * @param heartbeat 心跳信息
+     * @return 响应信息，失败且错误信息为 RESYNC 时 worker 需要重新发送全量心跳
      */
-    void processWorkerHeartbeat(WorkerHeartbeat heartbeat);
+    AskResponse processWorkerHeartbeat(WorkerHeartbeat heartbeat);
 
     /**
      * 处理 TaskTracker 的任务实例上报
@@ -32,10 +33,11 @@ public interface IWorkerRequestHandler {
     AskResponse processWorkerQueryExecutorCluster(WorkerQueryExecutorClusterReq req);
 
     /**
-     * 处理 worker 日志推送请求（内部使用线程池异步处理，非阻塞）
+     * 处理 worker 日志推送请求（写入内存缓冲后异步批量落库，非阻塞）
      * @param req 请求
+     * @return 响应信息，失败且错误信息为 BUSY 时 worker 需要降低上报速度
      */
-    void processWorkerLogReport(WorkerLogReportReq req);
+    AskResponse processWorkerLogReport(WorkerLogReportReq req);
 
     /**
      * 处理 worker 的容器部署请求
@@ -11,6 +11,7 @@ import tech.powerjob.common.request.WorkerHeartbeat;
 import tech.powerjob.common.request.WorkerLogReportReq;
 import tech.powerjob.common.response.AskResponse;
 import tech.powerjob.remote.framework.actor.Actor;
+import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.core.instance.InstanceLogService;
 import tech.powerjob.server.core.instance.InstanceManager;
 import tech.powerjob.server.core.workflow.WorkflowInstanceManager;
@@ -48,8 +49,31 @@ public class WorkerRequestHandlerImpl extends AbWorkerRequestHandler {
     }
 
     @Override
-    protected void processWorkerHeartbeat0(WorkerHeartbeat heartbeat, WorkerHeartbeatEvent event) {
-        WorkerClusterManagerService.updateStatus(heartbeat);
+    protected AskResponse processWorkerHeartbeat0(WorkerHeartbeat heartbeat, WorkerHeartbeatEvent event) {
+        if (WorkerClusterManagerService.updateStatus(heartbeat)) {
+            if (heartbeat.isDelta()) {
+                fillEventByWorkerInfo(heartbeat, event);
+            }
+            return AskResponse.succeed(null);
+        }
+        event.setResync(true);
+        return AskResponse.failed(RemoteConstant.S4W_HEARTBEAT_RESYNC);
+    }
+
+    /**
+     * 增量心跳只携带发生变化的字段，监控事件中的 worker 属性取合并后的 worker 信息
+     */
+    private static void fillEventByWorkerInfo(WorkerHeartbeat heartbeat, WorkerHeartbeatEvent event) {
+        WorkerInfo workerInfo = WorkerClusterManagerService.getWorkerInfo(heartbeat.getAppId(), heartbeat.getWorkerAddress());
+        if (workerInfo == null) {
+            return;
+        }
+        event.setProtocol(workerInfo.getProtocol())
+                .setTag(workerInfo.getTag())
+                .setVersion(workerInfo.getVersion());
+        if (event.getScore() == null && workerInfo.getSystemMetrics() != null) {
+            event.setScore(workerInfo.getSystemMetrics().getScore());
+        }
     }
 
     @Override
@@ -71,8 +95,8 @@ public class WorkerRequestHandlerImpl extends AbWorkerRequestHandler {
     }
 
     @Override
-    protected void processWorkerLogReport0(WorkerLogReportReq req, WorkerLogReportEvent event) {
-        // 这个效率应该不会拉垮吧...也就是一些判断 + Map#get 吧...
-        instanceLogService.submitLogs(req.getWorkerAddress(), req.getInstanceLogContents());
+    protected boolean processWorkerLogReport0(WorkerLogReportReq req, WorkerLogReportEvent event) {
+        // 只写入内存缓冲，不会阻塞 IO 线程
+        return instanceLogService.submitLogs(req.getWorkerAddress(), req.getInstanceLogContents());
     }
 }
@@ -0,0 +1,246 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.extension.LockService;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoArchiveDO;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 任务实例冷热分离
+ * 1. 已结束的实例在宽限期过后由单台 server 分批迁移至归档表，instance_info 只保留活跃及近期结束的实例，调度相关查询只访问这部分小数据集
+ * 2. 每批迁移在同一个事务中先写归档表再带条件删除原记录，同时存在于两张表的记录（如迁移后被重试）以 instance_info 为准
+ * 3. 按 instanceId 查询、列表查询均透明地读取两张表
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+@Service
+public class InstanceArchiveService {
+
+    public static final long ARCHIVE_INTERVAL = 60000;
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_BATCH_NUM = 100;
+    private static final String ARCHIVE_LOCK = "instance_archive_lock";
+
+    private final InstanceInfoRepository instanceInfoRepository;
+
+    private final InstanceInfoArchiveRepository instanceInfoArchiveRepository;
+
+    private final LockService lockService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 实例结束多久之后归档，小于 0 代表不归档
+     */
+    private final long gracePeriodMs;
+
+    public InstanceArchiveService(InstanceInfoRepository instanceInfoRepository, InstanceInfoArchiveRepository instanceInfoArchiveRepository, LockService lockService,
+                                  @Qualifier("remoteTransactionManager") PlatformTransactionManager transactionManager,
+                                  @Value("${oms.instanceinfo.archive.grace-minutes:60}") long graceMinutes) {
+        this.instanceInfoRepository = instanceInfoRepository;
+        this.instanceInfoArchiveRepository = instanceInfoArchiveRepository;
+        this.lockService = lockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gracePeriodMs = graceMinutes < 0 ? -1 : graceMinutes * 60000;
+    }
+
+    /**
+     * 将宽限期之前结束的实例迁移至归档表，同一时间只有一台 server 执行
+     * @return 迁移的记录数
+     */
+    public long archive() {
+        if (gracePeriodMs < 0) {
+            return 0;
+        }
+        if (!lockService.tryLock(ARCHIVE_LOCK, ARCHIVE_INTERVAL * 5)) {
+            return 0;
+        }
+        try {
+            Date threshold = new Date(System.currentTimeMillis() - gracePeriodMs);
+            long total = 0;
+            long startId = 0;
+            for (int i = 0; i < MAX_BATCH_NUM; i++) {
+                List<Long> ids = instanceInfoRepository.findIdsToArchive(startId, InstanceStatus.FINISHED_STATUS, threshold, PageRequest.of(0, BATCH_SIZE));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Integer deleted = transactionTemplate.execute(status -> archiveBatch(ids, threshold));
+                total += deleted == null ? 0 : deleted;
+                startId = ids.get(ids.size() - 1);
+            }
+            if (total > 0) {
+                log.info("[InstanceArchiveService] archived {} instances which finished before {}.", total, threshold);
+            }
+            return total;
+        } finally {
+            lockService.unlock(ARCHIVE_LOCK);
+        }
+    }
+
+    /**
+     * 迁移一批实例，写归档表与删除原记录在同一个事务中完成
+     * 归档表中已存在的记录（上次迁移后实例被重试、恢复中断等）以活跃表为准，先删除再写入，避免主键冲突导致归档永久卡住
+     */
+    private int archiveBatch(List<Long> ids, Date threshold) {
+        List<InstanceInfoArchiveDO> archives = instanceInfoRepository.findAllById(ids).stream().map(InstanceArchiveService::toArchive).collect(Collectors.toList());
+        instanceInfoArchiveRepository.deleteByIdIn(ids);
+        instanceInfoArchiveRepository.saveAll(archives);
+        instanceInfoArchiveRepository.flush();
+        return instanceInfoRepository.deleteArchived(ids, InstanceStatus.FINISHED_STATUS, threshold);
+    }
+
+    /**
+     * 根据 instanceId 查询实例，活跃表中不存在时查询归档表
+     * @param instanceId 实例ID
+     * @return 实例信息，不存在时返回 null
+     */
+    public InstanceInfoDO findByInstanceId(Long instanceId) {
+        InstanceInfoDO instanceInfo = instanceInfoRepository.findByInstanceId(instanceId);
+        if (instanceInfo != null) {
+            return instanceInfo;
+        }
+        InstanceInfoArchiveDO archive = instanceInfoArchiveRepository.findByInstanceId(instanceId);
+        return archive == null ? null : fromArchive(archive);
+    }
+
+    /**
+     * 批量查询实例状态，活跃表中不存在的实例查询归档表
+     * @param instanceIds 实例ID
+     * @return instanceId -> 状态信息，不存在的实例不返回
+     */
+    public Map<Long, InstanceStatusInfo> listStatusByInstanceIds(List<Long> instanceIds) {
+        Map<Long, InstanceStatusInfo> ret = Maps.newHashMap();
+        instanceInfoRepository.listStatusByInstanceIdIn(instanceIds).forEach(x -> ret.put(x.getInstanceId(), x));
+        List<Long> missing = instanceIds.stream().filter(id -> !ret.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            instanceInfoArchiveRepository.listStatusByInstanceIdIn(missing).forEach(x -> ret.putIfAbsent(x.getInstanceId(), x));
+        }
+        return ret;
+    }
+
+    /**
+     * 将已归档的实例恢复至活跃表（如重试）
+     * @param instanceInfo 通过 {@link #findByInstanceId(Long)} 获取的实例信息
+     * @return 活跃表中的实例信息
+     */
+    public InstanceInfoDO restore(InstanceInfoDO instanceInfo) {
+        InstanceInfoDO active = instanceInfoRepository.findByInstanceId(instanceInfo.getInstanceId());
+        if (active != null) {
+            return active;
+        }
+        InstanceInfoArchiveDO archive = instanceInfoArchiveRepository.findByInstanceId(instanceInfo.getInstanceId());
+        InstanceInfoDO restored = new InstanceInfoDO();
+        BeanUtils.copyProperties(instanceInfo, restored);
+        // 活跃表的主键自增生成
+        restored.setId(null);
+        restored = instanceInfoRepository.saveAndFlush(restored);
+        if (archive != null) {
+            instanceInfoArchiveRepository.delete(archive);
+        }
+        log.info("[InstanceArchiveService] restore archived instance({}) to active table.", instanceInfo.getInstanceId());
+        return restored;
+    }
+
+    /**
+     * 合并活跃表与归档表的列表查询结果（均按 id 倒序），同一实例以活跃表为准
+     * @param active 活跃表的查询结果
+     * @param archived 归档表的查询结果
+     * @param limit 最大返回条数
+     * @return 合并后的结果
+     */
+    public static List<InstanceListInfo> merge(List<InstanceListInfo> active, List<InstanceListInfo> archived, int limit) {
+        Map<Long, InstanceListInfo> id2Instance = Stream.concat(active.stream(), archived.stream())
+                .collect(Collectors.toMap(InstanceListInfo::getInstanceId, Function.identity(), (a, b) -> a));
+        List<InstanceListInfo> ret = Lists.newArrayList(id2Instance.values());
+        ret.sort(Comparator.comparing(InstanceListInfo::getId).reversed());
+        return ret.size() > limit ? ret.subList(0, limit) : ret;
+    }
+
+    /**
+     * 跨表的偏移分页查询，活跃表的数据在前，归档表的数据在后
+     * @param pageable 分页参数
+     * @param activeQuery 活跃表查询
+     * @param archiveQuery 归档表查询（排序需与活跃表一致，且需通过 {@link #excludeActive(Specification)} 排除活跃表中已存在的实例，否则迁移中断或恢复期间同一实例会重复出现）
+     * @param converter 归档数据转换器
+     * @return 合并后的分页结果
+     */
+    public static <T, A> Page<T> unionPage(Pageable pageable, Function<Pageable, Page<T>> activeQuery, Function<Pageable, Page<A>> archiveQuery, Function<A, T> converter) {
+        Page<T> activePage = activeQuery.apply(pageable);
+        List<T> content = Lists.newArrayList(activePage.getContent());
+        int pageSize = pageable.getPageSize();
+        if (content.size() >= pageSize) {
+            // 只需要归档表的总数
+            long archivedTotal = archiveQuery.apply(PageRequest.of(0, 1, pageable.getSort())).getTotalElements();
+            return new PageImpl<>(content, pageable, activePage.getTotalElements() + archivedTotal);
+        }
+        // 归档表的偏移量不一定与页大小对齐，最多查询两页
+        long archiveOffset = Math.max(0, pageable.getOffset() - activePage.getTotalElements());
+        int pageIndex = (int) (archiveOffset / pageSize);
+        int skip = (int) (archiveOffset % pageSize);
+        Page<A> archivePage = archiveQuery.apply(PageRequest.of(pageIndex, pageSize, pageable.getSort()));
+        List<A> archived = Lists.newArrayList(archivePage.getContent());
+        if (skip > 0 && archivePage.hasNext()) {
+            archived.addAll(archiveQuery.apply(PageRequest.of(pageIndex + 1, pageSize, pageable.getSort())).getContent());
+        }
+        archived.stream().skip(skip).limit(pageSize - content.size()).map(converter).forEach(content::add);
+        return new PageImpl<>(content, pageable, activePage.getTotalElements() + archivePage.getTotalElements());
+    }
+
+    /**
+     * 归档表查询条件，排除活跃表中已存在的实例（迁移中断或恢复时同一实例会短暂存在于两张表），同一实例以活跃表为准
+     * @param specification 原查询条件，可为 null
+     * @return 追加排除条件后的查询条件
+     */
+    public static Specification<InstanceInfoArchiveDO> excludeActive(Specification<InstanceInfoArchiveDO> specification) {
+        Specification<InstanceInfoArchiveDO> notActive = (root, query, cb) -> {
+            Subquery<Long> active = query.subquery(Long.class);
+            Root<InstanceInfoDO> activeRoot = active.from(InstanceInfoDO.class);
+            active.select(activeRoot.get("id")).where(cb.equal(activeRoot.get("instanceId"), root.get("instanceId")));
+            return cb.not(cb.exists(active));
+        };
+        return Specification.where(specification).and(notActive);
+    }
+
+    public static InstanceInfoDO fromArchive(InstanceInfoArchiveDO archive) {
+        InstanceInfoDO instanceInfo = new InstanceInfoDO();
+        BeanUtils.copyProperties(archive, instanceInfo);
+        return instanceInfo;
+    }
+
+    private static InstanceInfoArchiveDO toArchive(InstanceInfoDO instanceInfo) {
+        InstanceInfoArchiveDO archive = new InstanceInfoArchiveDO();
+        BeanUtils.copyProperties(instanceInfo, archive);
+        return archive;
+    }
+}
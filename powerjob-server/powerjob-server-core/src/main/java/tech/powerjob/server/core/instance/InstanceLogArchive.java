@@ -0,0 +1,265 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 在线日志归档格式：按块压缩，头部携带块索引，读取某一页日志时只需要读取头部及对应的块
+ * | magic(4) | version(1) | blockNum(4) | totalLines(8) | 块索引 blockNum * (compressedLength(4) + lineNum(4)) | 压缩块 ... |
+ * 每个块包含若干完整的行（UTF-8），压缩前大小约为 {@link #BLOCK_SIZE}
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+public class InstanceLogArchive {
+
+    private static final int MAGIC = 0x504A4C41;
+    private static final byte VERSION = 1;
+
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int FIXED_HEADER_LENGTH = 17;
+    private static final int INDEX_ENTRY_LENGTH = 8;
+
+    private static final byte LF = '\n';
+
+    /**
+     * 读取归档文件指定范围的数据
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        /**
+         * 读取数据
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 数据，到达文件末尾时长度可能小于 length
+         * @throws Exception 读取失败
+         */
+        byte[] read(long offset, int length) throws Exception;
+    }
+
+    /**
+     * 日志分页读取结果
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class LinePage {
+        /**
+         * 日志总行数
+         */
+        private final long totalLines;
+        private final String content;
+    }
+
+    /**
+     * 将文本日志文件压缩为归档文件
+     * @param logFile 文本日志（UTF-8）
+     * @param archiveFile 归档文件
+     * @throws IOException IO 异常
+     */
+    public static void compress(File logFile, File archiveFile) throws IOException {
+        List<int[]> index = Lists.newArrayList();
+        long totalLines = 0;
+        File blockFile = new File(archiveFile.getPath() + ".blocks");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(logFile.toPath()));
+             OutputStream blockOs = new BufferedOutputStream(Files.newOutputStream(blockFile.toPath()))) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + 1024);
+            int lines = 0;
+            int b;
+            while ((b = is.read()) != -1) {
+                block.write(b);
+                if (b == LF) {
+                    lines++;
+                    if (block.size() >= BLOCK_SIZE) {
+                        index.add(writeBlock(deflater, block, lines, blockOs));
+                        totalLines += lines;
+                        lines = 0;
+                    }
+                }
+            }
+            if (block.size() > 0) {
+                // 最后一行可能没有换行符
+                if (block.toByteArray()[block.size() - 1] != LF) {
+                    block.write(LF);
+                    lines++;
+                }
+                index.add(writeBlock(deflater, block, lines, blockOs));
+                totalLines += lines;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archiveFile.toPath())))) {
+            dos.writeInt(MAGIC);
+            dos.writeByte(VERSION);
+            dos.writeInt(index.size());
+            dos.writeLong(totalLines);
+            for (int[] entry : index) {
+                dos.writeInt(entry[0]);
+                dos.writeInt(entry[1]);
+            }
+            Files.copy(blockFile.toPath(), dos);
+        } finally {
+            Files.deleteIfExists(blockFile.toPath());
+        }
+    }
+
+    /**
+     * 将归档文件完整解压为文本日志文件
+     * @param archiveFile 归档文件
+     * @param logFile 文本日志
+     * @throws IOException IO 异常
+     */
+    public static void decompress(File archiveFile, File logFile) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(archiveFile.toPath())));
+             OutputStream os = new BufferedOutputStream(Files.newOutputStream(logFile.toPath()))) {
+            int[][] index = readIndex(dis);
+            for (int[] entry : index) {
+                byte[] compressed = new byte[entry[0]];
+                dis.readFully(compressed);
+                os.write(inflate(compressed, 0, compressed.length));
+            }
+        }
+    }
+
+    /**
+     * 读取指定范围的行，只读取头部及覆盖该范围的块
+     * @param reader 归档文件读取器
+     * @param fromLine 起始行（从 0 开始）
+     * @param lineNum 行数
+     * @return 分页结果
+     * @throws Exception 读取失败
+     */
+    public static LinePage readLines(RangeReader reader, long fromLine, int lineNum) throws Exception {
+        ByteBuffer fixedHeader = ByteBuffer.wrap(readFully(reader, 0, FIXED_HEADER_LENGTH));
+        checkHeader(fixedHeader.getInt(), fixedHeader.get());
+        int blockNum = fixedHeader.getInt();
+        long totalLines = fixedHeader.getLong();
+        if (blockNum == 0 || fromLine >= totalLines) {
+            return new LinePage(totalLines, "");
+        }
+        ByteBuffer indexBuffer = ByteBuffer.wrap(readFully(reader, FIXED_HEADER_LENGTH, blockNum * INDEX_ENTRY_LENGTH));
+
+        // 定位覆盖 [fromLine, fromLine + lineNum) 的块
+        long toLine = fromLine + lineNum;
+        long offset = FIXED_HEADER_LENGTH + (long) blockNum * INDEX_ENTRY_LENGTH;
+        long blockFirstLine = 0;
+        long rangeStart = -1;
+        long rangeFirstLine = 0;
+        List<Integer> blockLengths = Lists.newArrayList();
+        for (int i = 0; i < blockNum && blockFirstLine < toLine; i++) {
+            int compressedLength = indexBuffer.getInt();
+            int lines = indexBuffer.getInt();
+            if (blockFirstLine + lines > fromLine) {
+                if (rangeStart < 0) {
+                    rangeStart = offset;
+                    rangeFirstLine = blockFirstLine;
+                }
+                blockLengths.add(compressedLength);
+            }
+            offset += compressedLength;
+            blockFirstLine += lines;
+        }
+
+        // 相邻的块一次性读取
+        int rangeLength = blockLengths.stream().mapToInt(Integer::intValue).sum();
+        byte[] compressed = readFully(reader, rangeStart, rangeLength);
+        StringBuilder sb = new StringBuilder();
+        long line = rangeFirstLine;
+        int pos = 0;
+        for (int blockLength : blockLengths) {
+            String text = new String(inflate(compressed, pos, blockLength), StandardCharsets.UTF_8);
+            pos += blockLength;
+            int lineStart = 0;
+            int lineEnd;
+            while ((lineEnd = text.indexOf(LF, lineStart)) >= 0) {
+                if (line >= fromLine && line < toLine) {
+                    int end = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                    sb.append(text, lineStart, end).append(System.lineSeparator());
+                }
+                line++;
+                lineStart = lineEnd + 1;
+            }
+        }
+        return new LinePage(totalLines, sb.toString());
+    }
+
+    private static int[] writeBlock(Deflater deflater, ByteArrayOutputStream block, int lines, OutputStream os) throws IOException {
+        byte[] compressed = deflate(deflater, block.toByteArray());
+        os.write(compressed);
+        block.reset();
+        return new int[]{compressed.length, lines};
+    }
+
+    private static int[][] readIndex(DataInputStream dis) throws IOException {
+        checkHeader(dis.readInt(), dis.readByte());
+        int blockNum = dis.readInt();
+        dis.readLong();
+        int[][] index = new int[blockNum][2];
+        for (int i = 0; i < blockNum; i++) {
+            index[i][0] = dis.readInt();
+            index[i][1] = dis.readInt();
+        }
+        return index;
+    }
+
+    private static void checkHeader(int magic, byte version) throws IOException {
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("invalid instance log archive");
+        }
+    }
+
+    private static byte[] readFully(RangeReader reader, long offset, int length) throws Exception {
+        byte[] data = reader.read(offset, length);
+        if (data.length != length) {
+            throw new EOFException(String.format("expect %d bytes at %d but got %d", length, offset, data.length));
+        }
+        return data;
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream os = new ByteArrayOutputStream(data.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int len = deflater.deflate(buffer);
+            os.write(buffer, 0, len);
+        }
+        return os.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream os = new ByteArrayOutputStream(BLOCK_SIZE + 1024);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int len = inflater.inflate(buffer);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("truncated instance log archive block");
+                }
+                os.write(buffer, 0, len);
+            }
+            return os.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
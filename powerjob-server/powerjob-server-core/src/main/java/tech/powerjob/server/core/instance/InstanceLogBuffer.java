@@ -0,0 +1,236 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.server.persistence.local.LocalInstanceLogDO;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 在线日志写缓冲（write-behind）
+ * 1. 所有 worker 上报的日志先进入内存缓冲，由单独的写线程合并后通过 JDBC 批量写入本地 H2 数据库
+ * 2. 缓冲容量（日志条数）有限，已满时拒绝整批日志，由 worker 降低上报速度，不再因线程池队列溢出而丢弃
+ * 3. 任务结束同步日志前需调用 {@link #flush(long)}，保证缓冲中该实例的日志已全部落库，只等待该实例的日志，不受其他实例上报量影响
+ * 4. 秒级任务实例的日志不写入数据库，而是写入 {@link InstanceLogSegments}
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+@Component
+public class InstanceLogBuffer implements InitializingBean, DisposableBean {
+
+    private static final String INSERT_SQL = "insert into local_instance_log (instance_id, log_time, log_level, log_content, worker_address) values (?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long FLUSH_TIMEOUT_MS = 10000;
+
+    private final DataSource localDataSource;
+
+    private final InstanceLogSegments instanceLogSegments;
+
+    private final int capacity;
+
+    private final BlockingQueue<LocalInstanceLogDO> buffer = new LinkedBlockingQueue<>();
+    /**
+     * 剩余容量，日志落库（或最终写入失败被丢弃）后才归还，因此也限制了写线程中正在处理的日志
+     */
+    private final Semaphore permits;
+
+    /**
+     * 各实例已接收与已处理的日志条数，用于 flush，日志全部处理完毕后移除
+     */
+    private final Map<Long, Progress> instanceId2Progress = Maps.newConcurrentMap();
+    private final Object flushMonitor = new Object();
+
+    private Thread writer;
+
+    private volatile boolean running = true;
+
+    public InstanceLogBuffer(@Qualifier("omsLocalDatasource") DataSource localDataSource, InstanceLogSegments instanceLogSegments,
+                             @Value("${oms.instance.log.buffer.capacity:100000}") int capacity) {
+        this.localDataSource = localDataSource;
+        this.instanceLogSegments = instanceLogSegments;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+    }
+
+    /**
+     * 提交一批日志，要么全部接收，要么全部拒绝
+     * @param logs 日志
+     * @return 缓冲已满时返回 false
+     */
+    public boolean offer(List<LocalInstanceLogDO> logs) {
+        if (logs.isEmpty()) {
+            return true;
+        }
+        if (!running || !permits.tryAcquire(logs.size())) {
+            return false;
+        }
+        // 先计数后入队，flush 时才能保证计数之前的日志都已入队
+        logs.stream().collect(Collectors.groupingBy(LocalInstanceLogDO::getInstanceId, Collectors.counting()))
+                .forEach((instanceId, num) -> instanceId2Progress.compute(instanceId, (ignore, progress) -> {
+                    Progress ret = progress == null ? new Progress() : progress;
+                    ret.accepted.addAndGet(num);
+                    return ret;
+                }));
+        buffer.addAll(logs);
+        return true;
+    }
+
+    /**
+     * 等待该实例当前已接收的日志全部落库
+     * @param instanceId 任务实例ID
+     * @return 超时返回 false
+     */
+    public boolean flush(long instanceId) {
+        Progress progress = instanceId2Progress.get(instanceId);
+        if (progress == null) {
+            return true;
+        }
+        // 日志全部处理后 progress 才会被移除，之后接收的日志计入新的 progress，因此只需等待当前 progress 追上目标
+        long target = progress.accepted.get();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+        synchronized (flushMonitor) {
+            while (progress.processed.get() < target) {
+                long waitMs = deadline - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    log.warn("[InstanceLogBuffer] [{}] flush timeout, {} logs are still in buffer.", instanceId, target - progress.processed.get());
+                    return false;
+                }
+                try {
+                    flushMonitor.wait(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 缓冲中（含写入中）的日志条数
+     */
+    public int size() {
+        return capacity - permits.availablePermits();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        writer = new Thread(this::loop, "Thread-InstanceLogWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        writer.join(FLUSH_TIMEOUT_MS);
+    }
+
+    private void loop() {
+        log.info("[InstanceLogBuffer] log writer started, capacity: {}.", capacity);
+        List<LocalInstanceLogDO> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        while (running || !buffer.isEmpty()) {
+            try {
+                LocalInstanceLogDO first = buffer.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                log.error("[InstanceLogBuffer] unknown exception in log writer.", t);
+            } finally {
+                if (!batch.isEmpty()) {
+                    permits.release(batch.size());
+                    markProcessed(batch);
+                    batch.clear();
+                    synchronized (flushMonitor) {
+                        flushMonitor.notifyAll();
+                    }
+                }
+            }
+        }
+        log.info("[InstanceLogBuffer] log writer stopped.");
+    }
+
+    private void markProcessed(List<LocalInstanceLogDO> logs) {
+        logs.stream().collect(Collectors.groupingBy(LocalInstanceLogDO::getInstanceId, Collectors.counting()))
+                .forEach((instanceId, num) -> instanceId2Progress.computeIfPresent(instanceId, (ignore, progress) ->
+                        progress.processed.addAndGet(num) >= progress.accepted.get() ? null : progress));
+    }
+
+    private void write(List<LocalInstanceLogDO> logs) {
+        Map<Boolean, List<LocalInstanceLogDO>> segmented2Logs = logs.stream()
+                .collect(Collectors.partitioningBy(x -> instanceLogSegments.isSegmented(x.getInstanceId())));
+        List<LocalInstanceLogDO> segmentLogs = segmented2Logs.get(true);
+        if (!segmentLogs.isEmpty()) {
+            instanceLogSegments.append(segmentLogs);
+        }
+        List<LocalInstanceLogDO> dbLogs = segmented2Logs.get(false);
+        if (dbLogs.isEmpty()) {
+            return;
+        }
+        try {
+            CommonUtils.executeWithRetry0(() -> batchInsert(dbLogs));
+        } catch (Exception e) {
+            log.warn("[InstanceLogBuffer] persistent {} instance logs failed, these logs will be dropped.", dbLogs.size(), e);
+        }
+    }
+
+    private int batchInsert(List<LocalInstanceLogDO> logs) throws SQLException {
+        try (Connection connection = localDataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                for (LocalInstanceLogDO instanceLog : logs) {
+                    ps.setObject(1, instanceLog.getInstanceId(), Types.BIGINT);
+                    ps.setObject(2, instanceLog.getLogTime(), Types.BIGINT);
+                    ps.setObject(3, instanceLog.getLogLevel(), Types.INTEGER);
+                    ps.setString(4, instanceLog.getLogContent());
+                    ps.setString(5, instanceLog.getWorkerAddress());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                connection.commit();
+                return logs.size();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static class Progress {
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+    }
+}
@@ -0,0 +1,214 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tech.powerjob.common.enums.TimeExpressionType;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.persistence.local.LocalInstanceLogDO;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 秒级任务（FIXED_RATE/FIXED_DELAY）的在线日志分段存储
+ * 1. 秒级任务的实例会持续运行很久，日志不写入本地数据库，而是按时间分段追加到本地文件中（每个实例一个目录，每分钟一个分段）
+ * 2. 只保留最近 10 分钟的分段，过期时直接删除整个分段文件，无需删除数据库记录，磁盘占用有上限
+ * 3. 写入只发生在 {@link InstanceLogBuffer} 的写线程中，读取时按时间顺序拼接所有分段
+ * 4. 实例类型查询失败时不缓存结果，该批日志写入本地数据库，下一批日志重新查询
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+@Component
+public class InstanceLogSegments {
+
+    /**
+     * 每个分段覆盖的时间范围
+     */
+    static final long SEGMENT_MS = 60000;
+    /**
+     * 只保留最近 10 分钟的日志
+     */
+    static final long RETENTION_MS = 10 * SEGMENT_MS;
+    /**
+     * 单个分段的大小上限，超出后丢弃该分段时间范围内的后续日志
+     */
+    private static final long MAX_SEGMENT_BYTES = 8 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final File baseDir;
+
+    /**
+     * 实例是否为秒级任务的实例，无法确定时返回 null
+     */
+    private final Function<Long, Boolean> frequentChecker;
+
+    private final LongSupplier clock;
+
+    /**
+     * 实例是否为秒级任务的实例
+     */
+    private final Map<Long, Boolean> instanceId2Frequent = Maps.newConcurrentMap();
+
+    @Autowired
+    public InstanceLogSegments(InstanceMetadataService instanceMetadataService) {
+        this(OmsFileUtils.genLogSegmentPath(), instanceId -> {
+            try {
+                Integer timeExpressionType = instanceMetadataService.fetchJobInfoByInstanceId(instanceId).getTimeExpressionType();
+                return TimeExpressionType.FREQUENT_TYPES.contains(timeExpressionType);
+            } catch (Exception e) {
+                log.warn("[InstanceLogSegments] [{}] fetch job info failed, the logs will be stored in local db this time.", instanceId, e);
+                return null;
+            }
+        }, System::currentTimeMillis);
+    }
+
+    public InstanceLogSegments(String baseDir, Function<Long, Boolean> frequentChecker, LongSupplier clock) {
+        this.baseDir = new File(baseDir);
+        this.frequentChecker = frequentChecker;
+        this.clock = clock;
+        // 与本地数据库一致，重启后原来的分段没有意义
+        CommonUtils.executeIgnoreException(() -> FileUtils.deleteDirectory(this.baseDir));
+    }
+
+    /**
+     * 判断实例的日志是否使用分段存储
+     * @param instanceId 任务实例ID
+     * @return 秒级任务的实例返回 true
+     */
+    public boolean isSegmented(long instanceId) {
+        // 查询失败时 checker 返回 null，不会被缓存
+        return Boolean.TRUE.equals(instanceId2Frequent.computeIfAbsent(instanceId, frequentChecker));
+    }
+
+    /**
+     * 判断实例是否已有分段日志，不会触发实例类型的查询
+     * @param instanceId 任务实例ID
+     * @return 存在分段日志时返回 true
+     */
+    public boolean contains(long instanceId) {
+        return Boolean.TRUE.equals(instanceId2Frequent.get(instanceId));
+    }
+
+    /**
+     * 追加日志，只能由单个线程调用（与 {@link #expire()} 互斥，避免写入时实例目录被删除）
+     * @param logs 同属于分段存储实例的日志
+     */
+    public synchronized void append(List<LocalInstanceLogDO> logs) {
+        // instanceId -> 分段起始时间 -> 日志
+        Map<Long, Map<Long, List<LocalInstanceLogDO>>> instanceId2Segments = logs.stream()
+                .sorted(Comparator.comparing(LocalInstanceLogDO::getLogTime))
+                .collect(Collectors.groupingBy(LocalInstanceLogDO::getInstanceId,
+                        Collectors.groupingBy(x -> x.getLogTime() / SEGMENT_MS * SEGMENT_MS, TreeMap::new, Collectors.toList())));
+        long expireTime = clock.getAsLong() - RETENTION_MS;
+        instanceId2Segments.forEach((instanceId, segments) -> segments.forEach((segmentStart, segmentLogs) -> {
+            if (segmentStart + SEGMENT_MS <= expireTime) {
+                log.warn("[InstanceLogSegments] [{}] {} logs are more than {}ms behind, these logs will be dropped.", instanceId, segmentLogs.size(), RETENTION_MS);
+                return;
+            }
+            File segment = new File(new File(baseDir, String.valueOf(instanceId)), segmentStart + SEGMENT_SUFFIX);
+            if (segment.length() >= MAX_SEGMENT_BYTES) {
+                log.warn("[InstanceLogSegments] [{}] segment({}) is full, {} logs will be dropped.", instanceId, segment.getName(), segmentLogs.size());
+                return;
+            }
+            try {
+                FileUtils.forceMkdirParent(segment);
+                try (BufferedWriter bw = Files.newBufferedWriter(segment.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (LocalInstanceLogDO instanceLog : segmentLogs) {
+                        bw.write(InstanceLogService.convertLog(instanceLog));
+                        bw.write(System.lineSeparator());
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("[InstanceLogSegments] append {} logs to segment({}) failed, these logs will be dropped.", segmentLogs.size(), segment, e);
+            }
+        }));
+    }
+
+    /**
+     * 按时间顺序输出实例的全部分段日志
+     * @param instanceId 任务实例ID
+     * @param os 输出流
+     * @throws IOException 写入失败
+     */
+    public void transferTo(long instanceId, OutputStream os) throws IOException {
+        for (File segment : listSegments(new File(baseDir, String.valueOf(instanceId)))) {
+            try {
+                Files.copy(segment.toPath(), os);
+            } catch (NoSuchFileException ignore) {
+                // 读取过程中分段已过期
+            }
+        }
+    }
+
+    /**
+     * 删除过期的分段，每个分段只需要一次文件删除，分段全部过期的实例目录一并删除
+     * @return 删除的分段数量
+     */
+    public synchronized int expire() {
+        File[] instanceDirs = baseDir.listFiles(File::isDirectory);
+        if (instanceDirs == null) {
+            return 0;
+        }
+        long expireTime = clock.getAsLong() - RETENTION_MS;
+        int num = 0;
+        for (File instanceDir : instanceDirs) {
+            for (File segment : listSegments(instanceDir)) {
+                if (parseSegmentStart(segment) + SEGMENT_MS > expireTime) {
+                    break;
+                }
+                if (segment.delete()) {
+                    num++;
+                }
+            }
+            String[] remaining = instanceDir.list();
+            if (remaining != null && remaining.length == 0) {
+                CommonUtils.executeIgnoreException(() -> Files.deleteIfExists(instanceDir.toPath()));
+            }
+        }
+        return num;
+    }
+
+    /**
+     * 删除实例的全部分段（实例结束并同步日志后）
+     * @param instanceId 任务实例ID
+     */
+    public void delete(long instanceId) {
+        instanceId2Frequent.remove(instanceId);
+        CommonUtils.executeIgnoreException(() -> FileUtils.deleteDirectory(new File(baseDir, String.valueOf(instanceId))));
+    }
+
+    private static File[] listSegments(File instanceDir) {
+        File[] segments = instanceDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, Comparator.comparingLong(InstanceLogSegments::parseSegmentStart));
+        return segments;
+    }
+
+    private static long parseSegmentStart(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -1,7 +1,6 @@
 package tech.powerjob.server.core.instance;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -15,26 +14,26 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.springframework.util.CollectionUtils;
 import tech.powerjob.common.OmsConstant;
 import tech.powerjob.common.enums.LogLevel;
-import tech.powerjob.common.enums.TimeExpressionType;
 import tech.powerjob.common.model.InstanceLogContent;
 import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.common.utils.NetUtils;
 import tech.powerjob.common.utils.SegmentLock;
 import tech.powerjob.server.common.constants.PJThreadPool;
 import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.core.service.DFsCacheService;
 import tech.powerjob.server.extension.dfs.*;
 import tech.powerjob.server.persistence.StringPage;
 import tech.powerjob.server.persistence.local.LocalInstanceLogDO;
 import tech.powerjob.server.persistence.local.LocalInstanceLogRepository;
-import tech.powerjob.server.persistence.remote.model.JobInfoDO;
 import tech.powerjob.server.persistence.storage.Constants;
 import tech.powerjob.server.remote.server.redirector.DesignateServer;
 
 import javax.annotation.Resource;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -57,11 +56,10 @@ public class InstanceLogService {
     @Value("${server.port}")
     private int port;
 
-    @Resource
-    private InstanceMetadataService instanceMetadataService;
-
     @Resource
     private DFsService dFsService;
+    @Resource
+    private DFsCacheService dFsCacheService;
     /**
      * 本地数据库操作bean
      */
@@ -71,6 +69,12 @@ public class InstanceLogService {
     @Resource
     private LocalInstanceLogRepository localInstanceLogRepository;
 
+    @Resource
+    private InstanceLogBuffer instanceLogBuffer;
+
+    @Resource
+    private InstanceLogSegments instanceLogSegments;
+
     /**
      * 本地维护了在线日志的任务实例ID
      */
@@ -103,27 +107,26 @@ public class InstanceLogService {
     private static final long LOG_CACHE_TIME = 10000;
 
     /**
-     * 提交日志记录，持久化到本地数据库中
+     * 提交日志记录，经写缓冲批量持久化到本地数据库中
      * @param workerAddress 上报机器地址
      * @param logs 任务实例运行时日志
+     * @return 写缓冲已满时返回 false，worker 需要降低上报速度
      */
-    @Async(value = PJThreadPool.LOCAL_DB_POOL)
-    public void submitLogs(String workerAddress, List<InstanceLogContent> logs) {
+    public boolean submitLogs(String workerAddress, List<InstanceLogContent> logs) {
 
         List<LocalInstanceLogDO> logList = logs.stream().map(x -> {
-            instanceId2LastReportTime.put(x.getInstanceId(), System.currentTimeMillis());
-
             LocalInstanceLogDO y = new LocalInstanceLogDO();
             BeanUtils.copyProperties(x, y);
             y.setWorkerAddress(workerAddress);
             return y;
         }).collect(Collectors.toList());
 
-        try {
-            CommonUtils.executeWithRetry0(() -> localInstanceLogRepository.saveAll(logList));
-        }catch (Exception e) {
-            log.warn("[InstanceLogService] persistent instance logs failed, these logs will be dropped: {}.", logs, e);
+        if (!instanceLogBuffer.offer(logList)) {
+            return false;
         }
+        long now = System.currentTimeMillis();
+        logs.forEach(x -> instanceId2LastReportTime.put(x.getInstanceId(), now));
+        return true;
     }
 
     /**
@@ -136,6 +139,15 @@ public class InstanceLogService {
     @DesignateServer
     public StringPage fetchInstanceLog(Long appId, Long instanceId, Long index) {
         try {
+            // 日志已归档且本地没有缓存的日志文件时，只读取归档中当前页所在的块，无需下载整个文件
+            if (!instanceId2LastReportTime.containsKey(instanceId) && !new File(genLogFilePath(instanceId, true)).exists()) {
+                Future<Optional<StringPage>> pageFuture = powerJobBackgroundPool.submit(() -> readArchivedPage(instanceId, index));
+                Optional<StringPage> pageOpt = pageFuture.get(5, TimeUnit.SECONDS);
+                if (pageOpt.isPresent()) {
+                    return pageOpt.get();
+                }
+            }
+
             Future<File> fileFuture = prepareLogFile(instanceId);
             // 超时并不会打断正在执行的任务
             File logFile = fileFuture.get(5, TimeUnit.SECONDS);
@@ -146,7 +158,7 @@ public class InstanceLogService {
             String lineStr;
             long left = index * MAX_LINE_COUNT;
             long right = left + MAX_LINE_COUNT;
-            try (LineNumberReader lr = new LineNumberReader(new FileReader(logFile))) {
+            try (LineNumberReader lr = new LineNumberReader(Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8))) {
                 while ((lineStr = lr.readLine()) != null) {
 
                     // 指定范围内，读出
@@ -171,6 +183,37 @@ public class InstanceLogService {
         }
     }
 
+    /**
+     * 从 DFS 中的归档文件读取一页日志
+     * @param instanceId 任务实例ID
+     * @param index 页码，从0开始
+     * @return 不存在归档文件（老版本 server 同步的未压缩日志）时返回空
+     * @throws Exception 读取失败
+     */
+    private Optional<StringPage> readArchivedPage(long instanceId, long index) throws Exception {
+        FileLocation dfl = new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genArchiveFileName(instanceId));
+        InstanceLogArchive.LinePage linePage;
+        // 本地已缓存时直接读取本地文件，否则按范围读取 DFS
+        Optional<File> cachedOpt = dFsCacheService.peek(dfl);
+        if (cachedOpt.isPresent()) {
+            try (RandomAccessFile raf = new RandomAccessFile(cachedOpt.get(), "r")) {
+                linePage = InstanceLogArchive.readLines((offset, length) -> {
+                    byte[] data = new byte[(int) Math.max(0, Math.min(length, raf.length() - offset))];
+                    raf.seek(offset);
+                    raf.readFully(data);
+                    return data;
+                }, index * MAX_LINE_COUNT, MAX_LINE_COUNT);
+            }
+        } else {
+            if (!dFsService.fetchFileMeta(dfl).isPresent()) {
+                return Optional.empty();
+            }
+            linePage = InstanceLogArchive.readLines((offset, length) -> dFsService.read(dfl, offset, length), index * MAX_LINE_COUNT, MAX_LINE_COUNT);
+        }
+        double totalPage = Math.ceil(1.0 * linePage.getTotalLines() / MAX_LINE_COUNT);
+        return Optional.of(new StringPage(index, (long) totalPage, linePage.getContent()));
+    }
+
     /**
      * 获取日志的下载链接
      * @param appId AOP 专用
@@ -219,18 +262,25 @@ public class InstanceLogService {
     public void sync(Long instanceId) {
 
         Stopwatch sw = Stopwatch.createStarted();
+        // 等待写缓冲中该实例的日志落库
+        instanceLogBuffer.flush(instanceId);
         try {
             // 先持久化到本地文件
             File stableLogFile = genStableLogFile(instanceId);
-            // 将文件推送到 MongoDB
-
-            FileLocation dfsFL = new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genMongoFileName(instanceId));
+            // 按块压缩后推送到 DFS
+            File archiveFile = new File(genArchiveFilePath(instanceId));
+            FileLocation dfsFL = new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genArchiveFileName(instanceId));
 
             try {
-                dFsService.store(new StoreRequest().setLocalFile(stableLogFile).setFileLocation(dfsFL));
-                log.info("[InstanceLog-{}] push local instanceLogs to mongoDB succeed, using: {}.", instanceId, sw.stop());
+                InstanceLogArchive.compress(stableLogFile, archiveFile);
+                dFsService.store(new StoreRequest().setLocalFile(archiveFile).setFileLocation(dfsFL));
+                log.info("[InstanceLog-{}] push local instanceLogs to DFS succeed, size: {} -> {}, using: {}.", instanceId, stableLogFile.length(), archiveFile.length(), sw.stop());
+                // 刚结束的任务大概率会被查看日志，归档文件直接放入本地缓存
+                cacheArchive(instanceId, dfsFL, archiveFile);
             }catch (Exception e) {
-                log.warn("[InstanceLog-{}] push local instanceLogs to mongoDB failed.", instanceId, e);
+                log.warn("[InstanceLog-{}] push local instanceLogs to DFS failed.", instanceId, e);
+            }finally {
+                CommonUtils.executeIgnoreException(() -> Files.deleteIfExists(archiveFile.toPath()));
             }
 
         }catch (Exception e) {
@@ -239,6 +289,7 @@ public class InstanceLogService {
         // 删除本地数据库数据
         try {
             instanceId2LastReportTime.remove(instanceId);
+            instanceLogSegments.delete(instanceId);
             CommonUtils.executeWithRetry0(() -> localInstanceLogRepository.deleteByInstanceId(instanceId));
             log.info("[InstanceLog-{}] delete local instanceLog successfully.", instanceId);
         }catch (Exception e) {
@@ -246,6 +297,14 @@ public class InstanceLogService {
         }
     }
 
+    private void cacheArchive(long instanceId, FileLocation dfsFL, File archiveFile) {
+        try {
+            dFsCacheService.put(dfsFL, archiveFile);
+        } catch (Exception e) {
+            log.warn("[InstanceLog-{}] put log archive into local cache failed, it will be downloaded from DFS when needed.", instanceId, e);
+        }
+    }
+
     private File genTemporaryLogFile(long instanceId) {
         String path = genLogFilePath(instanceId, false);
         int lockId = ("tpFileLock-" + instanceId).hashCode();
@@ -264,9 +323,7 @@ public class InstanceLogService {
                     FileUtils.forceMkdirParent(f);
 
                     // 重新构建文件
-                    try (Stream<LocalInstanceLogDO> allLogStream = localInstanceLogRepository.findByInstanceIdOrderByLogTime(instanceId)) {
-                        stream2File(allLogStream, f);
-                    }
+                    buildLocalLogFile(instanceId, f);
                     return f;
                 }catch (Exception e) {
                     CommonUtils.executeIgnoreException(() -> FileUtils.forceDelete(f));
@@ -297,11 +354,17 @@ public class InstanceLogService {
 
                     // 本地存在数据，从本地持久化（对应 SYNC 的情况）
                     if (instanceId2LastReportTime.containsKey(instanceId)) {
-                        try (Stream<LocalInstanceLogDO> allLogStream = localInstanceLogRepository.findByInstanceIdOrderByLogTime(instanceId)) {
-                            stream2File(allLogStream, f);
-                        }
+                        buildLocalLogFile(instanceId, f);
                     }else {
 
+                        // 优先使用压缩归档，不存在时兼容老版本 server 同步的未压缩日志
+                        FileLocation archiveFL = new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genArchiveFileName(instanceId));
+                        Optional<File> archiveFileOpt = dFsCacheService.fetch(archiveFL);
+                        if (archiveFileOpt.isPresent()) {
+                            InstanceLogArchive.decompress(archiveFileOpt.get(), f);
+                            return f;
+                        }
+
                         FileLocation dfl = new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genMongoFileName(instanceId));
                         Optional<FileMeta> dflMetaOpt = dFsService.fetchFileMeta(dfl);
                         if (!dflMetaOpt.isPresent()) {
@@ -322,16 +385,34 @@ public class InstanceLogService {
         }
     }
 
+    /**
+     * 使用本地存储的日志构建日志文件，秒级任务的日志来自分段存储，其余来自本地数据库
+     * @param instanceId 任务实例ID
+     * @param logFile 目标日志文件
+     */
+    private void buildLocalLogFile(long instanceId, File logFile) throws IOException {
+        if (instanceLogSegments.contains(instanceId)) {
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(logFile))) {
+                instanceLogSegments.transferTo(instanceId, os);
+            }
+            return;
+        }
+        try (Stream<LocalInstanceLogDO> allLogStream = localInstanceLogRepository.findByInstanceIdOrderByLogTime(instanceId)) {
+            stream2File(allLogStream, logFile);
+        }
+    }
+
     /**
      * 将数据库中存储的日志流转化为磁盘日志文件
      * @param stream 流
      * @param logFile 目标日志文件
      */
     private void stream2File(Stream<LocalInstanceLogDO> stream, File logFile) {
-        try (FileWriter fw = new FileWriter(logFile); BufferedWriter bfw = new BufferedWriter(fw)) {
+        try (BufferedWriter bfw = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8)) {
             stream.forEach(instanceLog -> {
                 try {
-                    bfw.write(convertLog(instanceLog) + System.lineSeparator());
+                    bfw.write(convertLog(instanceLog));
+                    bfw.write(System.lineSeparator());
                 }catch (Exception ignore) {
                 }
             });
@@ -347,12 +428,14 @@ public class InstanceLogService {
      * @param instanceLog 日志对象
      * @return 字符串
      */
-    private static String convertLog(LocalInstanceLogDO instanceLog) {
-        return String.format("%s [%s] %s %s",
-                DATE_FORMAT.format(instanceLog.getLogTime()),
-                instanceLog.getWorkerAddress(),
-                LogLevel.genLogLevelString(instanceLog.getLogLevel()),
-                instanceLog.getLogContent());
+    static String convertLog(LocalInstanceLogDO instanceLog) {
+        // 日志量大时 String.format 的解析开销不可忽略，直接拼接
+        return new StringBuilder(64 + String.valueOf(instanceLog.getLogContent()).length())
+                .append(DATE_FORMAT.format(instanceLog.getLogTime()))
+                .append(" [").append(instanceLog.getWorkerAddress()).append("] ")
+                .append(LogLevel.genLogLevelString(instanceLog.getLogLevel()))
+                .append(' ').append(instanceLog.getLogContent())
+                .toString();
     }
 
 
@@ -360,28 +443,10 @@ public class InstanceLogService {
     @Scheduled(fixedDelay = 120000)
     public void timingCheck() {
 
-        // 定时删除秒级任务的日志
-        List<Long> frequentInstanceIds = Lists.newLinkedList();
-        instanceId2LastReportTime.keySet().forEach(instanceId -> {
-            try {
-                JobInfoDO jobInfo = instanceMetadataService.fetchJobInfoByInstanceId(instanceId);
-                if (TimeExpressionType.FREQUENT_TYPES.contains(jobInfo.getTimeExpressionType())) {
-                    frequentInstanceIds.add(instanceId);
-                }
-            }catch (Exception ignore) {
-            }
-        });
-
-        if (!CollectionUtils.isEmpty(frequentInstanceIds)) {
-            // 只保留最近10分钟的日志
-            long time = System.currentTimeMillis() - 10 * 60 * 1000;
-            Lists.partition(frequentInstanceIds, 100).forEach(p -> {
-                try {
-                    localInstanceLogRepository.deleteByInstanceIdInAndLogTimeLessThan(p, time);
-                }catch (Exception e) {
-                    log.warn("[InstanceLogService] delete expired logs for instance: {} failed.", p, e);
-                }
-            });
+        // 定时删除秒级任务的过期日志分段（只保留最近10分钟的日志）
+        int num = instanceLogSegments.expire();
+        if (num > 0) {
+            log.info("[InstanceLogService] delete {} expired log segments of frequent instances.", num);
         }
 
         // 删除长时间未 REPORT 的日志（必要性考证中......）
@@ -395,9 +460,15 @@ public class InstanceLogService {
             return OmsFileUtils.genLogDirPath() + String.format("%d-temporary.log", instanceId);
         }
     }
+    private static String genArchiveFilePath(long instanceId) {
+        return OmsFileUtils.genLogDirPath() + genArchiveFileName(instanceId);
+    }
     private static String genMongoFileName(long instanceId) {
         return String.format("oms-%d.log", instanceId);
     }
+    private static String genArchiveFileName(long instanceId) {
+        return String.format("oms-%d.clog", instanceId);
+    }
 
     /**
      * description  在重跑之前移除老的文件，避免重跑后还看到的是之前的示例日志。
@@ -411,6 +482,8 @@ public class InstanceLogService {
     public void removeOldFile(Long instanceId) {
         // 库中的数据不删，删了就会丢失全部的历史日志
         try {
+            // 重跑后 DFS 中的归档会被覆盖，本地缓存失效
+            dFsCacheService.invalidate(new FileLocation().setBucket(Constants.LOG_BUCKET).setName(genArchiveFileName(instanceId)));
             //删除本地缓存
             String s = genLogFilePath(instanceId, true);
             File file = new File(s);
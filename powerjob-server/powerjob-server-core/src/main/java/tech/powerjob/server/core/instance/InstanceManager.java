@@ -14,7 +14,6 @@ import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.remote.framework.base.URL;
 import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.common.timewheel.holder.HashedWheelTimerHolder;
-import tech.powerjob.server.common.utils.SpringUtils;
 import tech.powerjob.server.core.alarm.AlarmUtils;
 import tech.powerjob.server.core.service.UserService;
 import tech.powerjob.server.core.workflow.WorkflowInstanceManager;
@@ -58,6 +57,10 @@ public class InstanceManager implements TransportServiceAware {
 
     private final WorkerClusterQueryService workerClusterQueryService;
 
+    private final UserService userService;
+
+    private final InstanceStatisticsService instanceStatisticsService;
+
     /**
      * 基础组件通过 aware 注入，避免循环依赖
      */
@@ -131,6 +134,7 @@ public class InstanceManager implements TransportServiceAware {
             instanceInfo.setResult(req.getResult());
             instanceInfo.setRunningTimes(req.getTotalTaskNum());
             instanceInfoRepository.saveAndFlush(instanceInfo);
+            instanceStatisticsService.onStatusChange(instanceInfo.getAppId(), originStatus, instanceInfo.getStatus(), instanceInfo.getGmtCreate());
             // 任务需要告警
             if (req.isNeedAlert()) {
                 log.info("[InstanceManager-{}] receive frequent task alert req,time:{},content:{}", instanceId, req.getReportTime(), req.getAlertContent());
@@ -174,6 +178,7 @@ public class InstanceManager implements TransportServiceAware {
         if (finished) {
             // 最终状态允许直接覆盖更新
             instanceInfoRepository.saveAndFlush(instanceInfo);
+            instanceStatisticsService.onStatusChange(instanceInfo.getAppId(), originStatus, instanceInfo.getStatus(), instanceInfo.getGmtCreate());
             // 这里的 InstanceStatus 只有 成功/失败 两种，手动停止不会由 TaskTracker 上报
             processFinishedInstance(instanceId, req.getWfInstanceId(), receivedInstanceStatus, req.getResult());
             return;
@@ -182,6 +187,8 @@ public class InstanceManager implements TransportServiceAware {
         final int i = instanceInfoRepository.updateStatusChangeInfoByInstanceIdAndStatus(instanceInfo.getLastReportTime(), instanceInfo.getGmtModified(), instanceInfo.getRunningTimes(), instanceInfo.getStatus(), instanceInfo.getInstanceId(), originStatus);
         if (i == 0) {
             log.warn("[InstanceManager-{}] update instance status failed, maybe the instance status has been changed by other thread. discard this status change,{}", instanceId, instanceInfo);
+        } else {
+            instanceStatisticsService.onStatusChange(instanceInfo.getAppId(), originStatus, instanceInfo.getStatus(), instanceInfo.getGmtCreate());
         }
     }
 
@@ -236,7 +243,7 @@ public class InstanceManager implements TransportServiceAware {
         JobInstanceAlarm content = new JobInstanceAlarm();
         BeanUtils.copyProperties(jobInfo, content);
         BeanUtils.copyProperties(instanceInfo, content);
-        List<UserInfoDO> userList = SpringUtils.getBean(UserService.class).fetchNotifyUserList(jobInfo.getNotifyUserIds());
+        List<UserInfoDO> userList = userService.fetchNotifyUserList(jobInfo.getNotifyUserIds());
         if (!StringUtils.isEmpty(alertContent)) {
             content.setResult(alertContent);
         }
@@ -3,7 +3,6 @@ package tech.powerjob.server.core.instance;
 import lombok.RequiredArgsConstructor;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.JobInfoDO;
-import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.JobInfoRepository;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -27,7 +26,7 @@ public class InstanceMetadataService implements InitializingBean {
 
     private final JobInfoRepository jobInfoRepository;
 
-    private final InstanceInfoRepository instanceInfoRepository;
+    private final InstanceArchiveService instanceArchiveService;
 
     /**
      * 缓存，一旦生成任务实例，其对应的 JobInfo 不应该再改变（即使源数据改变）
@@ -55,7 +54,7 @@ public class InstanceMetadataService implements InitializingBean {
      */
     public JobInfoDO fetchJobInfoByInstanceId(Long instanceId) throws ExecutionException {
         return instanceId2JobInfoCache.get(instanceId, () -> {
-            InstanceInfoDO instanceInfo = instanceInfoRepository.findByInstanceId(instanceId);
+            InstanceInfoDO instanceInfo = instanceArchiveService.findByInstanceId(instanceId);
             if (instanceInfo != null) {
                 Optional<JobInfoDO> jobInfoOpt = jobInfoRepository.findById(instanceInfo.getJobId());
                 return jobInfoOpt.orElseThrow(() -> new IllegalArgumentException("can't find JobInfo by jobId: " + instanceInfo.getJobId()));
@@ -1,7 +1,10 @@
 package tech.powerjob.server.core.instance;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -15,6 +18,8 @@ import tech.powerjob.common.model.InstanceDetail;
 import tech.powerjob.common.model.InstanceMeta;
 import tech.powerjob.common.request.ServerQueryInstanceStatusReq;
 import tech.powerjob.common.request.ServerStopInstanceReq;
+import tech.powerjob.common.request.http.BatchInstanceRequest;
+import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.query.InstancePageQuery;
 import tech.powerjob.common.response.AskResponse;
 import tech.powerjob.common.response.InstanceInfoDTO;
@@ -28,8 +33,11 @@ import tech.powerjob.server.common.timewheel.holder.InstanceTimeWheelService;
 import tech.powerjob.server.core.DispatchService;
 import tech.powerjob.server.core.uid.IdGenerateService;
 import tech.powerjob.server.persistence.QueryConvertUtils;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoArchiveDO;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.JobInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
 import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.JobInfoRepository;
 import tech.powerjob.server.remote.server.redirector.DesignateServer;
@@ -37,8 +45,11 @@ import tech.powerjob.server.remote.transporter.TransportService;
 import tech.powerjob.server.remote.transporter.impl.ServerURLFactory;
 import tech.powerjob.server.remote.worker.WorkerClusterQueryService;
 
+import javax.transaction.Transactional;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -65,10 +76,16 @@ public class InstanceService {
 
     private final InstanceManager instanceManager;
 
+    private final InstanceStatisticsService instanceStatisticsService;
+
+    private final InstanceArchiveService instanceArchiveService;
+
     private final JobInfoRepository jobInfoRepository;
 
     private final InstanceInfoRepository instanceInfoRepository;
 
+    private final InstanceInfoArchiveRepository instanceInfoArchiveRepository;
+
     private final WorkerClusterQueryService workerClusterQueryService;
 
     private final InstanceLogService instanceLogService;
@@ -89,9 +106,36 @@ public class InstanceService {
      * @return 任务实例ID
      */
     public InstanceInfoDO create(Long jobId, Long appId, String jobParams, String instanceParams, Long wfInstanceId, Long expectTriggerTime, String outerKey, String extendValue) {
+        InstanceInfoDO newInstanceInfo = newInstanceInfo(idGenerateService.allocate(), new Date(), jobId, appId, jobParams, instanceParams, wfInstanceId, expectTriggerTime, outerKey, extendValue);
+        instanceInfoRepository.save(newInstanceInfo);
+        return newInstanceInfo;
+    }
 
-        Long instanceId = idGenerateService.allocate();
+    /**
+     * 批量创建任务实例（OpenAPI 批量运行），ID 批量分配，所有实例在同一个事务中写入
+     *
+     * @param jobInfos 任务ID -> 任务信息，需包含 requests 中的所有任务
+     * @param requests 运行请求
+     * @return 任务实例，与 requests 一一对应
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public List<InstanceInfoDO> batchCreate(Map<Long, JobInfoDO> jobInfos, List<RunJobRequest> requests) {
+        long[] instanceIds = idGenerateService.allocate(requests.size());
         Date now = new Date();
+        List<InstanceInfoDO> instanceInfos = Lists.newArrayListWithCapacity(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            RunJobRequest request = requests.get(i);
+            JobInfoDO jobInfo = jobInfos.get(request.getJobId());
+            long delay = request.getDelay() == null ? 0 : request.getDelay();
+            instanceInfos.add(newInstanceInfo(instanceIds[i], now, jobInfo.getId(), jobInfo.getAppId(), jobInfo.getJobParams(), request.getInstanceParams(),
+                    null, now.getTime() + Math.max(delay, 0), request.getOuterKey(), request.getExtendValue()));
+        }
+        instanceInfoRepository.saveAll(instanceInfos);
+        instanceInfoRepository.flush();
+        return instanceInfos;
+    }
+
+    private static InstanceInfoDO newInstanceInfo(long instanceId, Date now, Long jobId, Long appId, String jobParams, String instanceParams, Long wfInstanceId, Long expectTriggerTime, String outerKey, String extendValue) {
 
         InstanceInfoDO newInstanceInfo = new InstanceInfoDO();
         newInstanceInfo.setJobId(jobId);
@@ -115,8 +159,6 @@ public class InstanceService {
         InstanceMeta instanceMeta = new InstanceMeta();
         instanceMeta.setEtt(expectTriggerTime);
         newInstanceInfo.setMeta(JsonUtils.toJSONString(instanceMeta));
-
-        instanceInfoRepository.save(newInstanceInfo);
         return newInstanceInfo;
     }
 
@@ -127,22 +169,28 @@ public class InstanceService {
      */
     @DesignateServer
     public void stopInstance(Long appId,Long instanceId) {
+        doStopInstance(appId, fetchInstanceInfo(instanceId));
+    }
 
+    private void doStopInstance(Long appId, InstanceInfoDO instanceInfo) {
+
+        Long instanceId = instanceInfo.getInstanceId();
         log.info("[Instance-{}] try to stop the instance instance in appId: {}", instanceId,appId);
         try {
 
-            InstanceInfoDO instanceInfo = fetchInstanceInfo(instanceId);
             // 判断状态，只有运行中才能停止
             if (!InstanceStatus.GENERALIZED_RUNNING_STATUS.contains(instanceInfo.getStatus())) {
                 throw new IllegalArgumentException("can't stop finished instance!");
             }
 
             // 更新数据库，将状态置为停止
+            int originStatus = instanceInfo.getStatus();
             instanceInfo.setStatus(STOPPED.getV());
             instanceInfo.setGmtModified(new Date());
             instanceInfo.setFinishedTime(System.currentTimeMillis());
             instanceInfo.setResult(SystemInstanceResult.STOPPED_BY_USER);
             instanceInfoRepository.saveAndFlush(instanceInfo);
+            instanceStatisticsService.onStatusChange(appId, originStatus, STOPPED.getV(), instanceInfo.getGmtCreate());
 
             instanceManager.processFinishedInstance(instanceId, instanceInfo.getWfInstanceId(), STOPPED, SystemInstanceResult.STOPPED_BY_USER);
 
@@ -168,6 +216,48 @@ public class InstanceService {
         }
     }
 
+    /**
+     * 批量停止任务实例，一次查询全部实例并校验归属，单个实例停止失败不影响其他实例
+     *
+     * @param appId   用于远程 server 路由，同时校验实例归属，勿删！
+     * @param request 批量请求
+     * @return 停止失败的实例ID -> 失败原因
+     */
+    @DesignateServer
+    public Map<Long, String> batchStopInstance(Long appId, BatchInstanceRequest request) {
+        List<Long> instanceIds = request.getInstanceIds();
+        // 运行中的实例只存在于活跃表，归档表只用于区分已结束和不存在的实例
+        Map<Long, InstanceInfoDO> instanceInfos = Maps.newHashMap();
+        instanceInfoRepository.findByInstanceIdIn(instanceIds).forEach(x -> instanceInfos.put(x.getInstanceId(), x));
+        List<Long> missing = instanceIds.stream().filter(id -> !instanceInfos.containsKey(id)).collect(Collectors.toList());
+        Map<Long, InstanceStatusInfo> archived = missing.isEmpty() ? Collections.emptyMap() : instanceArchiveService.listStatusByInstanceIds(missing);
+        for (Long instanceId : instanceIds) {
+            InstanceInfoDO instanceInfo = instanceInfos.get(instanceId);
+            Long realAppId = instanceInfo != null ? instanceInfo.getAppId() : Optional.ofNullable(archived.get(instanceId)).map(InstanceStatusInfo::getAppId).orElse(null);
+            if (realAppId == null) {
+                throw new IllegalArgumentException("can't find instance by instanceId: " + instanceId);
+            }
+            if (!appId.equals(realAppId)) {
+                throw new IllegalArgumentException("instance(" + instanceId + ") is not belong to the app whose appId is " + appId);
+            }
+        }
+
+        Map<Long, String> failed = Maps.newHashMap();
+        for (Long instanceId : instanceIds) {
+            InstanceInfoDO instanceInfo = instanceInfos.get(instanceId);
+            if (instanceInfo == null) {
+                failed.put(instanceId, "can't stop finished instance!");
+                continue;
+            }
+            try {
+                doStopInstance(appId, instanceInfo);
+            } catch (Exception e) {
+                failed.put(instanceId, ExceptionUtils.getMessage(e));
+            }
+        }
+        return failed;
+    }
+
     /**
      * 重试任务（只有结束的任务运行重试）
      *
@@ -186,7 +276,10 @@ public class InstanceService {
         if (instanceInfo.getWfInstanceId() != null) {
             throw new PowerJobException("Workflow's instance do not support retry!");
         }
+        // 已归档的实例需要先恢复至活跃表
+        instanceInfo = instanceArchiveService.restore(instanceInfo);
 
+        int originStatus = instanceInfo.getStatus();
         instanceInfo.setStatus(InstanceStatus.WAITING_DISPATCH.getV());
         instanceInfo.setExpectedTriggerTime(System.currentTimeMillis());
         instanceInfo.setFinishedTime(null);
@@ -194,6 +287,7 @@ public class InstanceService {
         instanceInfo.setTaskTrackerAddress(null);
         instanceInfo.setResult(null);
         instanceInfoRepository.saveAndFlush(instanceInfo);
+        instanceStatisticsService.onStatusChange(appId, originStatus, InstanceStatus.WAITING_DISPATCH.getV(), instanceInfo.getGmtCreate());
 
         // 派发任务
         Long jobId = instanceInfo.getJobId();
@@ -248,8 +342,10 @@ public class InstanceService {
 
     public PageResult<InstanceInfoDTO> queryInstanceInfo(InstancePageQuery instancePageQuery) {
         Specification<InstanceInfoDO> specification = QueryConvertUtils.toSpecification(instancePageQuery);
+        Specification<InstanceInfoArchiveDO> archiveSpecification = InstanceArchiveService.excludeActive(QueryConvertUtils.toSpecification(instancePageQuery));
         Pageable pageable = QueryConvertUtils.toPageable(instancePageQuery);
-        Page<InstanceInfoDO> instanceInfoDOPage = instanceInfoRepository.findAll(specification, pageable);
+        Page<InstanceInfoDO> instanceInfoDOPage = InstanceArchiveService.unionPage(pageable, p -> instanceInfoRepository.findAll(specification, p),
+                p -> instanceInfoArchiveRepository.findAll(archiveSpecification, p), InstanceArchiveService::fromArchive);
 
         PageResult<InstanceInfoDTO> ret = new PageResult<>();
         List<InstanceInfoDTO> instanceInfoDTOList = instanceInfoDOPage.get().map(InstanceService::directConvert).collect(Collectors.toList());
@@ -284,6 +380,16 @@ public class InstanceService {
         return InstanceStatus.of(instanceInfoDO.getStatus());
     }
 
+    /**
+     * 批量获取任务实例的状态
+     *
+     * @param instanceIds 任务实例ID
+     * @return instanceId -> 状态信息，不存在的实例不返回
+     */
+    public Map<Long, InstanceStatusInfo> getInstanceStatuses(List<Long> instanceIds) {
+        return instanceArchiveService.listStatusByInstanceIds(instanceIds);
+    }
+
     /**
      * 获取任务实例的详细运行详细
      *
@@ -335,7 +441,7 @@ public class InstanceService {
     }
 
     private InstanceInfoDO fetchInstanceInfo(Long instanceId) {
-        InstanceInfoDO instanceInfoDO = instanceInfoRepository.findByInstanceId(instanceId);
+        InstanceInfoDO instanceInfoDO = instanceArchiveService.findByInstanceId(instanceId);
         if (instanceInfoDO == null) {
             log.warn("[Instance-{}] can't find InstanceInfo by instanceId", instanceId);
             throw new IllegalArgumentException("invalid instanceId: " + instanceId);
@@ -0,0 +1,26 @@
+package tech.powerjob.server.core.instance;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 应用维度的任务实例统计数据
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstanceStatistics {
+
+    /**
+     * 运行中的实例数
+     */
+    private long runningInstanceCount;
+    /**
+     * 近 24 小时内创建且失败的实例数
+     */
+    private long failedInstanceCount;
+}
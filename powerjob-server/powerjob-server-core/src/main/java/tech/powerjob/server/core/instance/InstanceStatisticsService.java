@@ -0,0 +1,196 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.persistence.remote.repository.AppInfoRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.remote.aware.TransportServiceAware;
+import tech.powerjob.server.remote.server.redirector.DesignateServer;
+import tech.powerjob.server.remote.transporter.TransportService;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 任务实例统计（物化计数器）
+ * 1. 由 app 所在的 server 维护，实例状态变更时增量更新，首页概览不再实时 count 实例表
+ * 2. 失败实例按创建时间以小时分桶，"近 24 小时失败数" 为当前小时及之前 23 个小时的桶之和（窗口不超过 24 小时）
+ * 3. 后台定期从数据库重新统计，修正非本机变更、进程重启、server 切换等原因造成的偏差
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+@Service
+public class InstanceStatisticsService implements TransportServiceAware {
+
+    public static final long RECONCILE_INTERVAL = 600000;
+
+    private static final long BUCKET_MS = 3600000;
+    private static final int WINDOW_BUCKETS = 24;
+
+    private final AppInfoRepository appInfoRepository;
+
+    private final InstanceInfoRepository instanceInfoRepository;
+
+    private final InstanceInfoArchiveRepository instanceInfoArchiveRepository;
+
+    private final LongSupplier clock;
+
+    /**
+     * 基础组件通过 aware 注入，避免循环依赖
+     */
+    private TransportService transportService;
+
+    /**
+     * appId -> 计数器，只保存本机负责的 app
+     */
+    private final Map<Long, AppCounter> counters = Maps.newConcurrentMap();
+
+    @Autowired
+    public InstanceStatisticsService(AppInfoRepository appInfoRepository, InstanceInfoRepository instanceInfoRepository, InstanceInfoArchiveRepository instanceInfoArchiveRepository) {
+        this(appInfoRepository, instanceInfoRepository, instanceInfoArchiveRepository, System::currentTimeMillis);
+    }
+
+    public InstanceStatisticsService(AppInfoRepository appInfoRepository, InstanceInfoRepository instanceInfoRepository, InstanceInfoArchiveRepository instanceInfoArchiveRepository, LongSupplier clock) {
+        this.appInfoRepository = appInfoRepository;
+        this.instanceInfoRepository = instanceInfoRepository;
+        this.instanceInfoArchiveRepository = instanceInfoArchiveRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取应用的实例统计数据，首次访问时从数据库统计
+     * @param appId 应用ID
+     * @return 统计数据
+     */
+    @DesignateServer
+    public InstanceStatistics fetchStatistics(Long appId) {
+        AppCounter counter = counters.get(appId);
+        if (counter == null) {
+            counter = reconcile(appId);
+        }
+        return counter.snapshot(clock.getAsLong());
+    }
+
+    /**
+     * 实例状态变更后更新计数器，需要在状态成功写入数据库后调用
+     * @param appId 应用ID
+     * @param originStatus 原状态
+     * @param newStatus 新状态
+     * @param gmtCreate 实例创建时间
+     */
+    public void onStatusChange(Long appId, int originStatus, int newStatus, Date gmtCreate) {
+        if (originStatus == newStatus || appId == null) {
+            return;
+        }
+        // 尚未统计过的 app 在首次访问时从数据库统计
+        AppCounter counter = counters.get(appId);
+        if (counter == null) {
+            return;
+        }
+        final int running = InstanceStatus.RUNNING.getV();
+        final int failed = InstanceStatus.FAILED.getV();
+        if (originStatus == running) {
+            counter.running.decrementAndGet();
+        } else if (newStatus == running) {
+            counter.running.incrementAndGet();
+        }
+        if (gmtCreate == null) {
+            return;
+        }
+        if (newStatus == failed) {
+            counter.addFailed(gmtCreate.getTime(), 1, clock.getAsLong());
+        } else if (originStatus == failed) {
+            counter.addFailed(gmtCreate.getTime(), -1, clock.getAsLong());
+        }
+    }
+
+    /**
+     * 定期从数据库重新统计本机负责的 app，并移除已不再由本机负责的 app
+     */
+    public void reconcileAll() {
+        List<Long> appIds = appInfoRepository.listAppIdByCurrentServer(transportService.defaultProtocol().getAddress());
+        counters.keySet().retainAll(Sets.newHashSet(appIds));
+        for (Long appId : appIds) {
+            // 只修正已被访问过的 app，从未访问的 app 不产生额外的数据库压力
+            if (counters.containsKey(appId)) {
+                reconcile(appId);
+            }
+        }
+    }
+
+    @Override
+    public void setTransportService(TransportService transportService) {
+        this.transportService = transportService;
+    }
+
+    private AppCounter reconcile(Long appId) {
+        long now = clock.getAsLong();
+        AppCounter counter = new AppCounter();
+        counter.running.set(instanceInfoRepository.countByAppIdAndStatus(appId, InstanceStatus.RUNNING.getV()));
+        Date windowStart = new Date(windowStart(now));
+        int failed = InstanceStatus.FAILED.getV();
+        // 在数据库中按小时聚合，已结束的实例可能已被归档
+        instanceInfoRepository.countGroupByCreateHour(appId, failed, windowStart).forEach(row -> counter.addFailed(bucketOf(row), ((Number) row[4]).longValue(), now));
+        instanceInfoArchiveRepository.countGroupByCreateHour(appId, failed, windowStart).forEach(row -> counter.addFailed(bucketOf(row), ((Number) row[4]).longValue(), now));
+        // 统计期间的增量变更会被覆盖，产生的偏差在下一次统计时修正
+        counters.put(appId, counter);
+        log.debug("[InstanceStatistics] reconcile app({}) statistics: {}", appId, counter.snapshot(now));
+        return counter;
+    }
+
+    private static long windowStart(long now) {
+        return bucketOf(now) - (WINDOW_BUCKETS - 1) * BUCKET_MS;
+    }
+
+    /**
+     * 按本地时区取整到小时，与数据库中按 hour() 分组的结果保持一致
+     */
+    private static long bucketOf(long time) {
+        return Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @param row [年, 月, 日, 时, 数量]
+     */
+    private static long bucketOf(Object[] row) {
+        LocalDateTime hour = LocalDateTime.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), ((Number) row[2]).intValue(), ((Number) row[3]).intValue(), 0);
+        return hour.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static class AppCounter {
+
+        private final AtomicLong running = new AtomicLong();
+        /**
+         * 桶起始时间 -> 该时间段内创建且失败的实例数
+         */
+        private final Map<Long, AtomicLong> failedBuckets = Maps.newConcurrentMap();
+
+        void addFailed(long gmtCreate, long delta, long now) {
+            if (gmtCreate < windowStart(now)) {
+                return;
+            }
+            failedBuckets.computeIfAbsent(bucketOf(gmtCreate), ignore -> new AtomicLong()).addAndGet(delta);
+        }
+
+        InstanceStatistics snapshot(long now) {
+            long windowStart = windowStart(now);
+            failedBuckets.keySet().removeIf(bucket -> bucket < windowStart);
+            long failed = failedBuckets.values().stream().mapToLong(AtomicLong::get).sum();
+            return new InstanceStatistics(Math.max(0, running.get()), Math.max(0, failed));
+        }
+    }
+}
@@ -7,17 +7,20 @@ import tech.powerjob.server.persistence.remote.model.OmsLockDO;
 import tech.powerjob.server.persistence.remote.repository.OmsLockRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 /**
- * 基于数据库实现的分布式锁
+ * 基于数据库实现的分布式锁（默认实现，oms.lock.type=database）
+ * 如需续约与 fencing 能力可切换为 {@link LeaseLockService}
  *
  * @author tjq
  * @since 2020/4/5
  */
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "oms.lock.type", havingValue = "database", matchIfMissing = true)
 public class DatabaseLockService implements LockService {
 
     private final String ownerIp;
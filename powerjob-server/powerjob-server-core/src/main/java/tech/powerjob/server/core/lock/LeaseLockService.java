@@ -0,0 +1,222 @@
+package tech.powerjob.server.core.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.common.utils.NetUtils;
+import tech.powerjob.server.extension.LockService;
+import tech.powerjob.server.persistence.remote.model.OmsLeaseLockDO;
+import tech.powerjob.server.persistence.remote.repository.OmsLeaseLockRepository;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于租约的分布式锁（oms.lock.type=lease）
+ * 注意：与 {@link DatabaseLockService} 使用不同的表（oms_lease_lock / oms_lock），两者之间互不排斥。
+ * 切换时必须先停止集群内全部 server 再以新配置启动，禁止滚动升级过程中新旧实现混跑
+ * 1. 每个 server 进程拥有唯一的 ownerToken，锁行记录持有者、租约过期时间与 fencing 计数器，持有者可续约
+ * 2. 所有写操作均为基于 fencingToken 的单行 CAS，锁行不删除，fencing 单调递增
+ * 3. 本地快速路径：同线程重入只增加计数，不访问数据库；本进程其他线程持有未过期的锁时直接失败
+ * 4. 锁行按 partitionId 分散，partition-num 在集群内必须保持一致
+ * 5. 判断他人租约是否过期时额外容忍 clock-skew-tolerance 毫秒，该值需大于集群内各 server 的最大时钟偏差
+ *
+ * @author tjq
+ * @since 2024/3/4
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "oms.lock.type", havingValue = "lease")
+public class LeaseLockService implements LockService {
+
+    private final OmsLeaseLockRepository leaseLockRepository;
+
+    private final String ownerToken;
+
+    private final LongSupplier clock;
+
+    private final int partitionNum;
+
+    private final long clockSkewTolerance;
+
+    private final Map<String, LocalLease> localLeases = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LeaseLockService(OmsLeaseLockRepository leaseLockRepository,
+                            @Value("${oms.lock.lease.partition-num:16}") int partitionNum,
+                            @Value("${oms.lock.lease.clock-skew-tolerance:2000}") long clockSkewTolerance) {
+        this(leaseLockRepository, NetUtils.getLocalHost(), System::currentTimeMillis, partitionNum, clockSkewTolerance);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            int num = leaseLockRepository.releaseAllByOwnerToken(ownerToken, new Date());
+            log.info("[LeaseLockService] execute shutdown hook, release all lock(owner={},num={})", ownerToken, num);
+        }));
+    }
+
+    public LeaseLockService(OmsLeaseLockRepository leaseLockRepository, String ownerIp, LongSupplier clock, int partitionNum, long clockSkewTolerance) {
+        if (partitionNum <= 0) {
+            throw new IllegalArgumentException("partitionNum must be positive");
+        }
+        this.leaseLockRepository = leaseLockRepository;
+        this.ownerToken = ownerIp + "#" + CommonUtils.genUUID();
+        this.clock = clock;
+        this.partitionNum = partitionNum;
+        this.clockSkewTolerance = clockSkewTolerance;
+        log.info("[LeaseLockService] initialize LeaseLockService successfully, ownerToken: {}, partitionNum: {}", ownerToken, partitionNum);
+    }
+
+    @Override
+    public boolean tryLock(String name, long maxLockTime) {
+        try {
+            return tryLock0(name, maxLockTime);
+        } catch (Exception e) {
+            log.warn("[LeaseLockService] tryLock failed, lockName = {}.", name, e);
+            return false;
+        }
+    }
+
+    private boolean tryLock0(String name, long maxLockTime) {
+
+        final long now = clock.getAsLong();
+
+        // 本地快速路径
+        LocalLease local = localLeases.get(name);
+        if (local != null) {
+            if (local.ownerThread == Thread.currentThread()) {
+                if (local.leaseExpireTime < now + maxLockTime && !renew(name, maxLockTime)) {
+                    return false;
+                }
+                local.holdCount++;
+                return true;
+            }
+            if (now < local.leaseExpireTime) {
+                return false;
+            }
+            localLeases.remove(name, local);
+        }
+
+        final int partitionId = partitionOf(name);
+        final long leaseExpireTime = now + maxLockTime;
+
+        Optional<OmsLeaseLockDO> lockOpt = leaseLockRepository.findByPartitionIdAndLockName(partitionId, name);
+        if (!lockOpt.isPresent()) {
+            if (insert(partitionId, name, leaseExpireTime)) {
+                registerLocal(name, 1L, leaseExpireTime);
+                return true;
+            }
+            // 唯一索引冲突，其他节点刚刚创建了锁行
+            lockOpt = leaseLockRepository.findByPartitionIdAndLockName(partitionId, name);
+            if (!lockOpt.isPresent()) {
+                return false;
+            }
+        }
+
+        OmsLeaseLockDO lock = lockOpt.get();
+        if (lock.getLeaseExpireTime() + clockSkewTolerance >= now) {
+            return false;
+        }
+        if (lock.getLeaseExpireTime() > 0) {
+            log.warn("[LeaseLockService] The lock[{}] held by {} already timeout, try to take over.", name, lock.getOwnerToken());
+        }
+        long fencingToken = lock.getFencingToken();
+        if (leaseLockRepository.acquire(partitionId, name, fencingToken, fencingToken + 1, ownerToken, leaseExpireTime, new Date()) == 1) {
+            registerLocal(name, fencingToken + 1, leaseExpireTime);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean insert(int partitionId, String name, long leaseExpireTime) {
+        OmsLeaseLockDO newLock = new OmsLeaseLockDO();
+        newLock.setPartitionId(partitionId);
+        newLock.setLockName(name);
+        newLock.setOwnerToken(ownerToken);
+        newLock.setFencingToken(1L);
+        newLock.setLeaseExpireTime(leaseExpireTime);
+        newLock.setGmtCreate(new Date());
+        newLock.setGmtModified(newLock.getGmtCreate());
+        try {
+            leaseLockRepository.saveAndFlush(newLock);
+            return true;
+        } catch (DataIntegrityViolationException ignore) {
+            return false;
+        }
+    }
+
+    private void registerLocal(String name, long fencingToken, long leaseExpireTime) {
+        localLeases.put(name, new LocalLease(Thread.currentThread(), fencingToken, leaseExpireTime));
+    }
+
+    @Override
+    public void unlock(String name) {
+        LocalLease local = localLeases.get(name);
+        if (local == null || local.ownerThread != Thread.currentThread()) {
+            log.warn("[LeaseLockService] current thread does not hold the lock[{}], skip unlock.", name);
+            return;
+        }
+        if (--local.holdCount > 0) {
+            return;
+        }
+        localLeases.remove(name, local);
+        try {
+            CommonUtils.executeWithRetry0(() -> leaseLockRepository.updateLease(partitionOf(name), name, ownerToken, local.fencingToken, 0L, new Date()));
+        } catch (Exception e) {
+            log.error("[LeaseLockService] unlock {} failed, it will be released after lease expired.", name, e);
+        }
+    }
+
+    @Override
+    public boolean renew(String name, long leaseTime) {
+        LocalLease local = localLeases.get(name);
+        if (local == null) {
+            return false;
+        }
+        long newLeaseExpireTime = clock.getAsLong() + leaseTime;
+        try {
+            if (leaseLockRepository.updateLease(partitionOf(name), name, ownerToken, local.fencingToken, newLeaseExpireTime, new Date()) == 1) {
+                local.leaseExpireTime = newLeaseExpireTime;
+                return true;
+            }
+            log.warn("[LeaseLockService] renew lock[{}] failed, the lock has been taken over by others.", name);
+        } catch (Exception e) {
+            log.warn("[LeaseLockService] renew lock[{}] failed.", name, e);
+            return false;
+        }
+        localLeases.remove(name, local);
+        return false;
+    }
+
+    @Override
+    public long fencingToken(String name) {
+        LocalLease local = localLeases.get(name);
+        return local == null ? -1 : local.fencingToken;
+    }
+
+    private int partitionOf(String name) {
+        return Math.floorMod(name.hashCode(), partitionNum);
+    }
+
+    private static class LocalLease {
+
+        private final Thread ownerThread;
+        private final long fencingToken;
+        private volatile long leaseExpireTime;
+        /**
+         * 重入次数，仅持有线程读写
+         */
+        private int holdCount = 1;
+
+        LocalLease(Thread ownerThread, long fencingToken, long leaseExpireTime) {
+            this.ownerThread = ownerThread;
+            this.fencingToken = fencingToken;
+            this.leaseExpireTime = leaseExpireTime;
+        }
+    }
+}
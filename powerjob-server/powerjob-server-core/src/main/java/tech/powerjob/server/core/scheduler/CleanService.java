@@ -1,7 +1,6 @@
 package tech.powerjob.server.core.scheduler;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Stopwatch;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,8 +11,14 @@ import tech.powerjob.common.enums.InstanceStatus;
 import tech.powerjob.common.enums.WorkflowInstanceStatus;
 import tech.powerjob.server.common.constants.PJThreadPool;
 import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.core.scheduler.clean.DFsCleanTask;
+import tech.powerjob.server.core.scheduler.clean.LocalFileCleanTask;
+import tech.powerjob.server.core.scheduler.clean.PrimaryKeyRangeCleanTask;
+import tech.powerjob.server.core.scheduler.clean.ThrottledCleanEngine;
+import tech.powerjob.server.core.service.DFsCacheService;
 import tech.powerjob.server.extension.LockService;
 import tech.powerjob.server.extension.dfs.DFsService;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
 import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.WorkflowInstanceInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.WorkflowNodeInfoRepository;
@@ -25,6 +30,7 @@ import java.util.Date;
 
 /**
  * CCO（Chief Clean Officer）
+ * 历史数据、本地文件与 DFS 文件统一交由 {@link ThrottledCleanEngine} 分批限速清理
  *
  * @author tjq
  * @since 2020/5/18
@@ -35,20 +41,33 @@ public class CleanService {
 
     private final DFsService dFsService;
 
+    private final DFsCacheService dFsCacheService;
+
     private final InstanceInfoRepository instanceInfoRepository;
 
+    private final InstanceInfoArchiveRepository instanceInfoArchiveRepository;
+
     private final WorkflowInstanceInfoRepository workflowInstanceInfoRepository;
 
     private final WorkflowNodeInfoRepository workflowNodeInfoRepository;
 
     private final LockService lockService;
 
+    private final ThrottledCleanEngine cleanEngine;
+
     private final int instanceInfoRetentionDay;
 
     private final int localContainerRetentionDay;
 
     private final int remoteContainerRetentionDay;
 
+    private final int dfsCacheRetentionDay;
+
+    /**
+     * 单次清理的最长运行时间，超时后保存断点，下次继续
+     */
+    private final long maxRunTime;
+
     private static final int TEMPORARY_RETENTION_DAY = 3;
 
     /**
@@ -58,19 +77,26 @@ public class CleanService {
 
     private static final String HISTORY_DELETE_LOCK = "history_delete_lock";
 
-    public CleanService(DFsService dFsService, InstanceInfoRepository instanceInfoRepository, WorkflowInstanceInfoRepository workflowInstanceInfoRepository,
-                        WorkflowNodeInfoRepository workflowNodeInfoRepository, LockService lockService,
+    public CleanService(DFsService dFsService, DFsCacheService dFsCacheService, InstanceInfoRepository instanceInfoRepository, InstanceInfoArchiveRepository instanceInfoArchiveRepository, WorkflowInstanceInfoRepository workflowInstanceInfoRepository,
+                        WorkflowNodeInfoRepository workflowNodeInfoRepository, LockService lockService, ThrottledCleanEngine cleanEngine,
                         @Value("${oms.instanceinfo.retention}") int instanceInfoRetentionDay,
                         @Value("${oms.container.retention.local}") int localContainerRetentionDay,
-                        @Value("${oms.container.retention.remote}") int remoteContainerRetentionDay) {
+                        @Value("${oms.container.retention.remote}") int remoteContainerRetentionDay,
+                        @Value("${oms.dfs.cache.retention:7}") int dfsCacheRetentionDay,
+                        @Value("${oms.clean.max-run-time:7200000}") long maxRunTime) {
         this.dFsService = dFsService;
+        this.dFsCacheService = dFsCacheService;
         this.instanceInfoRepository = instanceInfoRepository;
+        this.instanceInfoArchiveRepository = instanceInfoArchiveRepository;
         this.workflowInstanceInfoRepository = workflowInstanceInfoRepository;
         this.workflowNodeInfoRepository = workflowNodeInfoRepository;
         this.lockService = lockService;
+        this.cleanEngine = cleanEngine;
         this.instanceInfoRetentionDay = instanceInfoRetentionDay;
         this.localContainerRetentionDay = localContainerRetentionDay;
         this.remoteContainerRetentionDay = remoteContainerRetentionDay;
+        this.dfsCacheRetentionDay = dfsCacheRetentionDay;
+        this.maxRunTime = maxRunTime;
     }
 
 
@@ -81,34 +107,39 @@ public class CleanService {
         // 释放本地缓存
         WorkerClusterManagerService.cleanUp();
 
+        long deadline = System.currentTimeMillis() + maxRunTime;
+
         // 释放磁盘空间
-        cleanLocal(OmsFileUtils.genLogDirPath(), instanceInfoRetentionDay);
-        cleanLocal(OmsFileUtils.genContainerJarPath(), localContainerRetentionDay);
-        cleanLocal(OmsFileUtils.genTemporaryPath(), TEMPORARY_RETENTION_DAY);
+        cleanLocal(OmsFileUtils.genLogDirPath(), instanceInfoRetentionDay, deadline);
+        // 旧版本直接存放在该目录下的容器 Jar，新版本已改为存放在 DFS 本地缓存中
+        cleanLocal(OmsFileUtils.genContainerJarPath(), localContainerRetentionDay, deadline);
+        cleanLocal(OmsFileUtils.genTemporaryPath(), TEMPORARY_RETENTION_DAY, deadline);
+        cleanDFsCache();
 
         // 删除数据库历史的数据
-        cleanByOneServer();
+        cleanByOneServer(deadline);
     }
 
     /**
      * 只能一台server清理的操作统一到这里执行
      */
-    private void cleanByOneServer() {
-        // 只要第一个server抢到锁其他server就会返回，所以锁10分钟应该足够了
-        boolean lock = lockService.tryLock(HISTORY_DELETE_LOCK, 10 * 60 * 1000L);
+    private void cleanByOneServer(long deadline) {
+        // 清理任务最多运行到 deadline，额外预留 10 分钟避免锁在任务结束前过期
+        boolean lock = lockService.tryLock(HISTORY_DELETE_LOCK, deadline - System.currentTimeMillis() + 10 * 60 * 1000L);
         if (!lock) {
             log.info("[CleanService] clean job is already running, just return.");
             return;
         }
         try {
             // 删除数据库运行记录
-            cleanInstanceLog();
-            cleanWorkflowInstanceLog();
+            cleanInstanceLog(deadline);
+            cleanInstanceArchive(deadline);
+            cleanWorkflowInstanceLog(deadline);
             // 删除无用节点
             cleanWorkflowNodeInfo();
-            // 删除 GridFS 过期文件
-            cleanRemote(Constants.LOG_BUCKET, instanceInfoRetentionDay);
-            cleanRemote(Constants.CONTAINER_BUCKET, remoteContainerRetentionDay);
+            // 删除 DFS 过期文件
+            cleanRemote(Constants.LOG_BUCKET, instanceInfoRetentionDay, deadline);
+            cleanRemote(Constants.CONTAINER_BUCKET, remoteContainerRetentionDay, deadline);
         } finally {
             lockService.unlock(HISTORY_DELETE_LOCK);
         }
@@ -116,74 +147,113 @@ public class CleanService {
 
     @VisibleForTesting
     public void cleanLocal(String path, int day) {
+        cleanLocal(path, day, System.currentTimeMillis() + maxRunTime);
+    }
+
+    private void cleanLocal(String path, int day, long deadline) {
         if (day < 0) {
             log.info("[CleanService] won't clean up {} because of offset day <= 0.", path);
             return;
         }
-
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        File dir = new File(path);
-        if (!dir.exists()) {
-            return;
-        }
-        File[] logFiles = dir.listFiles();
-        if (logFiles == null || logFiles.length == 0) {
+        if (!new File(path).exists()) {
             return;
         }
+        long num = cleanEngine.run(new LocalFileCleanTask(path, day), deadline);
+        log.info("[CleanService] clean {} successfully, deleted {} files.", path, num);
+    }
 
-        // 计算最大偏移量
-        long maxOffset = day * 24 * 60 * 60 * 1000L;
-
-        for (File f : logFiles) {
-            long offset = System.currentTimeMillis() - f.lastModified();
-            if (offset >= maxOffset) {
-                if (!f.delete()) {
-                    log.warn("[CleanService] delete file({}) failed.", f.getName());
-                }else {
-                    log.info("[CleanService] delete file({}) successfully.", f.getName());
-                }
-            }
+    /**
+     * DFS 本地缓存（容器 Jar、日志归档）由 DFsCacheService 维护索引，超过容量时自动淘汰，这里只删除长时间未访问的文件
+     */
+    private void cleanDFsCache() {
+        if (dfsCacheRetentionDay < 0) {
+            log.info("[CleanService] won't clean up dfs cache because of offset day <= 0.");
+            return;
         }
-        log.info("[CleanService] clean {} successfully, using {}.", path, stopwatch.stop());
+        int num = dFsCacheService.evictIdle(dfsCacheRetentionDay);
+        log.info("[CleanService] clean dfs cache successfully, deleted {} files.", num);
     }
 
     @VisibleForTesting
     public void cleanRemote(String bucketName, int day) {
+        cleanRemote(bucketName, day, System.currentTimeMillis() + maxRunTime);
+    }
+
+    private void cleanRemote(String bucketName, int day, long deadline) {
         if (day < 0) {
             log.info("[CleanService] won't clean up bucket({}) because of offset day <= 0.", bucketName);
             return;
         }
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        try {
-            dFsService.cleanExpiredFiles(bucketName, day);
-        }catch (Exception e) {
-            log.warn("[CleanService] clean remote bucket({}) failed.", bucketName, e);
-        }
-        log.info("[CleanService] clean remote bucket({}) successfully, using {}.", bucketName, stopwatch.stop());
+        long num = cleanEngine.run(new DFsCleanTask(dFsService, bucketName, day), deadline);
+        log.info("[CleanService] clean remote bucket({}) successfully, deleted {} files.", bucketName, num);
     }
 
     @VisibleForTesting
     public void cleanInstanceLog() {
+        cleanInstanceLog(System.currentTimeMillis() + maxRunTime);
+    }
+
+    private void cleanInstanceLog(long deadline) {
         if (instanceInfoRetentionDay < 0) {
             return;
         }
         try {
             Date t = DateUtils.addDays(new Date(), -instanceInfoRetentionDay);
-            int num = instanceInfoRepository.deleteAllByGmtModifiedBeforeAndStatusIn(t, InstanceStatus.FINISHED_STATUS);
+            Long minId = instanceInfoRepository.findMinId();
+            Long maxId = instanceInfoRepository.findMaxIdByGmtCreateBefore(t);
+            if (minId == null || maxId == null) {
+                return;
+            }
+            PrimaryKeyRangeCleanTask task = new PrimaryKeyRangeCleanTask("instance_info", minId, maxId,
+                    (startId, endId) -> instanceInfoRepository.deleteByIdRange(startId, endId, t, InstanceStatus.FINISHED_STATUS));
+            long num = cleanEngine.run(task, deadline);
             log.info("[CleanService] deleted {} instanceInfo records whose modify time before {}.", num, t);
         }catch (Exception e) {
             log.warn("[CleanService] clean instanceInfo failed.", e);
         }
     }
 
+    private void cleanInstanceArchive(long deadline) {
+        if (instanceInfoRetentionDay < 0) {
+            return;
+        }
+        try {
+            Date t = DateUtils.addDays(new Date(), -instanceInfoRetentionDay);
+            Long minId = instanceInfoArchiveRepository.findMinId();
+            // 归档表的主键沿用原记录（恢复后重新归档的记录 ID 与创建时间不再单调），因此上界与删除条件统一按修改时间计算
+            Long maxId = instanceInfoArchiveRepository.findMaxIdByGmtModifiedBefore(t);
+            if (minId == null || maxId == null) {
+                return;
+            }
+            // 归档表中只有已结束的实例
+            PrimaryKeyRangeCleanTask task = new PrimaryKeyRangeCleanTask("instance_info_archive", minId, maxId,
+                    (startId, endId) -> instanceInfoArchiveRepository.deleteByIdRange(startId, endId, t));
+            long num = cleanEngine.run(task, deadline);
+            log.info("[CleanService] deleted {} archived instanceInfo records whose modify time before {}.", num, t);
+        }catch (Exception e) {
+            log.warn("[CleanService] clean archived instanceInfo failed.", e);
+        }
+    }
+
     @VisibleForTesting
     public void cleanWorkflowInstanceLog() {
+        cleanWorkflowInstanceLog(System.currentTimeMillis() + maxRunTime);
+    }
+
+    private void cleanWorkflowInstanceLog(long deadline) {
         if (instanceInfoRetentionDay < 0) {
             return;
         }
         try {
             Date t = DateUtils.addDays(new Date(), -instanceInfoRetentionDay);
-            int num = workflowInstanceInfoRepository.deleteAllByGmtModifiedBeforeAndStatusIn(t, WorkflowInstanceStatus.FINISHED_STATUS);
+            Long minId = workflowInstanceInfoRepository.findMinId();
+            Long maxId = workflowInstanceInfoRepository.findMaxIdByGmtCreateBefore(t);
+            if (minId == null || maxId == null) {
+                return;
+            }
+            PrimaryKeyRangeCleanTask task = new PrimaryKeyRangeCleanTask("workflow_instance_info", minId, maxId,
+                    (startId, endId) -> workflowInstanceInfoRepository.deleteByIdRange(startId, endId, t, WorkflowInstanceStatus.FINISHED_STATUS));
+            long num = cleanEngine.run(task, deadline);
             log.info("[CleanService] deleted {} workflow instanceInfo records whose modify time before {}.", num, t);
         }catch (Exception e) {
             log.warn("[CleanService] clean workflow instanceInfo failed.", e);
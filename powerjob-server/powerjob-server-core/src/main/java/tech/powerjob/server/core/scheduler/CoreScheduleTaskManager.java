@@ -6,6 +6,8 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Service;
 import tech.powerjob.common.enums.TimeExpressionType;
+import tech.powerjob.server.core.instance.InstanceArchiveService;
+import tech.powerjob.server.core.instance.InstanceStatisticsService;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -24,6 +26,10 @@ public class CoreScheduleTaskManager implements InitializingBean, DisposableBean
 
     private final InstanceStatusCheckService instanceStatusCheckService;
 
+    private final InstanceStatisticsService instanceStatisticsService;
+
+    private final InstanceArchiveService instanceArchiveService;
+
     private final List<Thread> coreThreadContainer = new ArrayList<>();
 
 
@@ -42,6 +48,10 @@ public class CoreScheduleTaskManager implements InitializingBean, DisposableBean
         coreThreadContainer.add(new Thread(new LoopRunnable("CheckWaitingDispatchInstance", InstanceStatusCheckService.CHECK_INTERVAL, instanceStatusCheckService::checkWaitingDispatchInstance), "Thread-CheckWaitingDispatchInstance"));
         coreThreadContainer.add(new Thread(new LoopRunnable("CheckWaitingWorkerReceiveInstance", InstanceStatusCheckService.CHECK_INTERVAL, instanceStatusCheckService::checkWaitingWorkerReceiveInstance), "Thread-CheckWaitingWorkerReceiveInstance"));
         coreThreadContainer.add(new Thread(new LoopRunnable("CheckWorkflowInstance", InstanceStatusCheckService.CHECK_INTERVAL, instanceStatusCheckService::checkWorkflowInstance), "Thread-CheckWorkflowInstance"));
+        // 冷热分离
+        coreThreadContainer.add(new Thread(new LoopRunnable("ArchiveInstance", InstanceArchiveService.ARCHIVE_INTERVAL, instanceArchiveService::archive), "Thread-ArchiveInstance"));
+        // 统计数据修正
+        coreThreadContainer.add(new Thread(new LoopRunnable("ReconcileInstanceStatistics", InstanceStatisticsService.RECONCILE_INTERVAL, instanceStatisticsService::reconcileAll), "Thread-ReconcileInstanceStatistics"));
 
         coreThreadContainer.forEach(Thread::start);
     }
@@ -15,6 +15,7 @@ import tech.powerjob.server.common.Holder;
 import tech.powerjob.common.enums.SwitchableStatus;
 import tech.powerjob.server.core.DispatchService;
 import tech.powerjob.server.core.instance.InstanceManager;
+import tech.powerjob.server.core.instance.InstanceStatisticsService;
 import tech.powerjob.server.core.workflow.WorkflowInstanceManager;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.JobInfoDO;
@@ -54,6 +55,8 @@ public class InstanceStatusCheckService {
 
     private final InstanceManager instanceManager;
 
+    private final InstanceStatisticsService instanceStatisticsService;
+
     private final WorkflowInstanceManager workflowInstanceManager;
 
     private final AppInfoRepository appInfoRepository;
@@ -245,6 +248,7 @@ public class InstanceStatusCheckService {
                 // CRON 和 API一样，失败次数 + 1，根据重试配置进行重试
                 if (instance.getRunningTimes() < jobInfoOpt.get().getInstanceRetryNum()) {
                     dispatchService.redispatchAsync(instance.getInstanceId(), InstanceStatus.RUNNING.getV());
+                    instanceStatisticsService.onStatusChange(instance.getAppId(), InstanceStatus.RUNNING.getV(), InstanceStatus.WAITING_DISPATCH.getV(), null);
                 } else {
                     final Optional<InstanceInfoDO> opt = instanceInfoRepository.findById(instance.getId());
                     opt.ifPresent(e -> updateFailedInstance(e, SystemInstanceResult.REPORT_TIMEOUT));
@@ -291,11 +295,13 @@ public class InstanceStatusCheckService {
 
         log.warn("[InstanceStatusChecker] instance[{}] failed due to {}, instanceInfo: {}", instance.getInstanceId(), result, instance);
 
+        int originStatus = instance.getStatus();
         instance.setStatus(InstanceStatus.FAILED.getV());
         instance.setFinishedTime(System.currentTimeMillis());
         instance.setGmtModified(new Date());
         instance.setResult(result);
         instanceInfoRepository.saveAndFlush(instance);
+        instanceStatisticsService.onStatusChange(instance.getAppId(), originStatus, InstanceStatus.FAILED.getV(), instance.getGmtCreate());
 
         instanceManager.processFinishedInstance(instance.getInstanceId(), instance.getWfInstanceId(), InstanceStatus.FAILED, result);
     }
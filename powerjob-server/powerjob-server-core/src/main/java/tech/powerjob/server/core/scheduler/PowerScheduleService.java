@@ -68,6 +68,11 @@ public class PowerScheduleService {
 
     public static final long SCHEDULE_RATE = 15000;
 
+    /**
+     * 各调度循环最近一次的耗时，供后台任务（如历史数据清理）感知调度压力
+     */
+    private final Map<String, Long> lastScheduleCost = Maps.newConcurrentMap();
+
 
     public void scheduleNormalJob(TimeExpressionType timeExpressionType) {
         long start = System.currentTimeMillis();
@@ -83,6 +88,7 @@ public class PowerScheduleService {
             log.error("[NormalScheduler] schedule cron job failed.", e);
         }
         long cost = System.currentTimeMillis() - start;
+        lastScheduleCost.put(timeExpressionType.name(), cost);
         log.info("[NormalScheduler] {} job schedule use {} ms.", timeExpressionType, cost);
         if (cost > SCHEDULE_RATE) {
             log.warn("[NormalScheduler] The database query is using too much time({}ms), please check if the database load is too high!", cost);
@@ -103,6 +109,7 @@ public class PowerScheduleService {
             log.error("[CronWorkflowSchedule] schedule cron workflow failed.", e);
         }
         long cost = System.currentTimeMillis() - start;
+        lastScheduleCost.put("CRON_WORKFLOW", cost);
         log.info("[CronWorkflowSchedule] cron workflow schedule use {} ms.", cost);
         if (cost > SCHEDULE_RATE) {
             log.warn("[CronWorkflowSchedule] The database query is using too much time({}ms), please check if the database load is too high!", cost);
@@ -124,6 +131,7 @@ public class PowerScheduleService {
             log.error("[FrequentJobSchedule] schedule frequent job failed.", e);
         }
         long cost = System.currentTimeMillis() - start;
+        lastScheduleCost.put("FREQUENT_JOB", cost);
         log.info("[FrequentJobSchedule] frequent job schedule use {} ms.", cost);
         if (cost > SCHEDULE_RATE) {
             log.warn("[FrequentJobSchedule] The database query is using too much time({}ms), please check if the database load is too high!", cost);
@@ -131,6 +139,14 @@ public class PowerScheduleService {
     }
 
 
+    /**
+     * 当前调度延迟，取各调度循环最近一次耗时的最大值
+     * @return 调度耗时，单位毫秒
+     */
+    public long currentScheduleLatency() {
+        return lastScheduleCost.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+    }
+
     public void cleanData() {
         try {
             final List<Long> allAppIds = appInfoRepository.listAppIdByCurrentServer(transportService.defaultProtocol().getAddress());
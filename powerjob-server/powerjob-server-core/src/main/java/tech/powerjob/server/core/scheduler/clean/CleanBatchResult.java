@@ -0,0 +1,28 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 单批次清理结果
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+@Getter
+@AllArgsConstructor
+public class CleanBatchResult {
+
+    /**
+     * 下一批次的游标，null 代表已全部清理完毕
+     */
+    private final String nextCursor;
+    /**
+     * 本批次清理的记录（文件）数量
+     */
+    private final int processed;
+
+    public static CleanBatchResult finished(int processed) {
+        return new CleanBatchResult(null, processed);
+    }
+}
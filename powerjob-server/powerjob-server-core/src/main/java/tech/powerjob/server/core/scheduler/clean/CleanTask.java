@@ -0,0 +1,32 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+/**
+ * 可分批执行的清理任务，由 {@link ThrottledCleanEngine} 驱动
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+public interface CleanTask {
+
+    /**
+     * 任务名称，同时作为断点记录的 key
+     * @return 任务名称
+     */
+    String name();
+
+    /**
+     * 从 cursor 开始执行一批清理
+     * @param cursor 上一批次返回的游标，首次执行（或无断点）时为 null
+     * @param batchSize 单批次最大处理量
+     * @return 批次结果
+     */
+    CleanBatchResult cleanBatch(String cursor, int batchSize);
+
+    /**
+     * 是否需要持久化断点，多台 server 各自执行的任务（如本地文件清理）不应共享断点
+     * @return true -> server 重启后从断点继续
+     */
+    default boolean checkpoint() {
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+import tech.powerjob.server.extension.dfs.DFsService;
+
+/**
+ * 分批清理 DFS 中的过期文件，删除幂等，无需持久化断点
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+public class DFsCleanTask implements CleanTask {
+
+    private final DFsService dFsService;
+    private final String bucket;
+    private final int days;
+
+    private long total;
+
+    public DFsCleanTask(DFsService dFsService, String bucket, int days) {
+        this.dFsService = dFsService;
+        this.bucket = bucket;
+        this.days = days;
+    }
+
+    @Override
+    public String name() {
+        return "dfs#" + bucket;
+    }
+
+    @Override
+    public boolean checkpoint() {
+        return false;
+    }
+
+    @Override
+    public CleanBatchResult cleanBatch(String cursor, int batchSize) {
+        int num = dFsService.cleanExpiredFiles(bucket, days, batchSize);
+        total += num;
+        // 游标仅记录已清理总数，便于日志排查
+        return num < batchSize ? CleanBatchResult.finished(num) : new CleanBatchResult(String.valueOf(total), num);
+    }
+}
@@ -0,0 +1,62 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+
+/**
+ * 清理本地目录下的过期文件，目录只列举一次，之后按下标分批删除
+ * 每台 server 独立执行，不持久化断点（重新列举目录的代价很小，删除本身幂等）
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+@Slf4j
+public class LocalFileCleanTask implements CleanTask {
+
+    private final String path;
+    private final long maxOffset;
+
+    private File[] files;
+
+    public LocalFileCleanTask(String path, int day) {
+        this.path = path;
+        this.maxOffset = day * 24 * 60 * 60 * 1000L;
+    }
+
+    @Override
+    public String name() {
+        return "local#" + path;
+    }
+
+    @Override
+    public boolean checkpoint() {
+        return false;
+    }
+
+    @Override
+    public CleanBatchResult cleanBatch(String cursor, int batchSize) {
+        if (files == null) {
+            File[] listFiles = new File(path).listFiles();
+            files = listFiles == null ? new File[0] : listFiles;
+        }
+        int from = cursor == null ? 0 : Integer.parseInt(cursor);
+        int to = Math.min(from + batchSize, files.length);
+
+        int num = 0;
+        long now = System.currentTimeMillis();
+        for (int i = from; i < to; i++) {
+            File f = files[i];
+            if (now - f.lastModified() < maxOffset) {
+                continue;
+            }
+            if (!f.delete()) {
+                log.warn("[LocalFileCleanTask] delete file({}) failed.", f.getName());
+            } else {
+                num++;
+                log.info("[LocalFileCleanTask] delete file({}) successfully.", f.getName());
+            }
+        }
+        return to >= files.length ? CleanBatchResult.finished(num) : new CleanBatchResult(String.valueOf(to), num);
+    }
+}
@@ -0,0 +1,59 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+/**
+ * 按主键区间分批删除数据库记录，每批次只扫描 (start, start + batchSize] 区间，避免单条 DELETE 锁定大量记录
+ * 游标为已处理的最大 ID
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+public class PrimaryKeyRangeCleanTask implements CleanTask {
+
+    private final String name;
+    private final long minId;
+    private final long maxId;
+    private final RangeDeleter deleter;
+
+    /**
+     * @param name 任务名称
+     * @param minId 需要清理的最小 ID（包含）
+     * @param maxId 需要清理的最大 ID（包含）
+     * @param deleter 区间删除逻辑
+     */
+    public PrimaryKeyRangeCleanTask(String name, long minId, long maxId, RangeDeleter deleter) {
+        this.name = name;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.deleter = deleter;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CleanBatchResult cleanBatch(String cursor, int batchSize) {
+        long start = minId - 1;
+        if (cursor != null) {
+            start = Math.max(start, Long.parseLong(cursor));
+        }
+        if (start >= maxId) {
+            return CleanBatchResult.finished(0);
+        }
+        long end = Math.min(start + batchSize, maxId);
+        int num = deleter.delete(start, end);
+        return end >= maxId ? CleanBatchResult.finished(num) : new CleanBatchResult(String.valueOf(end), num);
+    }
+
+    @FunctionalInterface
+    public interface RangeDeleter {
+        /**
+         * 删除 (startId, endId] 区间内满足条件的记录
+         * @param startId 起始 ID（不包含）
+         * @param endId 结束 ID（包含）
+         * @return 删除的记录数
+         */
+        int delete(long startId, long endId);
+    }
+}
@@ -0,0 +1,159 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.server.core.scheduler.PowerScheduleService;
+import tech.powerjob.server.persistence.remote.model.SundryDO;
+import tech.powerjob.server.persistence.remote.repository.SundryRepository;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * 限速清理引擎
+ * 1. 按批次驱动 {@link CleanTask}，批次大小与每秒处理量均可配置
+ * 2. 调度延迟超过阈值时暂停清理，让出数据库资源
+ * 3. 每个批次完成后记录断点（sundry 表），server 重启或超时中断后从断点继续
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+@Slf4j
+@Component
+public class ThrottledCleanEngine {
+
+    private static final String CHECKPOINT_PKEY = "CleanCheckpoint";
+
+    private final SundryRepository sundryRepository;
+
+    private final LongSupplier scheduleLatencySupplier;
+
+    private final int batchSize;
+
+    private final RateLimiter rateLimiter;
+
+    private final long pauseLatencyThreshold;
+
+    private final long pauseInterval;
+
+    @Autowired
+    public ThrottledCleanEngine(SundryRepository sundryRepository, PowerScheduleService powerScheduleService,
+                                @Value("${oms.clean.batch-size:1000}") int batchSize,
+                                @Value("${oms.clean.max-rows-per-second:5000}") double maxRowsPerSecond,
+                                @Value("${oms.clean.pause.schedule-latency-threshold:3000}") long pauseLatencyThreshold) {
+        this(sundryRepository, powerScheduleService::currentScheduleLatency, batchSize, maxRowsPerSecond, pauseLatencyThreshold, 5000);
+    }
+
+    public ThrottledCleanEngine(SundryRepository sundryRepository, LongSupplier scheduleLatencySupplier,
+                                int batchSize, double maxRowsPerSecond, long pauseLatencyThreshold, long pauseInterval) {
+        if (batchSize <= 0 || maxRowsPerSecond <= 0) {
+            throw new IllegalArgumentException("batchSize and maxRowsPerSecond must be positive");
+        }
+        this.sundryRepository = sundryRepository;
+        this.scheduleLatencySupplier = scheduleLatencySupplier;
+        this.batchSize = batchSize;
+        this.rateLimiter = RateLimiter.create(maxRowsPerSecond);
+        this.pauseLatencyThreshold = pauseLatencyThreshold;
+        this.pauseInterval = pauseInterval;
+    }
+
+    /**
+     * 执行清理任务，直到清理完毕或到达截止时间
+     * @param task 清理任务
+     * @param deadline 截止时间（时间戳），到达后保存断点并退出
+     * @return 本次清理的记录（文件）数量
+     */
+    public long run(CleanTask task, long deadline) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        String cursor = task.checkpoint() ? loadCheckpoint(task.name()) : null;
+        if (cursor != null) {
+            log.info("[ThrottledCleanEngine] task({}) resume from checkpoint: {}", task.name(), cursor);
+        }
+        long total = 0;
+        try {
+            while (true) {
+                if (!waitScheduleIdle(task, deadline)) {
+                    log.warn("[ThrottledCleanEngine] task({}) reached deadline, stop at cursor {} and will resume next time, cleaned: {}, using: {}.", task.name(), cursor, total, stopwatch);
+                    return total;
+                }
+                CleanBatchResult result = task.cleanBatch(cursor, batchSize);
+                total += result.getProcessed();
+                if (result.getNextCursor() == null) {
+                    if (task.checkpoint() && cursor != null) {
+                        clearCheckpoint(task.name());
+                    }
+                    log.info("[ThrottledCleanEngine] task({}) finished, cleaned: {}, using: {}.", task.name(), total, stopwatch.stop());
+                    return total;
+                }
+                if (task.checkpoint() && !Objects.equals(cursor, result.getNextCursor())) {
+                    saveCheckpoint(task.name(), result.getNextCursor());
+                }
+                cursor = result.getNextCursor();
+                // 空批次同样计 1，限制扫描频率
+                rateLimiter.acquire(Math.max(1, result.getProcessed()));
+            }
+        } catch (Exception e) {
+            log.warn("[ThrottledCleanEngine] task({}) failed at cursor {}, cleaned: {}.", task.name(), cursor, total, e);
+            return total;
+        }
+    }
+
+    /**
+     * 调度延迟过高时暂停清理
+     * @return false 代表等待期间已到达截止时间
+     */
+    private boolean waitScheduleIdle(CleanTask task, long deadline) {
+        boolean paused = false;
+        while (System.currentTimeMillis() < deadline) {
+            long latency = scheduleLatencySupplier.getAsLong();
+            if (latency <= pauseLatencyThreshold) {
+                if (paused) {
+                    log.info("[ThrottledCleanEngine] schedule latency recovered({}ms), task({}) continue.", latency, task.name());
+                }
+                return true;
+            }
+            if (!paused) {
+                log.warn("[ThrottledCleanEngine] schedule latency({}ms) exceeds threshold({}ms), pause task({}).", latency, pauseLatencyThreshold, task.name());
+                paused = true;
+            }
+            CommonUtils.easySleep(pauseInterval);
+        }
+        return false;
+    }
+
+    private String loadCheckpoint(String taskName) {
+        return sundryRepository.findByPkeyAndSkey(CHECKPOINT_PKEY, taskName).map(SundryDO::getContent).orElse(null);
+    }
+
+    private void saveCheckpoint(String taskName, String cursor) {
+        try {
+            SundryDO checkpoint = sundryRepository.findByPkeyAndSkey(CHECKPOINT_PKEY, taskName).orElseGet(() -> {
+                SundryDO newCheckpoint = new SundryDO();
+                newCheckpoint.setPkey(CHECKPOINT_PKEY);
+                newCheckpoint.setSkey(taskName);
+                newCheckpoint.setGmtCreate(new Date());
+                return newCheckpoint;
+            });
+            checkpoint.setContent(cursor);
+            checkpoint.setGmtModified(new Date());
+            sundryRepository.saveAndFlush(checkpoint);
+        } catch (Exception e) {
+            // 断点丢失只会导致重复扫描，不影响正确性
+            log.warn("[ThrottledCleanEngine] save checkpoint for task({}) failed.", taskName, e);
+        }
+    }
+
+    private void clearCheckpoint(String taskName) {
+        try {
+            sundryRepository.findByPkeyAndSkey(CHECKPOINT_PKEY, taskName).ifPresent(sundryRepository::delete);
+        } catch (Exception e) {
+            log.warn("[ThrottledCleanEngine] clear checkpoint for task({}) failed.", taskName, e);
+        }
+    }
+}
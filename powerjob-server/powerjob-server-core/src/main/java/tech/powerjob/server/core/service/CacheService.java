@@ -4,10 +4,12 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import tech.powerjob.server.core.instance.InstanceArchiveService;
+import tech.powerjob.server.persistence.remote.model.AppInfoDO;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.JobInfoDO;
 import tech.powerjob.server.persistence.remote.model.WorkflowInfoDO;
-import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.persistence.remote.repository.AppInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.JobInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.WorkflowInfoRepository;
 
@@ -28,18 +30,22 @@ public class CacheService {
 
     private final WorkflowInfoRepository workflowInfoRepository;
 
-    private final InstanceInfoRepository instanceInfoRepository;
+    private final InstanceArchiveService instanceArchiveService;
+
+    private final AppInfoRepository appInfoRepository;
 
     private final Cache<Long, String> jobId2JobNameCache;
     private final Cache<Long, String> workflowId2WorkflowNameCache;
     private final Cache<Long, Long> instanceId2AppId;
     private final Cache<Long, Long> jobId2AppId;
+    private final Cache<Long, String> appId2CurrentServer;
 
-    public CacheService(JobInfoRepository jobInfoRepository, WorkflowInfoRepository workflowInfoRepository, InstanceInfoRepository instanceInfoRepository) {
+    public CacheService(JobInfoRepository jobInfoRepository, WorkflowInfoRepository workflowInfoRepository, InstanceArchiveService instanceArchiveService, AppInfoRepository appInfoRepository) {
 
         this.jobInfoRepository = jobInfoRepository;
         this.workflowInfoRepository = workflowInfoRepository;
-        this.instanceInfoRepository = instanceInfoRepository;
+        this.instanceArchiveService = instanceArchiveService;
+        this.appInfoRepository = appInfoRepository;
 
         jobId2JobNameCache = CacheBuilder.newBuilder()
                 .expireAfterWrite(Duration.ofMinutes(1))
@@ -61,6 +67,11 @@ public class CacheService {
                 .maximumSize(1024)
                 .softValues()
                 .build();
+        // server 变更后短时间内可能返回旧值，client 请求失败后会重新路由
+        appId2CurrentServer = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .maximumSize(1024)
+                .build();
     }
 
     /**
@@ -105,7 +116,7 @@ public class CacheService {
             return instanceId2AppId.get(instanceId, () -> {
                 // 内部记录数据库异常
                 try {
-                    InstanceInfoDO instanceLog = instanceInfoRepository.findByInstanceId(instanceId);
+                    InstanceInfoDO instanceLog = instanceArchiveService.findByInstanceId(instanceId);
                     if (instanceLog != null) {
                         return instanceLog.getAppId();
                     }
@@ -135,4 +146,18 @@ public class CacheService {
         }
         return null;
     }
+
+    /**
+     * 查询当前负责该 app 的 server 地址
+     * @param appId 应用ID
+     * @return server 地址（ip:port），不存在时返回空字符串
+     */
+    public String getCurrentServerByAppId(Long appId) {
+        try {
+            return appId2CurrentServer.get(appId, () -> appInfoRepository.findById(appId).map(AppInfoDO::getCurrentServer).orElse(""));
+        } catch (Exception e) {
+            log.error("[CacheService] getCurrentServer for app:{} failed.", appId, e);
+        }
+        return "";
+    }
 }
@@ -0,0 +1,353 @@
+package tech.powerjob.server.core.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.extension.dfs.DFsService;
+import tech.powerjob.server.extension.dfs.FileLocation;
+import tech.powerjob.server.monitor.MonitorService;
+import tech.powerjob.server.monitor.events.dfs.DFsCacheEvent;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * DFS 文件的本地缓存（read-through）
+ * 1. 缓存文件以 DFS 位置的摘要命名，DFS 中的文件写入后不再修改（重跑等覆盖写的场景需调用 {@link #invalidate(FileLocation)}）
+ * 2. 磁盘占用有上限，超出后按 LRU 淘汰，最近一分钟内访问过的文件不会被淘汰，避免调用方正在使用的文件被删除
+ * 3. 同一文件的并发请求只会触发一次下载，其余请求等待下载结果
+ * 4. 命中、下载、淘汰情况通过 {@link DFsCacheEvent} 上报监控
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Slf4j
+@Service
+public class DFsCacheService {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final char BUCKET_SEPARATOR = '_';
+
+    /**
+     * 最近访问过的文件不会被淘汰
+     */
+    static final long MIN_IDLE_MS = 60000;
+
+    private final DFsService dFsService;
+
+    private final MonitorService monitorService;
+
+    private final File baseDir;
+
+    private final long maxBytes;
+
+    private final LongSupplier clock;
+
+    /**
+     * 缓存文件名 -> 缓存条目，按访问顺序排列（LRU），所有访问都需要持有 this 锁
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    /**
+     * 下载中的文件，用于合并并发请求
+     */
+    private final ConcurrentMap<String, CompletableFuture<Optional<File>>> loading = Maps.newConcurrentMap();
+
+    @Autowired
+    public DFsCacheService(DFsService dFsService, MonitorService monitorService, @Value("${oms.dfs.cache.max-size-mb:2048}") long maxSizeMb) {
+        this(dFsService, monitorService, OmsFileUtils.genDFsCachePath(), maxSizeMb * FileUtils.ONE_MB, System::currentTimeMillis);
+    }
+
+    public DFsCacheService(DFsService dFsService, MonitorService monitorService, String baseDir, long maxBytes, LongSupplier clock) {
+        this.dFsService = dFsService;
+        this.monitorService = monitorService;
+        this.baseDir = new File(baseDir);
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        restore();
+    }
+
+    /**
+     * 获取 DFS 文件的本地副本，本地不存在时从 DFS 下载
+     * @param fileLocation 文件位置
+     * @return 本地文件，DFS 中不存在该文件时返回空
+     * @throws Exception 下载失败
+     */
+    public Optional<File> fetch(FileLocation fileLocation) throws Exception {
+        String key = genKey(fileLocation);
+        File cached = hit(key);
+        if (cached != null) {
+            report(fileLocation.getBucket(), DFsCacheEvent.Status.HIT, 0);
+            return Optional.of(cached);
+        }
+
+        CompletableFuture<Optional<File>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<File>> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            report(fileLocation.getBucket(), DFsCacheEvent.Status.SHARED, 0);
+            return await(existing);
+        }
+        try {
+            // 上一个下载可能恰好在 hit 与 putIfAbsent 之间完成
+            cached = hit(key);
+            Optional<File> result = cached == null ? load(key, fileLocation) : Optional.of(cached);
+            future.complete(result);
+            return result;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 查询本地是否已缓存，不会触发下载
+     * @param fileLocation 文件位置
+     * @return 本地文件
+     */
+    public Optional<File> peek(FileLocation fileLocation) {
+        File cached = hit(genKey(fileLocation));
+        if (cached != null) {
+            report(fileLocation.getBucket(), DFsCacheEvent.Status.HIT, 0);
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    /**
+     * 将刚写入 DFS 的本地文件移动到缓存中，避免之后再次下载
+     * @param fileLocation 文件位置
+     * @param localFile 本地文件，调用后不可再使用
+     * @return 缓存文件
+     * @throws IOException 移动失败
+     */
+    public File put(FileLocation fileLocation, File localFile) throws IOException {
+        String key = genKey(fileLocation);
+        File tmp = genTmpFile(key);
+        FileUtils.forceMkdir(baseDir);
+        // 不同文件系统之间无法直接移动，先移动为临时文件
+        FileUtils.moveFile(localFile, tmp);
+        return install(key, fileLocation.getBucket(), tmp);
+    }
+
+    /**
+     * DFS 中的文件被覆盖后，删除本地缓存
+     * @param fileLocation 文件位置
+     */
+    public void invalidate(FileLocation fileLocation) {
+        String key = genKey(fileLocation);
+        synchronized (this) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                totalBytes -= entry.size;
+            }
+        }
+        CommonUtils.executeIgnoreException(() -> Files.deleteIfExists(new File(baseDir, key).toPath()));
+    }
+
+    /**
+     * 删除长时间未访问的缓存文件，由 CleanService 定时调用
+     * @param day 天数，删除超过 X 天未访问的文件
+     * @return 删除的文件数量
+     */
+    public int evictIdle(int day) {
+        long expireTime = clock.getAsLong() - TimeUnit.DAYS.toMillis(day);
+        return evict(entry -> entry.lastAccessTime < expireTime);
+    }
+
+    /**
+     * @return 缓存当前占用的磁盘空间
+     */
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    private Optional<File> load(String key, FileLocation fileLocation) throws Exception {
+        File tmp = genTmpFile(key);
+        try {
+            FileUtils.forceMkdir(baseDir);
+            try (InputStream is = dFsService.openStream(fileLocation, 0, -1)) {
+                Files.copy(is, tmp.toPath());
+            }
+        } catch (FileNotFoundException e) {
+            Files.deleteIfExists(tmp.toPath());
+            report(fileLocation.getBucket(), DFsCacheEvent.Status.NOT_FOUND, 0);
+            return Optional.empty();
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp.toPath());
+            report(fileLocation.getBucket(), DFsCacheEvent.Status.FAILED, 0);
+            throw e;
+        }
+        long length = tmp.length();
+        File file = install(key, fileLocation.getBucket(), tmp);
+        report(fileLocation.getBucket(), DFsCacheEvent.Status.MISS, length);
+        return Optional.of(file);
+    }
+
+    private File install(String key, String bucket, File tmp) throws IOException {
+        File file = new File(baseDir, key);
+        synchronized (this) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Entry old = entries.put(key, new Entry(bucket, file.length(), clock.getAsLong()));
+            totalBytes += file.length() - (old == null ? 0 : old.size);
+        }
+        long now = clock.getAsLong();
+        evict(entry -> totalBytes > maxBytes && now - entry.lastAccessTime >= MIN_IDLE_MS);
+        return file;
+    }
+
+    private File hit(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        File file = new File(baseDir, key);
+        if (!file.exists()) {
+            // 被外部删除
+            invalidate0(key);
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - entry.lastAccessTime >= MIN_IDLE_MS) {
+            // 持久化访问时间，重启后据此恢复 LRU 顺序
+            file.setLastModified(now);
+        }
+        entry.lastAccessTime = now;
+        return file;
+    }
+
+    private synchronized void invalidate0(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size;
+        }
+    }
+
+    private int evict(Predicate<Entry> predicate) {
+        List<Map.Entry<String, Entry>> victims = Lists.newArrayList();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (predicate.test(e.getValue())) {
+                    it.remove();
+                    totalBytes -= e.getValue().size;
+                    victims.add(e);
+                }
+            }
+        }
+        for (Map.Entry<String, Entry> victim : victims) {
+            File file = new File(baseDir, victim.getKey());
+            if (!file.delete() && file.exists()) {
+                log.warn("[DFsCacheService] delete cache file({}) failed.", file);
+            }
+            report(victim.getValue().bucket, DFsCacheEvent.Status.EVICTED, victim.getValue().size);
+        }
+        if (!victims.isEmpty()) {
+            log.info("[DFsCacheService] evict {} cache files, current size: {} bytes.", victims.size(), size());
+        }
+        return victims.size();
+    }
+
+    /**
+     * 启动时根据磁盘上的文件恢复缓存索引，按最后修改时间恢复 LRU 顺序
+     */
+    private void restore() {
+        File[] files = baseDir.listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File file : files) {
+                String name = file.getName();
+                int idx = name.lastIndexOf(BUCKET_SEPARATOR);
+                if (name.endsWith(TMP_SUFFIX) || idx <= 0) {
+                    // 上次未完成的下载
+                    CommonUtils.executeIgnoreException(() -> Files.deleteIfExists(file.toPath()));
+                    continue;
+                }
+                entries.put(name, new Entry(name.substring(0, idx), file.length(), file.lastModified()));
+                totalBytes += file.length();
+            }
+        }
+        log.info("[DFsCacheService] restore {} cache files from disk, size: {} bytes.", entries.size(), totalBytes);
+        evict(entry -> totalBytes > maxBytes);
+    }
+
+    private File genTmpFile(String key) {
+        return new File(baseDir, key + "." + CommonUtils.genUUID() + TMP_SUFFIX);
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void report(String bucket, DFsCacheEvent.Status status, long bytes) {
+        monitorService.monitor(new DFsCacheEvent()
+                .setBucket(bucket)
+                .setStatus(status)
+                .setBytes(bytes)
+                .setCacheBytes(size()));
+    }
+
+    /**
+     * bucket 作为前缀，便于按 bucket 统计；名称使用摘要，避免非法字符
+     */
+    static String genKey(FileLocation fileLocation) {
+        String bucket = fileLocation.getBucket();
+        String digest = DigestUtils.md5DigestAsHex((bucket + "/" + fileLocation.getName()).getBytes(StandardCharsets.UTF_8));
+        return bucket + BUCKET_SEPARATOR + digest;
+    }
+
+    private static class Entry {
+        private final String bucket;
+        private final long size;
+        private volatile long lastAccessTime;
+
+        Entry(String bucket, long size, long lastAccessTime) {
+            this.bucket = bucket;
+            this.size = size;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+}
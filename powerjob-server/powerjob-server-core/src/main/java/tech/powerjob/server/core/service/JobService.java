@@ -1,6 +1,7 @@
 package tech.powerjob.server.core.service;
 
 import tech.powerjob.common.PowerQuery;
+import tech.powerjob.common.request.http.BatchRunJobRequest;
 import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.response.JobInfoDTO;
@@ -28,6 +29,8 @@ public interface JobService {
 
     long runJob(Long appId, RunJobRequest runJobRequest);
 
+    List<Long> batchRunJob(Long appId, BatchRunJobRequest batchRunJobRequest);
+
     void deleteJob(Long jobId);
 
     void disableJob(Long jobId);
@@ -1,7 +1,11 @@
 package tech.powerjob.server.core.service;
 
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import tech.powerjob.server.persistence.remote.model.UserInfoDO;
@@ -10,6 +14,8 @@ import tech.powerjob.server.persistence.remote.repository.UserInfoRepository;
 import javax.annotation.Resource;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -18,25 +24,44 @@ import java.util.stream.Collectors;
  * @author tjq
  * @since 2020/6/12
  */
+@Slf4j
 @Service
 public class UserService {
 
     @Resource
     private UserInfoRepository userInfoRepository;
 
+    /**
+     * 告警接收人缓存，同一任务短时间内大量失败时避免反复查库
+     */
+    private final Cache<String, List<UserInfoDO>> notifyUserCache = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
     /**
      * 根据用户ID字符串获取用户信息详细列表
      * @param userIds 逗号分割的用户ID信息
-     * @return 用户信息详细列表
+     * @return 用户信息详细列表（来自缓存，不可修改）
      */
     public List<UserInfoDO> fetchNotifyUserList(String userIds) {
         if (StringUtils.isEmpty(userIds)) {
             return Lists.newLinkedList();
         }
+        try {
+            return notifyUserCache.get(userIds, () -> queryNotifyUserList(userIds));
+        } catch (ExecutionException e) {
+            log.warn("[UserService] fetch notify user list failed, userIds: {}", userIds, e.getCause());
+            return Lists.newLinkedList();
+        }
+    }
+
+    private List<UserInfoDO> queryNotifyUserList(String userIds) {
         // 去重
         Set<Long> userIdList = Splitter.on(",").splitToList(userIds).stream().map(Long::valueOf).collect(Collectors.toSet());
         List<UserInfoDO> res = userInfoRepository.findByIdIn(Lists.newLinkedList(userIdList));
         res.forEach(x -> x.setPassword(null));
-        return res;
+        // 缓存的列表会被多次返回，禁止调用方修改
+        return ImmutableList.copyOf(res);
     }
 }
@@ -2,6 +2,7 @@ package tech.powerjob.server.core.service.impl.job;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -14,6 +15,7 @@ import tech.powerjob.common.enums.TimeExpressionType;
 import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.model.AlarmConfig;
 import tech.powerjob.common.model.LifeCycle;
+import tech.powerjob.common.request.http.BatchRunJobRequest;
 import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.response.JobInfoDTO;
@@ -34,7 +36,10 @@ import tech.powerjob.server.remote.server.redirector.DesignateServer;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -188,13 +193,52 @@ public class JobServiceImpl implements JobService {
                 outerKey, runJobRequest.getExtendValue()
         );
         instanceInfoRepository.flush();
+        dispatch(jobInfo, instanceInfo, delay);
+        log.info("[Job-{}|{}] execute 'runJob' successfully, params={}", jobInfo.getId(), instanceInfo.getInstanceId(), instanceParams);
+        return instanceInfo.getInstanceId();
+    }
+
+    /**
+     * 批量运行任务，一次查询全部任务并校验归属，实例在同一个事务中批量写入后再逐个派发
+     *
+     * @param appId 用于远程 server 路由，同时校验任务归属，勿删！
+     * @param batchRunJobRequest 批量请求
+     * @return 任务实例ID，与请求一一对应
+     */
+    @Override
+    @DesignateServer
+    public List<Long> batchRunJob(Long appId, BatchRunJobRequest batchRunJobRequest) {
+        List<RunJobRequest> requests = batchRunJobRequest.getRequests();
+        Set<Long> jobIds = requests.stream().map(RunJobRequest::getJobId).collect(Collectors.toSet());
+        Map<Long, JobInfoDO> jobInfos = jobInfoRepository.findAllById(jobIds).stream().collect(Collectors.toMap(JobInfoDO::getId, Function.identity()));
+        jobIds.forEach(jobId -> {
+            JobInfoDO jobInfo = jobInfos.get(jobId);
+            if (jobInfo == null) {
+                throw new IllegalArgumentException("can't find job by jobId: " + jobId);
+            }
+            if (!appId.equals(jobInfo.getAppId())) {
+                throw new IllegalArgumentException("job(" + jobId + ") is not belong to the app whose appId is " + appId);
+            }
+        });
+
+        List<InstanceInfoDO> instanceInfos = instanceService.batchCreate(jobInfos, requests);
+        List<Long> instanceIds = Lists.newArrayListWithCapacity(instanceInfos.size());
+        for (int i = 0; i < instanceInfos.size(); i++) {
+            InstanceInfoDO instanceInfo = instanceInfos.get(i);
+            Long delay = requests.get(i).getDelay();
+            dispatch(jobInfos.get(instanceInfo.getJobId()), instanceInfo, delay == null ? 0 : delay);
+            instanceIds.add(instanceInfo.getInstanceId());
+        }
+        log.info("[JobService] execute 'batchRunJob' successfully in app[{}], jobs={}, instances={}", appId, jobIds, instanceIds.size());
+        return instanceIds;
+    }
+
+    private void dispatch(JobInfoDO jobInfo, InstanceInfoDO instanceInfo, long delay) {
         if (delay <= 0) {
             dispatchService.dispatch(jobInfo, instanceInfo.getInstanceId(), Optional.of(instanceInfo),Optional.empty());
         } else {
             InstanceTimeWheelService.schedule(instanceInfo.getInstanceId(), delay, () -> dispatchService.dispatch(jobInfo, instanceInfo.getInstanceId(), Optional.empty(),Optional.empty()));
         }
-        log.info("[Job-{}|{}] execute 'runJob' successfully, params={}", jobInfo.getId(), instanceInfo.getInstanceId(), instanceParams);
-        return instanceInfo.getInstanceId();
     }
 
     /**
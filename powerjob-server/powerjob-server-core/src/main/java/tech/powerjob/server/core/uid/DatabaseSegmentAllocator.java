@@ -0,0 +1,71 @@
+package tech.powerjob.server.core.uid;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.server.persistence.remote.model.IdSegmentDO;
+import tech.powerjob.server.persistence.remote.repository.IdSegmentRepository;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于数据库的号段分配器，使用 CAS 更新 id_segment 表推进上界，多台 server 之间无需加锁
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+@Slf4j
+public class DatabaseSegmentAllocator implements SegmentAllocator {
+
+    private static final int MAX_RETRY_TIMES = 10;
+
+    private final String bizTag;
+    private final IdSegmentRepository idSegmentRepository;
+    /**
+     * 首次初始化号段表时使用的起始值
+     */
+    private final LongSupplier initialMaxIdSupplier;
+
+    public DatabaseSegmentAllocator(String bizTag, IdSegmentRepository idSegmentRepository, LongSupplier initialMaxIdSupplier) {
+        this.bizTag = bizTag;
+        this.idSegmentRepository = idSegmentRepository;
+        this.initialMaxIdSupplier = initialMaxIdSupplier;
+    }
+
+    @Override
+    public long allocate(int step) {
+        for (int i = 0; i < MAX_RETRY_TIMES; i++) {
+            Optional<IdSegmentDO> segmentOpt = idSegmentRepository.findByBizTag(bizTag);
+            if (!segmentOpt.isPresent()) {
+                initialize();
+                continue;
+            }
+            long currentMaxId = segmentOpt.get().getMaxId();
+            if (idSegmentRepository.compareAndSetMaxId(bizTag, currentMaxId, currentMaxId + step, new Date()) == 1) {
+                log.info("[DatabaseSegmentAllocator] allocate segment [{}, {}) for bizTag: {}", currentMaxId, currentMaxId + step, bizTag);
+                return currentMaxId;
+            }
+            // 其他 server 抢先推进了上界，随机退避后重试
+            CommonUtils.easySleep(ThreadLocalRandom.current().nextInt(10, 50));
+        }
+        throw new PowerJobException("allocate id segment failed after " + MAX_RETRY_TIMES + " retries, bizTag: " + bizTag);
+    }
+
+    private void initialize() {
+        IdSegmentDO segment = new IdSegmentDO();
+        segment.setBizTag(bizTag);
+        segment.setMaxId(initialMaxIdSupplier.getAsLong());
+        segment.setGmtCreate(new Date());
+        segment.setGmtModified(segment.getGmtCreate());
+        try {
+            idSegmentRepository.saveAndFlush(segment);
+            log.info("[DatabaseSegmentAllocator] initialize id segment for bizTag: {}, initial maxId: {}", bizTag, segment.getMaxId());
+        } catch (Exception e) {
+            // 唯一索引冲突，说明其他 server 已完成初始化
+            log.info("[DatabaseSegmentAllocator] id segment for bizTag({}) has been initialized by other server.", bizTag);
+        }
+    }
+}
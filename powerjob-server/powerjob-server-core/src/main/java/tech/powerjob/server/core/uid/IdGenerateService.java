@@ -1,13 +1,15 @@
 package tech.powerjob.server.core.uid;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import tech.powerjob.server.persistence.remote.repository.IdSegmentRepository;
 import tech.powerjob.server.remote.server.self.ServerInfoService;
 
 /**
- * 唯一ID生成服务，使用 Twitter snowflake 算法
- * 机房ID：固定为0，占用2位
- * 机器ID：由 ServerIdProvider 提供
+ * 唯一ID生成服务，支持两种模式（oms.id-generator.type）
+ * snowflake（默认）：使用 Twitter snowflake 算法，机房ID固定为0，占用2位；机器ID由 ServerIdProvider 提供
+ * segment：号段模式，每台 server 从数据库预留一段 ID 在本地发号，双 buffer 异步预取，不受时钟回拨影响
  *
  * @author tjq
  * @since 2020/4/6
@@ -16,14 +18,30 @@ import tech.powerjob.server.remote.server.self.ServerInfoService;
 @Service
 public class IdGenerateService {
 
-    private final SnowFlakeIdGenerator snowFlakeIdGenerator;
+    private final IdGenerator idGenerator;
 
     private static final int DATA_CENTER_ID = 0;
 
-    public IdGenerateService(ServerInfoService serverInfoService) {
+    private static final String GENERATOR_TYPE_SEGMENT = "segment";
+    /**
+     * 实例ID与工作流实例ID共用同一个号段，与 snowflake 模式保持一致（全局唯一）
+     */
+    private static final String SEGMENT_BIZ_TAG = "powerjob_instance";
+
+    public IdGenerateService(ServerInfoService serverInfoService,
+                             IdSegmentRepository idSegmentRepository,
+                             @Value("${oms.id-generator.type:snowflake}") String generatorType,
+                             @Value("${oms.id-generator.segment.step:1000}") int segmentStep) {
         long id = serverInfoService.fetchCurrentServerInfo().getId();
-        snowFlakeIdGenerator = new SnowFlakeIdGenerator(DATA_CENTER_ID, id);
-        log.info("[IdGenerateService] initialize IdGenerateService successfully, ID:{}", id);
+        SnowFlakeIdGenerator snowFlakeIdGenerator = new SnowFlakeIdGenerator(DATA_CENTER_ID, id);
+        if (GENERATOR_TYPE_SEGMENT.equalsIgnoreCase(generatorType)) {
+            // 号段起点取当前的 snowflake ID，保证与切换前已生成的 ID 不冲突
+            DatabaseSegmentAllocator allocator = new DatabaseSegmentAllocator(SEGMENT_BIZ_TAG, idSegmentRepository, snowFlakeIdGenerator::nextId);
+            idGenerator = new SegmentIdGenerator(segmentStep, allocator);
+        } else {
+            idGenerator = snowFlakeIdGenerator;
+        }
+        log.info("[IdGenerateService] initialize IdGenerateService successfully, ID:{}, generator: {}", id, idGenerator.getClass().getSimpleName());
     }
 
     /**
@@ -31,7 +49,16 @@ public class IdGenerateService {
      * @return 分布式唯一ID
      */
     public long allocate() {
-        return snowFlakeIdGenerator.nextId();
+        return idGenerator.nextId();
+    }
+
+    /**
+     * 批量分配分布式唯一ID
+     * @param num 数量
+     * @return 分布式唯一ID数组
+     */
+    public long[] allocate(int num) {
+        return idGenerator.nextIds(num);
     }
 
 }
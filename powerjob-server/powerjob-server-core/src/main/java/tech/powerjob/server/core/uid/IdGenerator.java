@@ -0,0 +1,29 @@
+package tech.powerjob.server.core.uid;
+
+/**
+ * 分布式唯一 ID 生成器
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+public interface IdGenerator {
+
+    /**
+     * 产生下一个ID
+     * @return 分布式唯一ID
+     */
+    long nextId();
+
+    /**
+     * 批量产生ID，用于批量创建实例等场景
+     * @param num 数量
+     * @return 分布式唯一ID数组
+     */
+    default long[] nextIds(int num) {
+        long[] ids = new long[num];
+        for (int i = 0; i < num; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+}
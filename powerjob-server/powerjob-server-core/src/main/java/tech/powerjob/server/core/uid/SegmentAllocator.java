@@ -0,0 +1,18 @@
+package tech.powerjob.server.core.uid;
+
+/**
+ * 号段分配器，负责从持久化存储中预留一段连续的 ID
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+@FunctionalInterface
+public interface SegmentAllocator {
+
+    /**
+     * 预留一段长度为 step 的 ID，返回区间 [start, start + step) 的起始值
+     * @param step 号段长度
+     * @return 号段起始值
+     */
+    long allocate(int step);
+}
@@ -0,0 +1,137 @@
+package tech.powerjob.server.core.uid;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式 ID 生成器（双 buffer）
+ * 当前号段消耗超过 {@link #PRELOAD_RATIO} 时异步预取下一号段，切换号段时直接使用预取结果，正常情况下发号永不阻塞在 DB 上
+ * 与时钟无关，因此不受时钟回拨影响
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+@Slf4j
+public class SegmentIdGenerator implements IdGenerator {
+
+    /**
+     * 当前号段消耗到该比例时触发预取
+     */
+    private static final double PRELOAD_RATIO = 0.1;
+
+    private final int step;
+    private final long preloadThreshold;
+    private final SegmentAllocator allocator;
+
+    private volatile Segment current;
+    private volatile Segment next;
+
+    private final AtomicBoolean preloading = new AtomicBoolean(false);
+    private final ExecutorService preloadExecutor;
+
+    public SegmentIdGenerator(int step, SegmentAllocator allocator) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        this.step = step;
+        this.preloadThreshold = Math.max(1, (long) (step * PRELOAD_RATIO));
+        this.allocator = allocator;
+        this.preloadExecutor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("SegmentIdPreloader-%d").setDaemon(true).build());
+        this.current = new Segment(allocator.allocate(step), step);
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            Segment seg = current;
+            long id = seg.cursor.getAndIncrement();
+            if (id < seg.max) {
+                tryPreload(seg, id + 1);
+                return id;
+            }
+            switchSegment(seg);
+        }
+    }
+
+    @Override
+    public long[] nextIds(int num) {
+        long[] ids = new long[num];
+        int filled = 0;
+        while (filled < num) {
+            Segment seg = current;
+            int need = num - filled;
+            long start = seg.cursor.getAndAdd(need);
+            if (start < seg.max) {
+                long end = Math.min(seg.max, start + need);
+                for (long id = start; id < end; id++) {
+                    ids[filled++] = id;
+                }
+                tryPreload(seg, end);
+            }
+            if (filled < num) {
+                switchSegment(seg);
+            }
+        }
+        return ids;
+    }
+
+    private void tryPreload(Segment seg, long cursor) {
+        if (next != null || cursor - seg.start < preloadThreshold) {
+            return;
+        }
+        if (!preloading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            preloadExecutor.execute(() -> {
+                try {
+                    if (next == null) {
+                        next = new Segment(allocator.allocate(step), step);
+                    }
+                } catch (Exception e) {
+                    log.warn("[SegmentIdGenerator] preload next segment failed, will retry on demand.", e);
+                } finally {
+                    preloading.set(false);
+                }
+            });
+        } catch (Exception e) {
+            preloading.set(false);
+        }
+    }
+
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        Segment preloaded = next;
+        if (preloaded != null) {
+            next = null;
+            current = preloaded;
+            return;
+        }
+        // 预取未能跟上消耗速度（或预取失败），只能同步加载
+        log.warn("[SegmentIdGenerator] next segment is not ready, load synchronously.");
+        current = new Segment(allocator.allocate(step), step);
+    }
+
+    private static class Segment {
+
+        private final long start;
+        private final long max;
+        private final AtomicLong cursor;
+
+        Segment(long start, int step) {
+            this.start = start;
+            this.max = start + step;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
@@ -6,7 +6,7 @@ package tech.powerjob.server.core.uid;
  * @author tjq
  * @since 2020/4/6
  */
-public class SnowFlakeIdGenerator {
+public class SnowFlakeIdGenerator implements IdGenerator {
     /**
      * 起始的时间戳(a special day for me)
      */
@@ -66,6 +66,7 @@ public class SnowFlakeIdGenerator {
     /**
      * 产生下一个ID
      */
+    @Override
     public synchronized long nextId() {
         long currStamp = getNewStamp();
         if (currStamp < lastTimestamp) {
@@ -92,6 +93,18 @@ public class SnowFlakeIdGenerator {
                 | sequence;                             //序列号部分
     }
 
+    /**
+     * 批量产生ID，整批只竞争一次锁
+     */
+    @Override
+    public synchronized long[] nextIds(int num) {
+        long[] ids = new long[num];
+        for (int i = 0; i < num; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
     /**
      * 发生时钟回拨时借用未来时间生成Id，避免运行过程中任务调度和工作流直接进入不可用状态
      * 注：该方式不可解决原算法中停服状态下时钟回拨导致的重复id问题
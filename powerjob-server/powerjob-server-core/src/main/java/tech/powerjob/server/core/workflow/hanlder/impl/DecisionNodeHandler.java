@@ -26,7 +26,11 @@ import java.util.*;
 @Component
 public class DecisionNodeHandler implements ControlNodeHandler {
 
-    private final GroovyEvaluator groovyEvaluator = new GroovyEvaluator();
+    private final GroovyEvaluator groovyEvaluator;
+
+    public DecisionNodeHandler(GroovyEvaluator groovyEvaluator) {
+        this.groovyEvaluator = groovyEvaluator;
+    }
 
     /**
      * 处理判断节点
@@ -21,4 +21,23 @@ public interface LockService {
      * @param name 锁名称
      */
     void unlock(String name);
+
+    /**
+     * 续约，将当前持有的锁的租约延长至 now + leaseTime，仅锁的持有者可以续约
+     * @param name 锁名称
+     * @param leaseTime 新的租约时长，单位毫秒（ms）
+     * @return true -> 续约成功，false -> 锁已丢失（过期后被其他节点抢占）或实现不支持续约
+     */
+    default boolean renew(String name, long leaseTime) {
+        return false;
+    }
+
+    /**
+     * 获取当前持有的锁的 fencing token，每次锁易主都会单调递增，可用于拒绝旧持有者的过期写入
+     * @param name 锁名称
+     * @return fencing token，未持有锁或实现不支持时返回 -1
+     */
+    default long fencingToken(String name) {
+        return -1;
+    }
 }
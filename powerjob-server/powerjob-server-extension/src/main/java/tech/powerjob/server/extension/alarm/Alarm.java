@@ -16,6 +16,14 @@ public interface Alarm extends PowerSerializable {
 
     String fetchTitle();
 
+    /**
+     * 告警分组，同组告警在去重窗口内只发送第一条，其余合并为摘要发送
+     * @return 分组 key
+     */
+    default String fetchGroupKey() {
+        return getClass().getName();
+    }
+
     default String fetchContent() {
         StringBuilder sb = new StringBuilder();
         JSONObject content = JSONObject.parseObject(JSONObject.toJSONString(this));
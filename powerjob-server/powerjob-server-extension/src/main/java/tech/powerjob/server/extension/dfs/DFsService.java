@@ -1,6 +1,14 @@
 package tech.powerjob.server.extension.dfs;
 
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 /**
@@ -25,6 +33,70 @@ public interface DFsService {
      */
     void download(DownloadRequest downloadRequest) throws Exception;
 
+    /**
+     * 以流的方式存储文件，无需先写入本地磁盘
+     * 未实现流式写入的存储系统退化为写入临时文件后存储
+     * @param fileLocation 文件位置
+     * @param inputStream 文件内容，由调用方负责关闭
+     * @param length 文件内容长度
+     * @throws Exception 异常
+     */
+    default void store(FileLocation fileLocation, InputStream inputStream, long length) throws Exception {
+        File tmpFile = File.createTempFile("powerjob-dfs-", ".tmp");
+        try {
+            Files.copy(inputStream, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            store(new StoreRequest().setFileLocation(fileLocation).setLocalFile(tmpFile));
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * 以流的方式读取文件的指定范围（ranged read），用于只读取大文件中需要的部分
+     * 未实现范围读取的存储系统退化为下载整个文件到临时文件后读取，流关闭时删除临时文件
+     * @param fileLocation 文件位置
+     * @param offset 起始位置
+     * @param length 最大读取长度，小于 0 代表读取到文件末尾
+     * @return 文件内容，由调用方负责关闭
+     * @throws Exception 异常，文件不存在时抛出 {@link FileNotFoundException}
+     */
+    default InputStream openStream(FileLocation fileLocation, long offset, long length) throws Exception {
+        if (!fetchFileMeta(fileLocation).isPresent()) {
+            throw new FileNotFoundException(fileLocation.toString());
+        }
+        File tmpFile = File.createTempFile("powerjob-dfs-", ".tmp");
+        try {
+            download(new DownloadRequest().setFileLocation(fileLocation).setTarget(tmpFile));
+            InputStream is = Files.newInputStream(tmpFile.toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = is.skip(offset - skipped);
+                if (n <= 0) {
+                    break;
+                }
+                skipped += n;
+            }
+            return length < 0 ? is : ByteStreams.limit(is, length);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+    }
+
+    /**
+     * 读取文件的指定范围到内存中
+     * @param fileLocation 文件位置
+     * @param offset 起始位置
+     * @param length 最大读取长度
+     * @return 文件内容，到达文件末尾时长度可能小于 length
+     * @throws Exception 异常，文件不存在时抛出 {@link FileNotFoundException}
+     */
+    default byte[] read(FileLocation fileLocation, long offset, int length) throws Exception {
+        try (InputStream is = openStream(fileLocation, offset, length)) {
+            return ByteStreams.toByteArray(ByteStreams.limit(is, length));
+        }
+    }
+
     /**
      * 获取文件元信息
      * @param fileLocation 文件位置
@@ -41,4 +113,17 @@ public interface DFsService {
      */
     default void cleanExpiredFiles(String bucket, int days) {
     }
+
+    /**
+     * 分批清理“过期”文件，每次最多清理 limit 个，由调用方控制节奏（限速、暂停、中断）
+     * 未实现分批能力的存储系统退化为一次性调用 {@link #cleanExpiredFiles(String, int)}
+     * @param bucket bucket
+     * @param days 天数，需要清理超过 X 天的文件
+     * @param limit 本批次最多清理的文件数量
+     * @return 本批次实际清理的文件数量，小于 limit 代表已清理完毕
+     */
+    default int cleanExpiredFiles(String bucket, int days, int limit) {
+        cleanExpiredFiles(bucket, days);
+        return 0;
+    }
 }
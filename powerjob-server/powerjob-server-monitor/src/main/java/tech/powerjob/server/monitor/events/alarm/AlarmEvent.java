@@ -0,0 +1,70 @@
+package tech.powerjob.server.monitor.events.alarm;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import tech.powerjob.server.common.SJ;
+import tech.powerjob.server.monitor.Event;
+
+/**
+ * 告警中心事件
+ *
+ * @author tjq
+ * @since 2024/3/6
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class AlarmEvent implements Event {
+
+    /**
+     * 告警类型（类名）
+     */
+    private String alarmType;
+
+    private Status status;
+
+    /**
+     * 本次事件涉及的告警数量
+     */
+    private long num;
+
+    /**
+     * 待发送队列中的告警数量
+     */
+    private int backlog;
+
+    /**
+     * 被抑制、等待合并为摘要的告警数量
+     */
+    private long pendingDigest;
+
+    public enum Status {
+        /**
+         * 进入发送队列
+         */
+        DISPATCHED,
+        /**
+         * 被抑制的告警合并为摘要
+         */
+        DIGESTED,
+        /**
+         * 队列已满被丢弃
+         */
+        DROPPED,
+        /**
+         * 仅上报积压情况
+         */
+        BACKLOG
+    }
+
+    @Override
+    public String type() {
+        return "MONITOR_LOGGER_ALARM";
+    }
+
+    @Override
+    public String message() {
+        return SJ.MONITOR_JOINER.join(alarmType, status, num, backlog, pendingDigest);
+    }
+}
@@ -0,0 +1,70 @@
+package tech.powerjob.server.monitor.events.dfs;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import tech.powerjob.server.common.SJ;
+import tech.powerjob.server.monitor.Event;
+
+/**
+ * DFS 本地缓存事件
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class DFsCacheEvent implements Event {
+
+    private String bucket;
+
+    private Status status;
+
+    /**
+     * 本次事件涉及的文件大小（下载或淘汰）
+     */
+    private long bytes;
+
+    /**
+     * 缓存当前占用的磁盘空间
+     */
+    private long cacheBytes;
+
+    public enum Status {
+        /**
+         * 命中本地缓存
+         */
+        HIT,
+        /**
+         * 未命中，从 DFS 下载
+         */
+        MISS,
+        /**
+         * 未命中，等待其他请求正在进行的下载
+         */
+        SHARED,
+        /**
+         * DFS 中不存在该文件
+         */
+        NOT_FOUND,
+        /**
+         * 下载失败
+         */
+        FAILED,
+        /**
+         * 被淘汰
+         */
+        EVICTED
+    }
+
+    @Override
+    public String type() {
+        return "MONITOR_LOGGER_DFS_CACHE";
+    }
+
+    @Override
+    public String message() {
+        return SJ.MONITOR_JOINER.join(bucket, status, bytes, cacheBytes);
+    }
+}
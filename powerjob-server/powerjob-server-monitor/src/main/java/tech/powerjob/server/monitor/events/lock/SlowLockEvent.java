@@ -1,5 +1,6 @@
 package tech.powerjob.server.monitor.events.lock;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import tech.powerjob.server.common.SJ;
@@ -11,6 +12,7 @@ import tech.powerjob.server.monitor.Event;
  * @author tjq
  * @since 2022/9/9
  */
+@Getter
 @Setter
 @Accessors(chain = true)
 public class SlowLockEvent implements Event {
@@ -1,5 +1,6 @@
 package tech.powerjob.server.monitor.events.w2s;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import tech.powerjob.common.enums.InstanceStatus;
@@ -12,6 +13,7 @@ import tech.powerjob.server.monitor.Event;
  * @author tjq
  * @since 2022/9/9
  */
+@Getter
 @Setter
 @Accessors(chain = true)
 public class TtReportInstanceStatusEvent implements Event {
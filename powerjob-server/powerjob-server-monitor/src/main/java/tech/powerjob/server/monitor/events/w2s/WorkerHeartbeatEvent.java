@@ -1,5 +1,6 @@
 package tech.powerjob.server.monitor.events.w2s;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import tech.powerjob.server.common.SJ;
@@ -11,6 +12,7 @@ import tech.powerjob.server.monitor.Event;
  * @author tjq
  * @since 2022/9/9
  */
+@Getter
 @Setter
 @Accessors(chain = true)
 public class WorkerHeartbeatEvent implements Event {
@@ -31,6 +33,14 @@ public class WorkerHeartbeatEvent implements Event {
      */
     private long delayMs;
     private Integer score;
+    /**
+     * 是否为增量心跳
+     */
+    private boolean delta;
+    /**
+     * 是否要求 worker 重新发送全量心跳
+     */
+    private boolean resync;
 
     @Override
     public String type() {
@@ -39,6 +49,6 @@ public class WorkerHeartbeatEvent implements Event {
 
     @Override
     public String message() {
-        return SJ.MONITOR_JOINER.join(appName, appId, version, protocol, tag, workerAddress, delayMs, score);
+        return SJ.MONITOR_JOINER.join(appName, appId, version, protocol, tag, workerAddress, delayMs, score, delta, resync);
     }
 }
@@ -12,6 +12,7 @@ import tech.powerjob.server.monitor.Event;
  * @author tjq
  * @since 2022/9/11
  */
+@Getter
 @Setter
 @Accessors(chain = true)
 public class WorkerLogReportEvent implements Event {
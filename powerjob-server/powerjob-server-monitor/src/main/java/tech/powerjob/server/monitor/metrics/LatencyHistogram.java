@@ -0,0 +1,125 @@
+package tech.powerjob.server.monitor.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低开销直方图
+ * 桶边界固定为 2 的幂次（1, 2, 4 ... 2^20），记录时只做一次位运算 + 一次 LongAdder 累加，不产生任何对象分配
+ *
+ * @author tjq
+ * @since 2024/3/2
+ */
+public class LatencyHistogram {
+
+    /**
+     * 有限桶的数量，最后一个有限桶上界为 2^20（约 17 分钟），超过的部分落入 +Inf 桶
+     */
+    static final int FINITE_BUCKET_NUM = 21;
+
+    private final LongAdder[] buckets = new LongAdder[FINITE_BUCKET_NUM + 1];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[bucketIndex(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 计算某个值所属的桶下标，桶 i 的上界为 2^i
+     * @param value 非负值
+     * @return 桶下标
+     */
+    static int bucketIndex(long value) {
+        if (value <= 1) {
+            return 0;
+        }
+        int idx = 64 - Long.numberOfLeadingZeros(value - 1);
+        return Math.min(idx, FINITE_BUCKET_NUM);
+    }
+
+    /**
+     * 桶上界，最后一个桶返回 -1 代表 +Inf
+     * @param idx 桶下标
+     * @return 上界
+     */
+    static long upperBound(int idx) {
+        return idx >= FINITE_BUCKET_NUM ? -1 : 1L << idx;
+    }
+
+    /**
+     * 生成快照（非原子，但对于监控场景足够）
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    public static class Snapshot {
+
+        /**
+         * 每个桶自身的计数（非累积）
+         */
+        final long[] bucketCounts;
+        final long count;
+        final long sum;
+        final long max;
+
+        Snapshot(long[] bucketCounts, long count, long sum, long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 估算分位数，返回命中桶的上界
+         * @param quantile 0~1
+         * @return 分位值（近似）
+         */
+        public long quantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(count * quantile);
+            long accumulated = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                accumulated += bucketCounts[i];
+                if (accumulated >= threshold) {
+                    long bound = upperBound(i);
+                    return bound < 0 ? max : Math.min(bound, max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package tech.powerjob.server.monitor.metrics;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 同名指标族，固定两个 label 维度
+ * 使用两级 Map 而非拼接 key，保证已存在的指标在记录时无需构造任何临时对象
+ *
+ * @author tjq
+ * @since 2024/3/2
+ */
+public class MetricFamily<T> {
+
+    /**
+     * label 为 null 时的占位值（ConcurrentHashMap 不允许 null key）
+     */
+    static final String ABSENT_LABEL = "-";
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String help;
+    @Getter
+    private final String firstLabelName;
+    @Getter
+    private final String secondLabelName;
+
+    private final Function<String, T> factory;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, T>> metrics = new ConcurrentHashMap<>();
+
+    MetricFamily(String name, String help, String firstLabelName, String secondLabelName, Function<String, T> factory) {
+        this.name = name;
+        this.help = help;
+        this.firstLabelName = firstLabelName;
+        this.secondLabelName = secondLabelName;
+        this.factory = factory;
+    }
+
+    public T get(String firstLabel, String secondLabel) {
+        String l1 = firstLabel == null ? ABSENT_LABEL : firstLabel;
+        String l2 = secondLabel == null ? ABSENT_LABEL : secondLabel;
+
+        // 先 get 再 computeIfAbsent，命中时不会创建 lambda 捕获对象，也不会进入 CHM 的加锁路径
+        ConcurrentMap<String, T> inner = metrics.get(l1);
+        if (inner == null) {
+            inner = metrics.computeIfAbsent(l1, ignore -> new ConcurrentHashMap<>());
+        }
+        T metric = inner.get(l2);
+        if (metric == null) {
+            metric = inner.computeIfAbsent(l2, factory);
+        }
+        return metric;
+    }
+
+    public void forEach(BiConsumer<String[], T> consumer) {
+        for (Map.Entry<String, ConcurrentMap<String, T>> outer : metrics.entrySet()) {
+            for (Map.Entry<String, T> inner : outer.getValue().entrySet()) {
+                consumer.accept(new String[]{outer.getKey(), inner.getKey()}, inner.getValue());
+            }
+        }
+    }
+}
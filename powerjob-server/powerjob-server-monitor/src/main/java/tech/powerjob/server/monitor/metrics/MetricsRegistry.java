@@ -0,0 +1,101 @@
+package tech.powerjob.server.monitor.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指标注册中心，负责持有全部指标族并导出为 Prometheus 文本格式
+ *
+ * @author tjq
+ * @since 2024/3/2
+ */
+public class MetricsRegistry {
+
+    private final List<MetricFamily<LatencyHistogram>> histograms = new CopyOnWriteArrayList<>();
+    private final List<MetricFamily<LongAdder>> counters = new CopyOnWriteArrayList<>();
+    private final List<MetricFamily<AtomicLong>> gauges = new CopyOnWriteArrayList<>();
+
+    public MetricFamily<LatencyHistogram> histogram(String name, String help, String firstLabelName, String secondLabelName) {
+        MetricFamily<LatencyHistogram> family = new MetricFamily<>(name, help, firstLabelName, secondLabelName, ignore -> new LatencyHistogram());
+        histograms.add(family);
+        return family;
+    }
+
+    public MetricFamily<LongAdder> counter(String name, String help, String firstLabelName, String secondLabelName) {
+        MetricFamily<LongAdder> family = new MetricFamily<>(name, help, firstLabelName, secondLabelName, ignore -> new LongAdder());
+        counters.add(family);
+        return family;
+    }
+
+    public MetricFamily<AtomicLong> gauge(String name, String help, String firstLabelName, String secondLabelName) {
+        MetricFamily<AtomicLong> family = new MetricFamily<>(name, help, firstLabelName, secondLabelName, ignore -> new AtomicLong());
+        gauges.add(family);
+        return family;
+    }
+
+    /**
+     * 导出为 Prometheus text exposition format (version 0.0.4)
+     * @return 文本
+     */
+    public String exportPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (MetricFamily<LongAdder> family : counters) {
+            appendHeader(sb, family, "counter");
+            family.forEach((labels, adder) -> {
+                sb.append(family.getName());
+                appendLabels(sb, family, labels, null);
+                sb.append(' ').append(adder.sum()).append('\n');
+            });
+        }
+        for (MetricFamily<AtomicLong> family : gauges) {
+            appendHeader(sb, family, "gauge");
+            family.forEach((labels, gauge) -> {
+                sb.append(family.getName());
+                appendLabels(sb, family, labels, null);
+                sb.append(' ').append(gauge.get()).append('\n');
+            });
+        }
+        for (MetricFamily<LatencyHistogram> family : histograms) {
+            appendHeader(sb, family, "histogram");
+            family.forEach((labels, histogram) -> {
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                long cumulative = 0;
+                for (int i = 0; i < snapshot.bucketCounts.length; i++) {
+                    cumulative += snapshot.bucketCounts[i];
+                    long bound = LatencyHistogram.upperBound(i);
+                    sb.append(family.getName()).append("_bucket");
+                    appendLabels(sb, family, labels, bound < 0 ? "+Inf" : String.valueOf(bound));
+                    sb.append(' ').append(cumulative).append('\n');
+                }
+                sb.append(family.getName()).append("_sum");
+                appendLabels(sb, family, labels, null);
+                sb.append(' ').append(snapshot.getSum()).append('\n');
+                sb.append(family.getName()).append("_count");
+                appendLabels(sb, family, labels, null);
+                sb.append(' ').append(snapshot.getCount()).append('\n');
+            });
+        }
+        return sb.toString();
+    }
+
+    private static void appendHeader(StringBuilder sb, MetricFamily<?> family, String type) {
+        sb.append("# HELP ").append(family.getName()).append(' ').append(family.getHelp()).append('\n');
+        sb.append("# TYPE ").append(family.getName()).append(' ').append(type).append('\n');
+    }
+
+    private static void appendLabels(StringBuilder sb, MetricFamily<?> family, String[] labels, String le) {
+        sb.append('{');
+        sb.append(family.getFirstLabelName()).append("=\"").append(escape(labels[0])).append("\",");
+        sb.append(family.getSecondLabelName()).append("=\"").append(escape(labels[1])).append('"');
+        if (le != null) {
+            sb.append(",le=\"").append(le).append('"');
+        }
+        sb.append('}');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
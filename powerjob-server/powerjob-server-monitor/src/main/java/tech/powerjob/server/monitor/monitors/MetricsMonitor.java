@@ -0,0 +1,165 @@
+package tech.powerjob.server.monitor.monitors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.monitor.Event;
+import tech.powerjob.server.monitor.Monitor;
+import tech.powerjob.server.monitor.events.alarm.AlarmEvent;
+import tech.powerjob.server.monitor.events.db.DatabaseEvent;
+import tech.powerjob.server.monitor.events.dfs.DFsCacheEvent;
+import tech.powerjob.server.monitor.events.lock.SlowLockEvent;
+import tech.powerjob.server.monitor.events.w2s.TtReportInstanceStatusEvent;
+import tech.powerjob.server.monitor.events.w2s.WorkerHeartbeatEvent;
+import tech.powerjob.server.monitor.events.w2s.WorkerLogReportEvent;
+import tech.powerjob.server.monitor.metrics.LatencyHistogram;
+import tech.powerjob.server.monitor.metrics.MetricFamily;
+import tech.powerjob.server.monitor.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于指标的监控监视器
+ * 将监控事件聚合为直方图 & 计数器，通过本地抓取接口（/monitor/metrics）与周期性快照文件对外暴露
+ * 记录过程仅涉及 Map#get 与 LongAdder 累加，不会在热路径上分配对象
+ *
+ * @author tjq
+ * @since 2024/3/2
+ */
+@Slf4j
+@Component
+public class MetricsMonitor implements Monitor {
+
+    private static final String SNAPSHOT_FILE_NAME = "metrics.prom";
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final MetricFamily<LatencyHistogram> dbLatency = registry.histogram("powerjob_db_latency_ms", "Latency of repository methods in milliseconds.", "service", "method");
+    private final MetricFamily<LongAdder> dbFailed = registry.counter("powerjob_db_failed_total", "Failed repository invocations.", "service", "method");
+    private final MetricFamily<LongAdder> dbRows = registry.counter("powerjob_db_rows_total", "Rows affected or returned by repository methods.", "service", "method");
+
+    private final MetricFamily<LatencyHistogram> lockWait = registry.histogram("powerjob_slow_lock_wait_ms", "Wait time of slow lock acquisitions in milliseconds.", "type", "lock_type");
+
+    private final MetricFamily<LatencyHistogram> ttReportDelay = registry.histogram("powerjob_tt_report_delay_ms", "Delay between TaskTracker report time and server receive time.", "instance_status", "process_status");
+    private final MetricFamily<LatencyHistogram> ttReportCost = registry.histogram("powerjob_tt_report_process_ms", "Server side cost of processing TaskTracker status reports.", "instance_status", "process_status");
+
+    private final MetricFamily<LatencyHistogram> heartbeatDelay = registry.histogram("powerjob_worker_heartbeat_delay_ms", "Delay between worker heartbeat time and server receive time.", "app_name", "protocol");
+
+    private final MetricFamily<LongAdder> logReportRequests = registry.counter("powerjob_worker_log_report_total", "Worker log report requests.", "status", "worker_address");
+    private final MetricFamily<LongAdder> logReportLines = registry.counter("powerjob_worker_log_report_lines_total", "Log lines reported by workers.", "status", "worker_address");
+
+    private final MetricFamily<LongAdder> alarms = registry.counter("powerjob_alarm_total", "Alarms processed by AlarmCenter.", "alarm_type", "status");
+    private final MetricFamily<AtomicLong> alarmBacklog = registry.gauge("powerjob_alarm_backlog", "Alarms still queued in AlarmCenter.", "queue", "type");
+
+    private final MetricFamily<LongAdder> dfsCacheRequests = registry.counter("powerjob_dfs_cache_total", "Lookups and evictions of the local DFS cache.", "bucket", "status");
+    private final MetricFamily<LongAdder> dfsCacheBytes = registry.counter("powerjob_dfs_cache_bytes_total", "Bytes downloaded into or evicted from the local DFS cache.", "bucket", "status");
+    private final MetricFamily<AtomicLong> dfsCacheSize = registry.gauge("powerjob_dfs_cache_size_bytes", "Disk space used by the local DFS cache.", "cache", "type");
+
+    private final boolean snapshotEnable;
+
+    /**
+     * worker 地址作为 label 会随 worker 上下线不断产生新的指标序列，默认关闭，仅在排查问题时开启
+     */
+    private final boolean workerAddressLabel;
+
+    public MetricsMonitor(@Value("${oms.monitor.metrics.snapshot.enable:true}") boolean snapshotEnable,
+                          @Value("${oms.monitor.metrics.worker-address-label.enable:false}") boolean workerAddressLabel) {
+        this.snapshotEnable = snapshotEnable;
+        this.workerAddressLabel = workerAddressLabel;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void record(Event event) {
+        if (event instanceof DatabaseEvent) {
+            recordDatabaseEvent((DatabaseEvent) event);
+        } else if (event instanceof SlowLockEvent) {
+            SlowLockEvent e = (SlowLockEvent) event;
+            lockWait.get(name(e.getType()), e.getLockType()).record(e.getCost());
+        } else if (event instanceof TtReportInstanceStatusEvent) {
+            TtReportInstanceStatusEvent e = (TtReportInstanceStatusEvent) event;
+            String instanceStatus = name(e.getInstanceStatus());
+            String processStatus = name(e.getServerProcessStatus());
+            if (e.getDelayMs() != null) {
+                ttReportDelay.get(instanceStatus, processStatus).record(e.getDelayMs());
+            }
+            if (e.getServerProcessCost() != null) {
+                ttReportCost.get(instanceStatus, processStatus).record(e.getServerProcessCost());
+            }
+        } else if (event instanceof WorkerHeartbeatEvent) {
+            WorkerHeartbeatEvent e = (WorkerHeartbeatEvent) event;
+            heartbeatDelay.get(e.getAppName(), e.getProtocol()).record(e.getDelayMs());
+        } else if (event instanceof WorkerLogReportEvent) {
+            WorkerLogReportEvent e = (WorkerLogReportEvent) event;
+            String status = name(e.getStatus());
+            String workerAddress = workerAddressLabel ? e.getWorkerAddress() : null;
+            logReportRequests.get(status, workerAddress).increment();
+            logReportLines.get(status, workerAddress).add(e.getLogNum());
+        } else if (event instanceof DFsCacheEvent) {
+            DFsCacheEvent e = (DFsCacheEvent) event;
+            String status = name(e.getStatus());
+            dfsCacheRequests.get(e.getBucket(), status).increment();
+            if (e.getBytes() > 0) {
+                dfsCacheBytes.get(e.getBucket(), status).add(e.getBytes());
+            }
+            dfsCacheSize.get("dfs", null).set(e.getCacheBytes());
+        } else if (event instanceof AlarmEvent) {
+            AlarmEvent e = (AlarmEvent) event;
+            if (e.getStatus() != AlarmEvent.Status.BACKLOG) {
+                alarms.get(e.getAlarmType(), name(e.getStatus())).add(e.getNum());
+            }
+            alarmBacklog.get("dispatch", null).set(e.getBacklog());
+            alarmBacklog.get("digest", null).set(e.getPendingDigest());
+        }
+    }
+
+    private void recordDatabaseEvent(DatabaseEvent e) {
+        dbLatency.get(e.getServiceName(), e.getMethodName()).record(e.getCost());
+        if (e.getStatus() == DatabaseEvent.Status.FAILED) {
+            dbFailed.get(e.getServiceName(), e.getMethodName()).increment();
+        }
+        if (e.getRows() != null) {
+            dbRows.get(e.getServiceName(), e.getMethodName()).add(e.getRows());
+        }
+    }
+
+    /**
+     * 导出 Prometheus 文本格式的指标，供抓取接口使用
+     * @return 指标文本
+     */
+    public String scrape() {
+        return registry.exportPrometheus();
+    }
+
+    @Scheduled(fixedDelayString = "${oms.monitor.metrics.snapshot.interval:60000}", initialDelay = 60000)
+    public void snapshot() {
+        if (!snapshotEnable) {
+            return;
+        }
+        try {
+            File dir = new File(OmsFileUtils.genMonitorPath());
+            FileUtils.forceMkdir(dir);
+            // 先写临时文件再原子替换，避免外部采集程序读到写了一半的快照
+            File tmp = new File(dir, SNAPSHOT_FILE_NAME + ".tmp");
+            FileUtils.writeStringToFile(tmp, scrape(), StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), new File(dir, SNAPSHOT_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("[MetricsMonitor] write metrics snapshot failed.", e);
+        }
+    }
+
+    private static String name(Enum<?> e) {
+        return e == null ? null : e.name();
+    }
+}
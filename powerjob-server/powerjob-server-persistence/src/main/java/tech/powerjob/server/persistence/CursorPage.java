@@ -0,0 +1,29 @@
+package tech.powerjob.server.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标（keyset）分页对象
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> implements Serializable {
+
+    /**
+     * 数据
+     */
+    private List<T> data;
+    /**
+     * 下一页的游标，为空代表没有更多数据
+     */
+    private Long nextCursor;
+}
@@ -1,11 +1,9 @@
 package tech.powerjob.server.persistence.local;
 
-import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 
 import javax.transaction.Transactional;
-import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -28,10 +26,5 @@ public interface LocalInstanceLogRepository extends JpaRepository<LocalInstanceL
     @Transactional(rollbackOn = Exception.class)
     long deleteByInstanceId(Long instanceId);
 
-    @Modifying
-    @Transactional(rollbackOn = Exception.class)
-    @CanIgnoreReturnValue
-    long deleteByInstanceIdInAndLogTimeLessThan(List<Long> instanceIds, Long t);
-
     long countByInstanceId(Long instanceId);
 }
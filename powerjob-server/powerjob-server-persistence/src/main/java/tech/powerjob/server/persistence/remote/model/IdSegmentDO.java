@@ -0,0 +1,39 @@
+package tech.powerjob.server.persistence.remote.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 号段分配表，记录每种业务已经分配出去的最大 ID
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(uniqueConstraints = {@UniqueConstraint(name = "uidx01_id_segment", columnNames = {"bizTag"})})
+public class IdSegmentDO {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "native")
+    @GenericGenerator(name = "native", strategy = "native")
+    private Long id;
+
+    /**
+     * 业务标识，如 instance
+     */
+    private String bizTag;
+    /**
+     * 当前已分配出去的最大 ID（不含）
+     */
+    private Long maxId;
+
+    private Date gmtCreate;
+
+    private Date gmtModified;
+}
@@ -0,0 +1,142 @@
+package tech.powerjob.server.persistence.remote.model;
+
+import tech.powerjob.common.enums.InstanceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 任务实例归档表（冷数据），结构与 {@link InstanceInfoDO} 保持一致
+ * 已结束的实例超过一定时间后从 instance_info 迁移至此，instance_info 只保留活跃数据，调度相关查询不再受历史数据影响
+ * 主键沿用原记录的 ID，便于跨表按 ID 排序；由于主键非自动生成，通过 {@link Persistable} 告知 JPA 新对象直接 insert，避免 saveAll 逐条 select
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx01_instance_info_archive", columnList = "appId,type,id"),
+        @Index(name = "idx02_instance_info_archive", columnList = "jobId,id"),
+        @Index(name = "idx03_instance_info_archive", columnList = "appId,status"),
+        @Index(name = "idx04_instance_info_archive", columnList = "instanceId"),
+        @Index(name = "idx05_instance_info_archive", columnList = "gmtModified")
+})
+public class InstanceInfoArchiveDO implements Persistable<Long> {
+
+    @Id
+    private Long id;
+    /**
+     * 任务ID
+     */
+    private Long jobId;
+    /**
+     * 任务所属应用的ID，冗余提高查询效率
+     */
+    private Long appId;
+    /**
+     * 任务所属应用的ID，冗余提高查询效率
+     */
+    private Long instanceId;
+    /**
+     * 任务参数（静态）
+     *
+     * @since 2021/2/01
+     */
+    @Lob
+    @Column
+    private String jobParams;
+    /**
+     * 任务实例参数（动态）
+     */
+    @Lob
+    @Column
+    private String instanceParams;
+    /**
+     * 该任务实例的类型，普通/工作流（InstanceType）
+     */
+    private Integer type;
+    /**
+     * 该任务实例所属的 workflow ID，仅 workflow 任务存在
+     */
+    private Long wfInstanceId;
+    /**
+     * 任务状态 {@link InstanceStatus}
+     */
+    private Integer status;
+    /**
+     * 执行结果（允许存储稍大的结果）
+     */
+    @Lob
+    @Column
+    private String result;
+    /**
+     * 预计触发时间
+     */
+    private Long expectedTriggerTime;
+    /**
+     * 实际触发时间
+     */
+    private Long actualTriggerTime;
+    /**
+     * 结束时间
+     */
+    private Long finishedTime;
+    /**
+     * 最后上报时间
+     */
+    private Long lastReportTime;
+    /**
+     * TaskTracker 地址
+     */
+    private String taskTrackerAddress;
+    /**
+     * 总共执行的次数（用于重试判断）
+     */
+    private Long runningTimes;
+
+    /**
+     * “外键”，用于 OPENAPI 场景业务场景与 PowerJob 实例的绑定
+     */
+    private String outerKey;
+    /**
+     * 扩展属性，用于 OPENAPI 场景上下文参数的透传
+     */
+    private String extendValue;
+
+    /**
+     * 调度元信息
+     */
+    private String meta;
+
+    private Date gmtCreate;
+
+    private Date gmtModified;
+
+    /**
+     * 是否已持久化，从数据库加载或写入后置为 true
+     */
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
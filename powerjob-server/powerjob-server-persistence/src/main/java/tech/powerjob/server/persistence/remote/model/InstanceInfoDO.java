@@ -23,7 +23,9 @@ import java.util.Date;
         @Index(name = "idx01_instance_info", columnList = "jobId,status"),
         @Index(name = "idx02_instance_info", columnList = "appId,status"),
         @Index(name = "idx03_instance_info", columnList = "instanceId,status"),
-        @Index(name = "idx04_instance_info_outer_key", columnList = "outerKey")
+        @Index(name = "idx04_instance_info_outer_key", columnList = "outerKey"),
+        @Index(name = "idx05_instance_info", columnList = "appId,type,id"),
+        @Index(name = "idx06_instance_info", columnList = "jobId,id")
 })
 public class InstanceInfoDO {
 
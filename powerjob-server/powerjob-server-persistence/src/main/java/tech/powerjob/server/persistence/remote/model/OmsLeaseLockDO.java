@@ -0,0 +1,47 @@
+package tech.powerjob.server.persistence.remote.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 租约锁
+ * 锁行按 partitionId 分散（partitionId 为唯一索引前导列），避免热点锁集中在同一个索引页上；行不会被删除，以保证 fencing 单调递增
+ *
+ * @author tjq
+ * @since 2024/3/4
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(uniqueConstraints = {@UniqueConstraint(name = "uidx01_oms_lease_lock", columnNames = {"partitionId", "lockName"})})
+public class OmsLeaseLockDO {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "native")
+    @GenericGenerator(name = "native", strategy = "native")
+    private Long id;
+
+    private Integer partitionId;
+
+    private String lockName;
+    /**
+     * 持有者标识（server 进程级别唯一）
+     */
+    private String ownerToken;
+    /**
+     * fencing 计数器，每次成功获取锁 +1
+     */
+    private Long fencingToken;
+    /**
+     * 租约过期时间（持有者本地时钟），释放锁时置为 0
+     */
+    private Long leaseExpireTime;
+
+    private Date gmtCreate;
+
+    private Date gmtModified;
+}
@@ -0,0 +1,43 @@
+package tech.powerjob.server.persistence.remote.model.brief;
+
+import lombok.Data;
+
+/**
+ * 任务实例列表展示信息（投影），不包含 result、instanceParams 等大字段，大字段仅在详情中加载
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+public class InstanceListInfo {
+
+    private Long id;
+
+    private Long jobId;
+
+    private Long instanceId;
+
+    private Long wfInstanceId;
+
+    private Integer status;
+
+    private String taskTrackerAddress;
+
+    private Long runningTimes;
+
+    private Long actualTriggerTime;
+
+    private Long finishedTime;
+
+    public InstanceListInfo(Long id, Long jobId, Long instanceId, Long wfInstanceId, Integer status, String taskTrackerAddress, Long runningTimes, Long actualTriggerTime, Long finishedTime) {
+        this.id = id;
+        this.jobId = jobId;
+        this.instanceId = instanceId;
+        this.wfInstanceId = wfInstanceId;
+        this.status = status;
+        this.taskTrackerAddress = taskTrackerAddress;
+        this.runningTimes = runningTimes;
+        this.actualTriggerTime = actualTriggerTime;
+        this.finishedTime = finishedTime;
+    }
+}
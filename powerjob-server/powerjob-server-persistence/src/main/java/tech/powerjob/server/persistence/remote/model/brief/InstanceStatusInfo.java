@@ -0,0 +1,25 @@
+package tech.powerjob.server.persistence.remote.model.brief;
+
+import lombok.Data;
+
+/**
+ * 任务实例状态（投影），用于批量鉴权与批量查询状态
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@Data
+public class InstanceStatusInfo {
+
+    private Long instanceId;
+
+    private Long appId;
+
+    private Integer status;
+
+    public InstanceStatusInfo(Long instanceId, Long appId, Integer status) {
+        this.instanceId = instanceId;
+        this.appId = appId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,36 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tech.powerjob.server.persistence.remote.model.IdSegmentDO;
+
+import javax.transaction.Transactional;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * 号段分配表数据访问层
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+public interface IdSegmentRepository extends JpaRepository<IdSegmentDO, Long> {
+
+    Optional<IdSegmentDO> findByBizTag(String bizTag);
+
+    /**
+     * CAS 方式推进号段上界，返回 1 代表本次号段分配成功
+     *
+     * @param bizTag      业务标识
+     * @param expectMaxId 期望的当前上界
+     * @param newMaxId    新的上界
+     * @param modifyTime  更新时间
+     * @return 更新记录数
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "update IdSegmentDO set maxId = :newMaxId, gmtModified = :modifyTime where bizTag = :bizTag and maxId = :expectMaxId")
+    int compareAndSetMaxId(@Param("bizTag") String bizTag, @Param("expectMaxId") long expectMaxId, @Param("newMaxId") long newMaxId, @Param("modifyTime") Date modifyTime);
+}
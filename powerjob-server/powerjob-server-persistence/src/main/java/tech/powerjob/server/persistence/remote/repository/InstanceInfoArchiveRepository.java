@@ -0,0 +1,91 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoArchiveDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo;
+
+import javax.transaction.Transactional;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 任务实例归档表
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+public interface InstanceInfoArchiveRepository extends JpaRepository<InstanceInfoArchiveDO, Long>, JpaSpecificationExecutor<InstanceInfoArchiveDO>, InstanceListQuery {
+
+    InstanceInfoArchiveDO findByInstanceId(long instanceId);
+
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo(i.instanceId,i.appId,i.status) from InstanceInfoArchiveDO i where i.instanceId in (:instanceIds)")
+    List<InstanceStatusInfo> listStatusByInstanceIdIn(@Param("instanceIds") List<Long> instanceIds);
+
+    /* --列表查询 {@link InstanceListQuery}-- */
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByAppId(@Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.appId = :appId and i.status = :status and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByAppIdAndStatus(@Param("appId") long appId, @Param("status") int status, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.jobId = :jobId and i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByJobId(@Param("jobId") long jobId, @Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.jobId = :jobId and i.status = :status and i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByJobIdAndStatus(@Param("jobId") long jobId, @Param("status") int status, @Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.wfInstanceId = :wfInstanceId and i.appId = :appId and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByWfInstanceId(@Param("wfInstanceId") long wfInstanceId, @Param("appId") long appId, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.instanceId = :instanceId and i.appId = :appId")
+    List<InstanceListInfo> listByInstanceId(@Param("instanceId") long instanceId, @Param("appId") long appId);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoArchiveDO i where i.appId = :appId and i.type = :type and (:jobId is null or i.jobId = :jobId) and (:instanceId is null or i.instanceId = :instanceId) and (:wfInstanceId is null or i.wfInstanceId = :wfInstanceId) and (:status is null or i.status = :status) and not exists (select a.id from InstanceInfoDO a where a.instanceId = i.instanceId)",
+            countQuery = "select count(i.id) from InstanceInfoArchiveDO i where i.appId = :appId and i.type = :type and (:jobId is null or i.jobId = :jobId) and (:instanceId is null or i.instanceId = :instanceId) and (:wfInstanceId is null or i.wfInstanceId = :wfInstanceId) and (:status is null or i.status = :status) and not exists (select a.id from InstanceInfoDO a where a.instanceId = i.instanceId)")
+    Page<InstanceListInfo> pageList(@Param("appId") long appId, @Param("type") int type, @Param("jobId") Long jobId, @Param("instanceId") Long instanceId, @Param("wfInstanceId") Long wfInstanceId, @Param("status") Integer status, Pageable pageable);
+
+    /* --数据统计-- */
+
+    /**
+     * 按创建时间（小时）分组统计实例数量
+     * @return [年, 月, 日, 时, 数量]
+     */
+    @Query(value = "select year(o.gmtCreate), month(o.gmtCreate), day(o.gmtCreate), hour(o.gmtCreate), count(o.id) from InstanceInfoArchiveDO o where o.appId = ?1 and o.status = ?2 and o.gmtCreate >= ?3 " +
+            "group by year(o.gmtCreate), month(o.gmtCreate), day(o.gmtCreate), hour(o.gmtCreate)")
+    List<Object[]> countGroupByCreateHour(long appId, int status, Date time);
+
+    /* --历史数据清理-- */
+
+    @Query(value = "select min(o.id) from InstanceInfoArchiveDO o")
+    Long findMinId();
+
+    @Query(value = "select max(o.id) from InstanceInfoArchiveDO o where o.gmtModified < :time")
+    Long findMaxIdByGmtModifiedBefore(@Param("time") Date time);
+
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @CanIgnoreReturnValue
+    @Query(value = "delete from InstanceInfoArchiveDO where id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "delete from InstanceInfoArchiveDO where id > :startId and id <= :endId and gmtModified < :time")
+    int deleteByIdRange(@Param("startId") long startId, @Param("endId") long endId, @Param("time") Date time);
+}
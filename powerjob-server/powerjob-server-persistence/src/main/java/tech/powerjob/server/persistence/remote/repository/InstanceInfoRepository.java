@@ -1,6 +1,7 @@
 package tech.powerjob.server.persistence.remote.repository;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
@@ -9,6 +10,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
 import tech.powerjob.server.persistence.remote.model.brief.BriefInstanceInfo;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo;
 
 import javax.transaction.Transactional;
 import java.util.Date;
@@ -20,7 +23,7 @@ import java.util.List;
  * @author tjq
  * @since 2020/4/1
  */
-public interface InstanceInfoRepository extends JpaRepository<InstanceInfoDO, Long>, JpaSpecificationExecutor<InstanceInfoDO> {
+public interface InstanceInfoRepository extends JpaRepository<InstanceInfoDO, Long>, JpaSpecificationExecutor<InstanceInfoDO>, InstanceListQuery {
 
     /**
      * 统计当前JOB有多少实例正在运行
@@ -122,6 +125,42 @@ public interface InstanceInfoRepository extends JpaRepository<InstanceInfoDO, Lo
 
     InstanceInfoDO findByInstanceId(long instanceId);
 
+    List<InstanceInfoDO> findByInstanceIdIn(List<Long> instanceIds);
+
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo(i.instanceId,i.appId,i.status) from InstanceInfoDO i where i.instanceId in (:instanceIds)")
+    List<InstanceStatusInfo> listStatusByInstanceIdIn(@Param("instanceIds") List<Long> instanceIds);
+
+    /* --列表查询：按 id 倒序的 keyset 分页，只查询列表展示需要的字段 {@link InstanceListQuery}-- */
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByAppId(@Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.appId = :appId and i.status = :status and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByAppIdAndStatus(@Param("appId") long appId, @Param("status") int status, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.jobId = :jobId and i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByJobId(@Param("jobId") long jobId, @Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.jobId = :jobId and i.status = :status and i.appId = :appId and i.type = :type and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByJobIdAndStatus(@Param("jobId") long jobId, @Param("status") int status, @Param("appId") long appId, @Param("type") int type, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.wfInstanceId = :wfInstanceId and i.appId = :appId and i.id < :cursor order by i.id desc")
+    List<InstanceListInfo> listByWfInstanceId(@Param("wfInstanceId") long wfInstanceId, @Param("appId") long appId, @Param("cursor") long cursor, Pageable pageable);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.instanceId = :instanceId and i.appId = :appId")
+    List<InstanceListInfo> listByInstanceId(@Param("instanceId") long instanceId, @Param("appId") long appId);
+
+    @Override
+    @Query(value = "select new tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo(i.id,i.jobId,i.instanceId,i.wfInstanceId,i.status,i.taskTrackerAddress,i.runningTimes,i.actualTriggerTime,i.finishedTime) from InstanceInfoDO i where i.appId = :appId and i.type = :type and (:jobId is null or i.jobId = :jobId) and (:instanceId is null or i.instanceId = :instanceId) and (:wfInstanceId is null or i.wfInstanceId = :wfInstanceId) and (:status is null or i.status = :status)",
+            countQuery = "select count(i.id) from InstanceInfoDO i where i.appId = :appId and i.type = :type and (:jobId is null or i.jobId = :jobId) and (:instanceId is null or i.instanceId = :instanceId) and (:wfInstanceId is null or i.wfInstanceId = :wfInstanceId) and (:status is null or i.status = :status)")
+    Page<InstanceListInfo> pageList(@Param("appId") long appId, @Param("type") int type, @Param("jobId") Long jobId, @Param("instanceId") Long instanceId, @Param("wfInstanceId") Long wfInstanceId, @Param("status") Integer status, Pageable pageable);
+
     /* --数据统计-- */
 
     @Query(value = "select count(*) from InstanceInfoDO where appId = ?1 and status = ?2")
@@ -129,6 +168,14 @@ public interface InstanceInfoRepository extends JpaRepository<InstanceInfoDO, Lo
 
     long countByAppIdAndStatusAndGmtCreateAfter(long appId, int status, Date time);
 
+    /**
+     * 按创建时间（小时）分组统计实例数量
+     * @return [年, 月, 日, 时, 数量]
+     */
+    @Query(value = "select year(o.gmtCreate), month(o.gmtCreate), day(o.gmtCreate), hour(o.gmtCreate), count(o.id) from InstanceInfoDO o where o.appId = ?1 and o.status = ?2 and o.gmtCreate >= ?3 " +
+            "group by year(o.gmtCreate), month(o.gmtCreate), day(o.gmtCreate), hour(o.gmtCreate)")
+    List<Object[]> countGroupByCreateHour(long appId, int status, Date time);
+
     @Query(value = "select distinct jobId from InstanceInfoDO where jobId in ?1 and status in ?2")
     List<Long> findByJobIdInAndStatusIn(List<Long> jobIds, List<Integer> status);
 
@@ -144,4 +191,41 @@ public interface InstanceInfoRepository extends JpaRepository<InstanceInfoDO, Lo
     @Transactional(rollbackOn = Exception.class)
     @Query(value = "delete from InstanceInfoDO where gmtModified < ?1 and status in ?2")
     int deleteAllByGmtModifiedBeforeAndStatusIn(Date time, List<Integer> status);
+
+    /* --冷热分离：已结束的实例迁移至归档表-- */
+
+    @Query(value = "select o.id from InstanceInfoDO o where o.id > :startId and o.status in :status and o.gmtModified < :time order by o.id")
+    List<Long> findIdsToArchive(@Param("startId") long startId, @Param("status") List<Integer> status, @Param("time") Date time, Pageable pageable);
+
+    /**
+     * 删除已归档的记录，带状态与修改时间条件，归档期间发生变更（如重试）的记录不会被删除
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @CanIgnoreReturnValue
+    @Query(value = "delete from InstanceInfoDO where id in :ids and status in :status and gmtModified < :time")
+    int deleteArchived(@Param("ids") List<Long> ids, @Param("status") List<Integer> status, @Param("time") Date time);
+
+    @Query(value = "select min(o.id) from InstanceInfoDO o")
+    Long findMinId();
+
+    /**
+     * 查询创建时间早于阈值的最大 ID，ID 自增且修改时间不早于创建时间，可作为按更新时间清理的 ID 上界
+     */
+    @Query(value = "select max(o.id) from InstanceInfoDO o where o.gmtCreate < :time")
+    Long findMaxIdByGmtCreateBefore(@Param("time") Date time);
+
+    /**
+     * 在主键区间 (startId, endId] 内删除历史数据，每次只锁定有限的行
+     *
+     * @param startId 起始 ID（不包含）
+     * @param endId   结束 ID（包含）
+     * @param time    更新时间阈值
+     * @param status  状态列表
+     * @return 删除记录数
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "delete from InstanceInfoDO where id > :startId and id <= :endId and gmtModified < :time and status in :status")
+    int deleteByIdRange(@Param("startId") long startId, @Param("endId") long endId, @Param("time") Date time, @Param("status") List<Integer> status);
 }
@@ -0,0 +1,33 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+
+import java.util.List;
+
+/**
+ * 任务实例列表查询，只查询列表展示需要的字段，活跃表与归档表共用
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+public interface InstanceListQuery {
+
+    List<InstanceListInfo> listByAppId(long appId, int type, long cursor, Pageable pageable);
+
+    List<InstanceListInfo> listByAppIdAndStatus(long appId, int status, int type, long cursor, Pageable pageable);
+
+    List<InstanceListInfo> listByJobId(long jobId, long appId, int type, long cursor, Pageable pageable);
+
+    List<InstanceListInfo> listByJobIdAndStatus(long jobId, int status, long appId, int type, long cursor, Pageable pageable);
+
+    List<InstanceListInfo> listByWfInstanceId(long wfInstanceId, long appId, long cursor, Pageable pageable);
+
+    List<InstanceListInfo> listByInstanceId(long instanceId, long appId);
+
+    /**
+     * 偏移分页查询（控制台列表），为 null 的条件不参与过滤，归档表的实现需要排除活跃表中已存在的实例
+     */
+    Page<InstanceListInfo> pageList(long appId, int type, Long jobId, Long instanceId, Long wfInstanceId, Integer status, Pageable pageable);
+}
@@ -0,0 +1,50 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tech.powerjob.server.persistence.remote.model.OmsLeaseLockDO;
+
+import javax.transaction.Transactional;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * 租约锁数据访问层，所有写操作均为基于 fencingToken 的单行 CAS
+ *
+ * @author tjq
+ * @since 2024/3/4
+ */
+public interface OmsLeaseLockRepository extends JpaRepository<OmsLeaseLockDO, Long> {
+
+    Optional<OmsLeaseLockDO> findByPartitionIdAndLockName(int partitionId, String lockName);
+
+    /**
+     * 抢占已过期（或已释放）的锁
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "update OmsLeaseLockDO set ownerToken = :ownerToken, fencingToken = :newFencingToken, leaseExpireTime = :leaseExpireTime, gmtModified = :modifyTime " +
+            "where partitionId = :partitionId and lockName = :lockName and fencingToken = :expectFencingToken")
+    int acquire(@Param("partitionId") int partitionId, @Param("lockName") String lockName, @Param("expectFencingToken") long expectFencingToken,
+                @Param("newFencingToken") long newFencingToken, @Param("ownerToken") String ownerToken, @Param("leaseExpireTime") long leaseExpireTime, @Param("modifyTime") Date modifyTime);
+
+    /**
+     * 续约 / 释放（leaseExpireTime = 0），仅当前持有者可操作
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "update OmsLeaseLockDO set leaseExpireTime = :leaseExpireTime, gmtModified = :modifyTime " +
+            "where partitionId = :partitionId and lockName = :lockName and ownerToken = :ownerToken and fencingToken = :fencingToken")
+    int updateLease(@Param("partitionId") int partitionId, @Param("lockName") String lockName, @Param("ownerToken") String ownerToken,
+                    @Param("fencingToken") long fencingToken, @Param("leaseExpireTime") long leaseExpireTime, @Param("modifyTime") Date modifyTime);
+
+    /**
+     * 释放某个持有者的全部锁（停机时使用）
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "update OmsLeaseLockDO set leaseExpireTime = 0, gmtModified = :modifyTime where ownerToken = :ownerToken")
+    int releaseAllByOwnerToken(@Param("ownerToken") String ownerToken, @Param("modifyTime") Date modifyTime);
+}
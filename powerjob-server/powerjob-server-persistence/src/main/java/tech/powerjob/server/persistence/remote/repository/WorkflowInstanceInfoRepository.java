@@ -4,6 +4,7 @@ import tech.powerjob.server.persistence.remote.model.WorkflowInstanceInfoDO;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import javax.transaction.Transactional;
 import java.util.Date;
@@ -37,6 +38,29 @@ public interface WorkflowInstanceInfoRepository extends JpaRepository<WorkflowIn
     @Query(value = "delete from WorkflowInstanceInfoDO where gmtModified < ?1 and status in ?2")
     int deleteAllByGmtModifiedBeforeAndStatusIn(Date time, List<Integer> status);
 
+    @Query(value = "select min(o.id) from WorkflowInstanceInfoDO o")
+    Long findMinId();
+
+    /**
+     * 查询创建时间早于阈值的最大 ID，ID 自增且修改时间不早于创建时间，可作为按更新时间清理的 ID 上界
+     */
+    @Query(value = "select max(o.id) from WorkflowInstanceInfoDO o where o.gmtCreate < :time")
+    Long findMaxIdByGmtCreateBefore(@Param("time") Date time);
+
+    /**
+     * 在主键区间 (startId, endId] 内删除历史数据，每次只锁定有限的行
+     *
+     * @param startId 起始 ID（不包含）
+     * @param endId   结束 ID（包含）
+     * @param time    更新时间阈值
+     * @param status  状态列表
+     * @return 删除记录数
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(value = "delete from WorkflowInstanceInfoDO where id > :startId and id <= :endId and gmtModified < :time and status in :status")
+    int deleteByIdRange(@Param("startId") long startId, @Param("endId") long endId, @Param("time") Date time, @Param("status") List<Integer> status);
+
     /**
      * 统计该工作流下处于对应状态的实例数量
      * @param workflowId 工作流 ID
@@ -0,0 +1,124 @@
+package tech.powerjob.server.persistence.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按块读取文件指定范围的输入流，每次只向存储系统请求一块数据，读取大文件或读取到文件末尾时内存占用与文件大小无关
+ * 适用于只支持范围查询、无法真正流式读取的存储（如数据库 BLOB）
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+public class ChunkedRangeInputStream extends InputStream {
+
+    private final RangeReader reader;
+
+    private final int chunkSize;
+
+    /**
+     * 下一块数据在文件中的起始位置
+     */
+    private long position;
+    /**
+     * 剩余需要读取的长度，小于 0 代表读取到文件末尾
+     */
+    private long remaining;
+
+    private byte[] chunk = new byte[0];
+    private int chunkPos;
+    private boolean eof;
+
+    private ChunkedRangeInputStream(RangeReader reader, long offset, long length, int chunkSize) {
+        this.reader = reader;
+        this.position = offset;
+        this.remaining = length;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 打开输入流，立即读取第一块数据
+     * @param reader 范围读取
+     * @param offset 起始位置
+     * @param length 最大读取长度，小于 0 代表读取到文件末尾
+     * @param chunkSize 每次读取的数据块大小
+     * @return 输入流
+     * @throws IOException 读取失败，文件不存在时抛出 {@link FileNotFoundException}
+     */
+    public static InputStream open(RangeReader reader, long offset, long length, int chunkSize) throws IOException {
+        ChunkedRangeInputStream is = new ChunkedRangeInputStream(reader, offset, length, chunkSize);
+        is.fill();
+        return is;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (chunkPos >= chunk.length && !fill()) {
+            return -1;
+        }
+        return chunk[chunkPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (chunkPos >= chunk.length && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - chunkPos);
+        System.arraycopy(chunk, chunkPos, b, off, n);
+        chunkPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - chunkPos;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof || remaining == 0) {
+            return false;
+        }
+        int n = remaining < 0 ? chunkSize : (int) Math.min(chunkSize, remaining);
+        byte[] data;
+        try {
+            data = reader.read(position, n);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (data == null) {
+            throw new FileNotFoundException("file not exists, position: " + position);
+        }
+        position += data.length;
+        if (remaining > 0) {
+            remaining -= data.length;
+        }
+        if (data.length < n) {
+            eof = true;
+        }
+        chunk = data;
+        chunkPos = 0;
+        return data.length > 0;
+    }
+
+    /**
+     * 范围读取
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        /**
+         * 读取文件的指定范围
+         * @param offset 起始位置
+         * @param length 最大读取长度（大于 0）
+         * @return 文件内容，到达文件末尾时长度小于 length，文件不存在时返回 null
+         * @throws Exception 异常
+         */
+        byte[] read(long offset, int length) throws Exception;
+    }
+}
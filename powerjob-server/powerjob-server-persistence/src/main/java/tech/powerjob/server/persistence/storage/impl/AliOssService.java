@@ -7,6 +7,7 @@ import com.aliyun.oss.common.auth.CredentialsProvider;
 import com.aliyun.oss.common.auth.CredentialsProviderFactory;
 import com.aliyun.oss.common.auth.DefaultCredentialProvider;
 import com.aliyun.oss.model.DownloadFileRequest;
+import com.aliyun.oss.model.GetObjectRequest;
 import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PutObjectRequest;
 import com.google.common.collect.Lists;
@@ -25,7 +26,10 @@ import tech.powerjob.server.persistence.storage.AbstractDFsService;
 import tech.powerjob.server.common.spring.condition.PropertyAndOneBeanCondition;
 
 import javax.annotation.Priority;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -65,6 +69,8 @@ public class AliOssService extends AbstractDFsService {
 
     private static final String NO_SUCH_KEY = "NoSuchKey";
 
+    private static final String RANGE_BEHAVIOR_HEADER = "x-oss-range-behavior";
+
     @Override
     public void store(StoreRequest storeRequest) throws IOException {
 
@@ -74,6 +80,13 @@ public class AliOssService extends AbstractDFsService {
         oss.putObject(putObjectRequest);
     }
 
+    @Override
+    public void store(FileLocation fileLocation, InputStream inputStream, long length) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(length);
+        oss.putObject(new PutObjectRequest(bucket, parseFileName(fileLocation), inputStream, objectMetadata));
+    }
+
     @Override
     public void download(DownloadRequest downloadRequest) throws IOException {
 
@@ -87,6 +100,26 @@ public class AliOssService extends AbstractDFsService {
         }
     }
 
+    @Override
+    public InputStream openStream(FileLocation fileLocation, long offset, long length) throws IOException {
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucket, parseFileName(fileLocation));
+        // end 为 -1 代表读取到文件末尾
+        getObjectRequest.setRange(offset, length < 0 ? -1 : offset + length - 1);
+        // 默认行为下范围超出文件大小时会返回整个文件，标准行为下会截断到文件末尾
+        getObjectRequest.addHeader(RANGE_BEHAVIOR_HEADER, "standard");
+        try {
+            return oss.getObject(getObjectRequest).getObjectContent();
+        } catch (OSSException oe) {
+            if (NO_SUCH_KEY.equalsIgnoreCase(oe.getErrorCode())) {
+                throw new FileNotFoundException(fileLocation.toString());
+            }
+            throw oe;
+        }
+    }
+
     @Override
     public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) throws IOException {
         try {
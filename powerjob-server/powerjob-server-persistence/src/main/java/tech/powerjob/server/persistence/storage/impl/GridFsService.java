@@ -3,6 +3,8 @@ package tech.powerjob.server.persistence.storage.impl;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.mongodb.MongoGridFSException;
 import com.mongodb.ConnectionString;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
@@ -29,7 +31,9 @@ import tech.powerjob.server.common.spring.condition.PropertyAndOneBeanCondition;
 import javax.annotation.Priority;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.Date;
 import java.util.List;
@@ -59,12 +63,17 @@ public class GridFsService extends AbstractDFsService {
 
     @Override
     public void store(StoreRequest storeRequest) throws IOException {
-        GridFSBucket bucket = getBucket(storeRequest.getFileLocation().getBucket());
         try (BufferedInputStream bis = new BufferedInputStream(Files.newInputStream(storeRequest.getLocalFile().toPath()))) {
-            bucket.uploadFromStream(storeRequest.getFileLocation().getName(), bis);
+            store(storeRequest.getFileLocation(), bis, storeRequest.getLocalFile().length());
         }
     }
 
+    @Override
+    public void store(FileLocation fileLocation, InputStream inputStream, long length) {
+        GridFSBucket bucket = getBucket(fileLocation.getBucket());
+        bucket.uploadFromStream(fileLocation.getName(), inputStream);
+    }
+
     @Override
     public void download(DownloadRequest downloadRequest) throws IOException {
         GridFSBucket bucket = getBucket(downloadRequest.getFileLocation().getBucket());
@@ -81,6 +90,20 @@ public class GridFsService extends AbstractDFsService {
         }
     }
 
+    @Override
+    public InputStream openStream(FileLocation fileLocation, long offset, long length) throws IOException {
+        GridFSBucket bucket = getBucket(fileLocation.getBucket());
+        GridFSDownloadStream gis;
+        try {
+            gis = bucket.openDownloadStream(fileLocation.getName());
+        } catch (MongoGridFSException e) {
+            throw new FileNotFoundException(fileLocation.toString());
+        }
+        // GridFS 按 chunk 存储，skip 不会读取目标位置之前的 chunk
+        gis.skip(offset);
+        return length < 0 ? gis : ByteStreams.limit(gis, length);
+    }
+
     @Override
     public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) throws IOException {
         GridFSBucket bucket = getBucket(fileLocation.getBucket());
@@ -116,6 +139,26 @@ public class GridFsService extends AbstractDFsService {
         log.info("[GridFsService] clean bucket({}) successfully, delete all files before {}, using {}.", bucketName, date, sw.stop());
     }
 
+    @Override
+    public int cleanExpiredFiles(String bucketName, int days, int limit) {
+        Date date = DateUtils.addDays(new Date(), -days);
+        GridFSBucket bucket = getBucket(bucketName);
+        Bson filter = Filters.lt("uploadDate", date);
+
+        int num = 0;
+        for (GridFSFile gridFSFile : bucket.find(filter).limit(limit)) {
+            ObjectId objectId = gridFSFile.getObjectId();
+            try {
+                bucket.delete(objectId);
+                num++;
+            } catch (Exception e) {
+                log.error("[GridFsService] deleted {}#{} failed.", bucketName, objectId, e);
+            }
+        }
+        log.info("[GridFsService] clean bucket({}) in batch, delete {} files before {}.", bucketName, num, date);
+        return num;
+    }
+
     private GridFSBucket getBucket(String bucketName) {
         return bucketCache.computeIfAbsent(bucketName, ignore -> GridFSBuckets.create(db, bucketName));
     }
@@ -21,6 +21,10 @@ import tech.powerjob.server.extension.dfs.*;
 import tech.powerjob.server.persistence.storage.AbstractDFsService;
 
 import javax.annotation.Priority;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -65,6 +69,14 @@ public class MinioOssService extends AbstractDFsService {
         }
     }
 
+    @Override
+    public void store(FileLocation fileLocation, InputStream inputStream, long length) {
+        // 不指定长度时 SDK 会将整个流缓存在内存中
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(length);
+        amazonS3.putObject(new PutObjectRequest(this.bucket, parseFileName(fileLocation), inputStream, objectMetadata));
+    }
+
     @Override
     public void download(DownloadRequest downloadRequest) {
         try {
@@ -79,6 +91,27 @@ public class MinioOssService extends AbstractDFsService {
         }
     }
 
+    @Override
+    public InputStream openStream(FileLocation fileLocation, long offset, long length) throws IOException {
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(this.bucket, parseFileName(fileLocation));
+        if (length < 0) {
+            getObjectRequest.withRange(offset);
+        } else {
+            getObjectRequest.withRange(offset, offset + length - 1);
+        }
+        try {
+            return amazonS3.getObject(getObjectRequest).getObjectContent();
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                throw new FileNotFoundException(fileLocation.toString());
+            }
+            throw e;
+        }
+    }
+
     /**
      * 获取文件元
      *
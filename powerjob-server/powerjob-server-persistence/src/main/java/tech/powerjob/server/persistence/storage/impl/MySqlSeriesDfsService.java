@@ -21,11 +21,14 @@ import tech.powerjob.common.enums.SwitchableStatus;
 import tech.powerjob.server.common.spring.condition.PropertyAndOneBeanCondition;
 import tech.powerjob.server.extension.dfs.*;
 import tech.powerjob.server.persistence.storage.AbstractDFsService;
+import tech.powerjob.server.persistence.storage.ChunkedRangeInputStream;
 
 import javax.annotation.Priority;
 import javax.sql.DataSource;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.sql.*;
 import java.util.List;
@@ -109,6 +112,13 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
 
     private static final String QUERY_FULL_SQL = "select * from %s";
 
+    /**
+     * 范围读取时每次查询的数据块大小
+     */
+    private static final int READ_CHUNK_SIZE = 1024 * 1024;
+
+    private static final String QUERY_RANGE_SQL = "select substring(data, ?, ?) as data from %s";
+
     private static final String QUERY_META_SQL = "select bucket, name, version, meta, length, status, extra, gmt_create, gmt_modified from %s";
 
 
@@ -118,29 +128,43 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
         executeDelete(dSQL);
     }
 
-    private void executeDelete(String sql) {
+    private int executeDelete(String sql) {
         try (Connection con = dataSource.getConnection()) {
-            con.createStatement().executeUpdate(sql);
+            return con.createStatement().executeUpdate(sql);
         }  catch (Exception e) {
             log.error("[MySqlSeriesDfsService] executeDelete failed, sql: {}", sql);
         }
+        return 0;
     }
 
     @Override
     public void store(StoreRequest storeRequest) throws IOException {
 
-        Stopwatch sw = Stopwatch.createStarted();
-        String insertSQL = fullSQL(INSERT_SQL);
+        Map<String, Object> meta = Maps.newHashMap();
+        meta.put("_server_", serverInfo.getIp());
+        meta.put("_local_file_path_", storeRequest.getLocalFile().getAbsolutePath());
 
-        FileLocation fileLocation = storeRequest.getFileLocation();
+        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(storeRequest.getLocalFile().toPath()))) {
+            store0(storeRequest.getFileLocation(), bufferedInputStream, storeRequest.getLocalFile().length(), meta);
+        }
+    }
 
-        // 覆盖写，写之前先删除
-        deleteByLocation(fileLocation);
+    @Override
+    public void store(FileLocation fileLocation, InputStream inputStream, long length) {
 
         Map<String, Object> meta = Maps.newHashMap();
         meta.put("_server_", serverInfo.getIp());
-        meta.put("_local_file_path_", storeRequest.getLocalFile().getAbsolutePath());
-        BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(storeRequest.getLocalFile().toPath()));
+
+        store0(fileLocation, inputStream, length, meta);
+    }
+
+    private void store0(FileLocation fileLocation, InputStream inputStream, long length, Map<String, Object> meta) {
+
+        Stopwatch sw = Stopwatch.createStarted();
+        String insertSQL = fullSQL(INSERT_SQL);
+
+        // 覆盖写，写之前先删除
+        deleteByLocation(fileLocation);
 
         Date date = new Date(System.currentTimeMillis());
 
@@ -151,9 +175,9 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
             pst.setString(2, fileLocation.getName());
             pst.setString(3, "mu");
             pst.setString(4, JsonUtils.toJSONString(meta));
-            pst.setLong(5, storeRequest.getLocalFile().length());
+            pst.setLong(5, length);
             pst.setInt(6, SwitchableStatus.ENABLE.getV());
-            pst.setBlob(7, bufferedInputStream);
+            pst.setBlob(7, inputStream, length);
             pst.setString(8, null);
             pst.setDate(9, date);
             pst.setDate(10, date);
@@ -165,8 +189,6 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
         } catch (Exception e) {
             log.error("[MySqlSeriesDfsService] store [{}] failed!", fileLocation);
             ExceptionUtils.rethrow(e);
-        }finally {
-            bufferedInputStream.close();
         }
     }
 
@@ -203,6 +225,38 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
 
     }
 
+    @Override
+    public InputStream openStream(FileLocation fileLocation, long offset, long length) throws Exception {
+
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        // 按块读取，读取到文件末尾或读取大范围时不会将整个文件读入内存
+        return ChunkedRangeInputStream.open((pos, len) -> readRange(fileLocation, pos, len), offset, length, READ_CHUNK_SIZE);
+    }
+
+    private byte[] readRange(FileLocation fileLocation, long offset, int length) throws SQLException {
+
+        String querySQL = fullSQL(QUERY_RANGE_SQL);
+
+        // 数据库驱动默认会将整个结果集读入内存，因此每次只查询一块数据，无需占用连接
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pst = con.prepareStatement(querySQL.concat(whereSQL(fileLocation)))) {
+
+            // 数据库中的下标从 1 开始
+            pst.setLong(1, offset + 1);
+            pst.setLong(2, length);
+
+            try (ResultSet resultSet = pst.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                byte[] data = resultSet.getBytes("data");
+                return data == null ? new byte[0] : data;
+            }
+        }
+    }
+
     @Override
     public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) throws IOException {
 
@@ -246,6 +300,18 @@ public class MySqlSeriesDfsService extends AbstractDFsService {
         executeDelete(fSQL);
     }
 
+    @Override
+    public int cleanExpiredFiles(String bucket, int days, int limit) {
+        String dSQLPrefix = fullSQL(DELETE_SQL);
+        final long targetTs = DateUtils.addDays(new Date(System.currentTimeMillis()), -days).getTime();
+        final String targetDeleteTime = CommonUtils.formatTime(targetTs);
+        // 按 bucket 分批删除，避免单条 DELETE 长时间锁表
+        String fSQL = dSQLPrefix.concat(String.format(" where bucket='%s' AND gmt_modified < '%s' limit %d", bucket, targetDeleteTime, limit));
+        int num = executeDelete(fSQL);
+        log.info("[MySqlSeriesDfsService] cleanExpiredFiles in batch, bucket: {}, targetDeleteTime: {}, deleted: {}", bucket, targetDeleteTime, num);
+        return num;
+    }
+
     @Override
     protected void init(ApplicationContext applicationContext) {
 
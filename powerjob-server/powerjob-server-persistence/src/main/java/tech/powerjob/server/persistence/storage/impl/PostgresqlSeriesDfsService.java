@@ -21,13 +21,15 @@ import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.server.common.spring.condition.PropertyAndOneBeanCondition;
 import tech.powerjob.server.extension.dfs.*;
 import tech.powerjob.server.persistence.storage.AbstractDFsService;
+import tech.powerjob.server.persistence.storage.ChunkedRangeInputStream;
 
 import javax.annotation.Priority;
 import javax.sql.DataSource;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.sql.*;
 import java.util.List;
@@ -111,6 +113,13 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
 
     private static final String QUERY_FULL_SQL = "select * from %s";
 
+    /**
+     * 范围读取时每次查询的数据块大小
+     */
+    private static final int READ_CHUNK_SIZE = 1024 * 1024;
+
+    private static final String QUERY_RANGE_SQL = "select substring(data from ? for ?) as data from %s";
+
     private static final String QUERY_META_SQL = "select bucket, name, version, meta, length, status, extra, gmt_create, gmt_modified from %s";
 
 
@@ -120,29 +129,43 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
         executeDelete(dSQL);
     }
 
-    private void executeDelete(String sql) {
+    private int executeDelete(String sql) {
         try (Connection con = dataSource.getConnection()) {
-            con.createStatement().executeUpdate(sql);
+            return con.createStatement().executeUpdate(sql);
         }  catch (Exception e) {
             log.error("[PostgresqlSeriesDfsService] executeDelete failed, sql: {}", sql);
         }
+        return 0;
     }
 
     @Override
     public void store(StoreRequest storeRequest) throws IOException, SQLException {
 
-        Stopwatch sw = Stopwatch.createStarted();
-        String insertSQL = fullSQL(INSERT_SQL);
+        Map<String, Object> meta = Maps.newHashMap();
+        meta.put("_server_", serverInfo.getIp());
+        meta.put("_local_file_path_", storeRequest.getLocalFile().getAbsolutePath());
 
-        FileLocation fileLocation = storeRequest.getFileLocation();
+        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(storeRequest.getLocalFile().toPath()))) {
+            store0(storeRequest.getFileLocation(), bufferedInputStream, storeRequest.getLocalFile().length(), meta);
+        }
+    }
 
-        // 覆盖写，写之前先删除
-        deleteByLocation(fileLocation);
+    @Override
+    public void store(FileLocation fileLocation, InputStream inputStream, long length) throws SQLException {
 
         Map<String, Object> meta = Maps.newHashMap();
         meta.put("_server_", serverInfo.getIp());
-        meta.put("_local_file_path_", storeRequest.getLocalFile().getAbsolutePath());
-        BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(storeRequest.getLocalFile().toPath()));
+
+        store0(fileLocation, inputStream, length, meta);
+    }
+
+    private void store0(FileLocation fileLocation, InputStream inputStream, long length, Map<String, Object> meta) throws SQLException {
+
+        Stopwatch sw = Stopwatch.createStarted();
+        String insertSQL = fullSQL(INSERT_SQL);
+
+        // 覆盖写，写之前先删除
+        deleteByLocation(fileLocation);
 
         Date date = new Date(System.currentTimeMillis());
 
@@ -159,11 +182,12 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
             pst.setString(2, fileLocation.getName());
             pst.setString(3, "mu");
             pst.setString(4, JsonUtils.toJSONString(meta));
-            pst.setLong(5, storeRequest.getLocalFile().length());
+            pst.setLong(5, length);
             pst.setInt(6, SwitchableStatus.ENABLE.getV());
             //PreparedStatement类并没有提供setBlob方法来直接设置BYTEA类型字段，因为PostgreSQL不支持JDBC中的java.sql.Blob接口
 //            pst.setBlob(7, bufferedInputStream);org.postgresql.util.PSQLException: ERROR: column "data" is of type bytea but expression is of type bigint
-            pst.setBytes(7, bufferedInputStreamToByteArray(bufferedInputStream));
+            // bytea 使用 setBinaryStream 直接从流中读取，无需先读入字节数组
+            pst.setBinaryStream(7, inputStream, length);
             pst.setString(8, null);
             pst.setDate(9, date);
             pst.setDate(10, date);
@@ -187,32 +211,7 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
             if(null != pst){
                 pst.close();
             }
-            bufferedInputStream.close();
-        }
-    }
-
-    /**
-     * 上面已经有异常处理，这里直接往上抛
-     * @param bis
-     * @return
-     * @throws IOException
-     */
-    public static byte[] bufferedInputStreamToByteArray(BufferedInputStream bis) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        if(null == bis ){
-            return null;
         }
-        // 创建缓冲区
-        byte[] buffer = new byte[1024];
-        int read;
-        // 读取流中的数据并写入到ByteArrayOutputStream
-        while ((read = bis.read(buffer)) != -1) {
-            baos.write(buffer, 0, read);
-        }
-        // 关闭输入流
-        bis.close();
-        // 转换为字节数组并返回
-        return baos.toByteArray();
     }
 
     @Override
@@ -257,6 +256,38 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
 
     }
 
+    @Override
+    public InputStream openStream(FileLocation fileLocation, long offset, long length) throws Exception {
+
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        // 按块读取，读取到文件末尾或读取大范围时不会将整个文件读入内存
+        return ChunkedRangeInputStream.open((pos, len) -> readRange(fileLocation, pos, len), offset, length, READ_CHUNK_SIZE);
+    }
+
+    private byte[] readRange(FileLocation fileLocation, long offset, int length) throws SQLException {
+
+        String querySQL = fullSQL(QUERY_RANGE_SQL);
+
+        // 数据库驱动默认会将整个结果集读入内存，因此每次只查询一块数据，无需占用连接
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pst = con.prepareStatement(querySQL.concat(whereSQL(fileLocation)))) {
+
+            // 数据库中的下标从 1 开始，bytea 的 substring 只接受 int 参数
+            pst.setInt(1, Math.toIntExact(offset + 1));
+            pst.setInt(2, length);
+
+            try (ResultSet resultSet = pst.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                byte[] data = resultSet.getBytes("data");
+                return data == null ? new byte[0] : data;
+            }
+        }
+    }
+
     @Override
     public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) {
 
@@ -300,6 +331,18 @@ public class PostgresqlSeriesDfsService extends AbstractDFsService {
         executeDelete(fSQL);
     }
 
+    @Override
+    public int cleanExpiredFiles(String bucket, int days, int limit) {
+        String dSQLPrefix = fullSQL(DELETE_SQL);
+        final long targetTs = DateUtils.addDays(new Date(System.currentTimeMillis()), -days).getTime();
+        final String targetDeleteTime = CommonUtils.formatTime(targetTs);
+        // 按 bucket 分批删除，避免单条 DELETE 长时间锁表
+        String fSQL = dSQLPrefix.concat(String.format(" where id in (select id from %s where bucket='%s' AND gmt_modified < '%s' limit %d)", parseTableName(), bucket, targetDeleteTime, limit));
+        int num = executeDelete(fSQL);
+        log.info("[PostgresqlSeriesDfsService] cleanExpiredFiles in batch, bucket: {}, targetDeleteTime: {}, deleted: {}", bucket, targetDeleteTime, num);
+        return num;
+    }
+
     @Override
     protected void init(ApplicationContext applicationContext) {
 
@@ -0,0 +1,65 @@
+package tech.powerjob.server.persistence.storage;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按块范围读取测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class ChunkedRangeInputStreamTest {
+
+    private static final byte[] DATA = new byte[1000];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) i;
+        }
+    }
+
+    private final AtomicInteger readTimes = new AtomicInteger();
+
+    @Test
+    void testReadToEnd() throws Exception {
+        try (InputStream is = ChunkedRangeInputStream.open(this::read, 100, -1, 64)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(DATA, 100, DATA.length), ByteStreams.toByteArray(is));
+        }
+        // 每次只读取一块，最后一块不足时结束
+        Assertions.assertEquals(15, readTimes.get());
+    }
+
+    @Test
+    void testReadRange() throws Exception {
+        try (InputStream is = ChunkedRangeInputStream.open(this::read, 10, 200, 64)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(DATA, 10, 210), ByteStreams.toByteArray(is));
+        }
+        Assertions.assertEquals(4, readTimes.get());
+
+        // 超出文件末尾
+        try (InputStream is = ChunkedRangeInputStream.open(this::read, 990, 100, 64)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(DATA, 990, 1000), ByteStreams.toByteArray(is));
+        }
+        try (InputStream is = ChunkedRangeInputStream.open(this::read, 2000, -1, 64)) {
+            Assertions.assertEquals(-1, is.read());
+        }
+    }
+
+    @Test
+    void testFileNotFound() {
+        Assertions.assertThrows(FileNotFoundException.class, () -> ChunkedRangeInputStream.open((offset, length) -> null, 0, -1, 64));
+    }
+
+    private byte[] read(long offset, int length) {
+        readTimes.incrementAndGet();
+        int from = (int) Math.min(offset, DATA.length);
+        return Arrays.copyOfRange(DATA, from, (int) Math.min(DATA.length, offset + length));
+    }
+}
@@ -1,14 +1,20 @@
 package tech.powerjob.server.persistence.storage.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import com.google.common.io.ByteStreams;
 import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.common.serialize.JsonUtils;
 import tech.powerjob.server.common.utils.OmsFileUtils;
 import tech.powerjob.server.extension.dfs.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -85,4 +91,56 @@ public abstract class AbstractDfsServiceTest {
         Optional<FileMeta> metaOpt = aliOssServiceOpt.get().fetchFileMeta(new FileLocation().setBucket("tjq").setName("yhz"));
         assert !metaOpt.isPresent();
     }
+
+    @Test
+    void testStreamStoreAndRangedRead() throws Exception {
+        Optional<DFsService> serviceOpt = fetchService();
+        if (!serviceOpt.isPresent()) {
+            return;
+        }
+        DFsService dFsService = serviceOpt.get();
+
+        byte[] content = new byte[300 * 1024 + 17];
+        ThreadLocalRandom.current().nextBytes(content);
+        FileLocation fileLocation = new FileLocation().setBucket(BUCKET).setName(String.format("test_stream_%d.bin", ThreadLocalRandom.current().nextLong()));
+
+        // 流式存储
+        dFsService.store(fileLocation, new ByteArrayInputStream(content), content.length);
+        Optional<FileMeta> metaOpt = dFsService.fetchFileMeta(fileLocation);
+        Assertions.assertTrue(metaOpt.isPresent());
+        Assertions.assertEquals(content.length, metaOpt.get().getLength());
+
+        // 完整读取
+        try (InputStream is = dFsService.openStream(fileLocation, 0, -1)) {
+            Assertions.assertArrayEquals(content, ByteStreams.toByteArray(is));
+        }
+        // 范围读取
+        try (InputStream is = dFsService.openStream(fileLocation, 100 * 1024 + 3, 64 * 1024)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(content, 100 * 1024 + 3, 164 * 1024 + 3), ByteStreams.toByteArray(is));
+        }
+        // 从指定位置读取到文件末尾
+        try (InputStream is = dFsService.openStream(fileLocation, 200 * 1024, -1)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(content, 200 * 1024, content.length), ByteStreams.toByteArray(is));
+        }
+        // 范围超出文件末尾时截断
+        Assertions.assertArrayEquals(Arrays.copyOfRange(content, content.length - 10, content.length), dFsService.read(fileLocation, content.length - 10, 1024));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(content, 0, 17), dFsService.read(fileLocation, 0, 17));
+        Assertions.assertEquals(0, dFsService.read(fileLocation, 5, 0).length);
+
+        // 覆盖写
+        byte[] newContent = "powerjob".getBytes(StandardCharsets.UTF_8);
+        dFsService.store(fileLocation, new ByteArrayInputStream(newContent), newContent.length);
+        Assertions.assertArrayEquals(newContent, dFsService.read(fileLocation, 0, 1024));
+    }
+
+    @Test
+    void testOpenStreamNotExist() throws Exception {
+        Optional<DFsService> serviceOpt = fetchService();
+        if (!serviceOpt.isPresent()) {
+            return;
+        }
+        FileLocation fileLocation = new FileLocation().setBucket(BUCKET).setName(String.format("not_exist_%d", ThreadLocalRandom.current().nextLong()));
+        Assertions.assertThrows(FileNotFoundException.class, () -> serviceOpt.get().openStream(fileLocation, 0, -1).close());
+        Assertions.assertThrows(FileNotFoundException.class, () -> serviceOpt.get().read(fileLocation, 0, 10));
+    }
 }
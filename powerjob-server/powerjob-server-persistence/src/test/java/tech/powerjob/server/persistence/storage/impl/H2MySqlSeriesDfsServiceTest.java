@@ -0,0 +1,41 @@
+package tech.powerjob.server.persistence.storage.impl;
+
+import tech.powerjob.server.common.module.ServerInfo;
+import tech.powerjob.server.extension.dfs.DFsService;
+
+import java.util.Optional;
+
+/**
+ * 使用 H2（MySQL 模式）代替 MySQL 测试 MySqlSeriesDfsService
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class H2MySqlSeriesDfsServiceTest extends AbstractDfsServiceTest {
+
+    private static MySqlSeriesDfsService mySqlSeriesDfsService;
+
+    @Override
+    protected synchronized Optional<DFsService> fetchService() {
+        if (mySqlSeriesDfsService == null) {
+            MySqlSeriesDfsService service = new MySqlSeriesDfsService();
+            MySqlSeriesDfsService.MySQLProperty mySQLProperty = new MySqlSeriesDfsService.MySQLProperty()
+                    .setDriver("org.h2.Driver")
+                    .setUrl("jdbc:h2:mem:pj_dfs_mysql;MODE=MySQL;DB_CLOSE_DELAY=-1")
+                    .setUsername("sa")
+                    .setPassword("")
+                    .setAutoCreateTable(true);
+            try {
+                service.initDatabase(mySQLProperty);
+                service.initTable(mySQLProperty);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            ServerInfo serverInfo = new ServerInfo();
+            serverInfo.setIp("127.0.0.1");
+            service.setServerInfo(serverInfo);
+            mySqlSeriesDfsService = service;
+        }
+        return Optional.of(mySqlSeriesDfsService);
+    }
+}
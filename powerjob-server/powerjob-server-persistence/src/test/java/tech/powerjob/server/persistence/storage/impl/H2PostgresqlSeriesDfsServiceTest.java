@@ -0,0 +1,41 @@
+package tech.powerjob.server.persistence.storage.impl;
+
+import tech.powerjob.server.common.module.ServerInfo;
+import tech.powerjob.server.extension.dfs.DFsService;
+
+import java.util.Optional;
+
+/**
+ * 使用 H2（PostgreSQL 模式）代替 PostgreSQL 测试 PostgresqlSeriesDfsService
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class H2PostgresqlSeriesDfsServiceTest extends AbstractDfsServiceTest {
+
+    private static PostgresqlSeriesDfsService postgresqlSeriesDfsService;
+
+    @Override
+    protected synchronized Optional<DFsService> fetchService() {
+        if (postgresqlSeriesDfsService == null) {
+            PostgresqlSeriesDfsService service = new PostgresqlSeriesDfsService();
+            PostgresqlSeriesDfsService.PostgresqlProperty postgresqlProperty = new PostgresqlSeriesDfsService.PostgresqlProperty()
+                    .setDriver("org.h2.Driver")
+                    .setUrl("jdbc:h2:mem:pj_dfs_pg;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+                    .setUsername("sa")
+                    .setPassword("")
+                    .setAutoCreateTable(true);
+            try {
+                service.initDatabase(postgresqlProperty);
+                service.initTable(postgresqlProperty);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            ServerInfo serverInfo = new ServerInfo();
+            serverInfo.setIp("127.0.0.1");
+            service.setServerInfo(serverInfo);
+            postgresqlSeriesDfsService = service;
+        }
+        return Optional.of(postgresqlSeriesDfsService);
+    }
+}
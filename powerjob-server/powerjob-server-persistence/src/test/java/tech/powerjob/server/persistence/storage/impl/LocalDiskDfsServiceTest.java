@@ -0,0 +1,56 @@
+package tech.powerjob.server.persistence.storage.impl;
+
+import org.apache.commons.io.FileUtils;
+import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.extension.dfs.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * 只实现了基础方法的本地磁盘存储，用于校验 DFsService 中流式读写、范围读取的默认实现
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class LocalDiskDfsServiceTest extends AbstractDfsServiceTest {
+
+    @Override
+    protected Optional<DFsService> fetchService() {
+        return Optional.of(new LocalDiskDFsService(new File(OmsFileUtils.genTemporaryWorkPath() + "local_dfs")));
+    }
+
+    private static class LocalDiskDFsService implements DFsService {
+
+        private final File baseDir;
+
+        LocalDiskDFsService(File baseDir) {
+            this.baseDir = baseDir;
+        }
+
+        @Override
+        public void store(StoreRequest storeRequest) throws IOException {
+            FileUtils.copyFile(storeRequest.getLocalFile(), locate(storeRequest.getFileLocation()));
+        }
+
+        @Override
+        public void download(DownloadRequest downloadRequest) throws IOException {
+            FileUtils.copyFile(locate(downloadRequest.getFileLocation()), downloadRequest.getTarget());
+        }
+
+        @Override
+        public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) {
+            File file = locate(fileLocation);
+            if (!file.exists()) {
+                return Optional.empty();
+            }
+            return Optional.of(new FileMeta().setLength(file.length()).setLastModifiedTime(new Date(file.lastModified())));
+        }
+
+        private File locate(FileLocation fileLocation) {
+            return new File(new File(baseDir, fileLocation.getBucket()), fileLocation.getName());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package tech.powerjob.server.remote.server.election;
 
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tech.powerjob.common.exception.PowerJobException;
@@ -19,14 +21,21 @@ import tech.powerjob.server.remote.transporter.TransportService;
 import tech.powerjob.server.remote.transporter.impl.ServerURLFactory;
 
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
 
 /**
  * Default server election policy, first-come, first-served, no load balancing capability
+ * 选举结果以租约（lease）的形式缓存在每台 server 的内存中（按 oms.accurate.select.server.percentage 比例抽中的精确选举只跳过"当前 server 是本机"的快速判断，同样以租约为准）：
+ * 1. 租约有效期内直接返回缓存的 server 地址（非 owner 收到的请求同样直接重定向），不查询数据库也不发送 PING
+ * 2. 租约临近过期时，由单个请求负责续约（查库 + PING owner），其余请求继续使用旧租约
+ * 3. 租约不存在或已过期时，同一个 app 的选举串行进行，server 重启后的 worker 重连风暴只产生 O(app) 次 PING
  *
  * @author tjq
  * @since 2021/2/9
@@ -43,33 +52,96 @@ public class ServerElectionService {
 
     private final int accurateSelectServerPercentage;
 
+    /**
+     * 租约有效期
+     */
+    private final long leaseMs;
+    /**
+     * 剩余有效期小于该值时续约
+     */
+    private final long renewBeforeMs;
+
+    private final LongSupplier clock;
+
+    /**
+     * appId -> 租约
+     */
+    private final Map<Long, Lease> leases = Maps.newConcurrentMap();
+    /**
+     * appId -> 本机选举锁，保证同一个 app 同时只有一个请求进行选举
+     */
+    private final Map<Long, Object> electLocks = Maps.newConcurrentMap();
+
     private static final int RETRY_TIMES = 10;
     private static final long PING_TIMEOUT_MS = 1000;
     private static final String SERVER_ELECT_LOCK = "server_elect_%d";
 
-    public ServerElectionService(LockService lockService, TransportService transportService, AppInfoRepository appInfoRepository,@Value("${oms.accurate.select.server.percentage}") int accurateSelectServerPercentage) {
+    @Autowired
+    public ServerElectionService(LockService lockService, TransportService transportService, AppInfoRepository appInfoRepository,
+                                 @Value("${oms.accurate.select.server.percentage}") int accurateSelectServerPercentage,
+                                 @Value("${oms.server.election.lease-ms:30000}") long leaseMs) {
+        this(lockService, transportService, appInfoRepository, accurateSelectServerPercentage, leaseMs, System::currentTimeMillis);
+    }
+
+    public ServerElectionService(LockService lockService, TransportService transportService, AppInfoRepository appInfoRepository,
+                                 int accurateSelectServerPercentage, long leaseMs, LongSupplier clock) {
         this.lockService = lockService;
         this.transportService = transportService;
         this.appInfoRepository = appInfoRepository;
         this.accurateSelectServerPercentage = accurateSelectServerPercentage;
+        this.leaseMs = leaseMs;
+        this.renewBeforeMs = leaseMs / 3;
+        this.clock = clock;
     }
 
     public String elect(ServerDiscoveryRequest request) {
-        if (!accurate()) {
-            final String currentServer = request.getCurrentServer();
-            // 如果是本机，就不需要查数据库那么复杂的操作了，直接返回成功
-            Optional<ProtocolInfo> localProtocolInfoOpt = Optional.ofNullable(transportService.allProtocols().get(request.getProtocol()));
-            if (localProtocolInfoOpt.isPresent()) {
-                if (localProtocolInfoOpt.get().getExternalAddress().equals(currentServer) || localProtocolInfoOpt.get().getAddress().equals(currentServer)) {
-                    log.info("[ServerElection] this server[{}] is worker[appId={}]'s current server, skip check", currentServer, request.getAppId());
-                    return currentServer;
+        final String currentServer = request.getCurrentServer();
+        // 如果是本机，就不需要查数据库那么复杂的操作了，直接返回成功（精确选举不信任 worker 上报的地址，以租约为准）
+        Optional<ProtocolInfo> localProtocolInfoOpt = Optional.ofNullable(transportService.allProtocols().get(request.getProtocol()));
+        if (localProtocolInfoOpt.isPresent() && !accurate()) {
+            if (localProtocolInfoOpt.get().getExternalAddress().equals(currentServer) || localProtocolInfoOpt.get().getAddress().equals(currentServer)) {
+                log.info("[ServerElection] this server[{}] is worker[appId={}]'s current server, skip check", currentServer, request.getAppId());
+                return currentServer;
+            }
+        }
+
+        final Long appId = request.getAppId();
+        final String protocol = request.getProtocol();
+
+        Lease lease = leases.get(appId);
+        String address = lease == null ? null : lease.address(protocol, clock.getAsLong());
+        if (address != null) {
+            // 临近过期，由抢到续约权的请求负责续约，其余请求直接使用当前租约
+            if (lease.expireAt - clock.getAsLong() <= renewBeforeMs && lease.renewing.compareAndSet(false, true)) {
+                try {
+                    return elect0(request);
+                } catch (Exception e) {
+                    log.warn("[ServerElection] renew lease for app(appId={}) failed, keep using the current lease.", appId, e);
+                } finally {
+                    lease.renewing.set(false);
                 }
             }
+            return address;
         }
-        return getServer0(request);
+
+        synchronized (electLocks.computeIfAbsent(appId, ignore -> new Object())) {
+            // 等待期间其他请求可能已经完成选举
+            lease = leases.get(appId);
+            address = lease == null ? null : lease.address(protocol, clock.getAsLong());
+            if (address != null) {
+                return address;
+            }
+            return elect0(request);
+        }
+    }
+
+    private String elect0(ServerDiscoveryRequest request) {
+        Lease lease = getServer0(request);
+        leases.put(request.getAppId(), lease);
+        return lease.protocol2Address.get(request.getProtocol());
     }
 
-    private String getServer0(ServerDiscoveryRequest discoveryRequest) {
+    private Lease getServer0(ServerDiscoveryRequest discoveryRequest) {
 
         final Long appId = discoveryRequest.getAppId();
         final String protocol = discoveryRequest.getProtocol();
@@ -84,9 +156,9 @@ public class ServerElectionService {
             }
             String appName = appInfoOpt.get().getAppName();
             String originServer = appInfoOpt.get().getCurrentServer();
-            String activeAddress = activeAddress(originServer, downServerCache, protocol);
-            if (StringUtils.isNotEmpty(activeAddress)) {
-                return activeAddress;
+            Lease activeLease = activeLease(originServer, downServerCache, protocol);
+            if (activeLease != null) {
+                return activeLease;
             }
 
             // 无可用Server，重新进行Server选举，需要加锁
@@ -103,9 +175,9 @@ public class ServerElectionService {
 
                 // 可能上一台机器已经完成了Server选举，需要再次判断
                 AppInfoDO appInfo = appInfoRepository.findById(appId).orElseThrow(() -> new RuntimeException("impossible, unless we just lost our database."));
-                String address = activeAddress(appInfo.getCurrentServer(), downServerCache, protocol);
-                if (StringUtils.isNotEmpty(address)) {
-                    return address;
+                Lease lease = activeLease(appInfo.getCurrentServer(), downServerCache, protocol);
+                if (lease != null) {
+                    return lease;
                 }
 
                 // 篡位，如果本机存在协议，则作为Server调度该 worker
@@ -117,7 +189,7 @@ public class ServerElectionService {
 
                     appInfoRepository.saveAndFlush(appInfo);
                     log.info("[ServerElection] this server({}) become the new server for app(appId={}).", appInfo.getCurrentServer(), appId);
-                    return targetProtocolInfo.getExternalAddress();
+                    return localLease();
                 }
             }catch (Exception e) {
                 log.error("[ServerElection] write new server to db failed for app {}.", appName, e);
@@ -129,13 +201,13 @@ public class ServerElectionService {
     }
 
     /**
-     * 判断指定server是否存活
+     * 判断指定server是否存活，本机无需 PING
      * @param serverAddress 需要检测的server地址（绑定的内网地址）
      * @param downServerCache 缓存，防止多次发送PING（这个QPS其实还蛮爆表的...）
-     * @param protocol 协议，用于返回指定的地址
-     * @return null or address（外部地址）
+     * @param protocol 协议，server 不支持该协议时视为不可用
+     * @return null or 租约
      */
-    private String activeAddress(String serverAddress, Set<String> downServerCache, String protocol) {
+    private Lease activeLease(String serverAddress, Set<String> downServerCache, String protocol) {
 
         if (downServerCache.contains(serverAddress)) {
             return null;
@@ -144,6 +216,15 @@ public class ServerElectionService {
             return null;
         }
 
+        if (serverAddress.equals(transportService.defaultProtocol().getAddress())) {
+            Lease lease = localLease();
+            if (lease.protocol2Address.containsKey(protocol)) {
+                return lease;
+            }
+            downServerCache.add(serverAddress);
+            return null;
+        }
+
         Ping ping = new Ping();
         ping.setCurrentTime(System.currentTimeMillis());
 
@@ -154,13 +235,17 @@ public class ServerElectionService {
                     .get(PING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
             if (response.isSuccess()) {
                 // 检测通过的是远程 server 的暴露地址，需要返回 worker 需要的协议地址
-                final JSONObject protocolInfo = JsonUtils.parseObject(response.getData(), JSONObject.class).getJSONObject(protocol);
-                if (protocolInfo != null) {
+                final JSONObject protocols = JsonUtils.parseObject(response.getData(), JSONObject.class);
+                if (protocols.getJSONObject(protocol) != null) {
                     downServerCache.remove(serverAddress);
-                    ProtocolInfo remoteProtocol = protocolInfo.toJavaObject(ProtocolInfo.class);
-                    log.info("[ServerElection] server[{}] is active, it will be the master, final protocol={}", serverAddress, remoteProtocol);
-                    // 4.3.3 升级 4.3.4 过程中，未升级的 server 还不存在 externalAddress，需要使用 address 兼容
-                    return Optional.ofNullable(remoteProtocol.getExternalAddress()).orElse(remoteProtocol.getAddress());
+                    Map<String, String> protocol2Address = Maps.newHashMap();
+                    protocols.keySet().forEach(p -> {
+                        ProtocolInfo remoteProtocol = protocols.getJSONObject(p).toJavaObject(ProtocolInfo.class);
+                        // 4.3.3 升级 4.3.4 过程中，未升级的 server 还不存在 externalAddress，需要使用 address 兼容
+                        protocol2Address.put(p, Optional.ofNullable(remoteProtocol.getExternalAddress()).orElse(remoteProtocol.getAddress()));
+                    });
+                    log.info("[ServerElection] server[{}] is active, it will be the master, final protocol addresses={}", serverAddress, protocol2Address);
+                    return new Lease(serverAddress, protocol2Address, clock.getAsLong() + leaseMs);
                 } else {
                     log.warn("[ServerElection] server[{}] is active but don't have target protocol", serverAddress);
                 }
@@ -174,7 +259,43 @@ public class ServerElectionService {
         return null;
     }
 
+    private Lease localLease() {
+        Map<String, String> protocol2Address = Maps.newHashMap();
+        transportService.allProtocols().forEach((protocol, protocolInfo) -> protocol2Address.put(protocol, protocolInfo.getExternalAddress()));
+        return new Lease(transportService.defaultProtocol().getAddress(), protocol2Address, clock.getAsLong() + leaseMs);
+    }
+
     private boolean accurate() {
         return ThreadLocalRandom.current().nextInt(100) < accurateSelectServerPercentage;
     }
+
+    /**
+     * app 与 server 的归属租约
+     */
+    private static class Lease {
+
+        /**
+         * owner server 的绑定地址
+         */
+        private final String owner;
+        /**
+         * 协议 -> worker 使用的地址
+         */
+        private final Map<String, String> protocol2Address;
+        private final long expireAt;
+        private final AtomicBoolean renewing = new AtomicBoolean(false);
+
+        Lease(String owner, Map<String, String> protocol2Address, long expireAt) {
+            this.owner = owner;
+            this.protocol2Address = protocol2Address;
+            this.expireAt = expireAt;
+        }
+
+        String address(String protocol, long now) {
+            if (now >= expireAt) {
+                return null;
+            }
+            return protocol2Address.get(protocol);
+        }
+    }
 }
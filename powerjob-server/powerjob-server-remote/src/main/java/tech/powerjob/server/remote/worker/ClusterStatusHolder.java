@@ -42,27 +42,49 @@ public class ClusterStatusHolder {
     }
 
     /**
-     * 更新 worker 机器的状态
+     * 更新 worker 机器的状态，全量心跳整体刷新，增量心跳原地应用
      * @param heartbeat 心跳请求
+     * @return 增量心跳无法应用（worker 未知或状态版本不一致，如 server 重启）时返回 false，worker 需要重新发送全量心跳
      */
-    public void updateStatus(WorkerHeartbeat heartbeat) {
+    public boolean updateStatus(WorkerHeartbeat heartbeat) {
 
         String workerAddress = heartbeat.getWorkerAddress();
         long heartbeatTime = heartbeat.getHeartbeatTime();
 
-        WorkerInfo workerInfo = address2WorkerInfo.computeIfAbsent(workerAddress, ignore -> {
-            WorkerInfo wf = new WorkerInfo();
-            wf.refresh(heartbeat);
-            return wf;
-        });
-        long oldHeartbeatTime = workerInfo.getLastActiveWorkerTime();
-        if (heartbeatTime < oldHeartbeatTime) {
-            log.warn("[ClusterStatusHolder-{}] receive the expired heartbeat from {}, serverTime: {}, heartTime: {}", appName, heartbeat.getWorkerAddress(), System.currentTimeMillis(), heartbeat.getHeartbeatTime());
-            return;
+        WorkerInfo workerInfo;
+        if (heartbeat.isDelta()) {
+            workerInfo = address2WorkerInfo.get(workerAddress);
+            if (workerInfo == null) {
+                log.info("[ClusterStatusHolder-{}] receive the delta heartbeat from unknown worker {}, require full heartbeat.", appName, workerAddress);
+                return false;
+            }
+        } else {
+            workerInfo = address2WorkerInfo.computeIfAbsent(workerAddress, ignore -> {
+                WorkerInfo wf = new WorkerInfo();
+                wf.refresh(heartbeat);
+                return wf;
+            });
         }
 
-        workerInfo.refresh(heartbeat);
+        synchronized (workerInfo) {
+            long oldHeartbeatTime = workerInfo.getLastActiveWorkerTime();
+            if (heartbeatTime < oldHeartbeatTime) {
+                log.warn("[ClusterStatusHolder-{}] receive the expired heartbeat from {}, serverTime: {}, heartTime: {}", appName, heartbeat.getWorkerAddress(), System.currentTimeMillis(), heartbeat.getHeartbeatTime());
+                return true;
+            }
+
+            if (heartbeat.isDelta()) {
+                if (heartbeat.getBaseVersion() != workerInfo.getStateVersion()) {
+                    log.info("[ClusterStatusHolder-{}] state version of worker {} mismatch(server: {}, base: {}), require full heartbeat.", appName, workerAddress, workerInfo.getStateVersion(), heartbeat.getBaseVersion());
+                    return false;
+                }
+                workerInfo.applyDelta(heartbeat);
+            } else {
+                workerInfo.refresh(heartbeat);
+            }
+        }
 
+        // 增量心跳中容器信息为 null 表示未发生变化
         List<DeployedContainerInfo> containerInfos = heartbeat.getContainerInfos();
         if (!CollectionUtils.isEmpty(containerInfos)) {
             containerInfos.forEach(containerInfo -> {
@@ -70,6 +92,7 @@ public class ClusterStatusHolder {
                 infos.put(workerAddress, containerInfo);
             });
         }
+        return true;
     }
 
     /**
@@ -95,13 +118,9 @@ public class ClusterStatusHolder {
     }
 
     /**
-     * 释放所有本地存储的容器信息（该操作会导致短暂的 listDeployedContainer 服务不可用）
+     * 释放超时机器的信息，并重建容器部署信息
      */
     public void release() {
-        log.info("[ClusterStatusHolder-{}] clean the containerInfos, listDeployedContainer service may down about 1min~", appName);
-        // 丢弃原来的所有数据，准备重建
-        containerId2Infos = Maps.newConcurrentMap();
-
         // 丢弃超时机器的信息
         List<String> timeoutAddress = Lists.newLinkedList();
         address2WorkerInfo.forEach((addr, workerInfo) -> {
@@ -114,5 +133,15 @@ public class ClusterStatusHolder {
             log.info("[ClusterStatusHolder-{}] detective timeout workers({}), try to release their infos.", appName, timeoutAddress);
             timeoutAddress.forEach(address2WorkerInfo::remove);
         }
+
+        // worker 只在容器变化时上报容器信息，因此根据存活机器最近一次上报的容器信息重建，丢弃已卸载及超时机器的容器
+        Map<Long, Map<String, DeployedContainerInfo>> newContainerId2Infos = Maps.newConcurrentMap();
+        address2WorkerInfo.forEach((addr, workerInfo) -> {
+            List<DeployedContainerInfo> containerInfos = workerInfo.getContainerInfos();
+            if (!CollectionUtils.isEmpty(containerInfos)) {
+                containerInfos.forEach(containerInfo -> newContainerId2Infos.computeIfAbsent(containerInfo.getContainerId(), ignore -> Maps.newConcurrentMap()).put(addr, containerInfo));
+            }
+        });
+        containerId2Infos = newContainerId2Infos;
     }
 }
@@ -4,6 +4,7 @@ import tech.powerjob.common.request.WorkerHeartbeat;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
+import tech.powerjob.server.common.module.WorkerInfo;
 
 import java.util.List;
 import java.util.Map;
@@ -26,12 +27,24 @@ public class WorkerClusterManagerService {
     /**
      * 更新状态
      * @param heartbeat Worker的心跳包
+     * @return 心跳是否成功应用，false 表示 worker 需要重新发送全量心跳
      */
-    public static void updateStatus(WorkerHeartbeat heartbeat) {
+    public static boolean updateStatus(WorkerHeartbeat heartbeat) {
         Long appId = heartbeat.getAppId();
         String appName = heartbeat.getAppName();
         ClusterStatusHolder clusterStatusHolder = APP_ID_2_CLUSTER_STATUS.computeIfAbsent(appId, ignore -> new ClusterStatusHolder(appName));
-        clusterStatusHolder.updateStatus(heartbeat);
+        return clusterStatusHolder.updateStatus(heartbeat);
+    }
+
+    /**
+     * 获取 worker 信息（已合并增量心跳）
+     * @param appId 应用ID
+     * @param address worker 地址
+     * @return worker 信息，不存在时返回 null
+     */
+    public static WorkerInfo getWorkerInfo(Long appId, String address) {
+        ClusterStatusHolder clusterStatusHolder = APP_ID_2_CLUSTER_STATUS.get(appId);
+        return clusterStatusHolder == null ? null : clusterStatusHolder.getAllWorkers().get(address);
     }
 
     /**
@@ -2,6 +2,7 @@ package tech.powerjob.server.remote.worker;
 
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import tech.powerjob.common.model.DeployedContainerInfo;
 import tech.powerjob.server.common.module.WorkerInfo;
@@ -12,7 +13,9 @@ import tech.powerjob.server.remote.worker.filter.WorkerFilter;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * 获取 worker 集群信息
@@ -106,6 +109,27 @@ public class WorkerClusterQueryService {
         return clusterStatusHolder.getDeployedContainerInfos(containerId);
     }
 
+    /**
+     * 获取已部署指定版本容器的存活 worker 提供的 Jar 下载地址
+     *
+     * @param appId       应用ID
+     * @param containerId 容器ID
+     * @param version     容器版本
+     * @return 下载地址
+     */
+    @DesignateServer
+    public List<String> getContainerPeerDownloadURLs(Long appId, Long containerId, String version) {
+        Map<String, WorkerInfo> workerInfos = getWorkerInfosByAppId(appId);
+        return getDeployedContainerInfos(appId, containerId).stream()
+                .filter(info -> Objects.equals(version, info.getVersion()) && StringUtils.isNotEmpty(info.getDownloadURL()))
+                .filter(info -> {
+                    WorkerInfo workerInfo = workerInfos.get(info.getWorkerAddress());
+                    return workerInfo != null && !workerInfo.timeout();
+                })
+                .map(DeployedContainerInfo::getDownloadURL)
+                .collect(Collectors.toList());
+    }
+
     private Map<String, WorkerInfo> getWorkerInfosByAppId(Long appId) {
         ClusterStatusHolder clusterStatusHolder = getAppId2ClusterStatus().get(appId);
         if (clusterStatusHolder == null) {
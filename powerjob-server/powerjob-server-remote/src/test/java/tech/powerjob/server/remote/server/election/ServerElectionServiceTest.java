@@ -0,0 +1,162 @@
+package tech.powerjob.server.remote.server.election;
+
+import com.google.common.collect.Maps;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.request.ServerDiscoveryRequest;
+import tech.powerjob.common.response.AskResponse;
+import tech.powerjob.server.extension.LockService;
+import tech.powerjob.server.persistence.remote.model.AppInfoDO;
+import tech.powerjob.server.persistence.remote.repository.AppInfoRepository;
+import tech.powerjob.server.remote.transporter.ProtocolInfo;
+import tech.powerjob.server.remote.transporter.TransportService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 选举租约测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class ServerElectionServiceTest {
+
+    private static final String PROTOCOL = "HTTP";
+    private static final String LOCAL = "10.0.0.1:10010";
+    private static final String REMOTE = "10.0.0.2:10010";
+    private static final String REMOTE_HTTP = "10.0.0.2:10086";
+    private static final long LEASE_MS = 30000;
+
+    private final AtomicLong now = new AtomicLong(1000000);
+    private final AtomicInteger pingNum = new AtomicInteger();
+    private final AtomicInteger dbNum = new AtomicInteger();
+
+    private AppInfoRepository appInfoRepository;
+    private TransportService transportService;
+    private ServerElectionService electionService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AppInfoDO appInfo = new AppInfoDO();
+        appInfo.setId(1L);
+        appInfo.setAppName("test");
+        appInfo.setCurrentServer(REMOTE);
+        appInfoRepository = mock(AppInfoRepository.class);
+        when(appInfoRepository.findById(1L)).thenAnswer(ignore -> {
+            dbNum.incrementAndGet();
+            return Optional.of(appInfo);
+        });
+
+        Map<String, ProtocolInfo> remoteProtocols = Maps.newHashMap();
+        remoteProtocols.put(PROTOCOL, new ProtocolInfo(PROTOCOL, "10.0.0.2", 10086, null));
+        transportService = mock(TransportService.class);
+        when(transportService.defaultProtocol()).thenReturn(new ProtocolInfo("AKKA", "10.0.0.1", 10010, null));
+        when(transportService.allProtocols()).thenReturn(Maps.newHashMap());
+        when(transportService.ask(anyString(), any(), any(), eq(AskResponse.class))).thenAnswer(ignore -> {
+            pingNum.incrementAndGet();
+            // 模拟网络耗时，放大并发
+            Thread.sleep(20);
+            return CompletableFuture.completedFuture(AskResponse.succeed(remoteProtocols));
+        });
+
+        // 不进行精确选举，每次请求都会经过租约
+        electionService = newElectionService(0);
+    }
+
+    private ServerElectionService newElectionService(int accurateSelectServerPercentage) {
+        return new ServerElectionService(mock(LockService.class), transportService, appInfoRepository, accurateSelectServerPercentage, LEASE_MS, now::get);
+    }
+
+    @Test
+    void testDiscoveryStorm() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> futures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(pool.submit(() -> electionService.elect(request())));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(REMOTE_HTTP, future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // 1000 个 worker 同时发现只产生一次 PING
+        assertEquals(1, pingNum.get());
+        assertEquals(1, dbNum.get());
+    }
+
+    @Test
+    void testRenewNearExpiry() {
+        assertEquals(REMOTE_HTTP, electionService.elect(request()));
+        assertEquals(1, pingNum.get());
+
+        // 租约充足时不续约
+        now.addAndGet(LEASE_MS / 2);
+        assertEquals(REMOTE_HTTP, electionService.elect(request()));
+        assertEquals(1, pingNum.get());
+
+        // 临近过期时续约一次，续约后的租约重新计时
+        now.addAndGet(LEASE_MS / 3);
+        assertEquals(REMOTE_HTTP, electionService.elect(request()));
+        assertEquals(REMOTE_HTTP, electionService.elect(request()));
+        assertEquals(2, pingNum.get());
+
+        // 过期后重新选举
+        now.addAndGet(LEASE_MS);
+        assertEquals(REMOTE_HTTP, electionService.elect(request()));
+        assertEquals(3, pingNum.get());
+        verify(transportService, times(3)).ask(anyString(), any(), any(), eq(AskResponse.class));
+    }
+
+    @Test
+    void testAccurateUseLease() throws Exception {
+        ServerElectionService accurateService = newElectionService(100);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> futures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(pool.submit(() -> accurateService.elect(request())));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(REMOTE_HTTP, future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // 租约有效期内的精确选举同样使用租约，只验证一次
+        assertEquals(1, pingNum.get());
+        assertEquals(1, dbNum.get());
+    }
+
+    @Test
+    void testAccurateSkipLocalShortcut() {
+        Map<String, ProtocolInfo> localProtocols = Maps.newHashMap();
+        localProtocols.put(PROTOCOL, new ProtocolInfo(PROTOCOL, "10.0.0.1", 10086, null));
+        when(transportService.allProtocols()).thenReturn(localProtocols);
+        ServerDiscoveryRequest request = request().setCurrentServer("10.0.0.1:10086");
+
+        // 普通请求直接信任 worker 上报的本机地址
+        assertEquals("10.0.0.1:10086", electionService.elect(request));
+        assertEquals(0, dbNum.get());
+        // 精确选举以数据库中的 owner 为准
+        assertEquals(REMOTE_HTTP, newElectionService(100).elect(request));
+        assertEquals(1, dbNum.get());
+    }
+
+    private static ServerDiscoveryRequest request() {
+        return new ServerDiscoveryRequest()
+                .setAppId(1L)
+                .setProtocol(PROTOCOL)
+                .setCurrentServer(REMOTE_HTTP);
+    }
+}
@@ -0,0 +1,106 @@
+package tech.powerjob.server.remote.worker;
+
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.model.DeployedContainerInfo;
+import tech.powerjob.common.model.SystemMetrics;
+import tech.powerjob.common.request.WorkerHeartbeat;
+import tech.powerjob.server.common.module.WorkerInfo;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量心跳测试
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+class ClusterStatusHolderTest {
+
+    private static final String ADDRESS = "192.168.1.1:27777";
+
+    @Test
+    void testApplyDelta() {
+        ClusterStatusHolder holder = new ClusterStatusHolder("test");
+        assertTrue(holder.updateStatus(full(1, 1000)));
+
+        WorkerHeartbeat delta = delta(1, 1, 2000);
+        delta.setLightTaskTrackerNum(5);
+        assertTrue(holder.updateStatus(delta));
+
+        WorkerInfo workerInfo = holder.getAllWorkers().get(ADDRESS);
+        assertEquals("tag1", workerInfo.getTag());
+        assertEquals("HTTP", workerInfo.getProtocol());
+        assertEquals(8, workerInfo.getSystemMetrics().getCpuProcessors());
+        assertEquals(5, workerInfo.getLightTaskTrackerNum());
+        assertEquals(2000, workerInfo.getLastActiveWorkerTime());
+        assertEquals(1, holder.getDeployedContainerInfos(1L).size());
+
+        // 只携带变化的字段
+        WorkerHeartbeat changed = delta(1, 2, 3000);
+        changed.setTag("tag2");
+        changed.setContainerInfos(Collections.emptyList());
+        assertTrue(holder.updateStatus(changed));
+        assertEquals("tag2", workerInfo.getTag());
+        assertEquals("HTTP", workerInfo.getProtocol());
+        assertEquals(2, workerInfo.getStateVersion());
+        assertTrue(workerInfo.getContainerInfos().isEmpty());
+
+        // 重建容器信息时丢弃已卸载的容器
+        holder.release();
+        assertTrue(holder.getDeployedContainerInfos(1L).isEmpty());
+    }
+
+    @Test
+    void testResync() {
+        // server 重启后不存在 worker 信息，增量心跳需要重新同步
+        ClusterStatusHolder holder = new ClusterStatusHolder("test");
+        assertFalse(holder.updateStatus(delta(3, 3, 1000)));
+        assertTrue(holder.getAllWorkers().isEmpty());
+
+        assertTrue(holder.updateStatus(full(4, 2000)));
+        // 中间的增量心跳丢失，版本不一致
+        assertFalse(holder.updateStatus(delta(5, 6, 3000)));
+        WorkerInfo workerInfo = holder.getAllWorkers().get(ADDRESS);
+        assertEquals(4, workerInfo.getStateVersion());
+        assertEquals(2000, workerInfo.getLastActiveWorkerTime());
+
+        // 过期的心跳直接忽略，不需要重新同步
+        assertTrue(holder.updateStatus(delta(4, 4, 1500)));
+        assertEquals(2000, workerInfo.getLastActiveWorkerTime());
+
+        assertTrue(holder.updateStatus(full(7, 4000)));
+        assertTrue(holder.updateStatus(delta(7, 7, 5000)));
+        assertEquals(5000, workerInfo.getLastActiveWorkerTime());
+    }
+
+    private static WorkerHeartbeat full(long stateVersion, long heartbeatTime) {
+        SystemMetrics systemMetrics = new SystemMetrics();
+        systemMetrics.setCpuProcessors(8);
+
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setWorkerAddress(ADDRESS);
+        heartbeat.setAppName("test");
+        heartbeat.setAppId(1L);
+        heartbeat.setHeartbeatTime(heartbeatTime);
+        heartbeat.setProtocol("HTTP");
+        heartbeat.setTag("tag1");
+        heartbeat.setSystemMetrics(systemMetrics);
+        heartbeat.setContainerInfos(Collections.singletonList(new DeployedContainerInfo(1L, "v1", 0, null)));
+        heartbeat.setStateVersion(stateVersion);
+        return heartbeat;
+    }
+
+    private static WorkerHeartbeat delta(long baseVersion, long stateVersion, long heartbeatTime) {
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setDelta(true);
+        heartbeat.setWorkerAddress(ADDRESS);
+        heartbeat.setAppName("test");
+        heartbeat.setAppId(1L);
+        heartbeat.setHeartbeatTime(heartbeatTime);
+        heartbeat.setBaseVersion(baseVersion);
+        heartbeat.setStateVersion(stateVersion);
+        return heartbeat;
+    }
+}
@@ -50,18 +50,6 @@ public class ThreadPoolConfig {
         return executor;
     }
 
-    @Bean(PJThreadPool.LOCAL_DB_POOL)
-    public TaskExecutor initOmsLocalDbPool() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        int tSize = Math.max(1, SysUtils.availableProcessors() / 2);
-        executor.setCorePoolSize(tSize);
-        executor.setMaxPoolSize(tSize);
-        executor.setQueueCapacity(2048);
-        executor.setThreadNamePrefix("PJ-LOCALDB-");
-        executor.setRejectedExecutionHandler(RejectedExecutionHandlerFactory.newAbort(PJThreadPool.LOCAL_DB_POOL));
-        return executor;
-    }
-
     /**
      * 引入 WebSocket 支持后需要手动初始化调度线程池
      */
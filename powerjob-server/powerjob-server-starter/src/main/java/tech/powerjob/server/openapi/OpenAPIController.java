@@ -1,5 +1,6 @@
 package tech.powerjob.server.openapi;
 
+import com.google.common.collect.Maps;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -10,6 +11,8 @@ import tech.powerjob.common.OpenAPIConstant;
 import tech.powerjob.common.enums.ErrorCodes;
 import tech.powerjob.common.enums.InstanceStatus;
 import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.common.request.http.BatchInstanceRequest;
+import tech.powerjob.common.request.http.BatchRunJobRequest;
 import tech.powerjob.common.request.http.RunJobRequest;
 import tech.powerjob.common.request.http.SaveJobInfoRequest;
 import tech.powerjob.common.request.http.SaveWorkflowNodeRequest;
@@ -17,6 +20,7 @@ import tech.powerjob.common.request.http.SaveWorkflowRequest;
 import tech.powerjob.common.request.query.InstancePageQuery;
 import tech.powerjob.common.request.query.JobInfoQuery;
 import tech.powerjob.common.response.*;
+import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.server.core.instance.InstanceService;
 import tech.powerjob.server.core.service.AppInfoService;
 import tech.powerjob.server.core.service.CacheService;
@@ -29,6 +33,7 @@ import tech.powerjob.server.persistence.remote.model.WorkflowNodeInfoDO;
 import tech.powerjob.server.web.response.WorkflowInfoVO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 开放接口（OpenAPI）控制器，对接 oms-client
@@ -155,6 +160,14 @@ public class OpenAPIController {
         return PowerResultDTO.s(jobService.runJob(runJobRequest.getAppId(), runJobRequest));
     }
 
+    @PostMapping(OpenAPIConstant.BATCH_RUN_JOB)
+    public ResultDTO<List<Long>> batchRunJob(@RequestBody BatchRunJobRequest request) {
+        checkBatchSize(request.getRequests());
+        // 任务归属在查询任务时一并校验，避免逐个查询
+        request.getRequests().forEach(runJobRequest -> CommonUtils.requireNonNull(runJobRequest.getJobId(), "jobId can't be null"));
+        return ResultDTO.success(jobService.batchRunJob(request.getAppId(), request));
+    }
+
     /* ************* Instance 区 ************* */
 
     @PostMapping(OpenAPIConstant.STOP_INSTANCE)
@@ -189,6 +202,28 @@ public class OpenAPIController {
         return ResultDTO.success(instanceService.getInstanceInfo(instanceId));
     }
 
+    @PostMapping(OpenAPIConstant.BATCH_STOP_INSTANCE)
+    public ResultDTO<Map<Long, String>> batchStopInstance(@RequestBody BatchInstanceRequest request) {
+        checkBatchSize(request.getInstanceIds());
+        // 实例归属在查询实例时一并校验
+        return ResultDTO.success(instanceService.batchStopInstance(request.getAppId(), request));
+    }
+
+    /**
+     * 批量查询实例状态，不存在或不属于当前应用的实例不返回
+     */
+    @PostMapping(OpenAPIConstant.BATCH_FETCH_INSTANCE_STATUS)
+    public ResultDTO<Map<Long, Integer>> batchFetchInstanceStatus(@RequestBody BatchInstanceRequest request) {
+        checkBatchSize(request.getInstanceIds());
+        Map<Long, Integer> ret = Maps.newHashMap();
+        instanceService.getInstanceStatuses(request.getInstanceIds()).forEach((instanceId, statusInfo) -> {
+            if (statusInfo.getAppId().equals(request.getAppId())) {
+                ret.put(instanceId, statusInfo.getStatus());
+            }
+        });
+        return ResultDTO.success(ret);
+    }
+
     @PostMapping(OpenAPIConstant.QUERY_INSTANCE)
     public ResultDTO<PageResult<InstanceInfoDTO>> queryInstance(@RequestBody InstancePageQuery powerQuery) {
         return ResultDTO.success(instanceService.queryInstanceInfo(powerQuery));
@@ -266,6 +301,18 @@ public class OpenAPIController {
         return ResultDTO.success(workflowInstanceService.fetchWorkflowInstanceInfo(wfInstanceId, appId));
     }
 
+    private static void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("batch request can't be empty");
+        }
+        if (items.size() > OpenAPIConstant.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batch size can't exceed " + OpenAPIConstant.MAX_BATCH_SIZE);
+        }
+        if (items.contains(null)) {
+            throw new IllegalArgumentException("batch request can't contain null");
+        }
+    }
+
     private void checkInstanceIdValid(Long instanceId, Long appId) {
         Long realAppId = cacheService.getAppIdByInstanceId(instanceId);
         if (realAppId == null) {
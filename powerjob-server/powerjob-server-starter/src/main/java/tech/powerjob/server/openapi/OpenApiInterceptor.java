@@ -3,6 +3,7 @@ package tech.powerjob.server.openapi;
 import com.google.common.collect.Sets;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
@@ -12,6 +13,7 @@ import tech.powerjob.common.OpenAPIConstant;
 import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.response.PowerResultDTO;
 import tech.powerjob.common.serialize.JsonUtils;
+import tech.powerjob.server.core.service.CacheService;
 import tech.powerjob.server.openapi.security.OpenApiSecurityService;
 
 import javax.annotation.Resource;
@@ -32,6 +34,8 @@ public class OpenApiInterceptor implements HandlerInterceptor {
 
     @Resource
     private OpenApiSecurityService openApiSecurityService;
+    @Resource
+    private CacheService cacheService;
 
     /**
      * 4.x 及前序版本的 OpenAPI 均为携带 auth 的必要参数，直接开启鉴权功能会导致之前的服务全部报错
@@ -40,6 +44,9 @@ public class OpenApiInterceptor implements HandlerInterceptor {
     @Value("${oms.auth.openapi.enable:false}")
     private boolean enableOpenApiAuth;
 
+    @Value("${server.port}")
+    private int port;
+
     private static final Set<String> IGNORE_OPEN_API_PATH = Sets.newHashSet(OpenAPIConstant.ASSERT, OpenAPIConstant.AUTH_APP);
 
     @Override
@@ -47,6 +54,7 @@ public class OpenApiInterceptor implements HandlerInterceptor {
 
         if (!enableOpenApiAuth) {
             response.addHeader(OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS, Boolean.TRUE.toString());
+            addAppServerHeader(request, response);
             return true;
         }
 
@@ -61,6 +69,8 @@ public class OpenApiInterceptor implements HandlerInterceptor {
         try {
             openApiSecurityService.authAppByToken(request);
             response.addHeader(OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS, Boolean.TRUE.toString());
+            // 鉴权通过后才返回路由信息，避免未授权的请求通过任意 appId 探测集群拓扑
+            addAppServerHeader(request, response);
         } catch (PowerJobException pje) {
             response.addHeader(OpenAPIConstant.RESPONSE_HEADER_AUTH_STATUS, Boolean.FALSE.toString());
             writeResponse(PowerResultDTO.f(pje), response);
@@ -77,6 +87,23 @@ public class OpenApiInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 告知 client 当前负责该 app 的 server，避免请求落到其他 server 后再通过 @DesignateServer 转发一次
+     * currentServer 记录的是 server 间通讯地址，集群内各 server 的 HTTP 端口一致，因此取其 IP 与本机 HTTP 端口组合
+     */
+    private void addAppServerHeader(HttpServletRequest request, HttpServletResponse response) {
+        String appIdStr = request.getHeader(OpenAPIConstant.REQUEST_HEADER_APP_ID);
+        if (!StringUtils.isNumeric(appIdStr)) {
+            return;
+        }
+        String currentServer = cacheService.getCurrentServerByAppId(Long.valueOf(appIdStr));
+        if (StringUtils.isEmpty(currentServer)) {
+            return;
+        }
+        String ip = StringUtils.substringBeforeLast(currentServer, ":");
+        response.addHeader(OpenAPIConstant.RESPONSE_HEADER_APP_SERVER, ip + ":" + port);
+    }
+
     @SneakyThrows
     private void writeResponse( PowerResultDTO<Object> powerResult, HttpServletResponse response) {
 
@@ -30,6 +30,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -64,9 +65,9 @@ public class ContainerController {
      */
     @GetMapping("/downloadJar")
     public void downloadJar(String version, HttpServletResponse response) throws IOException {
-        File file = containerService.fetchContainerJarFile(version);
-        if (file.exists()) {
-            OmsFileUtils.file2HttpResponse(file, response);
+        Optional<File> fileOpt = containerService.fetchContainerJarFile(version);
+        if (fileOpt.isPresent()) {
+            OmsFileUtils.file2HttpResponse(fileOpt.get(), response);
         } else {
             log.error("[Container] can't find container by version[{}], please deploy first!", version);
         }
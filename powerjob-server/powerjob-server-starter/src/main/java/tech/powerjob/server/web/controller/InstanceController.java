@@ -4,8 +4,6 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.BeanUtils;
-import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -18,13 +16,18 @@ import tech.powerjob.server.auth.RoleScope;
 import tech.powerjob.server.auth.common.utils.AuthHeaderUtils;
 import tech.powerjob.server.auth.interceptor.ApiPermission;
 import tech.powerjob.server.common.utils.OmsFileUtils;
+import tech.powerjob.server.core.instance.InstanceArchiveService;
 import tech.powerjob.server.core.instance.InstanceLogService;
 import tech.powerjob.server.core.instance.InstanceService;
+import tech.powerjob.server.common.constants.InstanceType;
 import tech.powerjob.server.core.service.CacheService;
+import tech.powerjob.server.persistence.CursorPage;
 import tech.powerjob.server.persistence.PageResult;
 import tech.powerjob.server.persistence.StringPage;
-import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
 import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceListQuery;
 import tech.powerjob.server.web.request.QueryInstanceDetailRequest;
 import tech.powerjob.server.web.request.QueryInstanceRequest;
 import tech.powerjob.server.web.response.InstanceDetailVO;
@@ -37,6 +40,7 @@ import java.io.File;
 import java.net.URL;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -51,6 +55,9 @@ import java.util.stream.Collectors;
 @RequestMapping("/instance")
 public class InstanceController {
 
+    private static final int DEFAULT_SCROLL_SIZE = 10;
+    private static final int MAX_SCROLL_SIZE = 100;
+
     @Resource
     private InstanceService instanceService;
     @Resource
@@ -60,6 +67,8 @@ public class InstanceController {
     private CacheService cacheService;
     @Resource
     private InstanceInfoRepository instanceInfoRepository;
+    @Resource
+    private InstanceInfoArchiveRepository instanceInfoArchiveRepository;
 
     @GetMapping("/stop")
     @ApiPermission(name = "Instance-Stop", roleScope = RoleScope.APP, requiredPermission = Permission.OPS)
@@ -151,19 +160,80 @@ public class InstanceController {
         Sort sort = Sort.by(Sort.Direction.DESC, "gmtModified");
         PageRequest pageable = PageRequest.of(request.getIndex(), request.getPageSize(), sort);
 
-        InstanceInfoDO queryEntity = new InstanceInfoDO();
-        BeanUtils.copyProperties(request, queryEntity);
-        queryEntity.setType(request.getType().getV());
+        long appId = request.getAppId();
+        int type = request.getType().getV();
+        Integer status = StringUtils.isEmpty(request.getStatus()) ? null : InstanceStatus.valueOf(request.getStatus()).getV();
+
+        // 只查询列表展示需要的字段，执行结果等大字段通过 detail 接口获取
+        Page<InstanceListInfo> pageResult = InstanceArchiveService.unionPage(pageable,
+                p -> instanceInfoRepository.pageList(appId, type, request.getJobId(), request.getInstanceId(), request.getWfInstanceId(), status, p),
+                p -> instanceInfoArchiveRepository.pageList(appId, type, request.getJobId(), request.getInstanceId(), request.getWfInstanceId(), status, p),
+                Function.identity());
+        return ResultDTO.success(convertPage(pageResult));
+    }
 
-        if (!StringUtils.isEmpty(request.getStatus())) {
-            queryEntity.setStatus(InstanceStatus.valueOf(request.getStatus()).getV());
+    /**
+     * 游标（keyset）分页查询任务实例，按 id 倒序，深分页不会退化为全表扫描
+     * 只查询列表展示需要的字段，执行结果等大字段通过 detail 接口获取
+     */
+    @PostMapping("/scroll")
+    @ApiPermission(name = "Instance-Scroll", roleScope = RoleScope.APP, requiredPermission = Permission.READ)
+    public ResultDTO<CursorPage<InstanceInfoVO>> scroll(@RequestBody QueryInstanceRequest request, HttpServletRequest hsr) {
+
+        long appId = AuthHeaderUtils.fetchAppIdL(hsr);
+        int pageSize = scrollSize(request.getPageSize());
+        long cursor = Optional.ofNullable(request.getCursor()).orElse(Long.MAX_VALUE);
+        int type = Optional.ofNullable(request.getType()).orElse(InstanceType.NORMAL).getV();
+        Integer status = StringUtils.isEmpty(request.getStatus()) ? null : InstanceStatus.valueOf(request.getStatus()).getV();
+        // 多取一条用于判断是否存在下一页
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        // 活跃表与归档表分别查询后合并
+        List<InstanceListInfo> instances = InstanceArchiveService.merge(
+                scrollQuery(instanceInfoRepository, request, appId, type, status, cursor, limit),
+                scrollQuery(instanceInfoArchiveRepository, request, appId, type, status, cursor, limit),
+                pageSize + 1);
+        // instanceId 为精确查询，其余条件需要与该结果保持一致
+        if (request.getInstanceId() != null) {
+            instances = instances.stream()
+                    .filter(x -> status == null || status.equals(x.getStatus()))
+                    .filter(x -> request.getJobId() == null || request.getJobId().equals(x.getJobId()))
+                    .collect(Collectors.toList());
         }
 
-        Page<InstanceInfoDO> pageResult = instanceInfoRepository.findAll(Example.of(queryEntity), pageable);
-        return ResultDTO.success(convertPage(pageResult));
+        Long nextCursor = null;
+        if (instances.size() > pageSize) {
+            instances = instances.subList(0, pageSize);
+            nextCursor = instances.get(pageSize - 1).getId();
+        }
+        List<InstanceInfoVO> content = instances.stream()
+                .map(x -> InstanceInfoVO.from(x, cacheService.getJobName(x.getJobId()))).collect(Collectors.toList());
+        return ResultDTO.success(new CursorPage<>(content, nextCursor));
+    }
+
+    /**
+     * 游标分页大小，限制在 [1, MAX_SCROLL_SIZE] 之间
+     */
+    static int scrollSize(Integer pageSize) {
+        return Math.max(1, Math.min(Optional.ofNullable(pageSize).orElse(DEFAULT_SCROLL_SIZE), MAX_SCROLL_SIZE));
+    }
+
+    private static List<InstanceListInfo> scrollQuery(InstanceListQuery query, QueryInstanceRequest request, long appId, int type, Integer status, long cursor, PageRequest limit) {
+        if (request.getInstanceId() != null) {
+            return query.listByInstanceId(request.getInstanceId(), appId);
+        }
+        if (request.getWfInstanceId() != null) {
+            return query.listByWfInstanceId(request.getWfInstanceId(), appId, cursor, limit);
+        }
+        if (request.getJobId() != null) {
+            return status == null ? query.listByJobId(request.getJobId(), appId, type, cursor, limit)
+                    : query.listByJobIdAndStatus(request.getJobId(), status, appId, type, cursor, limit);
+        }
+        return status == null ? query.listByAppId(appId, type, cursor, limit)
+                : query.listByAppIdAndStatus(appId, status, type, cursor, limit);
     }
 
-    private PageResult<InstanceInfoVO> convertPage(Page<InstanceInfoDO> page) {
+    private PageResult<InstanceInfoVO> convertPage(Page<InstanceListInfo> page) {
         List<InstanceInfoVO> content = page.getContent().stream()
                 .map(x -> InstanceInfoVO.from(x, cacheService.getJobName(x.getJobId()))).collect(Collectors.toList());
 
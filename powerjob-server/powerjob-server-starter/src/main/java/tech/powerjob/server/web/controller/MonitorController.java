@@ -0,0 +1,50 @@
+package tech.powerjob.server.web.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tech.powerjob.server.monitor.monitors.MetricsMonitor;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+
+/**
+ * 监控指标抓取接口（Prometheus 文本格式）
+ * 默认仅允许本机访问，由本地的采集 agent 拉取后再上报
+ *
+ * @author tjq
+ * @since 2024/3/2
+ */
+@RestController
+@RequestMapping("/monitor")
+@RequiredArgsConstructor
+public class MonitorController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    private final MetricsMonitor metricsMonitor;
+
+    @Value("${oms.monitor.metrics.scrape.local-only:true}")
+    private boolean localOnly;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> scrape(HttpServletRequest request) {
+        if (localOnly && !isLoopback(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metricsMonitor.scrape());
+    }
+
+    private static boolean isLoopback(String remoteAddr) {
+        try {
+            return InetAddress.getByName(remoteAddr).isLoopbackAddress();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -3,21 +3,20 @@ package tech.powerjob.server.web.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.time.DateFormatUtils;
-import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import tech.powerjob.common.OmsConstant;
-import tech.powerjob.common.enums.InstanceStatus;
 import tech.powerjob.common.response.ResultDTO;
 import tech.powerjob.server.auth.Permission;
 import tech.powerjob.server.auth.RoleScope;
 import tech.powerjob.server.auth.interceptor.ApiPermission;
 import tech.powerjob.common.enums.SwitchableStatus;
+import tech.powerjob.server.core.instance.InstanceStatistics;
+import tech.powerjob.server.core.instance.InstanceStatisticsService;
 import tech.powerjob.server.common.module.WorkerInfo;
 import tech.powerjob.server.persistence.remote.model.AppInfoDO;
 import tech.powerjob.server.persistence.remote.repository.AppInfoRepository;
-import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
 import tech.powerjob.server.persistence.remote.repository.JobInfoRepository;
 import tech.powerjob.server.remote.server.self.ServerInfoService;
 import tech.powerjob.server.remote.worker.WorkerClusterQueryService;
@@ -46,7 +45,7 @@ public class SystemInfoController {
 
     private final JobInfoRepository jobInfoRepository;
 
-    private final InstanceInfoRepository instanceInfoRepository;
+    private final InstanceStatisticsService instanceStatisticsService;
 
     private final ServerInfoService serverInfoService;
 
@@ -76,11 +75,10 @@ public class SystemInfoController {
 
         // 总任务数量
         overview.setJobCount(jobInfoRepository.countByAppIdAndStatusNot(appId, SwitchableStatus.DELETED.getV()));
-        // 运行任务数
-        overview.setRunningInstanceCount(instanceInfoRepository.countByAppIdAndStatus(appId, InstanceStatus.RUNNING.getV()));
-        // 近期失败任务数（24H内）
-        Date date = DateUtils.addDays(new Date(), -1);
-        overview.setFailedInstanceCount(instanceInfoRepository.countByAppIdAndStatusAndGmtCreateAfter(appId, InstanceStatus.FAILED.getV(), date));
+        // 运行任务数 & 近期失败任务数（24H内），由 app 所在的 server 增量维护
+        InstanceStatistics instanceStatistics = instanceStatisticsService.fetchStatistics(appId);
+        overview.setRunningInstanceCount(instanceStatistics.getRunningInstanceCount());
+        overview.setFailedInstanceCount(instanceStatistics.getFailedInstanceCount());
 
         // 服务器时区
         overview.setTimezone(TimeZone.getDefault().getDisplayName());
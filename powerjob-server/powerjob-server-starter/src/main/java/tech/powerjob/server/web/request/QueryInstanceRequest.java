@@ -24,6 +24,10 @@ public class QueryInstanceRequest {
      * 页大小
      */
     private Integer pageSize;
+    /**
+     * 游标分页（scroll）使用：上一页返回的 nextCursor，查询第一页时为空
+     */
+    private Long cursor;
     /**
      * 查询条件（NORMAL/WORKFLOW）
      */
@@ -2,6 +2,7 @@ package tech.powerjob.server.web.response;
 
 import tech.powerjob.common.OmsConstant;
 import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
 import lombok.Data;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.springframework.beans.BeanUtils;
@@ -58,29 +59,42 @@ public class InstanceInfoVO {
     public static InstanceInfoVO from(InstanceInfoDO instanceInfoDo, String jobName) {
         InstanceInfoVO instanceInfoVO = new InstanceInfoVO();
         BeanUtils.copyProperties(instanceInfoDo, instanceInfoVO);
+        return fill(instanceInfoVO, jobName, instanceInfoDo.getJobId(), instanceInfoDo.getInstanceId(), instanceInfoDo.getWfInstanceId(), instanceInfoDo.getActualTriggerTime(), instanceInfoDo.getFinishedTime());
+    }
+
+    /**
+     * 列表展示，不包含执行结果等大字段
+     */
+    public static InstanceInfoVO from(InstanceListInfo instanceListInfo, String jobName) {
+        InstanceInfoVO instanceInfoVO = new InstanceInfoVO();
+        BeanUtils.copyProperties(instanceListInfo, instanceInfoVO);
+        return fill(instanceInfoVO, jobName, instanceListInfo.getJobId(), instanceListInfo.getInstanceId(), instanceListInfo.getWfInstanceId(), instanceListInfo.getActualTriggerTime(), instanceListInfo.getFinishedTime());
+    }
+
+    private static InstanceInfoVO fill(InstanceInfoVO instanceInfoVO, String jobName, Long jobId, Long instanceId, Long wfInstanceId, Long actualTriggerTime, Long finishedTime) {
 
         // 额外设置任务名称，提高可读性
         instanceInfoVO.setJobName(jobName);
 
         // ID 转化为 String（JS精度丢失）
-        instanceInfoVO.setJobId(instanceInfoDo.getJobId().toString());
-        instanceInfoVO.setInstanceId(instanceInfoDo.getInstanceId().toString());
-        if (instanceInfoDo.getWfInstanceId() == null) {
+        instanceInfoVO.setJobId(jobId.toString());
+        instanceInfoVO.setInstanceId(instanceId.toString());
+        if (wfInstanceId == null) {
             instanceInfoVO.setWfInstanceId(OmsConstant.NONE);
         }else {
-            instanceInfoVO.setWfInstanceId(String.valueOf(instanceInfoDo.getWfInstanceId()));
+            instanceInfoVO.setWfInstanceId(String.valueOf(wfInstanceId));
         }
 
         // 格式化时间
-        if (instanceInfoDo.getActualTriggerTime() == null) {
+        if (actualTriggerTime == null) {
             instanceInfoVO.setActualTriggerTime(OmsConstant.NONE);
         }else {
-            instanceInfoVO.setActualTriggerTime(DateFormatUtils.format(instanceInfoDo.getActualTriggerTime(), OmsConstant.TIME_PATTERN));
+            instanceInfoVO.setActualTriggerTime(DateFormatUtils.format(actualTriggerTime, OmsConstant.TIME_PATTERN));
         }
-        if (instanceInfoDo.getFinishedTime() == null) {
+        if (finishedTime == null) {
             instanceInfoVO.setFinishedTime(OmsConstant.NONE);
         }else {
-            instanceInfoVO.setFinishedTime(DateFormatUtils.format(instanceInfoDo.getFinishedTime(), OmsConstant.TIME_PATTERN));
+            instanceInfoVO.setFinishedTime(DateFormatUtils.format(finishedTime, OmsConstant.TIME_PATTERN));
         }
 
         return instanceInfoVO;
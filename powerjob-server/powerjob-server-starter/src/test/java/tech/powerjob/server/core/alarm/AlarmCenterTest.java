@@ -0,0 +1,117 @@
+package tech.powerjob.server.core.alarm;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.utils.SysUtils;
+import tech.powerjob.server.core.alarm.module.AlarmDigest;
+import tech.powerjob.server.core.alarm.module.JobInstanceAlarm;
+import tech.powerjob.server.extension.alarm.Alarm;
+import tech.powerjob.server.extension.alarm.AlarmTarget;
+import tech.powerjob.server.extension.alarm.Alarmable;
+import tech.powerjob.server.monitor.events.alarm.AlarmEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 告警去重 & 限流测试
+ *
+ * @author tjq
+ * @since 2024/3/6
+ */
+class AlarmCenterTest {
+
+    private static final long WINDOW = 60000;
+
+    private final AtomicLong time = new AtomicLong(1_000_000L);
+
+    private final List<Alarm> received = new CopyOnWriteArrayList<>();
+
+    private final List<AlarmEvent> events = new CopyOnWriteArrayList<>();
+
+    private final Alarmable recorder = (alarm, targets) -> received.add(alarm);
+
+    @Test
+    void testJobDedupAndDigest() throws Exception {
+        AlarmCenter alarmCenter = new AlarmCenter(Lists.newArrayList(recorder), e -> events.add((AlarmEvent) e), 1024, WINDOW, 100, time::get);
+        List<AlarmTarget> targets = Lists.newArrayList(new AlarmTarget().setName("tjq").setEmail("tjq@zju.edu.cn"));
+
+        for (int i = 0; i < 5000; i++) {
+            alarmCenter.alarmFailed(new JobInstanceAlarm().setJobId(1).setInstanceId(i), targets);
+        }
+        alarmCenter.alarmFailed(new JobInstanceAlarm().setJobId(2).setInstanceId(1), targets);
+        waitReceived(2);
+        Assertions.assertTrue(received.stream().anyMatch(a -> ((JobInstanceAlarm) a).getJobId() == 1 && ((JobInstanceAlarm) a).getInstanceId() == 0));
+
+        // 窗口未结束不会发送摘要
+        alarmCenter.flush();
+        Assertions.assertEquals(2, received.size());
+
+        time.addAndGet(WINDOW);
+        alarmCenter.flush();
+        waitReceived(3);
+        AlarmDigest digest = (AlarmDigest) received.get(2);
+        Assertions.assertEquals(4999, digest.getSuppressedCount());
+        Assertions.assertEquals("job#1", digest.getGroupKey());
+        Assertions.assertTrue(digest.getLatestContent().contains("4999"));
+
+        Assertions.assertTrue(events.stream().anyMatch(e -> e.getStatus() == AlarmEvent.Status.DIGESTED && e.getNum() == 4999));
+    }
+
+    @Test
+    void testTargetLimit() throws Exception {
+        AlarmCenter alarmCenter = new AlarmCenter(Lists.newArrayList(recorder), e -> events.add((AlarmEvent) e), 1024, WINDOW, 3, time::get);
+        List<AlarmTarget> targets = Lists.newArrayList(new AlarmTarget().setName("tjq").setPhone("123"));
+
+        for (int i = 0; i < 10; i++) {
+            alarmCenter.alarmFailed(new JobInstanceAlarm().setJobId(i).setInstanceId(i), targets);
+        }
+        waitReceived(3);
+
+        time.addAndGet(WINDOW);
+        alarmCenter.flush();
+        waitReceived(4);
+        AlarmDigest digest = (AlarmDigest) received.get(3);
+        Assertions.assertEquals(7, digest.getSuppressedCount());
+        Assertions.assertTrue(digest.getGroupKey().startsWith("target#"));
+    }
+
+    @Test
+    void testBoundedQueue() throws Exception {
+        CountDownLatch block = new CountDownLatch(1);
+        Alarmable slow = (alarm, targets) -> {
+            try {
+                block.await();
+            } catch (InterruptedException ignore) {
+            }
+        };
+        AlarmCenter alarmCenter = new AlarmCenter(Lists.newArrayList(slow), e -> events.add((AlarmEvent) e), 2, WINDOW, 100, time::get);
+        for (int i = 0; i < 100; i++) {
+            alarmCenter.alarmFailed(new JobInstanceAlarm().setJobId(i), Lists.newArrayList());
+        }
+        Assertions.assertEquals(2, alarmCenter.backlog());
+        Assertions.assertTrue(events.stream().anyMatch(e -> e.getStatus() == AlarmEvent.Status.DROPPED));
+        // 每条告警只会被统计一次：要么已分发，要么被丢弃
+        long dispatched = countNum(AlarmEvent.Status.DISPATCHED);
+        long dropped = countNum(AlarmEvent.Status.DROPPED);
+        Assertions.assertEquals(100, dispatched + dropped);
+        Assertions.assertEquals(100 - SysUtils.availableProcessors() - 2, dropped);
+        block.countDown();
+    }
+
+    private long countNum(AlarmEvent.Status status) {
+        return events.stream().filter(e -> e.getStatus() == status).mapToLong(AlarmEvent::getNum).sum();
+    }
+
+    private void waitReceived(int num) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < num && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assertions.assertEquals(num, received.size());
+    }
+}
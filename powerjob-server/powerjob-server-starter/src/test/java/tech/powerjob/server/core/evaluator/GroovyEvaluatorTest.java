@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import tech.powerjob.common.exception.PowerJobException;
 import tech.powerjob.common.serialize.JsonUtils;
 
 import java.util.HashMap;
@@ -77,6 +78,22 @@ public class GroovyEvaluatorTest {
         Assertions.assertEquals(1,res);
     }
 
+    @Test
+    public void testCompiledScriptReuse() {
+        // 同一表达式只编译一次，不同上下文互不影响
+        String expression = "context.k1 == '1'";
+        Assertions.assertEquals(true, groovyEvaluator.evaluate(expression, SIMPLE_CONTEXT));
+        Assertions.assertEquals(false, groovyEvaluator.evaluate(expression, COMPLEX_CONTEXT));
+    }
+
+    @Test
+    public void testTimeout() {
+        GroovyEvaluator evaluator = new GroovyEvaluator(16, 1, 200);
+        Assertions.assertThrows(PowerJobException.class, () -> evaluator.evaluate("while (true) { }", null));
+        // 超时的脚本被中断后，线程池仍可继续计算
+        Assertions.assertEquals(2, evaluator.evaluate("1 + 1", null));
+    }
+
 
     @Data
     @AllArgsConstructor
@@ -0,0 +1,62 @@
+package tech.powerjob.server.core.handler;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import tech.powerjob.common.model.SystemMetrics;
+import tech.powerjob.common.request.WorkerHeartbeat;
+import tech.powerjob.server.monitor.MonitorService;
+import tech.powerjob.server.monitor.events.w2s.WorkerHeartbeatEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * worker 心跳处理测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class WorkerRequestHandlerImplTest {
+
+    private static final String ADDRESS = "192.168.1.1:27777";
+
+    @Test
+    void testDeltaHeartbeatEvent() {
+        MonitorService monitorService = mock(MonitorService.class);
+        WorkerRequestHandlerImpl handler = new WorkerRequestHandlerImpl(null, null, null, monitorService, null, null, null);
+
+        SystemMetrics metrics = new SystemMetrics();
+        metrics.setCpuProcessors(8);
+        WorkerHeartbeat full = heartbeat(1, 1000);
+        full.setProtocol("HTTP");
+        full.setTag("tag1");
+        full.setVersion("5.1.3");
+        full.setSystemMetrics(metrics);
+        assertTrue(handler.processWorkerHeartbeat(full).isSuccess());
+
+        // 增量心跳不携带未变化的字段，监控事件仍需带上 worker 属性
+        WorkerHeartbeat delta = heartbeat(1, 2000);
+        delta.setDelta(true);
+        delta.setBaseVersion(1);
+        assertTrue(handler.processWorkerHeartbeat(delta).isSuccess());
+
+        ArgumentCaptor<WorkerHeartbeatEvent> captor = ArgumentCaptor.forClass(WorkerHeartbeatEvent.class);
+        verify(monitorService, times(2)).monitor(captor.capture());
+        WorkerHeartbeatEvent event = captor.getAllValues().get(1);
+        assertTrue(event.isDelta());
+        assertEquals("HTTP", event.getProtocol());
+        assertEquals("tag1", event.getTag());
+        assertEquals("5.1.3", event.getVersion());
+        assertEquals(metrics.getScore(), event.getScore());
+    }
+
+    private static WorkerHeartbeat heartbeat(long stateVersion, long heartbeatTime) {
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setAppId(10086L);
+        heartbeat.setAppName("test");
+        heartbeat.setWorkerAddress(ADDRESS);
+        heartbeat.setStateVersion(stateVersion);
+        heartbeat.setHeartbeatTime(heartbeatTime);
+        return heartbeat;
+    }
+}
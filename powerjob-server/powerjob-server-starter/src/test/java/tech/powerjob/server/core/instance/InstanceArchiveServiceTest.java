@@ -0,0 +1,217 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.common.constants.InstanceType;
+import tech.powerjob.server.extension.LockService;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoArchiveDO;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceStatusInfo;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.test.H2JpaTestConfiguration;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 任务实例冷热分离测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@SpringJUnitConfig(H2JpaTestConfiguration.class)
+class InstanceArchiveServiceTest {
+
+    private static final int NORMAL = InstanceType.NORMAL.getV();
+    private static final long HOUR = 3600000;
+
+    @Autowired
+    private InstanceInfoRepository instanceInfoRepository;
+    @Autowired
+    private InstanceInfoArchiveRepository instanceInfoArchiveRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private InstanceArchiveService archiveService;
+
+    @BeforeEach
+    void init() {
+        instanceInfoRepository.deleteAll();
+        instanceInfoArchiveRepository.deleteAll();
+        LockService lockService = mock(LockService.class);
+        when(lockService.tryLock(anyString(), anyLong())).thenReturn(true);
+        archiveService = new InstanceArchiveService(instanceInfoRepository, instanceInfoArchiveRepository, lockService, transactionManager, 60);
+
+        // 0-9 早已结束，10-11 刚刚结束，12 已运行很久但仍未结束
+        for (int i = 0; i < 10; i++) {
+            saveInstance(i, InstanceStatus.SUCCEED.getV(), 2 * HOUR);
+        }
+        saveInstance(10, InstanceStatus.FAILED.getV(), 0);
+        saveInstance(11, InstanceStatus.SUCCEED.getV(), 0);
+        saveInstance(12, InstanceStatus.RUNNING.getV(), 2 * HOUR);
+    }
+
+    @Test
+    void testArchive() {
+        Assertions.assertEquals(10, archiveService.archive());
+        Assertions.assertEquals(3, instanceInfoRepository.count());
+        Assertions.assertEquals(10, instanceInfoArchiveRepository.count());
+        // 重复执行不会产生重复数据
+        Assertions.assertEquals(0, archiveService.archive());
+
+        // 按 instanceId 查询透明地读取归档表
+        InstanceInfoDO archived = archiveService.findByInstanceId(3L);
+        Assertions.assertNotNull(archived);
+        Assertions.assertEquals(InstanceStatus.SUCCEED.getV(), archived.getStatus());
+        Assertions.assertNotNull(archiveService.findByInstanceId(12L));
+        Assertions.assertNull(archiveService.findByInstanceId(100L));
+
+        // 列表查询合并两张表
+        PageRequest limit = PageRequest.of(0, 100);
+        List<InstanceListInfo> merged = InstanceArchiveService.merge(instanceInfoRepository.listByAppId(1L, NORMAL, Long.MAX_VALUE, limit),
+                instanceInfoArchiveRepository.listByAppId(1L, NORMAL, Long.MAX_VALUE, limit), 100);
+        Assertions.assertEquals(13, merged.size());
+        Assertions.assertEquals(12L, merged.get(0).getInstanceId());
+        Assertions.assertEquals(0L, merged.get(12).getInstanceId());
+
+        // 重试时恢复至活跃表
+        InstanceInfoDO restored = archiveService.restore(archived);
+        Assertions.assertNotNull(restored.getId());
+        Assertions.assertNotNull(instanceInfoRepository.findByInstanceId(3L));
+        Assertions.assertNull(instanceInfoArchiveRepository.findByInstanceId(3L));
+        Assertions.assertEquals(9, instanceInfoArchiveRepository.count());
+    }
+
+    @Test
+    void testArchiveExistingId() {
+        // 模拟上次迁移写入归档表后原记录未删除（中断或被重试），归档表中为旧数据
+        InstanceInfoDO instanceInfo = instanceInfoRepository.findByInstanceId(3L);
+        InstanceInfoArchiveDO stale = new InstanceInfoArchiveDO();
+        BeanUtils.copyProperties(instanceInfo, stale);
+        stale.setStatus(InstanceStatus.RUNNING.getV());
+        instanceInfoArchiveRepository.saveAndFlush(stale);
+
+        // 不会因主键冲突失败，归档表以活跃表数据为准
+        Assertions.assertEquals(10, archiveService.archive());
+        Assertions.assertEquals(3, instanceInfoRepository.count());
+        Assertions.assertEquals(10, instanceInfoArchiveRepository.count());
+        Assertions.assertEquals(InstanceStatus.SUCCEED.getV(), instanceInfoArchiveRepository.findByInstanceId(3L).getStatus());
+    }
+
+    @Test
+    void testUnionPage() {
+        archiveService.archive();
+        Sort sort = Sort.by(Sort.Direction.DESC, "id");
+        List<Long> all = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            Page<InstanceInfoDO> page = InstanceArchiveService.unionPage(PageRequest.of(i, 4, sort),
+                    instanceInfoRepository::findAll, p -> instanceInfoArchiveRepository.findAll(InstanceArchiveService.excludeActive(null), p), InstanceArchiveService::fromArchive);
+            Assertions.assertEquals(13, page.getTotalElements());
+            all.addAll(page.getContent().stream().map(InstanceInfoDO::getInstanceId).collect(Collectors.toList()));
+        }
+        // 活跃表在前，归档表在后，不重复不遗漏
+        Assertions.assertEquals(Lists.newArrayList(12L, 11L, 10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L, 0L), all);
+    }
+
+    @Test
+    void testUnionPageSkipDuplicate() {
+        archiveService.archive();
+        // 模拟恢复中断：实例 3 同时存在于两张表
+        saveInstance(3, InstanceStatus.SUCCEED.getV(), 0);
+        Sort sort = Sort.by(Sort.Direction.DESC, "id");
+        Page<InstanceInfoDO> page = InstanceArchiveService.unionPage(PageRequest.of(0, 20, sort),
+                instanceInfoRepository::findAll, p -> instanceInfoArchiveRepository.findAll(InstanceArchiveService.excludeActive(null), p), InstanceArchiveService::fromArchive);
+        Assertions.assertEquals(13, page.getTotalElements());
+        List<Long> instanceIds = page.getContent().stream().map(InstanceInfoDO::getInstanceId).collect(Collectors.toList());
+        Assertions.assertEquals(13, instanceIds.stream().distinct().count());
+        Assertions.assertEquals(3L, instanceIds.get(0));
+
+        PageRequest limit = PageRequest.of(0, 100);
+        List<InstanceListInfo> merged = InstanceArchiveService.merge(instanceInfoRepository.listByAppId(1L, NORMAL, Long.MAX_VALUE, limit),
+                instanceInfoArchiveRepository.listByAppId(1L, NORMAL, Long.MAX_VALUE, limit), 100);
+        Assertions.assertEquals(13, merged.size());
+    }
+
+    @Test
+    void testPageList() {
+        archiveService.archive();
+        // 模拟恢复中断：实例 3 同时存在于两张表
+        saveInstance(3, InstanceStatus.SUCCEED.getV(), 0);
+        Sort sort = Sort.by(Sort.Direction.DESC, "gmtModified");
+        Page<InstanceListInfo> page = InstanceArchiveService.unionPage(PageRequest.of(0, 20, sort),
+                p -> instanceInfoRepository.pageList(1L, NORMAL, null, null, null, null, p),
+                p -> instanceInfoArchiveRepository.pageList(1L, NORMAL, null, null, null, null, p), Function.identity());
+        Assertions.assertEquals(13, page.getTotalElements());
+        Assertions.assertEquals(13, page.getContent().stream().map(InstanceListInfo::getInstanceId).distinct().count());
+
+        // 为 null 的条件不参与过滤
+        int succeed = InstanceStatus.SUCCEED.getV();
+        page = InstanceArchiveService.unionPage(PageRequest.of(0, 20, sort),
+                p -> instanceInfoRepository.pageList(1L, NORMAL, 10L, null, null, succeed, p),
+                p -> instanceInfoArchiveRepository.pageList(1L, NORMAL, 10L, null, null, succeed, p), Function.identity());
+        Assertions.assertEquals(11, page.getTotalElements());
+        page = InstanceArchiveService.unionPage(PageRequest.of(0, 20, sort),
+                p -> instanceInfoRepository.pageList(1L, NORMAL, null, 5L, null, null, p),
+                p -> instanceInfoArchiveRepository.pageList(1L, NORMAL, null, 5L, null, null, p), Function.identity());
+        Assertions.assertEquals(1, page.getTotalElements());
+        Assertions.assertEquals(5L, page.getContent().get(0).getInstanceId());
+    }
+
+    @Test
+    void testArchiveEntityIsNew() {
+        archiveService.archive();
+        // 主键由外部指定，新对象直接 insert，从数据库加载的对象走 merge
+        InstanceInfoArchiveDO archive = instanceInfoArchiveRepository.findByInstanceId(3L);
+        Assertions.assertFalse(archive.isNew());
+        InstanceInfoArchiveDO created = new InstanceInfoArchiveDO();
+        created.setId(archive.getId() + 10000);
+        Assertions.assertTrue(created.isNew());
+        instanceInfoArchiveRepository.saveAndFlush(created);
+        Assertions.assertFalse(created.isNew());
+    }
+
+    @Test
+    void testListStatusByInstanceIds() {
+        archiveService.archive();
+        Map<Long, InstanceStatusInfo> statusInfos = archiveService.listStatusByInstanceIds(Lists.newArrayList(3L, 11L, 12L, 100L));
+        // 同时查询活跃表与归档表，不存在的实例不返回
+        Assertions.assertEquals(3, statusInfos.size());
+        Assertions.assertEquals(InstanceStatus.SUCCEED.getV(), statusInfos.get(3L).getStatus());
+        Assertions.assertEquals(InstanceStatus.RUNNING.getV(), statusInfos.get(12L).getStatus());
+        Assertions.assertEquals(1L, statusInfos.get(11L).getAppId());
+        Assertions.assertFalse(statusInfos.containsKey(100L));
+    }
+
+    private void saveInstance(long instanceId, int status, long finishedAgo) {
+        Date time = new Date(System.currentTimeMillis() - finishedAgo);
+        InstanceInfoDO instanceInfo = new InstanceInfoDO();
+        instanceInfo.setAppId(1L);
+        instanceInfo.setJobId(10L);
+        instanceInfo.setInstanceId(instanceId);
+        instanceInfo.setType(NORMAL);
+        instanceInfo.setStatus(status);
+        instanceInfo.setGmtCreate(time);
+        instanceInfo.setGmtModified(time);
+        instanceInfoRepository.saveAndFlush(instanceInfo);
+    }
+}
@@ -0,0 +1,132 @@
+package tech.powerjob.server.core.instance;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线日志归档格式测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class InstanceLogArchiveTest {
+
+    private File tmpDir;
+
+    @BeforeEach
+    void init() throws IOException {
+        tmpDir = Files.createTempDirectory("powerjob-log-archive").toFile();
+    }
+
+    @AfterEach
+    void destroy() throws IOException {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    void testCompressAndDecompress() throws Exception {
+        File logFile = writeLog(50000);
+        File archiveFile = new File(tmpDir, "1.clog");
+        InstanceLogArchive.compress(logFile, archiveFile);
+        Assertions.assertTrue(archiveFile.length() < logFile.length() / 3);
+
+        File restored = new File(tmpDir, "restored.log");
+        InstanceLogArchive.decompress(archiveFile, restored);
+        Assertions.assertArrayEquals(Files.readAllBytes(logFile.toPath()), Files.readAllBytes(restored.toPath()));
+    }
+
+    @Test
+    void testReadLinesOnlyReadsNeededBlocks() throws Exception {
+        File logFile = writeLog(50000);
+        File archiveFile = new File(tmpDir, "1.clog");
+        InstanceLogArchive.compress(logFile, archiveFile);
+
+        AtomicLong readBytes = new AtomicLong();
+        try (RandomAccessFile raf = new RandomAccessFile(archiveFile, "r")) {
+            InstanceLogArchive.RangeReader reader = (offset, length) -> {
+                int readLength = (int) Math.min(length, raf.length() - offset);
+                byte[] data = new byte[readLength];
+                raf.seek(offset);
+                raf.readFully(data);
+                readBytes.addAndGet(readLength);
+                return data;
+            };
+
+            InstanceLogArchive.LinePage page = InstanceLogArchive.readLines(reader, 30000, 100);
+            Assertions.assertEquals(50000, page.getTotalLines());
+            String[] lines = page.getContent().split(System.lineSeparator());
+            Assertions.assertEquals(100, lines.length);
+            Assertions.assertEquals(line(30000), lines[0]);
+            Assertions.assertEquals(line(30099), lines[99]);
+            // 只读取了头部和少量块
+            Assertions.assertTrue(readBytes.get() < archiveFile.length() / 4);
+
+            // 最后一页不足 100 行，越界返回空
+            Assertions.assertEquals(100, InstanceLogArchive.readLines(reader, 49900, 100).getContent().split(System.lineSeparator()).length);
+            Assertions.assertEquals("", InstanceLogArchive.readLines(reader, 50000, 100).getContent());
+        }
+    }
+
+    @Test
+    void testLastLineWithoutLineSeparator() throws Exception {
+        File logFile = new File(tmpDir, "partial.log");
+        FileUtils.writeStringToFile(logFile, "first\r\n中文日志\nlast", StandardCharsets.UTF_8);
+        File archiveFile = new File(tmpDir, "partial.clog");
+        InstanceLogArchive.compress(logFile, archiveFile);
+
+        InstanceLogArchive.LinePage page = InstanceLogArchive.readLines(rangeReader(archiveFile), 0, 100);
+        Assertions.assertEquals(3, page.getTotalLines());
+        String separator = System.lineSeparator();
+        Assertions.assertEquals("first" + separator + "中文日志" + separator + "last" + separator, page.getContent());
+    }
+
+    @Test
+    void testEmptyLog() throws Exception {
+        File logFile = new File(tmpDir, "empty.log");
+        Assertions.assertTrue(logFile.createNewFile());
+        File archiveFile = new File(tmpDir, "empty.clog");
+        InstanceLogArchive.compress(logFile, archiveFile);
+
+        InstanceLogArchive.LinePage page = InstanceLogArchive.readLines(rangeReader(archiveFile), 0, 100);
+        Assertions.assertEquals(0, page.getTotalLines());
+        Assertions.assertEquals("", page.getContent());
+
+        File restored = new File(tmpDir, "restored.log");
+        InstanceLogArchive.decompress(archiveFile, restored);
+        Assertions.assertEquals(0, restored.length());
+    }
+
+    private File writeLog(int lineNum) throws IOException {
+        File logFile = new File(tmpDir, lineNum + ".log");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineNum; i++) {
+            sb.append(line(i)).append('\n');
+        }
+        FileUtils.writeStringToFile(logFile, sb.toString(), StandardCharsets.UTF_8);
+        return logFile;
+    }
+
+    private static String line(int i) {
+        return "2024-03-13 12:00:00.000 [127.0.0.1:27777] INFO processor run, line " + i;
+    }
+
+    private static InstanceLogArchive.RangeReader rangeReader(File archiveFile) {
+        return (offset, length) -> {
+            byte[] all = Files.readAllBytes(archiveFile.toPath());
+            int readLength = (int) Math.max(0, Math.min(length, all.length - offset));
+            byte[] data = new byte[readLength];
+            System.arraycopy(all, (int) offset, data, 0, readLength);
+            return data;
+        };
+    }
+}
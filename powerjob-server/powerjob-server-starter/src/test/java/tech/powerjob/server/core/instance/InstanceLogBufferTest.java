@@ -0,0 +1,156 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import tech.powerjob.common.enums.LogLevel;
+import tech.powerjob.server.persistence.local.LocalInstanceLogDO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在线日志写缓冲测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class InstanceLogBufferTest {
+
+    private EmbeddedDatabase dataSource;
+
+    private File segmentDir;
+
+    private InstanceLogSegments segments;
+
+    @BeforeEach
+    void init() throws Exception {
+        segmentDir = Files.createTempDirectory("powerjob-log-segment").toFile();
+        // instanceId 为 100 的实例属于秒级任务
+        segments = new InstanceLogSegments(segmentDir.getPath(), instanceId -> instanceId == 100, System::currentTimeMillis);
+        dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table local_instance_log (id bigint auto_increment primary key, instance_id bigint, log_time bigint, log_level integer, log_content text, worker_address varchar(255))");
+        }
+    }
+
+    @AfterEach
+    void destroy() throws IOException {
+        dataSource.shutdown();
+        FileUtils.deleteDirectory(segmentDir);
+    }
+
+    @Test
+    void testConcurrentSubmit() throws Exception {
+        InstanceLogBuffer buffer = new InstanceLogBuffer(dataSource, segments, 100000);
+        buffer.afterPropertiesSet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            long instanceId = i % 10;
+            pool.execute(() -> {
+                Assertions.assertTrue(buffer.offer(logs(instanceId, 20)));
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        for (long instanceId = 0; instanceId < 10; instanceId++) {
+            Assertions.assertTrue(buffer.flush(instanceId));
+        }
+        Assertions.assertEquals(0, buffer.size());
+        Assertions.assertEquals(4000, count("select count(*) from local_instance_log"));
+        Assertions.assertEquals(400, count("select count(*) from local_instance_log where instance_id = 3 and worker_address = '127.0.0.1:27777'"));
+        buffer.destroy();
+    }
+
+    @Test
+    void testRejectWhenFull() throws Exception {
+        InstanceLogBuffer buffer = new InstanceLogBuffer(dataSource, segments, 100);
+        // 写线程未启动，模拟落库速度跟不上上报速度
+        Assertions.assertTrue(buffer.offer(logs(1, 60)));
+        // 整批拒绝，不会写入部分日志
+        Assertions.assertFalse(buffer.offer(logs(1, 60)));
+        Assertions.assertTrue(buffer.offer(logs(1, 40)));
+        Assertions.assertEquals(100, buffer.size());
+
+        buffer.afterPropertiesSet();
+        Assertions.assertTrue(buffer.flush(1));
+        Assertions.assertTrue(buffer.offer(logs(1, 60)));
+        Assertions.assertTrue(buffer.flush(1));
+        Assertions.assertEquals(160, count("select count(*) from local_instance_log"));
+        buffer.destroy();
+    }
+
+    @Test
+    void testFlushOnlyWaitsForInstance() throws Exception {
+        InstanceLogBuffer buffer = new InstanceLogBuffer(dataSource, segments, 1000);
+        // 写线程未启动，实例 1 的日志一直积压，不影响实例 2 的 flush
+        Assertions.assertTrue(buffer.offer(logs(1, 50)));
+        long startMs = System.currentTimeMillis();
+        Assertions.assertTrue(buffer.flush(2));
+        Assertions.assertTrue(System.currentTimeMillis() - startMs < 1000);
+
+        buffer.afterPropertiesSet();
+        Assertions.assertTrue(buffer.offer(logs(2, 10)));
+        Assertions.assertTrue(buffer.flush(2));
+        Assertions.assertTrue(buffer.flush(1));
+        Assertions.assertEquals(60, count("select count(*) from local_instance_log"));
+        buffer.destroy();
+    }
+
+    @Test
+    void testSegmentedInstance() throws Exception {
+        InstanceLogBuffer buffer = new InstanceLogBuffer(dataSource, segments, 1000);
+        buffer.afterPropertiesSet();
+        Assertions.assertTrue(buffer.offer(logs(100, 30)));
+        Assertions.assertTrue(buffer.offer(logs(1, 20)));
+        Assertions.assertTrue(buffer.flush(100));
+        Assertions.assertTrue(buffer.flush(1));
+
+        // 秒级任务的日志写入分段而不是本地数据库
+        Assertions.assertEquals(20, count("select count(*) from local_instance_log"));
+        Assertions.assertTrue(segments.contains(100));
+        Assertions.assertFalse(segments.contains(1));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        segments.transferTo(100, os);
+        Assertions.assertEquals(30, os.toString().split(System.lineSeparator()).length);
+        buffer.destroy();
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static List<LocalInstanceLogDO> logs(long instanceId, int num) {
+        AtomicInteger seq = new AtomicInteger();
+        List<LocalInstanceLogDO> logs = Lists.newArrayList();
+        for (int i = 0; i < num; i++) {
+            logs.add(new LocalInstanceLogDO(null, instanceId, System.currentTimeMillis(), LogLevel.INFO.getV(), "log-" + seq.incrementAndGet(), "127.0.0.1:27777"));
+        }
+        return logs;
+    }
+}
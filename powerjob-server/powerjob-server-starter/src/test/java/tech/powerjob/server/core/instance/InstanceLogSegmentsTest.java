@@ -0,0 +1,127 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.enums.LogLevel;
+import tech.powerjob.server.persistence.local.LocalInstanceLogDO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 秒级任务在线日志分段存储测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class InstanceLogSegmentsTest {
+
+    private static final long START = 1710000000000L;
+
+    private File segmentDir;
+
+    private final AtomicLong now = new AtomicLong(START);
+
+    private InstanceLogSegments segments;
+
+    @BeforeEach
+    void init() throws IOException {
+        segmentDir = Files.createTempDirectory("powerjob-log-segment").toFile();
+        segments = new InstanceLogSegments(segmentDir.getPath(), instanceId -> true, now::get);
+    }
+
+    @AfterEach
+    void destroy() throws IOException {
+        FileUtils.deleteDirectory(segmentDir);
+    }
+
+    @Test
+    void testRolling() throws IOException {
+        // 持续运行 30 分钟，每 10 秒一条日志
+        for (int i = 0; i < 180; i++) {
+            now.set(START + i * 10000L);
+            segments.append(Lists.newArrayList(log(1, now.get(), "line-" + i)));
+            if (i % 12 == 0) {
+                segments.expire();
+            }
+        }
+        segments.expire();
+
+        // 只保留最近 10 分钟（外加当前分钟）的分段
+        File[] files = new File(segmentDir, "1").listFiles();
+        Assertions.assertNotNull(files);
+        Assertions.assertTrue(files.length <= InstanceLogSegments.RETENTION_MS / InstanceLogSegments.SEGMENT_MS + 1);
+
+        List<String> lines = readAll(1);
+        Assertions.assertEquals("line-179", lines.get(lines.size() - 1));
+        Assertions.assertTrue(lines.size() >= 60 && lines.size() <= 66);
+        // 按时间顺序输出
+        for (int i = 1; i < lines.size(); i++) {
+            Assertions.assertTrue(Integer.parseInt(lines.get(i).substring(5)) > Integer.parseInt(lines.get(i - 1).substring(5)));
+        }
+
+        segments.delete(1);
+        Assertions.assertFalse(new File(segmentDir, "1").exists());
+    }
+
+    @Test
+    void testOutOfOrderAndExpired() throws IOException {
+        now.set(START + 20 * InstanceLogSegments.SEGMENT_MS);
+        segments.append(Lists.newArrayList(
+                log(2, now.get() - 1000, "b"),
+                log(2, now.get() - 2000, "a"),
+                // 已过期的日志直接丢弃
+                log(2, START, "expired")));
+        Assertions.assertEquals(Lists.newArrayList("a", "b"), readAll(2));
+        Assertions.assertTrue(readAll(3).isEmpty());
+    }
+
+    @Test
+    void testRemoveEmptyInstanceDir() {
+        segments.append(Lists.newArrayList(log(4, now.get(), "a")));
+        Assertions.assertTrue(new File(segmentDir, "4").isDirectory());
+        now.addAndGet(InstanceLogSegments.RETENTION_MS + InstanceLogSegments.SEGMENT_MS);
+        Assertions.assertEquals(1, segments.expire());
+        Assertions.assertFalse(new File(segmentDir, "4").exists());
+
+        // 目录删除后仍可继续写入
+        segments.append(Lists.newArrayList(log(4, now.get(), "b")));
+        Assertions.assertEquals(1, new File(segmentDir, "4").list().length);
+    }
+
+    @Test
+    void testFailedLookupNotCached() {
+        AtomicInteger lookupTimes = new AtomicInteger();
+        InstanceLogSegments unstable = new InstanceLogSegments(segmentDir.getPath(), instanceId -> lookupTimes.incrementAndGet() == 1 ? null : true, now::get);
+        // 第一次查询失败，按非秒级任务处理且不缓存
+        Assertions.assertFalse(unstable.isSegmented(5));
+        Assertions.assertTrue(unstable.isSegmented(5));
+        Assertions.assertTrue(unstable.isSegmented(5));
+        Assertions.assertEquals(2, lookupTimes.get());
+    }
+
+    private List<String> readAll(long instanceId) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        segments.transferTo(instanceId, os);
+        List<String> lines = Lists.newArrayList();
+        for (String line : os.toString().split(System.lineSeparator())) {
+            if (!line.isEmpty()) {
+                lines.add(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        return lines;
+    }
+
+    private static LocalInstanceLogDO log(long instanceId, long logTime, String content) {
+        return new LocalInstanceLogDO(null, instanceId, logTime, LogLevel.INFO.getV(), content, "127.0.0.1:27777");
+    }
+}
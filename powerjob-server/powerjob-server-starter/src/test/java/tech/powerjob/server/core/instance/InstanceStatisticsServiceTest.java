@@ -0,0 +1,117 @@
+package tech.powerjob.server.core.instance;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.persistence.remote.repository.AppInfoRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoArchiveRepository;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.remote.transporter.ProtocolInfo;
+import tech.powerjob.server.remote.transporter.TransportService;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 任务实例统计测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class InstanceStatisticsServiceTest {
+
+    private static final long HOUR = 3600000;
+    private static final int RUNNING = InstanceStatus.RUNNING.getV();
+    private static final int FAILED = InstanceStatus.FAILED.getV();
+    private static final int WAITING_DISPATCH = InstanceStatus.WAITING_DISPATCH.getV();
+
+    private final AtomicLong now = new AtomicLong(100 * HOUR + 1000);
+
+    private AppInfoRepository appInfoRepository;
+    private InstanceInfoRepository instanceInfoRepository;
+    private InstanceStatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        appInfoRepository = mock(AppInfoRepository.class);
+        instanceInfoRepository = mock(InstanceInfoRepository.class);
+        when(instanceInfoRepository.countByAppIdAndStatus(1L, RUNNING)).thenReturn(2L);
+        when(instanceInfoRepository.countGroupByCreateHour(eq(1L), eq(FAILED), any()))
+                .thenReturn(Lists.newArrayList(hourRow(now.get() - 2 * HOUR, 1), hourRow(now.get() - 10 * HOUR, 1)));
+
+        TransportService transportService = mock(TransportService.class);
+        when(transportService.defaultProtocol()).thenReturn(new ProtocolInfo("AKKA", "127.0.0.1", 10086, null));
+
+        statisticsService = new InstanceStatisticsService(appInfoRepository, instanceInfoRepository, mock(InstanceInfoArchiveRepository.class), now::get);
+        statisticsService.setTransportService(transportService);
+    }
+
+    @Test
+    void testIncrementalUpdate() {
+        InstanceStatistics statistics = statisticsService.fetchStatistics(1L);
+        assertEquals(2, statistics.getRunningInstanceCount());
+        assertEquals(2, statistics.getFailedInstanceCount());
+
+        Date created = new Date(now.get() - HOUR);
+        statisticsService.onStatusChange(1L, WAITING_DISPATCH, RUNNING, created);
+        statisticsService.onStatusChange(1L, RUNNING, FAILED, created);
+        statisticsService.onStatusChange(1L, WAITING_DISPATCH, RUNNING, new Date(now.get()));
+        // 24 小时之前创建的实例不计入失败数
+        statisticsService.onStatusChange(1L, RUNNING, FAILED, new Date(now.get() - 30 * HOUR));
+        // 窗口为当前小时及之前 23 个小时，不会因为按小时取整扩大到 25 小时
+        statisticsService.onStatusChange(1L, WAITING_DISPATCH, FAILED, new Date(now.get() - 24 * HOUR));
+
+        statistics = statisticsService.fetchStatistics(1L);
+        assertEquals(2, statistics.getRunningInstanceCount());
+        assertEquals(3, statistics.getFailedInstanceCount());
+
+        // 失败实例重试
+        statisticsService.onStatusChange(1L, FAILED, WAITING_DISPATCH, created);
+        assertEquals(2, statisticsService.fetchStatistics(1L).getFailedInstanceCount());
+
+        // 随时间推移，旧的桶滑出窗口
+        now.addAndGet(20 * HOUR);
+        assertEquals(1, statisticsService.fetchStatistics(1L).getFailedInstanceCount());
+
+        // 只在首次访问时查询数据库
+        verify(instanceInfoRepository, times(1)).countByAppIdAndStatus(anyLong(), anyInt());
+    }
+
+    @Test
+    void testReconcile() {
+        // 未访问过的 app 不维护计数器
+        statisticsService.onStatusChange(1L, WAITING_DISPATCH, RUNNING, new Date(now.get()));
+        assertEquals(2, statisticsService.fetchStatistics(1L).getRunningInstanceCount());
+
+        // 漂移的计数在后台统计时修正
+        statisticsService.onStatusChange(1L, WAITING_DISPATCH, RUNNING, new Date(now.get()));
+        assertEquals(3, statisticsService.fetchStatistics(1L).getRunningInstanceCount());
+        when(appInfoRepository.listAppIdByCurrentServer(anyString())).thenReturn(Lists.newArrayList(1L));
+        statisticsService.reconcileAll();
+        assertEquals(2, statisticsService.fetchStatistics(1L).getRunningInstanceCount());
+        verify(instanceInfoRepository, times(2)).countByAppIdAndStatus(anyLong(), anyInt());
+
+        // app 切换到其他 server 后移除本地计数器
+        when(appInfoRepository.listAppIdByCurrentServer(anyString())).thenReturn(Collections.emptyList());
+        statisticsService.reconcileAll();
+        statisticsService.fetchStatistics(1L);
+        verify(instanceInfoRepository, times(3)).countByAppIdAndStatus(anyLong(), anyInt());
+    }
+
+    /**
+     * 模拟数据库按小时分组的统计结果
+     */
+    private static Object[] hourRow(long time, long count) {
+        LocalDateTime hour = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDateTime();
+        return new Object[]{hour.getYear(), hour.getMonthValue(), hour.getDayOfMonth(), hour.getHour(), count};
+    }
+}
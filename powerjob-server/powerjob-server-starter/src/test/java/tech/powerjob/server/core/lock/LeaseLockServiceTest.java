@@ -0,0 +1,100 @@
+package tech.powerjob.server.core.lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import tech.powerjob.server.persistence.remote.repository.OmsLeaseLockRepository;
+import tech.powerjob.server.test.H2JpaTestConfiguration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约锁测试，两个 LeaseLockService 实例模拟两台 server，server B 的时钟比 A 快 1.5s
+ *
+ * @author tjq
+ * @since 2024/3/4
+ */
+@SpringJUnitConfig(H2JpaTestConfiguration.class)
+class LeaseLockServiceTest {
+
+    private static final long CLOCK_SKEW = 1500;
+    private static final long SKEW_TOLERANCE = 2000;
+
+    @Autowired
+    private OmsLeaseLockRepository leaseLockRepository;
+
+    private final AtomicLong time = new AtomicLong(1_000_000L);
+
+    private LeaseLockService serverA;
+    private LeaseLockService serverB;
+
+    @BeforeEach
+    void init() {
+        leaseLockRepository.deleteAll();
+        serverA = new LeaseLockService(leaseLockRepository, "192.168.1.1", time::get, 4, SKEW_TOLERANCE);
+        serverB = new LeaseLockService(leaseLockRepository, "192.168.1.2", () -> time.get() + CLOCK_SKEW, 4, SKEW_TOLERANCE);
+    }
+
+    @Test
+    void testMutualExclusionAndFencing() {
+        Assertions.assertTrue(serverA.tryLock("lock", 10000));
+        Assertions.assertEquals(1, serverA.fencingToken("lock"));
+        Assertions.assertFalse(serverB.tryLock("lock", 10000));
+
+        serverA.unlock("lock");
+        Assertions.assertEquals(-1, serverA.fencingToken("lock"));
+
+        Assertions.assertTrue(serverB.tryLock("lock", 10000));
+        Assertions.assertEquals(2, serverB.fencingToken("lock"));
+        serverB.unlock("lock");
+    }
+
+    @Test
+    void testReentrant() throws Exception {
+        Assertions.assertTrue(serverA.tryLock("reentrant", 10000));
+        Assertions.assertTrue(serverA.tryLock("reentrant", 10000));
+
+        // 同进程其他线程走本地快速路径直接失败
+        Assertions.assertFalse(CompletableFuture.supplyAsync(() -> serverA.tryLock("reentrant", 10000)).get());
+
+        serverA.unlock("reentrant");
+        Assertions.assertFalse(serverB.tryLock("reentrant", 10000));
+
+        serverA.unlock("reentrant");
+        Assertions.assertTrue(serverB.tryLock("reentrant", 10000));
+    }
+
+    @Test
+    void testExpireWithClockSkew() {
+        Assertions.assertTrue(serverA.tryLock("expire", 1000));
+
+        // B 的时钟已超过 A 的租约，但仍在容忍范围内，不可抢占
+        time.addAndGet(500);
+        Assertions.assertFalse(serverB.tryLock("expire", 1000));
+
+        // 超出容忍范围后 B 抢占成功，fencing 递增
+        time.addAndGet(SKEW_TOLERANCE);
+        Assertions.assertTrue(serverB.tryLock("expire", 1000));
+        Assertions.assertEquals(2, serverB.fencingToken("expire"));
+
+        // 旧持有者续约失败，且不能误释放新持有者的锁
+        Assertions.assertFalse(serverA.renew("expire", 1000));
+        serverA.unlock("expire");
+        Assertions.assertEquals(2, serverB.fencingToken("expire"));
+        Assertions.assertFalse(serverA.tryLock("expire", 1000));
+    }
+
+    @Test
+    void testRenew() {
+        Assertions.assertTrue(serverA.tryLock("renew", 1000));
+        time.addAndGet(800);
+        Assertions.assertTrue(serverA.renew("renew", 5000));
+
+        time.addAndGet(3000);
+        Assertions.assertFalse(serverB.tryLock("renew", 1000));
+        Assertions.assertEquals(1, serverA.fencingToken("renew"));
+    }
+}
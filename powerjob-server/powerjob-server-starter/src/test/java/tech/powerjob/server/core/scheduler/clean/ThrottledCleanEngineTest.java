@@ -0,0 +1,85 @@
+package tech.powerjob.server.core.scheduler.clean;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.repository.InstanceInfoRepository;
+import tech.powerjob.server.persistence.remote.repository.SundryRepository;
+import tech.powerjob.server.test.H2JpaTestConfiguration;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限速清理引擎测试
+ *
+ * @author tjq
+ * @since 2024/3/5
+ */
+@SpringJUnitConfig(H2JpaTestConfiguration.class)
+class ThrottledCleanEngineTest {
+
+    @Autowired
+    private InstanceInfoRepository instanceInfoRepository;
+    @Autowired
+    private SundryRepository sundryRepository;
+
+    @BeforeEach
+    void init() {
+        instanceInfoRepository.deleteAll();
+        sundryRepository.deleteAll();
+    }
+
+    @Test
+    void testRangeDeleteAndResume() {
+        Date expired = DateUtils.addDays(new Date(), -10);
+        for (int i = 0; i < 50; i++) {
+            // 每 5 条保留一条运行中的记录
+            int status = i % 5 == 0 ? InstanceStatus.RUNNING.getV() : InstanceStatus.SUCCEED.getV();
+            saveInstance(i, status, expired);
+        }
+        saveInstance(50, InstanceStatus.SUCCEED.getV(), new Date());
+
+        Date t = DateUtils.addDays(new Date(), -7);
+        long minId = instanceInfoRepository.findMinId();
+        long maxId = instanceInfoRepository.findMaxIdByGmtCreateBefore(t);
+
+        AtomicInteger batches = new AtomicInteger();
+        PrimaryKeyRangeCleanTask task = new PrimaryKeyRangeCleanTask("instance_info", minId, maxId, (startId, endId) -> {
+            batches.incrementAndGet();
+            return instanceInfoRepository.deleteByIdRange(startId, endId, t, InstanceStatus.FINISHED_STATUS);
+        });
+
+        // 第一次运行：调度延迟过高，到达截止时间前不执行任何批次
+        ThrottledCleanEngine busyEngine = new ThrottledCleanEngine(sundryRepository, () -> 10000L, 10, 10000, 3000, 10);
+        Assertions.assertEquals(0, busyEngine.run(task, System.currentTimeMillis() + 100));
+        Assertions.assertEquals(0, batches.get());
+
+        // 第二次运行：执行两个批次后模拟中断（截止时间），断点写入 sundry
+        ThrottledCleanEngine interruptedEngine = new ThrottledCleanEngine(sundryRepository, () -> batches.get() >= 2 ? 10000L : 0L, 10, 10000, 3000, 10);
+        Assertions.assertEquals(16, interruptedEngine.run(task, System.currentTimeMillis() + 200));
+        Assertions.assertEquals(String.valueOf(minId + 19), sundryRepository.findByPkeyAndSkey("CleanCheckpoint", "instance_info").get().getContent());
+
+        // 第三次运行：从断点继续，完成后清除断点
+        ThrottledCleanEngine idleEngine = new ThrottledCleanEngine(sundryRepository, () -> 0L, 10, 10000, 3000, 10);
+        Assertions.assertEquals(24, idleEngine.run(task, System.currentTimeMillis() + 10000));
+        Assertions.assertFalse(sundryRepository.findByPkeyAndSkey("CleanCheckpoint", "instance_info").isPresent());
+        Assertions.assertEquals(11, instanceInfoRepository.count());
+    }
+
+    private void saveInstance(long instanceId, int status, Date time) {
+        InstanceInfoDO instanceInfo = new InstanceInfoDO();
+        instanceInfo.setAppId(1L);
+        instanceInfo.setJobId(1L);
+        instanceInfo.setInstanceId(instanceId);
+        instanceInfo.setStatus(status);
+        instanceInfo.setGmtCreate(time);
+        instanceInfo.setGmtModified(time);
+        instanceInfoRepository.saveAndFlush(instanceInfo);
+    }
+}
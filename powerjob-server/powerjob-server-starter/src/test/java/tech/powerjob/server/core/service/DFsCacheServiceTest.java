@@ -0,0 +1,242 @@
+package tech.powerjob.server.core.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.server.extension.dfs.*;
+import tech.powerjob.server.monitor.MonitorService;
+import tech.powerjob.server.monitor.events.dfs.DFsCacheEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DFS 本地缓存测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class DFsCacheServiceTest {
+
+    private static final String BUCKET = "container";
+
+    private File cacheDir;
+
+    private final StubDFsService dFsService = new StubDFsService();
+
+    private final List<DFsCacheEvent> events = new CopyOnWriteArrayList<>();
+
+    private final MonitorService monitorService = event -> {
+        if (event instanceof DFsCacheEvent) {
+            events.add((DFsCacheEvent) event);
+        }
+    };
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+
+    @BeforeEach
+    void init() throws IOException {
+        cacheDir = Files.createTempDirectory("powerjob-dfs-cache").toFile();
+    }
+
+    @AfterEach
+    void destroy() throws IOException {
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    @Test
+    void testFetchAndHit() throws Exception {
+        dFsService.put("a.jar", "hello");
+        DFsCacheService cacheService = newCacheService(1024);
+
+        Optional<File> first = cacheService.fetch(location("a.jar"));
+        Assertions.assertTrue(first.isPresent());
+        Assertions.assertEquals("hello", FileUtils.readFileToString(first.get(), StandardCharsets.UTF_8));
+        Optional<File> second = cacheService.fetch(location("a.jar"));
+        Assertions.assertEquals(first.get(), second.orElse(null));
+
+        Assertions.assertEquals(1, dFsService.openNum.get());
+        Assertions.assertEquals(5, cacheService.size());
+        Assertions.assertEquals(1, count(DFsCacheEvent.Status.MISS));
+        Assertions.assertEquals(1, count(DFsCacheEvent.Status.HIT));
+    }
+
+    @Test
+    void testConcurrentFetchDownloadOnce() throws Exception {
+        dFsService.put("a.jar", "hello");
+        dFsService.latency = 200;
+        DFsCacheService cacheService = newCacheService(1024);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Optional<File>>> futures = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            futures.add(pool.submit(() -> cacheService.fetch(location("a.jar"))));
+        }
+        for (Future<Optional<File>> future : futures) {
+            Assertions.assertTrue(future.get(10, TimeUnit.SECONDS).isPresent());
+        }
+        pool.shutdown();
+
+        Assertions.assertEquals(1, dFsService.openNum.get());
+        Assertions.assertEquals(1, count(DFsCacheEvent.Status.MISS));
+    }
+
+    @Test
+    void testNotFound() throws Exception {
+        DFsCacheService cacheService = newCacheService(1024);
+        Assertions.assertFalse(cacheService.fetch(location("not_exist.jar")).isPresent());
+        Assertions.assertFalse(cacheService.peek(location("not_exist.jar")).isPresent());
+        Assertions.assertEquals(1, count(DFsCacheEvent.Status.NOT_FOUND));
+        Assertions.assertEquals(0, cacheService.size());
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsed() throws Exception {
+        dFsService.put("a.jar", "aaaaa");
+        dFsService.put("b.jar", "bbbbb");
+        dFsService.put("c.jar", "ccccc");
+        DFsCacheService cacheService = newCacheService(10);
+
+        cacheService.fetch(location("a.jar"));
+        cacheService.fetch(location("b.jar"));
+        clock.addAndGet(DFsCacheService.MIN_IDLE_MS);
+        // a 最近被访问，淘汰 b
+        cacheService.fetch(location("a.jar"));
+        clock.addAndGet(DFsCacheService.MIN_IDLE_MS);
+        cacheService.fetch(location("c.jar"));
+
+        Assertions.assertEquals(10, cacheService.size());
+        Assertions.assertTrue(cacheService.peek(location("a.jar")).isPresent());
+        Assertions.assertFalse(cacheService.peek(location("b.jar")).isPresent());
+        Assertions.assertTrue(cacheService.peek(location("c.jar")).isPresent());
+        Assertions.assertEquals(1, count(DFsCacheEvent.Status.EVICTED));
+    }
+
+    @Test
+    void testRecentlyUsedNotEvicted() throws Exception {
+        dFsService.put("a.jar", "aaaaa");
+        dFsService.put("b.jar", "bbbbb");
+        DFsCacheService cacheService = newCacheService(5);
+
+        cacheService.fetch(location("a.jar"));
+        cacheService.fetch(location("b.jar"));
+        // 刚访问过的文件可能正在被使用，暂时超出容量
+        Assertions.assertEquals(10, cacheService.size());
+        Assertions.assertTrue(cacheService.peek(location("a.jar")).isPresent());
+    }
+
+    @Test
+    void testPutAndInvalidate() throws Exception {
+        DFsCacheService cacheService = newCacheService(1024);
+        File localFile = new File(cacheDir.getParentFile(), "powerjob-dfs-cache-" + System.nanoTime() + ".jar");
+        FileUtils.writeStringToFile(localFile, "uploaded", StandardCharsets.UTF_8);
+
+        File cached = cacheService.put(location("u.jar"), localFile);
+        Assertions.assertFalse(localFile.exists());
+        Assertions.assertEquals(cached, cacheService.fetch(location("u.jar")).orElse(null));
+        Assertions.assertEquals(0, dFsService.openNum.get());
+
+        cacheService.invalidate(location("u.jar"));
+        Assertions.assertFalse(cached.exists());
+        Assertions.assertEquals(0, cacheService.size());
+    }
+
+    @Test
+    void testRestoreAndEvictIdle() throws Exception {
+        dFsService.put("a.jar", "aaaaa");
+        dFsService.put("b.jar", "bbbbb");
+        DFsCacheService cacheService = newCacheService(1024);
+        cacheService.fetch(location("a.jar"));
+        cacheService.fetch(location("b.jar"));
+        Assertions.assertTrue(new File(cacheDir, "x.tmp").createNewFile());
+
+        // 重启后从磁盘恢复索引，未完成的下载被删除
+        DFsCacheService restored = newCacheService(1024);
+        Assertions.assertEquals(10, restored.size());
+        Assertions.assertTrue(restored.peek(location("a.jar")).isPresent());
+        Assertions.assertFalse(new File(cacheDir, "x.tmp").exists());
+
+        clock.addAndGet(TimeUnit.DAYS.toMillis(2));
+        restored.fetch(location("a.jar"));
+        Assertions.assertEquals(1, restored.evictIdle(1));
+        Assertions.assertEquals(5, restored.size());
+        Assertions.assertEquals(2, dFsService.openNum.get());
+    }
+
+    private DFsCacheService newCacheService(long maxBytes) {
+        return new DFsCacheService(dFsService, monitorService, cacheDir.getPath(), maxBytes, clock::get);
+    }
+
+    private long count(DFsCacheEvent.Status status) {
+        return events.stream().filter(e -> e.getStatus() == status).count();
+    }
+
+    private static FileLocation location(String name) {
+        return new FileLocation().setBucket(BUCKET).setName(name);
+    }
+
+    /**
+     * 内存中的 DFS，记录下载次数
+     */
+    private static class StubDFsService implements DFsService {
+
+        private final Map<String, byte[]> files = Maps.newConcurrentMap();
+
+        private final AtomicInteger openNum = new AtomicInteger();
+
+        private volatile long latency;
+
+        void put(String name, String content) {
+            files.put(name, content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream openStream(FileLocation fileLocation, long offset, long length) throws IOException {
+            openNum.incrementAndGet();
+            byte[] data = files.get(fileLocation.getName());
+            if (data == null) {
+                throw new FileNotFoundException(fileLocation.toString());
+            }
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public void store(StoreRequest storeRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void download(DownloadRequest downloadRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<FileMeta> fetchFileMeta(FileLocation fileLocation) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void cleanExpiredFiles(String bucket, int days) {
+        }
+    }
+}
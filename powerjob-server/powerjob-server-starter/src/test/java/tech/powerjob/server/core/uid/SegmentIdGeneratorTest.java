@@ -0,0 +1,70 @@
+package tech.powerjob.server.core.uid;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式 ID 生成器测试
+ *
+ * @author tjq
+ * @since 2024/3/3
+ */
+class SegmentIdGeneratorTest {
+
+    @Test
+    void testConcurrentUnique() throws Exception {
+        AtomicLong maxId = new AtomicLong(1000);
+        AtomicInteger allocateTimes = new AtomicInteger();
+        SegmentIdGenerator generator = new SegmentIdGenerator(100, step -> {
+            allocateTimes.incrementAndGet();
+            return maxId.getAndAdd(step);
+        });
+
+        int threadNum = 8;
+        int perThread = 5000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+        CountDownLatch latch = new CountDownLatch(threadNum);
+        for (int i = 0; i < threadNum; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(generator.nextId());
+                }
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        Assertions.assertEquals(threadNum * perThread, ids.size());
+        ids.forEach(id -> Assertions.assertTrue(id >= 1000 && id < maxId.get()));
+        // 双 buffer：每次最多多预留一个号段
+        Assertions.assertTrue(allocateTimes.get() <= threadNum * perThread / 100 + 2 + threadNum);
+    }
+
+    @Test
+    void testBatchAcrossSegments() {
+        AtomicLong maxId = new AtomicLong(0);
+        SegmentIdGenerator generator = new SegmentIdGenerator(10, step -> maxId.getAndAdd(step));
+
+        long first = generator.nextId();
+        long[] batch = generator.nextIds(25);
+        Assertions.assertEquals(25, batch.length);
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ids.add(first);
+        for (long id : batch) {
+            Assertions.assertTrue(ids.add(id));
+        }
+        Assertions.assertTrue(ids.add(generator.nextId()));
+    }
+}
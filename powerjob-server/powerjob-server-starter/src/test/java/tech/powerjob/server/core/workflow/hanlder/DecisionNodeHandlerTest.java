@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import tech.powerjob.common.enums.WorkflowNodeType;
 import tech.powerjob.common.model.PEWorkflowDAG;
+import tech.powerjob.server.core.evaluator.GroovyEvaluator;
 import tech.powerjob.server.core.workflow.hanlder.impl.DecisionNodeHandler;
 import tech.powerjob.server.persistence.remote.model.WorkflowInstanceInfoDO;
 
@@ -19,7 +20,7 @@ import static tech.powerjob.server.core.data.DataConstructUtil.*;
  */
 class DecisionNodeHandlerTest {
 
-    private final DecisionNodeHandler decisionNodeHandler = new DecisionNodeHandler();
+    private final DecisionNodeHandler decisionNodeHandler = new DecisionNodeHandler(new GroovyEvaluator());
 
 
     @Test
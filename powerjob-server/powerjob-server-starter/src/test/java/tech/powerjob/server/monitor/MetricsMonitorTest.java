@@ -0,0 +1,62 @@
+package tech.powerjob.server.monitor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.server.monitor.events.db.DatabaseEvent;
+import tech.powerjob.server.monitor.events.w2s.WorkerHeartbeatEvent;
+import tech.powerjob.server.monitor.events.w2s.WorkerLogReportEvent;
+import tech.powerjob.server.monitor.monitors.MetricsMonitor;
+
+/**
+ * 指标监控测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class MetricsMonitorTest {
+
+    @Test
+    void testRegisterAndRecord() {
+        MetricsMonitor monitor = new MetricsMonitor(false, false);
+        String empty = monitor.scrape();
+        // 全部指标族在启动时注册
+        Assertions.assertTrue(empty.contains("# TYPE powerjob_db_latency_ms histogram"));
+        Assertions.assertTrue(empty.contains("# TYPE powerjob_worker_log_report_total counter"));
+        Assertions.assertTrue(empty.contains("# TYPE powerjob_alarm_backlog gauge"));
+
+        monitor.record(new DatabaseEvent().setServiceName("InstanceInfoRepository").setMethodName("save").setCost(3).setRows(1).setStatus(DatabaseEvent.Status.SUCCESS));
+        monitor.record(new WorkerHeartbeatEvent().setAppName("app").setProtocol("HTTP").setDelayMs(12));
+
+        String text = monitor.scrape();
+        Assertions.assertTrue(text.contains("powerjob_db_rows_total{service=\"InstanceInfoRepository\",method=\"save\"} 1"));
+        Assertions.assertTrue(text.contains("powerjob_db_latency_ms_count{service=\"InstanceInfoRepository\",method=\"save\"} 1"));
+        Assertions.assertTrue(text.contains("powerjob_worker_heartbeat_delay_ms_sum{app_name=\"app\",protocol=\"HTTP\"} 12"));
+    }
+
+    @Test
+    void testWorkerAddressLabelDisabledByDefault() {
+        MetricsMonitor monitor = new MetricsMonitor(false, false);
+        monitor.record(logReport("192.168.1.1:27777", 10));
+        monitor.record(logReport("192.168.1.2:27777", 5));
+
+        // 不同 worker 聚合到同一个序列，序列数量不随 worker 变化
+        String text = monitor.scrape();
+        Assertions.assertTrue(text.contains("powerjob_worker_log_report_lines_total{status=\"SUCCESS\",worker_address=\"-\"} 15"));
+        Assertions.assertFalse(text.contains("192.168.1.1"));
+    }
+
+    @Test
+    void testWorkerAddressLabelEnabled() {
+        MetricsMonitor monitor = new MetricsMonitor(false, true);
+        monitor.record(logReport("192.168.1.1:27777", 10));
+        monitor.record(logReport("192.168.1.2:27777", 5));
+
+        String text = monitor.scrape();
+        Assertions.assertTrue(text.contains("powerjob_worker_log_report_lines_total{status=\"SUCCESS\",worker_address=\"192.168.1.1:27777\"} 10"));
+        Assertions.assertTrue(text.contains("powerjob_worker_log_report_lines_total{status=\"SUCCESS\",worker_address=\"192.168.1.2:27777\"} 5"));
+    }
+
+    private static WorkerLogReportEvent logReport(String workerAddress, long logNum) {
+        return new WorkerLogReportEvent().setWorkerAddress(workerAddress).setLogNum(logNum).setStatus(WorkerLogReportEvent.Status.SUCCESS);
+    }
+}
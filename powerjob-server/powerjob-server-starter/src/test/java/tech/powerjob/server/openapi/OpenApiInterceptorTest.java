@@ -0,0 +1,66 @@
+package tech.powerjob.server.openapi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.powerjob.common.OpenAPIConstant;
+import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.server.core.service.CacheService;
+import tech.powerjob.server.openapi.security.OpenApiSecurityService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * OpenAPI 拦截器测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class OpenApiInterceptorTest {
+
+    private final OpenApiInterceptor interceptor = new OpenApiInterceptor();
+
+    private final OpenApiSecurityService openApiSecurityService = mock(OpenApiSecurityService.class);
+
+    @BeforeEach
+    void init() {
+        CacheService cacheService = mock(CacheService.class);
+        when(cacheService.getCurrentServerByAppId(1L)).thenReturn("192.168.1.1:10086");
+        ReflectionTestUtils.setField(interceptor, "openApiSecurityService", openApiSecurityService);
+        ReflectionTestUtils.setField(interceptor, "cacheService", cacheService);
+        ReflectionTestUtils.setField(interceptor, "enableOpenApiAuth", true);
+        ReflectionTestUtils.setField(interceptor, "port", 7700);
+    }
+
+    @Test
+    void testAppServerHeaderAfterAuth() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request(OpenAPIConstant.RUN_JOB), response, new Object()));
+        assertEquals("192.168.1.1:7700", response.getHeader(OpenAPIConstant.RESPONSE_HEADER_APP_SERVER));
+    }
+
+    @Test
+    void testNoAppServerHeaderWhenAuthFailed() throws Exception {
+        doThrow(new PowerJobException("invalid token")).when(openApiSecurityService).authAppByToken(any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request(OpenAPIConstant.RUN_JOB), response, new Object()));
+        assertNull(response.getHeader(OpenAPIConstant.RESPONSE_HEADER_APP_SERVER));
+    }
+
+    @Test
+    void testNoAppServerHeaderForIgnoredPath() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request(OpenAPIConstant.AUTH_APP), response, new Object()));
+        assertNull(response.getHeader(OpenAPIConstant.RESPONSE_HEADER_APP_SERVER));
+        verifyNoInteractions(openApiSecurityService);
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", OpenAPIConstant.WEB_PATH + path);
+        request.addHeader(OpenAPIConstant.REQUEST_HEADER_APP_ID, "1");
+        return request;
+    }
+}
@@ -0,0 +1,89 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.common.constants.InstanceType;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.persistence.remote.model.brief.InstanceListInfo;
+import tech.powerjob.server.test.H2JpaTestConfiguration;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 任务实例列表 keyset 分页查询测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@SpringJUnitConfig(H2JpaTestConfiguration.class)
+class InstanceListQueryTest {
+
+    private static final int NORMAL = InstanceType.NORMAL.getV();
+
+    @Autowired
+    private InstanceInfoRepository instanceInfoRepository;
+
+    @BeforeEach
+    void init() {
+        instanceInfoRepository.deleteAll();
+        for (int i = 0; i < 25; i++) {
+            // 两个 job 交替，每 3 条一条失败记录
+            int status = i % 3 == 0 ? InstanceStatus.FAILED.getV() : InstanceStatus.SUCCEED.getV();
+            saveInstance(1L, 10L + i % 2, i, status);
+        }
+        saveInstance(2L, 20L, 100, InstanceStatus.SUCCEED.getV());
+    }
+
+    @Test
+    void testScroll() {
+        List<Long> all = Lists.newArrayList();
+        long cursor = Long.MAX_VALUE;
+        while (true) {
+            List<InstanceListInfo> page = instanceInfoRepository.listByAppId(1L, NORMAL, cursor, PageRequest.of(0, 10));
+            all.addAll(page.stream().map(InstanceListInfo::getInstanceId).collect(Collectors.toList()));
+            if (page.size() < 10) {
+                break;
+            }
+            cursor = page.get(page.size() - 1).getId();
+        }
+        // 按 id 倒序，不重复不遗漏，且不包含其他 app 的数据
+        Assertions.assertEquals(25, all.size());
+        Assertions.assertEquals(24L, all.get(0));
+        Assertions.assertEquals(0L, all.get(24));
+
+        List<InstanceListInfo> failed = instanceInfoRepository.listByAppIdAndStatus(1L, InstanceStatus.FAILED.getV(), NORMAL, Long.MAX_VALUE, PageRequest.of(0, 100));
+        Assertions.assertEquals(9, failed.size());
+
+        List<InstanceListInfo> job = instanceInfoRepository.listByJobId(10L, 1L, NORMAL, Long.MAX_VALUE, PageRequest.of(0, 5));
+        Assertions.assertEquals(5, job.size());
+        Assertions.assertTrue(job.stream().allMatch(x -> x.getJobId() == 10L));
+        List<InstanceListInfo> nextPage = instanceInfoRepository.listByJobIdAndStatus(10L, InstanceStatus.SUCCEED.getV(), 1L, NORMAL, job.get(4).getId(), PageRequest.of(0, 100));
+        Assertions.assertTrue(nextPage.stream().allMatch(x -> x.getId() < job.get(4).getId()));
+
+        // 不允许跨 app 查询
+        Assertions.assertTrue(instanceInfoRepository.listByJobId(20L, 1L, NORMAL, Long.MAX_VALUE, PageRequest.of(0, 5)).isEmpty());
+        Assertions.assertEquals(1, instanceInfoRepository.listByInstanceId(100L, 2L).size());
+        Assertions.assertTrue(instanceInfoRepository.listByInstanceId(100L, 1L).isEmpty());
+    }
+
+    private void saveInstance(long appId, long jobId, long instanceId, int status) {
+        InstanceInfoDO instanceInfo = new InstanceInfoDO();
+        instanceInfo.setAppId(appId);
+        instanceInfo.setJobId(jobId);
+        instanceInfo.setInstanceId(instanceId);
+        instanceInfo.setType(NORMAL);
+        instanceInfo.setStatus(status);
+        instanceInfo.setResult("a very large result");
+        instanceInfo.setGmtCreate(new Date());
+        instanceInfo.setGmtModified(new Date());
+        instanceInfoRepository.saveAndFlush(instanceInfo);
+    }
+}
@@ -0,0 +1,78 @@
+package tech.powerjob.server.persistence.remote.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import tech.powerjob.common.enums.InstanceStatus;
+import tech.powerjob.server.persistence.remote.model.InstanceInfoDO;
+import tech.powerjob.server.test.H2JpaTestConfiguration;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 实例统计查询测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+@SpringJUnitConfig(H2JpaTestConfiguration.class)
+class InstanceStatisticsQueryTest {
+
+    private static final int FAILED = InstanceStatus.FAILED.getV();
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 13, 10, 0);
+
+    @Autowired
+    private InstanceInfoRepository instanceInfoRepository;
+
+    @BeforeEach
+    void init() {
+        instanceInfoRepository.deleteAll();
+    }
+
+    @Test
+    void testCountGroupByCreateHour() {
+        saveInstance(1L, FAILED, BASE.plusMinutes(5));
+        saveInstance(1L, FAILED, BASE.plusMinutes(55));
+        saveInstance(1L, FAILED, BASE.plusHours(1).plusMinutes(1));
+        saveInstance(1L, InstanceStatus.SUCCEED.getV(), BASE.plusMinutes(10));
+        saveInstance(2L, FAILED, BASE.plusMinutes(10));
+        // 早于统计起点
+        saveInstance(1L, FAILED, BASE.minusMinutes(1));
+
+        List<Object[]> rows = instanceInfoRepository.countGroupByCreateHour(1L, FAILED, toDate(BASE));
+        rows.sort(Comparator.comparingInt(row -> ((Number) row[3]).intValue()));
+        Assertions.assertEquals(2, rows.size());
+        assertRow(rows.get(0), 10, 2);
+        assertRow(rows.get(1), 11, 1);
+    }
+
+    private static void assertRow(Object[] row, int hour, long count) {
+        Assertions.assertEquals(2024, ((Number) row[0]).intValue());
+        Assertions.assertEquals(3, ((Number) row[1]).intValue());
+        Assertions.assertEquals(13, ((Number) row[2]).intValue());
+        Assertions.assertEquals(hour, ((Number) row[3]).intValue());
+        Assertions.assertEquals(count, ((Number) row[4]).longValue());
+    }
+
+    private void saveInstance(long appId, int status, LocalDateTime gmtCreate) {
+        InstanceInfoDO instanceInfo = new InstanceInfoDO();
+        instanceInfo.setAppId(appId);
+        instanceInfo.setJobId(1L);
+        instanceInfo.setInstanceId(System.nanoTime());
+        instanceInfo.setStatus(status);
+        instanceInfo.setGmtCreate(toDate(gmtCreate));
+        instanceInfo.setGmtModified(new Date());
+        instanceInfoRepository.saveAndFlush(instanceInfo);
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
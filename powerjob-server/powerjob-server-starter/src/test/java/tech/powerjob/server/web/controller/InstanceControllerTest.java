@@ -0,0 +1,23 @@
+package tech.powerjob.server.web.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 实例查询接口测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class InstanceControllerTest {
+
+    @Test
+    void testScrollSize() {
+        Assertions.assertEquals(10, InstanceController.scrollSize(null));
+        Assertions.assertEquals(20, InstanceController.scrollSize(20));
+        Assertions.assertEquals(100, InstanceController.scrollSize(1000));
+        // 非正数会导致 PageRequest 构造失败或取不到数据
+        Assertions.assertEquals(1, InstanceController.scrollSize(0));
+        Assertions.assertEquals(1, InstanceController.scrollSize(-5));
+    }
+}
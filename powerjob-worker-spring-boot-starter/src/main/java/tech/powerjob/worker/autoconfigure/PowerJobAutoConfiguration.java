@@ -84,7 +84,15 @@ public class PowerJobAutoConfiguration {
 
         config.setMaxLightweightTaskNum(worker.getMaxLightweightTaskNum());
 
+        config.setMaxProcessorThreadNum(worker.getMaxProcessorThreadNum());
+
+        config.setLightweightThreadMode(worker.getLightweightThreadMode());
+
+        config.setVirtualThreadProcessors(worker.getVirtualThreadProcessors());
+
         config.setHealthReportInterval(worker.getHealthReportInterval());
+
+        config.setContainerPeerPort(worker.getContainerPeerPort());
         /*
          * Create PowerJobSpringWorker object and set properties.
          */
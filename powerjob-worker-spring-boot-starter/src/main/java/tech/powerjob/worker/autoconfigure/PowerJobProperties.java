@@ -3,6 +3,7 @@ package tech.powerjob.worker.autoconfigure;
 import tech.powerjob.common.RemoteConstant;
 import tech.powerjob.common.enums.Protocol;
 import tech.powerjob.worker.common.constants.StoreStrategy;
+import tech.powerjob.worker.common.constants.ThreadMode;
 import tech.powerjob.worker.core.processor.ProcessResult;
 import tech.powerjob.worker.core.processor.WorkflowContext;
 import lombok.Getter;
@@ -10,6 +11,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.DeprecatedConfigurationProperty;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * PowerJob properties configuration class.
  *
@@ -165,10 +169,28 @@ public class PowerJobProperties {
          * Max numbers of HeavyTaskTacker
          */
         private Integer maxHeavyweightTaskNum = 64;
+        /**
+         * Max numbers of threads shared by all ProcessorTrackers, idle threads will be recycled
+         */
+        private Integer maxProcessorThreadNum = 256;
+        /**
+         * Thread mode of lightweight tasks. VIRTUAL requires JDK 21+ and falls back to PLATFORM on lower versions
+         */
+        private ThreadMode lightweightThreadMode = ThreadMode.PLATFORM;
+        /**
+         * Processors always executed on virtual threads (JDK 21+), matched by the prefix of processorInfo,
+         * i.e. tech.powerjob.official.processors.impl.HttpProcessor, tech.powerjob.official.processors.impl.script
+         */
+        private List<String> virtualThreadProcessors = new ArrayList<>();
         /**
          * Interval(s) of worker health report
          */
         private Integer healthReportInterval = 10;
+        /**
+         * Port for serving deployed container jars to other workers, -1 means disabled and 0 means a random port.
+         * When enabled, workers fetch container jars from already-deployed peers before falling back to the server.
+         */
+        private Integer containerPeerPort = -1;
 
     }
 }
@@ -27,6 +27,7 @@ import tech.powerjob.worker.common.PowerBannerPrinter;
 import tech.powerjob.worker.common.PowerJobWorkerConfig;
 import tech.powerjob.worker.common.WorkerRuntime;
 import tech.powerjob.worker.common.utils.WorkerNetUtils;
+import tech.powerjob.worker.container.OmsContainerFactory;
 import tech.powerjob.worker.core.executor.ExecutorManager;
 import tech.powerjob.worker.extension.processor.ProcessorFactory;
 import tech.powerjob.worker.persistence.DbTaskPersistenceService;
@@ -137,6 +138,11 @@ public class PowerJobWorker {
             workerRuntime.setTaskPersistenceService(taskPersistenceService);
             log.info("[PowerJobWorker] local storage initialized successfully.");
 
+            // 开启容器 Jar 的节点间下载
+            if (config.getContainerPeerPort() != null && config.getContainerPeerPort() >= 0) {
+                OmsContainerFactory.enablePeerDownload(localBindIp, Optional.ofNullable(externalIp).orElse(localBindIp), config.getContainerPeerPort());
+            }
+
 
             // 初始化定时任务
             workerRuntime.getExecutorManager().getCoreExecutor().scheduleAtFixedRate(new WorkerHealthReporter(workerRuntime), 0, config.getHealthReportInterval(), TimeUnit.SECONDS);
@@ -178,6 +184,7 @@ public class PowerJobWorker {
     }
 
     public void destroy() throws Exception {
+        OmsContainerFactory.disablePeerDownload();
         workerRuntime.getExecutorManager().shutdown();
         remoteEngine.close();
     }
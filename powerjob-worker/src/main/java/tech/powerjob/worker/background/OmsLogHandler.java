@@ -1,20 +1,25 @@
 package tech.powerjob.worker.background;
 
+import tech.powerjob.common.RemoteConstant;
 import tech.powerjob.common.enhance.SafeRunnable;
 import tech.powerjob.common.enums.LogLevel;
+import tech.powerjob.common.enums.Protocol;
 import tech.powerjob.common.model.InstanceLogContent;
 import tech.powerjob.common.request.WorkerLogReportReq;
+import tech.powerjob.common.response.AskResponse;
 import tech.powerjob.remote.framework.transporter.Transporter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import tech.powerjob.worker.background.discovery.ServerDiscoveryService;
 import tech.powerjob.worker.common.utils.TransportUtils;
 
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -35,6 +40,8 @@ public class OmsLogHandler {
     public final Runnable logSubmitter = new LogSubmitter();
     // 上报锁，只需要一个线程上报即可
     private final Lock reportLock = new ReentrantLock();
+    // 是否正在上报，避免日志积压时反复创建上报线程
+    private volatile boolean reporting;
     // 生产者消费者模式，异步上传日志
     private final BlockingQueue<InstanceLogContent> logQueue = Queues.newLinkedBlockingQueue(10240);
 
@@ -42,6 +49,16 @@ public class OmsLogHandler {
     private static final int BATCH_SIZE = 20;
     // 本地囤积阈值
     private static final int REPORT_SIZE = 1024;
+    // server 繁忙时的退避时间及最大重试次数
+    private static final long BUSY_BACKOFF_MS = 200;
+    private static final long MAX_BUSY_BACKOFF_MS = 3200;
+    private static final int MAX_BUSY_RETRY_TIMES = 5;
+    // 旧版本 server 不支持可靠日志上报，期间退化为不可靠上报，过期后重新探测
+    private static final long LEGACY_CHECK_INTERVAL_MS = 600000;
+
+    // 不支持流控的 server 及其过期时间，仅在上报线程中访问
+    private String legacyServer;
+    private long legacyExpireTime;
 
     public OmsLogHandler(String workerAddress, Transporter transporter, ServerDiscoveryService serverDiscoveryService) {
         this.workerAddress = workerAddress;
@@ -56,7 +73,7 @@ public class OmsLogHandler {
      */
     public void submitLog(long instanceId, LogLevel logLevel, String logContent) {
 
-        if (logQueue.size() > REPORT_SIZE) {
+        if (logQueue.size() > REPORT_SIZE && !reporting) {
             // 线程的生命周期是个不可循环的过程，一个线程对象结束了不能再次start，只能一直创建和销毁
             new Thread(logSubmitter).start();
         }
@@ -80,6 +97,7 @@ public class OmsLogHandler {
                 return;
             }
 
+            reporting = true;
             try {
 
                 final String currentServerAddress = serverDiscoveryService.getCurrentServerAddress();
@@ -100,9 +118,7 @@ public class OmsLogHandler {
                         logs.add(logContent);
 
                         if (logs.size() >= BATCH_SIZE) {
-                            WorkerLogReportReq req = new WorkerLogReportReq(workerAddress, Lists.newLinkedList(logs));
-                            // 不可靠请求，WEB日志不追求极致
-                            TransportUtils.reportLogs(req, currentServerAddress, transporter);
+                            report(Lists.newLinkedList(logs), currentServerAddress);
                             logs.clear();
                         }
 
@@ -112,13 +128,85 @@ public class OmsLogHandler {
                 }
 
                 if (!logs.isEmpty()) {
-                    WorkerLogReportReq req = new WorkerLogReportReq(workerAddress, logs);
-                    TransportUtils.reportLogs(req, currentServerAddress, transporter);
+                    report(logs, currentServerAddress);
                 }
 
             }finally {
+                reporting = false;
                 reportLock.unlock();
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 上报一批日志，server 写缓冲已满时退避重试，从而降低上报速度（积压的日志在本地队列中等待或被丢弃）
+     * WEB日志不追求极致，其余失败情况不重试
+     */
+    void report(List<InstanceLogContent> logs, String serverAddress) {
+        WorkerLogReportReq req = new WorkerLogReportReq(workerAddress, logs);
+        if (serverAddress.equals(legacyServer) && System.currentTimeMillis() < legacyExpireTime) {
+            TransportUtils.reportLogs(req, serverAddress, transporter);
+            return;
+        }
+        long backoff = BUSY_BACKOFF_MS;
+        for (int i = 0; i <= MAX_BUSY_RETRY_TIMES; i++) {
+            AskResponse response;
+            try {
+                response = TransportUtils.reliableReportLogs(req, serverAddress, transporter);
+            } catch (Exception e) {
+                if (isLegacyResponse(e, transporter.getProtocol().name())) {
+                    legacyServer = serverAddress;
+                    legacyExpireTime = System.currentTimeMillis() + LEGACY_CHECK_INTERVAL_MS;
+                    log.warn("[OmsLogHandler] server({}) does not support reliable log report, fallback to unreliable report.", serverAddress, e);
+                    // 按旧方式重新发送本批日志（若 server 实际已处理，会出现少量重复日志）
+                    TransportUtils.reportLogs(req, serverAddress, transporter);
+                } else {
+                    // 超时、网络异常等与 server 版本无关，仅丢弃本批日志
+                    log.warn("[OmsLogHandler] report {} logs to server({}) failed, these logs were discarded.", logs.size(), serverAddress, e);
+                }
+                return;
+            }
+            if (response.isSuccess()) {
+                return;
+            }
+            if (!RemoteConstant.S4W_LOG_REPORT_BUSY.equals(response.getMessage())) {
+                log.warn("[OmsLogHandler] server({}) process logs failed: {}", serverAddress, response.getMessage());
+                return;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BUSY_BACKOFF_MS);
+        }
+        log.warn("[OmsLogHandler] server({}) is too busy to receive logs, {} logs were discarded.", serverAddress, logs.size());
+    }
+
+    /**
+     * 是否为旧版本 server 的应答：日志上报处理器无返回值（HTTP 响应体为空无法反序列化、MU 返回 Handler returned null）或路径不存在
+     * AKKA 协议下旧版本 server 的无返回值处理器不会应答，只能表现为请求超时，因此超时也视为旧版本 server
+     * @param e 可靠上报的异常
+     * @param protocol 通讯协议
+     * @return 能确定（AKKA 协议下为疑似） server 不支持可靠上报时返回 true
+     */
+    static boolean isLegacyResponse(Throwable e, String protocol) {
+        boolean akka = Protocol.AKKA.name().equals(protocol);
+        for (Throwable t : ExceptionUtils.getThrowableList(e)) {
+            // akka.pattern.AskTimeoutException 同样继承自 TimeoutException
+            if (akka && t instanceof TimeoutException) {
+                return true;
+            }
+            String message = StringUtils.defaultString(t.getMessage());
+            if (message.contains("status: 404") || message.contains("Handler returned null")) {
+                return true;
+            }
+            String clzName = t.getClass().getSimpleName();
+            if (clzName.equals("DecodeException") || clzName.equals("MismatchedInputException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
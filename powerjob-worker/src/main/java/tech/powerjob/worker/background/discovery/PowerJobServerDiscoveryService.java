@@ -186,6 +186,9 @@ public class PowerJobServerDiscoveryService implements ServerDiscoveryService {
                 if (!CollectionUtils.isEmpty(frequentInstanceIds)) {
                     frequentInstanceIds.forEach(instanceId -> {
                         HeavyTaskTracker taskTracker = HeavyTaskTrackerManager.removeTaskTracker(instanceId);
+                        if (taskTracker == null) {
+                            return;
+                        }
                         taskTracker.destroy();
                         log.warn("[PowerDiscovery] kill frequent instance(instanceId={}) due to can't find any available server.", instanceId);
                     });
@@ -0,0 +1,156 @@
+package tech.powerjob.worker.background.heartbeat;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.powerjob.common.RemoteConstant;
+import tech.powerjob.common.model.SystemMetrics;
+import tech.powerjob.common.request.WorkerHeartbeat;
+import tech.powerjob.common.response.AskResponse;
+
+import java.util.Objects;
+
+/**
+ * 心跳增量编码
+ * 1. 首次连接、切换 server、上一次心跳失败或 server 要求重新同步（如 server 重启）时发送全量心跳
+ * 2. 其余情况只发送增量心跳：仅携带发生变化的字段，SystemMetrics 只在变化明显时携带
+ * 3. 只有在 server 确认接收全量心跳后才会发送增量心跳，因此旧版本 server（不响应心跳）始终收到全量心跳
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+@Slf4j
+public class HeartbeatDeltaEncoder {
+
+    /**
+     * CPU 负载变化超过该值时上报指标
+     */
+    private static final double CPU_LOAD_THRESHOLD = 0.5;
+    /**
+     * 内存、磁盘使用率变化超过该值时上报指标
+     */
+    private static final double USAGE_THRESHOLD = 0.01;
+
+    /**
+     * 已确认接收全量状态的 server，只有向该 server 发送心跳时才允许使用增量
+     */
+    private volatile String syncedServer;
+
+    /**
+     * 已发送的状态版本及状态快照，仅在上报线程中访问
+     */
+    private long stateVersion;
+    private WorkerHeartbeat lastState;
+
+    /**
+     * 根据当前的全量状态生成需要发送的心跳
+     * @param current 当前的全量心跳
+     * @param server 目标 server
+     * @return 全量或增量心跳
+     */
+    public WorkerHeartbeat encode(WorkerHeartbeat current, String server) {
+        if (lastState == null || !Objects.equals(server, syncedServer)) {
+            // 切换 server 后需要重新确认
+            syncedServer = null;
+            current.setDelta(false);
+            current.setStateVersion(++stateVersion);
+            lastState = current;
+            return current;
+        }
+
+        WorkerHeartbeat delta = new WorkerHeartbeat();
+        delta.setDelta(true);
+        delta.setBaseVersion(stateVersion);
+        delta.setWorkerAddress(current.getWorkerAddress());
+        delta.setAppName(current.getAppName());
+        delta.setAppId(current.getAppId());
+        delta.setHeartbeatTime(current.getHeartbeatTime());
+        delta.setOverload(current.isOverload());
+        delta.setLightTaskTrackerNum(current.getLightTaskTrackerNum());
+        delta.setHeavyTaskTrackerNum(current.getHeavyTaskTrackerNum());
+
+        boolean changed = false;
+        if (!Objects.equals(current.getVersion(), lastState.getVersion())) {
+            delta.setVersion(current.getVersion());
+            lastState.setVersion(current.getVersion());
+            changed = true;
+        }
+        if (!Objects.equals(current.getProtocol(), lastState.getProtocol())) {
+            delta.setProtocol(current.getProtocol());
+            lastState.setProtocol(current.getProtocol());
+            changed = true;
+        }
+        if (!Objects.equals(current.getTag(), lastState.getTag())) {
+            delta.setTag(current.getTag());
+            lastState.setTag(current.getTag());
+            changed = true;
+        }
+        if (!Objects.equals(current.getClient(), lastState.getClient())) {
+            delta.setClient(current.getClient());
+            lastState.setClient(current.getClient());
+            changed = true;
+        }
+        if (!Objects.equals(current.getExtra(), lastState.getExtra())) {
+            delta.setExtra(current.getExtra());
+            lastState.setExtra(current.getExtra());
+            changed = true;
+        }
+        if (!Objects.equals(current.getContainerInfos(), lastState.getContainerInfos())) {
+            delta.setContainerInfos(current.getContainerInfos());
+            lastState.setContainerInfos(current.getContainerInfos());
+            changed = true;
+        }
+        if (metricsChanged(current.getSystemMetrics(), lastState.getSystemMetrics())) {
+            delta.setSystemMetrics(current.getSystemMetrics());
+            lastState.setSystemMetrics(current.getSystemMetrics());
+            changed = true;
+        }
+
+        // 状态无变化时版本保持不变，丢失的空增量不会导致版本不一致
+        delta.setStateVersion(changed ? ++stateVersion : stateVersion);
+        return delta;
+    }
+
+    /**
+     * 处理 server 对心跳的响应
+     * @param heartbeat 已发送的心跳
+     * @param server 目标 server
+     * @param response 响应
+     * @param throwable 异常信息
+     */
+    public void onResponse(WorkerHeartbeat heartbeat, String server, AskResponse response, Throwable throwable) {
+        if (throwable != null || response == null) {
+            // 心跳可能丢失（或 server 版本不支持响应心跳），下一次发送全量心跳
+            syncedServer = null;
+            if (heartbeat.isDelta()) {
+                log.warn("[HeartbeatDeltaEncoder] report delta heartbeat to server({}) failed, fallback to full heartbeat.", server, throwable);
+            }
+            return;
+        }
+        if (response.isSuccess()) {
+            if (!heartbeat.isDelta()) {
+                syncedServer = server;
+            }
+            return;
+        }
+        syncedServer = null;
+        if (RemoteConstant.S4W_HEARTBEAT_RESYNC.equals(response.getMessage())) {
+            log.info("[HeartbeatDeltaEncoder] server({}) requires full heartbeat, current state version: {}.", server, heartbeat.getStateVersion());
+        } else {
+            log.warn("[HeartbeatDeltaEncoder] server({}) process heartbeat failed: {}", server, response.getMessage());
+        }
+    }
+
+    private static boolean metricsChanged(SystemMetrics current, SystemMetrics last) {
+        if (current == null) {
+            return false;
+        }
+        if (last == null) {
+            return true;
+        }
+        return current.getCpuProcessors() != last.getCpuProcessors()
+                || current.calculateScore() != last.calculateScore()
+                || Math.abs(current.getCpuLoad() - last.getCpuLoad()) >= CPU_LOAD_THRESHOLD
+                || Math.abs(current.getJvmMemoryUsage() - last.getJvmMemoryUsage()) >= USAGE_THRESHOLD
+                || Math.abs(current.getDiskUsage() - last.getDiskUsage()) >= USAGE_THRESHOLD
+                || !Objects.equals(current.getExtra(), last.getExtra());
+    }
+}
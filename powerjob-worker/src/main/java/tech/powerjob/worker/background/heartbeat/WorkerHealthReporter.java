@@ -15,7 +15,7 @@ import tech.powerjob.worker.core.tracker.manager.LightTaskTrackerManager;
 
 
 /**
- * Worker健康度定时上报
+ * Worker健康度定时上报，状态未变化时只上报增量（见 {@link HeartbeatDeltaEncoder}）
  *
  * @author tjq
  * @since 2020/3/25
@@ -26,6 +26,8 @@ public class WorkerHealthReporter extends SafeRunnable {
 
     private final WorkerRuntime workerRuntime;
 
+    private final HeartbeatDeltaEncoder deltaEncoder = new HeartbeatDeltaEncoder();
+
     @Override
     public void run0() {
 
@@ -76,6 +78,12 @@ public class WorkerHealthReporter extends SafeRunnable {
                 heartbeat.getHeavyTaskTrackerNum()
         );
 
-        TransportUtils.reportWorkerHeartbeat(heartbeat, currentServer, workerRuntime.getTransporter());
+        WorkerHeartbeat toSend = deltaEncoder.encode(heartbeat, currentServer);
+        try {
+            TransportUtils.reportWorkerHeartbeat(toSend, currentServer, workerRuntime.getTransporter())
+                    .whenComplete((response, throwable) -> deltaEncoder.onResponse(toSend, currentServer, response, throwable));
+        } catch (Exception e) {
+            deltaEncoder.onResponse(toSend, currentServer, null, e);
+        }
     }
 }
@@ -6,6 +6,7 @@ import lombok.Setter;
 import tech.powerjob.common.RemoteConstant;
 import tech.powerjob.common.enums.Protocol;
 import tech.powerjob.worker.common.constants.StoreStrategy;
+import tech.powerjob.worker.common.constants.ThreadMode;
 import tech.powerjob.worker.core.processor.ProcessResult;
 import tech.powerjob.worker.core.processor.WorkflowContext;
 import tech.powerjob.worker.extension.SystemMetricsCollector;
@@ -84,9 +85,27 @@ public class PowerJobWorkerConfig {
      * Max numbers of HeavyTaskTacker
      */
     private Integer maxHeavyweightTaskNum = 64;
+    /**
+     * Max numbers of threads shared by all ProcessorTrackers, idle threads will be recycled
+     */
+    private Integer maxProcessorThreadNum = 256;
+    /**
+     * Thread mode of lightweight tasks. VIRTUAL requires JDK 21+ and falls back to PLATFORM on lower versions
+     */
+    private ThreadMode lightweightThreadMode = ThreadMode.PLATFORM;
+    /**
+     * Processors always executed on virtual threads (JDK 21+), matched by the prefix of processorInfo,
+     * i.e. tech.powerjob.official.processors.impl.HttpProcessor, tech.powerjob.official.processors.impl.script
+     */
+    private List<String> virtualThreadProcessors = Lists.newArrayList();
     /**
      * Interval(s) of worker health report
      */
     private Integer healthReportInterval = 10;
+    /**
+     * Port for serving deployed container jars to other workers, -1 means disabled and 0 means a random port.
+     * When enabled, workers fetch container jars from already-deployed peers before falling back to the server.
+     */
+    private Integer containerPeerPort = -1;
 
 }
@@ -0,0 +1,23 @@
+package tech.powerjob.worker.common.constants;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 任务执行线程模式
+ *
+ * @author tjq
+ * @since 2024/3/9
+ */
+@Getter
+@AllArgsConstructor
+public enum ThreadMode {
+
+    PLATFORM("平台线程"),
+    /**
+     * 需要 JDK 21+，低版本 JDK 自动降级为平台线程
+     */
+    VIRTUAL("虚拟线程");
+
+    private final String des;
+}
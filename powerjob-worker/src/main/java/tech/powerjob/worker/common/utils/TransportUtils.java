@@ -59,9 +59,13 @@ public class TransportUtils {
         transporter.tell(url, req);
     }
 
-    public static void reportWorkerHeartbeat(WorkerHeartbeat req, String address, Transporter transporter) {
+    public static AskResponse reliableReportLogs(WorkerLogReportReq req, String address, Transporter transporter) throws Exception {
+        return reliableAsk(ServerType.SERVER, S4W_PATH, S4W_HANDLER_REPORT_LOG, address, req, transporter);
+    }
+
+    public static CompletionStage<AskResponse> reportWorkerHeartbeat(WorkerHeartbeat req, String address, Transporter transporter) {
         final URL url = easyBuildUrl(ServerType.SERVER, S4W_PATH, S4W_HANDLER_WORKER_HEARTBEAT, address);
-        transporter.tell(url, req);
+        return transporter.ask(url, req, AskResponse.class);
     }
 
     public static boolean reliablePtReportTask(ProcessorReportTaskStatusReq req, String address, WorkerRuntime workerRuntime) {
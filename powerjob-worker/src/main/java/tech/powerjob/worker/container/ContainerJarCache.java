@@ -0,0 +1,153 @@
+package tech.powerjob.worker.container;
+
+import com.google.common.io.BaseEncoding;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.common.utils.CommonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的容器 Jar 缓存
+ * 1. Jar 文件以 MD5 命名（旧版本 server 未提供 MD5 时使用 容器ID-版本），同一份 Jar 在 worker 上只下载一次，多个容器/版本共享
+ * 2. 按顺序尝试多个下载地址（已部署的 worker 优先，server 兜底），下载完成后校验 MD5 并原子替换
+ * 3. 未被使用的 Jar 只保留最近的若干个
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+@Slf4j
+public class ContainerJarCache {
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 300000;
+
+    private final File cacheDir;
+
+    private final int maxIdleNum;
+
+    public ContainerJarCache(String cacheDir, int maxIdleNum) {
+        this.cacheDir = new File(cacheDir);
+        this.maxIdleNum = maxIdleNum;
+    }
+
+    /**
+     * 生成缓存 key
+     * @param fileHash Jar 文件的 MD5 值，可能为空
+     * @param containerId 容器ID
+     * @param version 容器版本
+     * @return 缓存 key
+     */
+    public static String genKey(String fileHash, Long containerId, String version) {
+        if (StringUtils.isNotEmpty(fileHash)) {
+            return fileHash.toLowerCase();
+        }
+        return containerId + "-" + version;
+    }
+
+    /**
+     * 获取 Jar 文件，本地不存在时按顺序尝试下载
+     * @param key 缓存 key
+     * @param fileHash Jar 文件的 MD5 值，非空时校验下载结果
+     * @param urls 下载地址
+     * @return 本地 Jar 文件
+     * @throws IOException 所有地址均下载失败
+     */
+    public File fetch(String key, String fileHash, List<String> urls) throws IOException {
+        File jarFile = find(key);
+        if (jarFile == null) {
+            throw new PowerJobException("invalid container jar key: " + key);
+        }
+        if (jarFile.exists()) {
+            log.info("[ContainerJarCache] hit the cache of jar({}), skip download.", key);
+            CommonUtils.executeIgnoreException(() -> jarFile.setLastModified(System.currentTimeMillis()));
+            return jarFile;
+        }
+        FileUtils.forceMkdir(cacheDir);
+
+        IOException lastException = null;
+        for (String url : urls) {
+            if (StringUtils.isEmpty(url)) {
+                continue;
+            }
+            File tmpFile = new File(cacheDir, key + "." + System.nanoTime() + ".tmp");
+            try {
+                FileUtils.copyURLToFile(new URL(url), tmpFile, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+                if (StringUtils.isNotEmpty(fileHash)) {
+                    String actual = md5(tmpFile);
+                    if (!fileHash.equalsIgnoreCase(actual)) {
+                        throw new IOException(String.format("md5 mismatch, expected %s but got %s", fileHash, actual));
+                    }
+                }
+                Files.move(tmpFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                log.info("[ContainerJarCache] download jar({}) from {} successfully.", key, url);
+                return jarFile;
+            } catch (IOException e) {
+                log.warn("[ContainerJarCache] download jar({}) from {} failed: {}", key, url, e.toString());
+                lastException = e;
+            } finally {
+                CommonUtils.executeIgnoreException(() -> Files.deleteIfExists(tmpFile.toPath()));
+            }
+        }
+        throw lastException == null ? new IOException("no download url for jar: " + key) : lastException;
+    }
+
+    /**
+     * 查找缓存的 Jar 文件
+     * @param key 缓存 key
+     * @return 缓存文件（可能不存在），key 非法时返回 null
+     */
+    public File find(String key) {
+        if (key == null || !VALID_KEY.matcher(key).matches()) {
+            return null;
+        }
+        return new File(cacheDir, key + ".jar");
+    }
+
+    /**
+     * 清理缓存，正在使用的 Jar 不会被删除，其余的按最近使用时间保留 maxIdleNum 个
+     * @param inUseKeys 正在使用的缓存 key
+     */
+    public void clean(Set<String> inUseKeys) {
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(".jar") && !inUseKeys.contains(name.substring(0, name.length() - 4)));
+        if (files == null || files.length <= maxIdleNum) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = maxIdleNum; i < files.length; i++) {
+            File file = files[i];
+            log.info("[ContainerJarCache] delete idle jar: {}", file.getName());
+            CommonUtils.executeIgnoreException(() -> FileUtils.forceDelete(file));
+        }
+    }
+
+    static String md5(File file) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+            }
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
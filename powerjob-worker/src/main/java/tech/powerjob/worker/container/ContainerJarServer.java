@@ -0,0 +1,95 @@
+package tech.powerjob.worker.container;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 向其他 worker 提供已缓存的容器 Jar 下载，部署时 worker 优先从已部署的节点下载，降低 server 的带宽压力
+ * 只提供 {@link ContainerJarCache} 中的文件，下载并发数受线程数限制
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+@Slf4j
+public class ContainerJarServer {
+
+    static final String PATH = "/container/jar";
+
+    private static final int THREAD_NUM = 2;
+
+    private final ContainerJarCache jarCache;
+
+    private HttpServer httpServer;
+
+    private ExecutorService executor;
+
+    public ContainerJarServer(ContainerJarCache jarCache) {
+        this.jarCache = jarCache;
+    }
+
+    /**
+     * 启动下载服务
+     * @param bindIp 绑定地址
+     * @param port 端口，0 表示随机端口
+     * @return 实际监听的端口
+     * @throws IOException 启动失败
+     */
+    public int start(String bindIp, int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(bindIp, port), 0);
+        executor = Executors.newFixedThreadPool(THREAD_NUM, new ThreadFactoryBuilder().setNameFormat("powerjob-container-jar-server-%d").setDaemon(true).build());
+        httpServer.setExecutor(executor);
+        httpServer.createContext(PATH, this::handle);
+        httpServer.start();
+        int actualPort = httpServer.getAddress().getPort();
+        log.info("[ContainerJarServer] container jar server started at {}:{}", bindIp, actualPort);
+        return actualPort;
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 生成下载地址
+     * @param host 对外地址
+     * @param port 端口
+     * @param key 缓存 key
+     * @return 下载地址
+     */
+    public static String genDownloadURL(String host, int port, String key) {
+        return String.format("http://%s:%d%s?key=%s", host, port, PATH, key);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getQuery();
+            String key = query != null && query.startsWith("key=") ? query.substring(4) : null;
+            File jarFile = jarCache.find(key);
+            if (!"GET".equals(exchange.getRequestMethod()) || jarFile == null || !jarFile.exists()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/java-archive");
+            exchange.sendResponseHeaders(200, jarFile.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                Files.copy(jarFile.toPath(), os);
+            }
+            log.info("[ContainerJarServer] {} downloaded jar({}) from this worker.", exchange.getRemoteAddress(), key);
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import tech.powerjob.common.response.AskResponse;
 import tech.powerjob.common.utils.CommonUtils;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import tech.powerjob.worker.common.WorkerRuntime;
@@ -14,12 +15,16 @@ import tech.powerjob.worker.common.utils.PowerFileUtils;
 import tech.powerjob.worker.common.utils.TransportUtils;
 
 import java.io.File;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 容器工厂
+ * 1. Jar 文件按内容（MD5）缓存，同一份 Jar 只下载一次，优先从已部署的 worker 下载（见 {@link ContainerJarCache}）
+ * 2. 相同内容的 Jar 共享类加载器，避免滚动部署时重复加载用户类导致 metaspace 飙升
  *
  * @author tjq
  * @since 2020/5/16
@@ -30,6 +35,23 @@ public class OmsContainerFactory {
     private static final String CONTAINER_DIR = PowerFileUtils.workspace() + "/container/";
     private static final Map<Long, OmsContainer> CARGO = Maps.newConcurrentMap();
 
+    /**
+     * 保留的闲置 Jar 数量
+     */
+    private static final int MAX_IDLE_JAR_NUM = 5;
+    private static final ContainerJarCache JAR_CACHE = new ContainerJarCache(CONTAINER_DIR + "jars/", MAX_IDLE_JAR_NUM);
+    /**
+     * jarKey -> 共享的类加载器
+     */
+    private static final Map<String, SharedClassLoader> CLASS_LOADERS = Maps.newHashMap();
+
+    private static ContainerJarServer jarServer;
+    /**
+     * 对外提供 Jar 下载的地址，未开启时为 null
+     */
+    private static volatile String peerHost;
+    private static volatile int peerPort;
+
     /**
      * 获取容器
      * @param containerId 容器ID
@@ -78,7 +100,8 @@ public class OmsContainerFactory {
         String containerName = request.getContainerName();
         String version = request.getVersion();
 
-        log.info("[OmsContainer-{}] start to deploy container(name={},version={},downloadUrl={})", containerId, containerName, version, request.getDownloadURL());
+        log.info("[OmsContainer-{}] start to deploy container(name={},version={},fileHash={},downloadUrl={},peers={})", containerId, containerName, version,
+                request.getFileHash(), request.getDownloadURL(), request.getPeerDownloadURLs());
 
         OmsContainer oldContainer = CARGO.get(containerId);
         if (oldContainer != null && version.equals(oldContainer.getVersion())) {
@@ -86,20 +109,19 @@ public class OmsContainerFactory {
             return;
         }
 
-        String filePath = CONTAINER_DIR + containerId + "/" + version + ".jar";
-        // 下载Container到本地
-        File jarFile = new File(filePath);
+        String jarKey = ContainerJarCache.genKey(request.getFileHash(), containerId, version);
+        // 优先从已部署的 worker 下载，server 兜底
+        List<String> urls = Lists.newArrayList();
+        if (request.getPeerDownloadURLs() != null) {
+            urls.addAll(request.getPeerDownloadURLs());
+        }
+        urls.add(request.getDownloadURL());
 
         try {
-            if (!jarFile.exists()) {
-                log.info("[OmsContainer-{}] container not exist(path={}), try to download from server!", containerId, jarFile.getPath());
-                FileUtils.forceMkdirParent(jarFile);
-                FileUtils.copyURLToFile(new URL(request.getDownloadURL()), jarFile, 5000, 300000);
-                log.info("[OmsContainer-{}] download jar successfully, path={}", containerId, jarFile.getPath());
-            }
+            File jarFile = JAR_CACHE.fetch(jarKey, request.getFileHash(), urls);
 
             // 创建新容器
-            OmsContainer newContainer = new OmsJarContainer(containerId, containerName, version, jarFile);
+            OmsContainer newContainer = new OmsJarContainer(containerId, containerName, version, jarFile, jarKey);
             newContainer.init();
 
             // 替换容器
@@ -114,18 +136,101 @@ public class OmsContainerFactory {
 
         } catch (Exception e) {
             log.error("[OmsContainer-{}] deployContainer(name={},version={}) failed.", containerId, containerName, version, e);
-            // 如果部署失败，则删除该 jar（本次失败可能是下载jar出错导致，不删除会导致这个版本永久无法重新部署）
-            CommonUtils.executeIgnoreException(() -> FileUtils.forceDelete(jarFile));
+            // 如果部署失败且没有其他容器使用该 jar，则删除该 jar（本次失败可能是 jar 损坏导致，不删除会导致这个版本永久无法重新部署）
+            File jarFile = JAR_CACHE.find(jarKey);
+            if (jarFile != null && !inUseJarKeys().contains(jarKey)) {
+                CommonUtils.executeIgnoreException(() -> FileUtils.forceDelete(jarFile));
+            }
+        }
+        JAR_CACHE.clean(inUseJarKeys());
+    }
+
+    /**
+     * 开启 Jar 文件下载服务，供其他 worker 部署容器时下载
+     * @param bindIp 绑定地址
+     * @param externalHost 对外地址
+     * @param port 端口，0 表示随机端口
+     */
+    public static synchronized void enablePeerDownload(String bindIp, String externalHost, int port) {
+        if (jarServer != null) {
+            return;
+        }
+        try {
+            ContainerJarServer server = new ContainerJarServer(JAR_CACHE);
+            peerPort = server.start(bindIp, port);
+            peerHost = externalHost;
+            jarServer = server;
+        } catch (Exception e) {
+            log.warn("[OmsContainerFactory] start container jar server failed, peer download is disabled.", e);
+        }
+    }
+
+    public static synchronized void disablePeerDownload() {
+        if (jarServer != null) {
+            peerHost = null;
+            jarServer.stop();
+            jarServer = null;
         }
     }
 
+    /**
+     * 获取类加载器，相同 Jar 的容器共享同一个类加载器
+     * @param jarKey Jar 缓存 key
+     * @param jarFile Jar 文件
+     * @return 类加载器
+     * @throws MalformedURLException 非法路径
+     */
+    static synchronized OhMyClassLoader acquireClassLoader(String jarKey, File jarFile) throws MalformedURLException {
+        SharedClassLoader shared = CLASS_LOADERS.get(jarKey);
+        if (shared == null) {
+            // 创建类加载器（父类加载为 Worker 的类加载）
+            shared = new SharedClassLoader(new OhMyClassLoader(new URL[]{jarFile.toURI().toURL()}, OmsContainerFactory.class.getClassLoader()));
+            CLASS_LOADERS.put(jarKey, shared);
+        } else {
+            log.info("[OmsContainerFactory] reuse the class loader of jar({}).", jarKey);
+        }
+        shared.referenceCount++;
+        return shared.classLoader;
+    }
+
+    /**
+     * 释放类加载器，没有容器使用时关闭
+     * @param jarKey Jar 缓存 key
+     */
+    static synchronized void releaseClassLoader(String jarKey) {
+        SharedClassLoader shared = CLASS_LOADERS.get(jarKey);
+        if (shared == null) {
+            return;
+        }
+        if (--shared.referenceCount > 0) {
+            return;
+        }
+        CLASS_LOADERS.remove(jarKey);
+        try {
+            shared.classLoader.close();
+        } catch (Exception e) {
+            log.warn("[OmsContainerFactory] close the class loader of jar({}) failed.", jarKey, e);
+        }
+    }
+
+    private static synchronized Set<String> inUseJarKeys() {
+        return Sets.newHashSet(CLASS_LOADERS.keySet());
+    }
+
     /**
      * 获取该Worker已部署容器的信息
      * @return 已部署容器信息
      */
     public static List<DeployedContainerInfo> getDeployedContainerInfos() {
         List<DeployedContainerInfo> info = Lists.newLinkedList();
-        CARGO.forEach((name, container) -> info.add(new DeployedContainerInfo(container.getContainerId(), container.getVersion(), container.getDeployedTime(), null)));
+        CARGO.forEach((name, container) -> {
+            DeployedContainerInfo deployedContainerInfo = new DeployedContainerInfo(container.getContainerId(), container.getVersion(), container.getDeployedTime(), null);
+            String host = peerHost;
+            if (host != null && container instanceof OmsJarContainer) {
+                deployedContainerInfo.setDownloadURL(ContainerJarServer.genDownloadURL(host, peerPort, ((OmsJarContainer) container).getJarKey()));
+            }
+            info.add(deployedContainerInfo);
+        });
         return info;
     }
 
@@ -145,4 +250,14 @@ public class OmsContainerFactory {
             log.warn("[OmsContainer-{}] destroy container failed.", containerId, e);
         }
     }
+
+    private static class SharedClassLoader {
+
+        private final OhMyClassLoader classLoader;
+        private int referenceCount;
+
+        SharedClassLoader(OhMyClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+    }
 }
@@ -2,19 +2,19 @@ package tech.powerjob.worker.container;
 
 import tech.powerjob.common.ContainerConstant;
 import tech.powerjob.common.exception.PowerJobException;
+import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.worker.core.processor.sdk.BasicProcessor;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.InputStream;
-import java.net.URL;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -30,21 +30,27 @@ public class OmsJarContainer implements OmsContainer {
     private final String name;
     private final String version;
     private final File localJarFile;
+    /**
+     * Jar 缓存 key，相同 key 的容器共享类加载器
+     */
+    private final String jarKey;
     private final Long deployedTime;
 
     // 引用计数器
     private final AtomicInteger referenceCount = new AtomicInteger(0);
+    private final AtomicBoolean destroyed = new AtomicBoolean(false);
 
     private OhMyClassLoader containerClassLoader;
     private ClassPathXmlApplicationContext container;
 
     private final Map<String, BasicProcessor> processorCache = Maps.newConcurrentMap();
 
-    public OmsJarContainer(Long containerId, String name, String version, File localJarFile) {
+    public OmsJarContainer(Long containerId, String name, String version, File localJarFile, String jarKey) {
         this.containerId = containerId;
         this.name = name;
         this.version = version;
         this.localJarFile = localJarFile;
+        this.jarKey = jarKey;
         this.deployedTime = System.currentTimeMillis();
     }
 
@@ -95,11 +101,22 @@ public class OmsJarContainer implements OmsContainer {
 
         log.info("[OmsJarContainer-{}] start to init container(name={},jarPath={})", containerId, name, localJarFile.getPath());
 
-        URL jarURL = localJarFile.toURI().toURL();
+        // 获取类加载器，相同 Jar 的容器共享（父类加载为 Worker 的类加载）
+        this.containerClassLoader = OmsContainerFactory.acquireClassLoader(jarKey, localJarFile);
+        try {
+            initContainer();
+        } catch (Exception e) {
+            if (container != null) {
+                CommonUtils.executeIgnoreException(() -> container.close());
+            }
+            OmsContainerFactory.releaseClassLoader(jarKey);
+            throw e;
+        }
 
-        // 创建类加载器（父类加载为 Worker 的类加载）
-        this.containerClassLoader = new OhMyClassLoader(new URL[]{jarURL}, this.getClass().getClassLoader());
+        log.info("[OmsJarContainer-{}] init container(name={},jarPath={}) successfully", containerId, name, localJarFile.getPath());
+    }
 
+    private void initContainer() throws Exception {
         // 解析 Properties
         Properties properties = new Properties();
         try (InputStream propertiesURLStream = containerClassLoader.getResourceAsStream(ContainerConstant.CONTAINER_PROPERTIES_FILE_NAME)) {
@@ -132,29 +149,24 @@ public class OmsJarContainer implements OmsContainer {
         }finally {
             Thread.currentThread().setContextClassLoader(oldCL);
         }
-
-        log.info("[OmsJarContainer-{}] init container(name={},jarPath={}) successfully", containerId, name, localJarFile.getPath());
     }
 
     @Override
     public void destroy() throws Exception {
 
-        // 没有其余引用时，才允许执行 destroy
+        // 没有其余引用时，才允许执行 destroy（Jar 文件由 ContainerJarCache 统一清理）
         if (referenceCount.get() <= 0) {
-            try {
-                if (localJarFile.exists()) {
-                    FileUtils.forceDelete(localJarFile);
-                }
-            }catch (Exception e) {
-                log.warn("[OmsJarContainer-{}] delete jarFile({}) failed.", containerId, localJarFile.getPath(), e);
+            if (!destroyed.compareAndSet(false, true)) {
+                return;
             }
             try {
                 processorCache.clear();
                 container.close();
-                containerClassLoader.close();
                 log.info("[OmsJarContainer-{}] container destroyed successfully", containerId);
             }catch (Exception e) {
                 log.error("[OmsJarContainer-{}] container destroyed failed", containerId, e);
+            } finally {
+                OmsContainerFactory.releaseClassLoader(jarKey);
             }
             return;
         }
@@ -183,6 +195,10 @@ public class OmsJarContainer implements OmsContainer {
         return containerClassLoader;
     }
 
+    public String getJarKey() {
+        return jarKey;
+    }
+
     @Override
     public void tryRelease() {
 
@@ -2,15 +2,22 @@ package tech.powerjob.worker.core.executor;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import tech.powerjob.common.utils.CollectionUtils;
 import tech.powerjob.common.utils.SysUtils;
 import tech.powerjob.worker.common.PowerJobWorkerConfig;
+import tech.powerjob.worker.common.constants.ThreadMode;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
  * @author Echo009
  * @since 2022/9/23
  */
+@Slf4j
 @Getter
 public class ExecutorManager {
     /**
@@ -25,6 +32,34 @@ public class ExecutorManager {
      * 执行轻量级任务
      */
     private final ExecutorService lightweightTaskExecutorService;
+    /**
+     * 所有 ProcessorTracker 共享的任务执行线程池
+     */
+    private final SharedProcessorPool sharedProcessorPool;
+    /**
+     * 定时触发 ProcessorTracker 的状态检查与上报
+     */
+    private final ScheduledExecutorService processorTrackerCheckExecutor;
+    /**
+     * 执行 ProcessorTracker 的状态检查与上报，其中包含阻塞的 RPC 调用，不能占用调度线程
+     */
+    private final ExecutorService processorTrackerReportExecutor;
+    /**
+     * 轻量级任务的实际线程模式（配置为虚拟线程但 JVM 不支持时降级为平台线程）
+     */
+    private final ThreadMode lightweightThreadMode;
+    /**
+     * 固定使用虚拟线程执行的处理器（processorInfo 前缀）
+     */
+    private final List<String> virtualThreadProcessors;
+    /**
+     * 虚拟线程执行器，未启用虚拟线程时为 null
+     */
+    private final ExecutorService virtualThreadExecutor;
+    /**
+     * 由虚拟线程驱动的共享执行池，未启用虚拟线程时为 null
+     */
+    private final SharedProcessorPool virtualProcessorPool;
 
 
     public ExecutorManager(PowerJobWorkerConfig workerConfig){
@@ -44,12 +79,80 @@ public class ExecutorManager {
         lightweightTaskExecutorService = new ThreadPoolExecutor(availableProcessors * 10,availableProcessors * 10, 120L, TimeUnit.SECONDS,
                 new ArrayBlockingQueue<>((workerConfig.getMaxLightweightTaskNum() * 2),true), lightTaskExecuteFactory, new ThreadPoolExecutor.AbortPolicy());
 
+        sharedProcessorPool = new SharedProcessorPool(workerConfig.getMaxProcessorThreadNum());
+
+        ThreadFactory processorTrackerCheckFactory = new ThreadFactoryBuilder().setNameFormat("powerjob-worker-pt-check-%d").build();
+        processorTrackerCheckExecutor = new ScheduledThreadPoolExecutor(availableProcessors, processorTrackerCheckFactory);
+
+        ThreadFactory processorTrackerReportFactory = new ThreadFactoryBuilder().setNameFormat("powerjob-worker-pt-report-%d").build();
+        // io 密集型，同一个 ProcessorTracker 同时只会有一个检查任务，队列满时拒绝，由调用方跳过本轮检查
+        ThreadPoolExecutor ptReportExecutor = new ThreadPoolExecutor(availableProcessors * 4, availableProcessors * 4, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024), processorTrackerReportFactory, new ThreadPoolExecutor.AbortPolicy());
+        ptReportExecutor.allowCoreThreadTimeOut(true);
+        processorTrackerReportExecutor = ptReportExecutor;
+
+        List<String> processors = workerConfig.getVirtualThreadProcessors() == null ? Collections.emptyList() : workerConfig.getVirtualThreadProcessors();
+        boolean virtualThreadRequired = workerConfig.getLightweightThreadMode() == ThreadMode.VIRTUAL || !CollectionUtils.isEmpty(processors);
+        if (virtualThreadRequired && VirtualThreadSupport.isSupported()) {
+            virtualThreadExecutor = VirtualThreadSupport.newVirtualThreadPerTaskExecutor("powerjob-worker-virtual-");
+            virtualProcessorPool = new SharedProcessorPool(virtualThreadExecutor);
+            lightweightThreadMode = workerConfig.getLightweightThreadMode();
+            virtualThreadProcessors = processors;
+            log.info("[ExecutorManager] virtual thread enabled, lightweightThreadMode: {}, virtualThreadProcessors: {}", lightweightThreadMode, virtualThreadProcessors);
+        } else {
+            if (virtualThreadRequired) {
+                log.warn("[ExecutorManager] virtual thread requires JDK 21+, current version is {}, fall back to platform thread.", System.getProperty("java.version"));
+            }
+            virtualThreadExecutor = null;
+            virtualProcessorPool = null;
+            lightweightThreadMode = ThreadMode.PLATFORM;
+            virtualThreadProcessors = Collections.emptyList();
+        }
+    }
+
+    /**
+     * 获取轻量级任务的执行器
+     * @param processorInfo 处理器信息
+     * @return 执行器
+     */
+    public ExecutorService fetchLightweightTaskExecutor(String processorInfo) {
+        if (lightweightThreadMode == ThreadMode.VIRTUAL || useVirtualThread(processorInfo)) {
+            return virtualThreadExecutor;
+        }
+        return lightweightTaskExecutorService;
+    }
+
+    /**
+     * 获取重量级任务（ProcessorTracker）的共享执行池
+     * @param processorInfo 处理器信息
+     * @return 共享执行池
+     */
+    public SharedProcessorPool fetchSharedProcessorPool(String processorInfo) {
+        if (useVirtualThread(processorInfo)) {
+            return virtualProcessorPool;
+        }
+        return sharedProcessorPool;
+    }
+
+    private boolean useVirtualThread(String processorInfo) {
+        if (virtualThreadExecutor == null || StringUtils.isEmpty(processorInfo)) {
+            return false;
+        }
+        return virtualThreadProcessors.stream().anyMatch(processorInfo::startsWith);
     }
 
 
 
     public void shutdown(){
         coreExecutor.shutdownNow();
+        lightweightTaskStatusCheckExecutor.shutdownNow();
+        lightweightTaskExecutorService.shutdownNow();
+        processorTrackerCheckExecutor.shutdownNow();
+        processorTrackerReportExecutor.shutdownNow();
+        sharedProcessorPool.shutdown();
+        if (virtualProcessorPool != null) {
+            virtualProcessorPool.shutdown();
+        }
     }
 
 }
@@ -0,0 +1,177 @@
+package tech.powerjob.worker.core.executor;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所有 ProcessorTracker 共享的执行线程池
+ * 1. 每个任务实例拥有独立的等待队列与并发配额（quota），实例内同时执行的任务数不超过配额
+ * 2. 线程池每次只为某个实例执行一个任务，执行完毕后重新排队，多个实例之间按先来先服务轮转，避免单个实例独占线程
+ * 3. 线程空闲 60s 后回收，闲置的实例不占用任何线程；也可以由虚拟线程执行器驱动，此时配额仍然生效
+ *
+ * @author tjq
+ * @since 2024/3/8
+ */
+@Slf4j
+public class SharedProcessorPool {
+
+    private final ExecutorService threadPool;
+
+    public SharedProcessorPool(int maxThreadNum) {
+        // 自定义线程池中线程名称 (PowerJob Processor Pool -> PPP)
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("PPP-%d").setDaemon(true).build();
+        // 队列中最多存在 sum(quota) 个执行单元，天然有界
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreadNum, maxThreadNum, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        this.threadPool = executor;
+    }
+
+    public SharedProcessorPool(ExecutorService executor) {
+        this.threadPool = executor;
+    }
+
+    /**
+     * 为任务实例创建执行队列
+     * @param quota 实例最大并发数
+     * @param capacity 实例最大等待任务数，超出后拒绝提交
+     * @return 执行队列
+     */
+    public InstanceQueue newInstanceQueue(int quota, int capacity) {
+        return new InstanceQueue(Math.max(quota, 1), capacity);
+    }
+
+    public void shutdown() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * 单个任务实例的执行队列
+     */
+    public class InstanceQueue {
+
+        private final int quota;
+        private final int capacity;
+
+        private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingNum = new AtomicInteger();
+        private final AtomicInteger runningNum = new AtomicInteger();
+        private final AtomicLong completedNum = new AtomicLong();
+        private final Set<Thread> runningThreads = Sets.newHashSet();
+
+        private volatile boolean closed;
+
+        private InstanceQueue(int quota, int capacity) {
+            this.quota = quota;
+            this.capacity = capacity;
+        }
+
+        /**
+         * 提交任务
+         * @param task 任务
+         * @return 等待队列已满或已关闭时返回 false
+         */
+        public boolean offer(Runnable task) {
+            if (closed) {
+                return false;
+            }
+            // 容量为软限制，并发提交时可能短暂超出
+            if (pendingNum.get() >= capacity) {
+                return false;
+            }
+            pendingTasks.offer(task);
+            pendingNum.incrementAndGet();
+            scheduleNext();
+            return true;
+        }
+
+        /**
+         * 关闭队列，丢弃等待中的任务并中断正在执行的任务
+         * @return 被丢弃的任务数量
+         */
+        public int close() {
+            closed = true;
+            int dropped = 0;
+            while (pendingTasks.poll() != null) {
+                pendingNum.decrementAndGet();
+                dropped++;
+            }
+            synchronized (runningThreads) {
+                runningThreads.forEach(Thread::interrupt);
+            }
+            return dropped;
+        }
+
+        public int pendingNum() {
+            return pendingNum.get();
+        }
+
+        public int runningNum() {
+            return runningNum.get();
+        }
+
+        public long completedNum() {
+            return completedNum.get();
+        }
+
+        public int quota() {
+            return quota;
+        }
+
+        private void scheduleNext() {
+            while (!closed && pendingNum.get() > 0) {
+                int running = runningNum.get();
+                if (running >= quota) {
+                    return;
+                }
+                if (runningNum.compareAndSet(running, running + 1)) {
+                    try {
+                        threadPool.execute(this::runOne);
+                    } catch (Exception e) {
+                        runningNum.decrementAndGet();
+                        log.warn("[SharedProcessorPool] schedule task failed, maybe the pool has been shutdown.", e);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void runOne() {
+            Thread current = Thread.currentThread();
+            try {
+                Runnable task = closed ? null : pendingTasks.poll();
+                if (task == null) {
+                    return;
+                }
+                pendingNum.decrementAndGet();
+                synchronized (runningThreads) {
+                    runningThreads.add(current);
+                }
+                try {
+                    task.run();
+                } finally {
+                    synchronized (runningThreads) {
+                        runningThreads.remove(current);
+                    }
+                    // 清除 close 时设置的中断标记，避免影响线程池中的下一个任务
+                    Thread.interrupted();
+                    completedNum.incrementAndGet();
+                }
+            } finally {
+                runningNum.decrementAndGet();
+                scheduleNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package tech.powerjob.worker.core.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程支持，worker 仍以 Java 8 为编译基线，因此通过反射访问 JDK 21+ 的虚拟线程 API
+ *
+ * @author tjq
+ * @since 2024/3/9
+ */
+@Slf4j
+public class VirtualThreadSupport {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> ofVirtualClz = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builderName = ofVirtualClz.getMethod("name", String.class, long.class);
+            builderFactory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // JDK 19/20 中虚拟线程为预览特性，未开启时调用会抛出异常
+            ofVirtual.invoke(null);
+        } catch (Throwable t) {
+            ofVirtual = null;
+            log.debug("[VirtualThreadSupport] virtual thread is not supported in current jvm: {}", t.toString());
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreadSupport() {
+    }
+
+    /**
+     * @return 当前 JVM 是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     * @param namePrefix 线程名前缀
+     * @return 执行器，不支持虚拟线程时抛出 UnsupportedOperationException
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("virtual thread requires JDK 21+, current version: " + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("create virtual thread executor failed", e);
+        }
+    }
+}
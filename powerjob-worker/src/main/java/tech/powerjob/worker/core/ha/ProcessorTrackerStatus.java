@@ -14,7 +14,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class ProcessorTrackerStatus {
 
-    private static final int DISPATCH_THRESHOLD = 20;
+    public static final int DISPATCH_THRESHOLD = 20;
     private static final int HEARTBEAT_TIMEOUT_MS = 60000;
 
     // 冗余存储一份 address 地址
@@ -1,12 +1,10 @@
 package tech.powerjob.worker.core.tracker.manager;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import tech.powerjob.worker.core.tracker.task.heavy.FrequentTaskTracker;
 import tech.powerjob.worker.core.tracker.task.heavy.HeavyTaskTracker;
 
 import java.util.List;
-import java.util.Map;
 import java.util.function.Function;
 
 /**
@@ -17,7 +15,7 @@ import java.util.function.Function;
  */
 public class HeavyTaskTrackerManager {
 
-    private static final Map<Long, HeavyTaskTracker> INSTANCE_ID_2_TASK_TRACKER = Maps.newConcurrentMap();
+    private static final TrackerRegistry<Long, HeavyTaskTracker> INSTANCE_ID_2_TASK_TRACKER = new TrackerRegistry<>();
     /**
      * 获取 TaskTracker
      */
@@ -29,8 +27,15 @@ public class HeavyTaskTrackerManager {
         return INSTANCE_ID_2_TASK_TRACKER.remove(instanceId);
     }
 
+    /**
+     * 移除指定的 TaskTracker，若该 instanceId 已对应新的 TaskTracker 则不做处理
+     */
+    public static boolean removeTaskTracker(Long instanceId, HeavyTaskTracker taskTracker) {
+        return INSTANCE_ID_2_TASK_TRACKER.remove(instanceId, taskTracker);
+    }
+
     public static void atomicCreateTaskTracker(Long instanceId, Function<Long, HeavyTaskTracker> creator) {
-        INSTANCE_ID_2_TASK_TRACKER.computeIfAbsent(instanceId, creator);
+        INSTANCE_ID_2_TASK_TRACKER.getOrCreate(instanceId, creator);
     }
 
     public static List<Long> getAllFrequentTaskTrackerKeys() {
@@ -4,14 +4,15 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import tech.powerjob.worker.core.tracker.processor.ProcessorTracker;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
 /**
  * 持有 Processor 对象
  * instanceId -> Processor
+ * 结构变更（占位、移除）在 instanceId 粒度上原子执行，ProcessorTracker 的创建在锁外进行，不同 instance 之间互不阻塞
  *
  * @author tjq
  * @since 2020/3/20
@@ -22,29 +23,80 @@ public class ProcessorTrackerManager {
      * instanceId -> (TaskTrackerAddress -> ProcessorTracker)
      * 处理脑裂情况下同一个 Instance 存在多个 TaskTracker 的情况
      */
-    private static final Map<Long, Map<String, ProcessorTracker>> PROCESSOR_TRACKER_CONTAINER = Maps.newHashMap();
+    private static final ConcurrentMap<Long, Map<String, TrackerHolder<ProcessorTracker>>> PROCESSOR_TRACKER_CONTAINER = Maps.newConcurrentMap();
 
     /**
      * 获取 ProcessorTracker，如果不存在则创建
      */
-    public static synchronized ProcessorTracker getProcessorTracker(Long instanceId, String address, Supplier<ProcessorTracker> creator) {
+    public static ProcessorTracker getProcessorTracker(Long instanceId, String address, Supplier<ProcessorTracker> creator) {
 
-        ProcessorTracker processorTracker = PROCESSOR_TRACKER_CONTAINER.getOrDefault(instanceId, Collections.emptyMap()).get(address);
-        if (processorTracker == null) {
+        // 快速路径：已存在时无锁读取
+        Map<String, TrackerHolder<ProcessorTracker>> ttAddress2Pt = PROCESSOR_TRACKER_CONTAINER.get(instanceId);
+        TrackerHolder<ProcessorTracker> holder = ttAddress2Pt == null ? null : ttAddress2Pt.get(address);
+        if (holder != null) {
+            return holder.await();
+        }
+
+        // 原子占位，只有放入占位对象的线程负责创建
+        TrackerHolder<ProcessorTracker> newHolder = new TrackerHolder<>();
+        @SuppressWarnings("unchecked")
+        TrackerHolder<ProcessorTracker>[] current = new TrackerHolder[1];
+        PROCESSOR_TRACKER_CONTAINER.compute(instanceId, (id, map) -> {
+            Map<String, TrackerHolder<ProcessorTracker>> container = map == null ? Maps.newConcurrentMap() : map;
+            current[0] = container.computeIfAbsent(address, ignore -> newHolder);
+            return container;
+        });
+        if (current[0] != newHolder) {
+            return current[0].await();
+        }
+
+        ProcessorTracker processorTracker = null;
+        try {
             processorTracker = creator.get();
-            PROCESSOR_TRACKER_CONTAINER.computeIfAbsent(instanceId, ignore -> Maps.newHashMap()).put(address, processorTracker);
+            return processorTracker;
+        } finally {
+            newHolder.complete(processorTracker);
+            if (processorTracker == null) {
+                removeHolder(instanceId, address, newHolder);
+            }
         }
-        return processorTracker;
     }
 
-    public static synchronized List<ProcessorTracker> removeProcessorTracker(Long instanceId) {
+    /**
+     * 移除该 instance 下的全部 ProcessorTracker（脑裂时可能存在多个）
+     */
+    public static List<ProcessorTracker> removeProcessorTracker(Long instanceId) {
 
         List<ProcessorTracker> res = Lists.newLinkedList();
-        Map<String, ProcessorTracker> ttAddress2Pt = PROCESSOR_TRACKER_CONTAINER.remove(instanceId);
+        Map<String, TrackerHolder<ProcessorTracker>> ttAddress2Pt = PROCESSOR_TRACKER_CONTAINER.remove(instanceId);
         if (ttAddress2Pt != null) {
-            res.addAll(ttAddress2Pt.values());
-            ttAddress2Pt.clear();
+            ttAddress2Pt.values().forEach(holder -> {
+                ProcessorTracker processorTracker = holder.peek();
+                if (processorTracker != null) {
+                    res.add(processorTracker);
+                }
+            });
         }
         return res;
     }
+
+    /**
+     * 移除指定的 ProcessorTracker，只有当前注册的就是该对象时才会移除，避免误删同一 TaskTracker 新建的 ProcessorTracker
+     */
+    public static void removeProcessorTracker(Long instanceId, String address, ProcessorTracker processorTracker) {
+        PROCESSOR_TRACKER_CONTAINER.computeIfPresent(instanceId, (id, map) -> {
+            TrackerHolder<ProcessorTracker> holder = map.get(address);
+            if (holder != null && holder.holds(processorTracker)) {
+                map.remove(address, holder);
+            }
+            return map.isEmpty() ? null : map;
+        });
+    }
+
+    private static void removeHolder(Long instanceId, String address, TrackerHolder<ProcessorTracker> holder) {
+        PROCESSOR_TRACKER_CONTAINER.computeIfPresent(instanceId, (id, map) -> {
+            map.remove(address, holder);
+            return map.isEmpty() ? null : map;
+        });
+    }
 }
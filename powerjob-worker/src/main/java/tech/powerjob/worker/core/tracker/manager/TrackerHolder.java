@@ -0,0 +1,66 @@
+package tech.powerjob.worker.core.tracker.manager;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tracker 占位对象
+ * 先原子地放入注册表占位，再由占位线程在 Map 锁外完成创建（创建过程较重，且可能在失败时回调移除逻辑），同 key 的并发请求等待同一个创建结果
+ *
+ * @author tjq
+ * @since 2024/3/7
+ */
+final class TrackerHolder<T> {
+
+    private final Thread creatorThread = Thread.currentThread();
+
+    private final CountDownLatch createLatch = new CountDownLatch(1);
+
+    private volatile T tracker;
+
+    void complete(T tracker) {
+        this.tracker = tracker;
+        createLatch.countDown();
+    }
+
+    /**
+     * 获取已创建完成的 Tracker，创建中返回 null
+     */
+    T peek() {
+        return tracker;
+    }
+
+    /**
+     * 等待创建完成，创建失败返回 null
+     */
+    T await() {
+        // 创建线程重入（如创建过程中再次查询）直接返回当前值，避免自锁
+        if (creatorThread == Thread.currentThread()) {
+            return tracker;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                createLatch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return tracker;
+    }
+
+    /**
+     * 判断该占位是否属于指定的 Tracker，用于生命周期感知的移除
+     * Tracker 在创建过程中销毁自身时尚未完成赋值，此时通过创建线程识别
+     */
+    boolean holds(T target) {
+        T current = tracker;
+        if (current != null) {
+            return current == target;
+        }
+        return creatorThread == Thread.currentThread();
+    }
+}
@@ -0,0 +1,93 @@
+package tech.powerjob.worker.core.tracker.manager;
+
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Tracker 并发注册表
+ * 1. 读取无锁；创建时仅原子放入占位对象，真正的创建在 Map 锁外执行，不同 key 之间互不阻塞，同 key 只会创建一次
+ * 2. 移除支持校验 Tracker 身份，已销毁的旧 Tracker 不会误删同 key 下新创建的 Tracker
+ *
+ * @author tjq
+ * @since 2024/3/7
+ */
+public class TrackerRegistry<K, T> {
+
+    private final ConcurrentMap<K, TrackerHolder<T>> container = Maps.newConcurrentMap();
+
+    /**
+     * 获取 Tracker，不存在或仍在创建中时返回 null
+     */
+    public T get(K key) {
+        TrackerHolder<T> holder = container.get(key);
+        return holder == null ? null : holder.peek();
+    }
+
+    /**
+     * 获取 Tracker，不存在则创建（同 key 并发调用只会执行一次 creator）
+     * @param key key
+     * @param creator 创建逻辑，返回 null 代表创建失败
+     * @return Tracker，创建失败时返回 null
+     */
+    public T getOrCreate(K key, Function<K, T> creator) {
+        TrackerHolder<T> holder = container.get(key);
+        if (holder != null) {
+            return holder.await();
+        }
+        TrackerHolder<T> newHolder = new TrackerHolder<>();
+        holder = container.putIfAbsent(key, newHolder);
+        if (holder != null) {
+            return holder.await();
+        }
+        T tracker = null;
+        try {
+            tracker = creator.apply(key);
+            return tracker;
+        } finally {
+            newHolder.complete(tracker);
+            if (tracker == null) {
+                container.remove(key, newHolder);
+            }
+        }
+    }
+
+    /**
+     * 无条件移除
+     * @return 被移除的 Tracker（可能为 null）
+     */
+    public T remove(K key) {
+        TrackerHolder<T> holder = container.remove(key);
+        return holder == null ? null : holder.peek();
+    }
+
+    /**
+     * 仅当 key 当前对应的就是该 Tracker 时才移除
+     * @return 是否移除成功
+     */
+    public boolean remove(K key, T tracker) {
+        TrackerHolder<T> holder = container.get(key);
+        return holder != null && holder.holds(tracker) && container.remove(key, holder);
+    }
+
+    /**
+     * 当前数量（包含创建中的 Tracker，用于负载判断时更保守）
+     */
+    public int size() {
+        return container.size();
+    }
+
+    /**
+     * 遍历已创建完成的 Tracker
+     */
+    public void forEach(BiConsumer<K, T> consumer) {
+        container.forEach((key, holder) -> {
+            T tracker = holder.peek();
+            if (tracker != null) {
+                consumer.accept(key, tracker);
+            }
+        });
+    }
+}
@@ -1,18 +1,19 @@
 package tech.powerjob.worker.core.tracker.processor;
 
 import com.google.common.collect.Queues;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import tech.powerjob.common.enums.ExecuteType;
 import tech.powerjob.common.enums.ProcessorType;
 import tech.powerjob.common.enums.TimeExpressionType;
-import tech.powerjob.common.utils.CollectionUtils;
 import tech.powerjob.common.utils.CommonUtils;
 import tech.powerjob.common.enhance.SafeRunnable;
 import tech.powerjob.worker.common.WorkerRuntime;
 import tech.powerjob.worker.common.constants.TaskStatus;
 import tech.powerjob.worker.common.utils.TransportUtils;
+import tech.powerjob.worker.core.executor.ExecutorManager;
+import tech.powerjob.worker.core.executor.SharedProcessorPool;
+import tech.powerjob.worker.core.ha.ProcessorTrackerStatus;
 import tech.powerjob.worker.core.processor.runnable.HeavyProcessorRunnable;
 import tech.powerjob.worker.core.tracker.manager.ProcessorTrackerManager;
 import tech.powerjob.worker.extension.processor.ProcessorBean;
@@ -25,12 +26,15 @@ import tech.powerjob.worker.pojo.request.ProcessorReportTaskStatusReq;
 import tech.powerjob.worker.pojo.request.ProcessorTrackerStatusReportReq;
 import tech.powerjob.worker.pojo.request.TaskTrackerStartTaskReq;
 
-import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 负责管理 Processor 的执行
+ * 任务在 Worker 级别共享的 {@link SharedProcessorPool} 中执行，每个实例按并发配额占用线程，等待任务过多时主动向 TaskTracker 上报负载（背压）
  *
  * @author tjq
  * @since 2020/3/20
@@ -72,11 +76,26 @@ public class ProcessorTracker {
 
     private String taskTrackerAddress;
 
-    private ThreadPoolExecutor threadPool;
+    private SharedProcessorPool.InstanceQueue taskQueue;
 
-    private ScheduledExecutorService timingPool;
+    private ScheduledFuture<?> checkerFuture;
+    /**
+     * 是否已向 TaskTracker 发出背压信号
+     */
+    private final AtomicBoolean backpressure = new AtomicBoolean(false);
 
-    private static final int THREAD_POOL_QUEUE_MAX_SIZE = 128;
+    /**
+     * 等待队列上限，为了防止对内存造成较大压力，内存队列不能太大
+     */
+    private static final int TASK_QUEUE_MAX_SIZE = 128;
+    /**
+     * 等待任务数达到该值时立即上报负载，TaskTracker 据此停止派发（与 ProcessorTrackerStatus 的派发阈值一致）
+     */
+    private static final int BACKPRESSURE_HIGH_WATER_MARK = ProcessorTrackerStatus.DISPATCH_THRESHOLD;
+    /**
+     * 背压后等待任务数回落到该值时再次上报负载，TaskTracker 据此恢复派发
+     */
+    private static final int BACKPRESSURE_LOW_WATER_MARK = BACKPRESSURE_HIGH_WATER_MARK / 2;
     /**
      * 长时间空闲的 ProcessorTracker 会发起销毁请求
      */
@@ -89,7 +108,7 @@ public class ProcessorTracker {
     private String lethalReason;
 
     /**
-     * 创建 ProcessorTracker（其实就是创建了个执行用的线程池 T_T）
+     * 创建 ProcessorTracker（已不再独占线程池，只是在共享线程池中申请了一个执行队列）
      */
     @SuppressWarnings("squid:S1181")
     public ProcessorTracker(TaskTrackerStartTaskReq request, WorkerRuntime workerRuntime) {
@@ -106,8 +125,8 @@ public class ProcessorTracker {
             this.lastIdleTime = -1L;
             this.lastCompletedTaskCount = 0L;
 
-            // 初始化 线程池，TimingPool 启动的任务会检查 ThreadPool，所以必须先初始化线程池，否则NPE
-            initThreadPool();
+            // 初始化执行队列，定时任务会检查执行队列，所以必须先初始化，否则NPE
+            initTaskQueue();
             // 初始化定时任务
             initTimingJob();
             // 初始化 Processor
@@ -154,11 +173,17 @@ public class ProcessorTracker {
 
         HeavyProcessorRunnable heavyProcessorRunnable = new HeavyProcessorRunnable(instanceInfo, taskTrackerAddress, newTask, processorBean, omsLogger, statusReportRetryQueue, workerRuntime);
         try {
-            threadPool.submit(heavyProcessorRunnable);
-            success = true;
-        } catch (RejectedExecutionException ignore) {
-            log.warn("[ProcessorTracker-{}] submit task(taskId={},taskName={}) to ThreadPool failed due to ThreadPool has too much task waiting to process, this task will dispatch to other ProcessorTracker.",
-                    instanceId, newTask.getTaskId(), newTask.getTaskName());
+            success = taskQueue.offer(() -> {
+                try {
+                    heavyProcessorRunnable.run();
+                } finally {
+                    releaseBackpressureIfNeeded();
+                }
+            });
+            if (!success) {
+                log.warn("[ProcessorTracker-{}] submit task(taskId={},taskName={}) failed due to too much task waiting to process, this task will dispatch to other ProcessorTracker.",
+                        instanceId, newTask.getTaskId(), newTask.getTaskName());
+            }
         } catch (Exception e) {
             log.error("[ProcessorTracker-{}] submit task(taskId={},taskName={}) to ThreadPool failed.", instanceId, newTask.getTaskId(), newTask.getTaskName(), e);
         }
@@ -175,63 +200,80 @@ public class ProcessorTracker {
             TransportUtils.ptReportTask(reportReq, taskTrackerAddress, workerRuntime);
 
             log.debug("[ProcessorTracker-{}] submit task(taskId={}, taskName={}) success, current queue size: {}.",
-                    instanceId, newTask.getTaskId(), newTask.getTaskName(), threadPool.getQueue().size());
+                    instanceId, newTask.getTaskId(), newTask.getTaskName(), taskQueue.pendingNum());
+
+            // 3. 等待任务过多，立即通知 TaskTracker 暂停派发，而不是等到队列满后拒绝任务
+            if (taskQueue.pendingNum() >= BACKPRESSURE_HIGH_WATER_MARK && backpressure.compareAndSet(false, true)) {
+                log.info("[ProcessorTracker-{}] too much task waiting to process({}), report load to TaskTracker now.", instanceId, taskQueue.pendingNum());
+                reportLoad();
+            }
+        }
+    }
+
+    private void releaseBackpressureIfNeeded() {
+        if (backpressure.get() && taskQueue.pendingNum() <= BACKPRESSURE_LOW_WATER_MARK && backpressure.compareAndSet(true, false)) {
+            log.info("[ProcessorTracker-{}] waiting task num drops to {}, report load to TaskTracker now.", instanceId, taskQueue.pendingNum());
+            reportLoad();
         }
     }
 
+    private void reportLoad() {
+        long waitingNum = taskQueue.pendingNum();
+        ProcessorTrackerStatusReportReq statusReportReq = ProcessorTrackerStatusReportReq.buildLoadReport(instanceId, waitingNum);
+        statusReportReq.setAddress(workerRuntime.getWorkerAddress());
+        TransportUtils.ptReportSelfStatus(statusReportReq, taskTrackerAddress, workerRuntime);
+        log.debug("[ProcessorTracker-{}] send heartbeat to TaskTracker, current waiting task num is {}.", instanceId, waitingNum);
+    }
+
     /**
      * 释放资源
      */
     public void destroy() {
 
-        // 1. 关闭执行执行线程池
+        // 1. 关闭执行队列，丢弃等待中的任务并中断执行中的任务
         CommonUtils.executeIgnoreException(() -> {
-            List<Runnable> tasks = threadPool.shutdownNow();
-            if (!CollectionUtils.isEmpty(tasks)) {
-                log.warn("[ProcessorTracker-{}] shutdown threadPool now and stop {} tasks.", instanceId, tasks.size());
+            int dropped = taskQueue.close();
+            if (dropped > 0) {
+                log.warn("[ProcessorTracker-{}] close task queue now and stop {} tasks.", instanceId, dropped);
             }
         });
 
         // 2. 去除顶层引用，送入GC世界
         statusReportRetryQueue.clear();
-        ProcessorTrackerManager.removeProcessorTracker(instanceId);
+        ProcessorTrackerManager.removeProcessorTracker(instanceId, taskTrackerAddress, this);
 
         log.info("[ProcessorTracker-{}] ProcessorTracker destroyed successfully!", instanceId);
 
-        // 3. 关闭定时线程池
-        CommonUtils.executeIgnoreException(() -> timingPool.shutdownNow());
+        // 3. 取消定时任务
+        CommonUtils.executeIgnoreException(() -> checkerFuture.cancel(false));
     }
 
 
     /**
-     * 初始化线程池
+     * 初始化执行队列
      */
-    private void initThreadPool() {
-
-        int poolSize = calThreadPoolSize();
-        // 待执行队列，为了防止对内存造成较大压力，内存队列不能太大
-        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(THREAD_POOL_QUEUE_MAX_SIZE);
-        // 自定义线程池中线程名称 (PowerJob Processor Pool -> PPP)
-        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("PPP-%d").build();
-        // 拒绝策略：直接抛出异常
-        RejectedExecutionHandler rejectionHandler = new ThreadPoolExecutor.AbortPolicy();
-
-        threadPool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, queue, threadFactory, rejectionHandler);
-
-        // 当没有任务执行时，允许销毁核心线程（即线程池最终存活线程个数可能为0）
-        threadPool.allowCoreThreadTimeOut(true);
+    private void initTaskQueue() {
+        taskQueue = workerRuntime.getExecutorManager().fetchSharedProcessorPool(instanceInfo.getProcessorInfo()).newInstanceQueue(calConcurrency(), TASK_QUEUE_MAX_SIZE);
     }
 
     /**
-     * 初始化定时任务
+     * 初始化定时任务，使用 Worker 级别共享的调度线程池，不再为每个实例单独创建线程
+     * 调度线程只负责触发，检查与上报（含阻塞 RPC）在独立的上报线程池中执行，上一轮未结束时跳过本轮
      */
     private void initTimingJob() {
-
-        // PowerJob Processor TimingPool
-        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("PPT-%d").build();
-        timingPool = Executors.newSingleThreadScheduledExecutor(threadFactory);
-
-        timingPool.scheduleAtFixedRate(new CheckerAndReporter(), 0, 10, TimeUnit.SECONDS);
+        ExecutorManager executorManager = workerRuntime.getExecutorManager();
+        CheckerAndReporter checker = new CheckerAndReporter();
+        checkerFuture = executorManager.getProcessorTrackerCheckExecutor().scheduleAtFixedRate(() -> {
+            if (!checker.running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executorManager.getProcessorTrackerReportExecutor().execute(checker);
+            } catch (RejectedExecutionException e) {
+                checker.running.set(false);
+                log.warn("[ProcessorTracker-{}] too many ProcessorTracker check tasks waiting, skip this round.", instanceId);
+            }
+        }, 0, 10, TimeUnit.SECONDS);
     }
 
 
@@ -240,9 +282,19 @@ public class ProcessorTracker {
      */
     private class CheckerAndReporter extends SafeRunnable {
 
+        private final AtomicBoolean running = new AtomicBoolean(false);
+
         @Override
-        @SuppressWarnings({"squid:S1066","squid:S3776"})
         public void run0() {
+            try {
+                check();
+            } finally {
+                running.set(false);
+            }
+        }
+
+        @SuppressWarnings({"squid:S1066","squid:S3776"})
+        private void check() {
 
             // 超时检查，如果超时则自动关闭 TaskTracker
             long interval = System.currentTimeMillis() - startTime;
@@ -256,9 +308,9 @@ public class ProcessorTracker {
             }
 
             // 判断线程池活跃状态，长时间空闲则上报 TaskTracker 请求检查
-            if (threadPool.getActiveCount() > 0 || threadPool.getCompletedTaskCount() > lastCompletedTaskCount) {
+            if (taskQueue.runningNum() > 0 || taskQueue.completedNum() > lastCompletedTaskCount) {
                 lastIdleTime = -1;
-                lastCompletedTaskCount = threadPool.getCompletedTaskCount();
+                lastCompletedTaskCount = taskQueue.completedNum();
             } else {
                 if (lastIdleTime == -1) {
                     lastIdleTime = System.currentTimeMillis();
@@ -298,11 +350,7 @@ public class ProcessorTracker {
             }
 
             // 上报当前 ProcessorTracker 负载
-            long waitingNum = threadPool.getQueue().size();
-            ProcessorTrackerStatusReportReq statusReportReq = ProcessorTrackerStatusReportReq.buildLoadReport(instanceId, waitingNum);
-            statusReportReq.setAddress(workerRuntime.getWorkerAddress());
-            TransportUtils.ptReportSelfStatus(statusReportReq, taskTrackerAddress, workerRuntime);
-            log.debug("[ProcessorTracker-{}] send heartbeat to TaskTracker, current waiting task num is {}.", instanceId, waitingNum);
+            reportLoad();
         }
 
     }
@@ -325,9 +373,9 @@ public class ProcessorTracker {
 
 
     /**
-     * 计算线程池大小
+     * 计算实例在共享线程池中的并发配额
      */
-    private int calThreadPoolSize() {
+    private int calConcurrency() {
         ExecuteType executeType = ExecuteType.valueOf(instanceInfo.getExecuteType());
         ProcessorType processorType = ProcessorType.valueOf(instanceInfo.getProcessorType());
 
@@ -380,7 +380,7 @@ public abstract class HeavyTaskTracker extends TaskTracker {
         }
 
         // 3. 移除顶层引用，送去 GC
-        HeavyTaskTrackerManager.removeTaskTracker(instanceId);
+        HeavyTaskTrackerManager.removeTaskTracker(instanceId, this);
 
         log.info("[TaskTracker-{}] TaskTracker has left the world(using {}), bye~", instanceId, sw.stop());
 
@@ -110,7 +110,7 @@ public class LightTaskTracker extends TaskTracker {
                 timeoutCheckScheduledFuture = null;
             }
             // 提交任务到线程池
-            processFuture = workerRuntime.getExecutorManager().getLightweightTaskExecutorService().submit(this::processTask);
+            processFuture = workerRuntime.getExecutorManager().fetchLightweightTaskExecutor(req.getProcessorInfo()).submit(this::processTask);
         } catch (Exception e) {
             log.error("[TaskTracker-{}] fail to create TaskTracker for req:{} ", instanceId, req);
             destroy();
@@ -150,7 +150,7 @@ public class LightTaskTracker extends TaskTracker {
         if (processFuture != null) {
             processFuture.cancel(true);
         }
-        LightTaskTrackerManager.removeTaskTracker(instanceId);
+        LightTaskTrackerManager.removeTaskTracker(instanceId, this);
         // 最后一列为总耗时（即占用资源的耗时，当前时间减去创建时间）
         log.info("[TaskTracker-{}] remove TaskTracker,task status {},start time:{},end time:{},real cost:{},total time:{}", instanceId, status, taskStartTime, taskEndTime, taskEndTime != null ? taskEndTime - taskStartTime : "unknown", System.currentTimeMillis() - createTime);
     }
@@ -0,0 +1,104 @@
+package tech.powerjob.worker.background;
+
+import akka.pattern.AskTimeoutException;
+import com.google.common.collect.Lists;
+import io.vertx.core.json.DecodeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.PowerSerializable;
+import tech.powerjob.common.enums.LogLevel;
+import tech.powerjob.common.enums.Protocol;
+import tech.powerjob.common.model.InstanceLogContent;
+import tech.powerjob.remote.framework.base.RemotingException;
+import tech.powerjob.remote.framework.base.URL;
+import tech.powerjob.remote.framework.transporter.Transporter;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 日志上报测试
+ *
+ * @author tjq
+ * @since 2024/3/13
+ */
+class OmsLogHandlerTest {
+
+    private static final String HTTP = Protocol.HTTP.name();
+    private static final String AKKA = Protocol.AKKA.name();
+
+    @Test
+    void testLegacyResponse() {
+        // 旧版本 server：路径不存在、处理器无返回值
+        Assertions.assertTrue(OmsLogHandler.isLegacyResponse(new ExecutionException(
+                new RemotingException("request [host:127.0.0.1,port:10010,url:/server/reportLog] failed, status: 404, msg: Not Found")), HTTP));
+        Assertions.assertTrue(OmsLogHandler.isLegacyResponse(new ExecutionException(new DecodeException("Failed to decode:No content to map due to end-of-input")), HTTP));
+        Assertions.assertTrue(OmsLogHandler.isLegacyResponse(new ExecutionException(new RuntimeException("Handler returned null")), HTTP));
+
+        // 超时、网络异常不代表 server 版本
+        Assertions.assertFalse(OmsLogHandler.isLegacyResponse(new TimeoutException(), HTTP));
+        Assertions.assertFalse(OmsLogHandler.isLegacyResponse(new ExecutionException(new ConnectException("Connection refused")), HTTP));
+        Assertions.assertFalse(OmsLogHandler.isLegacyResponse(new ExecutionException(
+                new RemotingException("request [host:127.0.0.1,port:10010,url:/server/reportLog] failed, status: 500, msg: Internal Server Error")), HTTP));
+    }
+
+    @Test
+    void testAkkaTimeoutIsLegacy() {
+        // AKKA 协议下旧版本 server 不应答，只能表现为超时
+        Assertions.assertTrue(OmsLogHandler.isLegacyResponse(new TimeoutException(), AKKA));
+        Assertions.assertTrue(OmsLogHandler.isLegacyResponse(new ExecutionException(new AskTimeoutException("Ask timed out")), AKKA));
+        Assertions.assertFalse(OmsLogHandler.isLegacyResponse(new ExecutionException(new ConnectException("Connection refused")), AKKA));
+    }
+
+    @Test
+    void testAkkaTimeoutFallbackToTell() {
+        FakeTransporter transporter = new FakeTransporter();
+        OmsLogHandler handler = new OmsLogHandler("127.0.0.1:27777", transporter, null);
+
+        // 超时后本批日志按旧方式重新发送
+        handler.report(logs(), "127.0.0.1:10086");
+        Assertions.assertEquals(1, transporter.asks);
+        Assertions.assertEquals(1, transporter.tells.size());
+
+        // 探测过期前直接使用不可靠上报，不再等待超时
+        handler.report(logs(), "127.0.0.1:10086");
+        Assertions.assertEquals(1, transporter.asks);
+        Assertions.assertEquals(2, transporter.tells.size());
+    }
+
+    private static List<InstanceLogContent> logs() {
+        return Lists.newArrayList(new InstanceLogContent(1L, System.currentTimeMillis(), LogLevel.INFO.getV(), "log"));
+    }
+
+    /**
+     * 模拟旧版本 AKKA server，可靠上报（ask）永远超时
+     */
+    private static class FakeTransporter implements Transporter {
+
+        private int asks;
+
+        private final List<PowerSerializable> tells = Lists.newArrayList();
+
+        @Override
+        public tech.powerjob.remote.framework.transporter.Protocol getProtocol() {
+            return () -> AKKA;
+        }
+
+        @Override
+        public void tell(URL url, PowerSerializable request) {
+            tells.add(request);
+        }
+
+        @Override
+        public <T> CompletionStage<T> ask(URL url, PowerSerializable request, Class<T> clz) {
+            asks++;
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new AskTimeoutException("Ask timed out"));
+            return future;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package tech.powerjob.worker.background.heartbeat;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.RemoteConstant;
+import tech.powerjob.common.model.SystemMetrics;
+import tech.powerjob.common.request.WorkerHeartbeat;
+import tech.powerjob.common.response.AskResponse;
+
+/**
+ * 心跳增量编码测试
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+class HeartbeatDeltaEncoderTest {
+
+    private static final String SERVER = "127.0.0.1:7700";
+
+    @Test
+    void testDelta() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder();
+
+        // 未收到 server 确认前始终发送全量心跳
+        WorkerHeartbeat first = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        Assertions.assertFalse(first.isDelta());
+        Assertions.assertFalse(encoder.encode(heartbeat("tag1", 0.1), SERVER).isDelta());
+        WorkerHeartbeat full = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        encoder.onResponse(full, SERVER, AskResponse.succeed(null), null);
+
+        // 状态无变化时只携带运行时信息，版本不变
+        WorkerHeartbeat delta = encoder.encode(heartbeat("tag1", 0.2), SERVER);
+        Assertions.assertTrue(delta.isDelta());
+        Assertions.assertEquals(full.getStateVersion(), delta.getBaseVersion());
+        Assertions.assertEquals(full.getStateVersion(), delta.getStateVersion());
+        Assertions.assertNull(delta.getTag());
+        Assertions.assertNull(delta.getProtocol());
+        Assertions.assertNull(delta.getSystemMetrics());
+        Assertions.assertNull(delta.getContainerInfos());
+        encoder.onResponse(delta, SERVER, AskResponse.succeed(null), null);
+
+        // 只携带变化的字段，版本递增
+        WorkerHeartbeat changed = encoder.encode(heartbeat("tag2", 2.0), SERVER);
+        Assertions.assertTrue(changed.isDelta());
+        Assertions.assertEquals("tag2", changed.getTag());
+        Assertions.assertNotNull(changed.getSystemMetrics());
+        Assertions.assertNull(changed.getProtocol());
+        Assertions.assertEquals(full.getStateVersion() + 1, changed.getStateVersion());
+
+        WorkerHeartbeat next = encoder.encode(heartbeat("tag2", 2.0), SERVER);
+        Assertions.assertEquals(changed.getStateVersion(), next.getBaseVersion());
+        Assertions.assertNull(next.getTag());
+    }
+
+    @Test
+    void testResync() {
+        HeartbeatDeltaEncoder encoder = new HeartbeatDeltaEncoder();
+        WorkerHeartbeat full = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        encoder.onResponse(full, SERVER, AskResponse.succeed(null), null);
+        WorkerHeartbeat delta = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        Assertions.assertTrue(delta.isDelta());
+
+        // server 重启后要求重新同步
+        encoder.onResponse(delta, SERVER, AskResponse.failed(RemoteConstant.S4W_HEARTBEAT_RESYNC), null);
+        WorkerHeartbeat resync = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        Assertions.assertFalse(resync.isDelta());
+        Assertions.assertEquals("tag1", resync.getTag());
+        Assertions.assertTrue(resync.getStateVersion() > full.getStateVersion());
+        encoder.onResponse(resync, SERVER, AskResponse.succeed(null), null);
+
+        // 切换 server 时发送全量心跳
+        Assertions.assertFalse(encoder.encode(heartbeat("tag1", 0.1), "127.0.0.2:7700").isDelta());
+
+        // 心跳失败（如旧版本 server 不响应心跳）后发送全量心跳
+        WorkerHeartbeat d2 = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        Assertions.assertFalse(d2.isDelta());
+        encoder.onResponse(d2, SERVER, AskResponse.succeed(null), null);
+        WorkerHeartbeat d3 = encoder.encode(heartbeat("tag1", 0.1), SERVER);
+        Assertions.assertTrue(d3.isDelta());
+        encoder.onResponse(d3, SERVER, null, new RuntimeException("timeout"));
+        Assertions.assertFalse(encoder.encode(heartbeat("tag1", 0.1), SERVER).isDelta());
+    }
+
+    private static WorkerHeartbeat heartbeat(String tag, double cpuLoad) {
+        SystemMetrics systemMetrics = new SystemMetrics();
+        systemMetrics.setCpuProcessors(8);
+        systemMetrics.setCpuLoad(cpuLoad);
+        systemMetrics.setJvmMaxMemory(4);
+        systemMetrics.setJvmUsedMemory(1);
+
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setWorkerAddress("127.0.0.1:27777");
+        heartbeat.setAppName("test");
+        heartbeat.setAppId(1L);
+        heartbeat.setHeartbeatTime(System.currentTimeMillis());
+        heartbeat.setProtocol("HTTP");
+        heartbeat.setTag(tag);
+        heartbeat.setSystemMetrics(systemMetrics);
+        return heartbeat;
+    }
+}
@@ -0,0 +1,143 @@
+package tech.powerjob.worker.container;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 容器 Jar 缓存与节点间下载测试
+ *
+ * @author tjq
+ * @since 2024/3/12
+ */
+class ContainerJarCacheTest {
+
+    private static final byte[] CONTENT = "powerjob-container-jar".getBytes(StandardCharsets.UTF_8);
+
+    private File tmpDir;
+    private HttpServer server;
+    private final AtomicInteger serverDownloadNum = new AtomicInteger();
+    private String serverURL;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("powerjob-container").toFile();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/container/downloadJar", exchange -> {
+            serverDownloadNum.incrementAndGet();
+            exchange.sendResponseHeaders(200, CONTENT.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(CONTENT);
+            }
+        });
+        server.start();
+        serverURL = "http://127.0.0.1:" + server.getAddress().getPort() + "/container/downloadJar?version=v1";
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    void testDownloadOncePerHash() throws Exception {
+        String fileHash = md5();
+        ContainerJarCache cache = new ContainerJarCache(new File(tmpDir, "a").getPath(), 5);
+        String key = ContainerJarCache.genKey(fileHash, 1L, "v1");
+
+        File jar = cache.fetch(key, fileHash, Lists.newArrayList("http://127.0.0.1:1/unreachable", serverURL));
+        Assertions.assertArrayEquals(CONTENT, Files.readAllBytes(jar.toPath()));
+        // 相同内容的其他容器/版本直接命中缓存
+        Assertions.assertEquals(jar, cache.fetch(ContainerJarCache.genKey(fileHash, 2L, "v2"), fileHash, Collections.singletonList(serverURL)));
+        Assertions.assertEquals(1, serverDownloadNum.get());
+
+        // 校验失败的文件不会进入缓存
+        ContainerJarCache another = new ContainerJarCache(new File(tmpDir, "b").getPath(), 5);
+        Assertions.assertThrows(IOException.class, () -> another.fetch("0123456789abcdef", "0123456789abcdef", Collections.singletonList(serverURL)));
+        Assertions.assertFalse(another.find("0123456789abcdef").exists());
+
+        Assertions.assertNull(cache.find("../../etc/passwd"));
+    }
+
+    @Test
+    void testPeerDownload() throws Exception {
+        String fileHash = md5();
+        ContainerJarCache deployed = new ContainerJarCache(new File(tmpDir, "deployed").getPath(), 5);
+        String key = ContainerJarCache.genKey(fileHash, 1L, "v1");
+        deployed.fetch(key, fileHash, Collections.singletonList(serverURL));
+
+        ContainerJarServer jarServer = new ContainerJarServer(deployed);
+        int port = jarServer.start("127.0.0.1", 0);
+        try {
+            ContainerJarCache cache = new ContainerJarCache(new File(tmpDir, "peer").getPath(), 5);
+            String peerURL = ContainerJarServer.genDownloadURL("127.0.0.1", port, key);
+            File jar = cache.fetch(key, fileHash, Lists.newArrayList(peerURL, serverURL));
+            Assertions.assertArrayEquals(CONTENT, Files.readAllBytes(jar.toPath()));
+            // 只有第一个节点从 server 下载
+            Assertions.assertEquals(1, serverDownloadNum.get());
+        } finally {
+            jarServer.stop();
+        }
+    }
+
+    @Test
+    void testClean() throws Exception {
+        File dir = new File(tmpDir, "clean");
+        ContainerJarCache cache = new ContainerJarCache(dir.getPath(), 1);
+        FileUtils.forceMkdir(dir);
+        for (int i = 0; i < 3; i++) {
+            File jar = cache.find("k" + i);
+            FileUtils.writeByteArrayToFile(jar, CONTENT);
+            Assertions.assertTrue(jar.setLastModified(System.currentTimeMillis() - (3 - i) * 10000L));
+        }
+        cache.clean(Sets.newHashSet("k0"));
+        // 正在使用的 k0 以及最近使用的 k2 被保留
+        Assertions.assertTrue(cache.find("k0").exists());
+        Assertions.assertFalse(cache.find("k1").exists());
+        Assertions.assertTrue(cache.find("k2").exists());
+    }
+
+    @Test
+    void testShareClassLoader() throws Exception {
+        File jar = new File(tmpDir, "share.jar");
+        FileUtils.writeByteArrayToFile(jar, CONTENT);
+
+        OhMyClassLoader first = OmsContainerFactory.acquireClassLoader("share", jar);
+        OhMyClassLoader second = OmsContainerFactory.acquireClassLoader("share", jar);
+        Assertions.assertSame(first, second);
+
+        OmsContainerFactory.releaseClassLoader("share");
+        Assertions.assertSame(first, OmsContainerFactory.acquireClassLoader("share", jar));
+        OmsContainerFactory.releaseClassLoader("share");
+        OmsContainerFactory.releaseClassLoader("share");
+        // 所有引用释放后重新创建
+        OhMyClassLoader third = OmsContainerFactory.acquireClassLoader("share", jar);
+        Assertions.assertNotSame(first, third);
+        OmsContainerFactory.releaseClassLoader("share");
+    }
+
+    private static String md5() throws IOException {
+        File file = File.createTempFile("powerjob", ".jar");
+        try {
+            FileUtils.writeByteArrayToFile(file, CONTENT);
+            return ContainerJarCache.md5(file);
+        } finally {
+            FileUtils.forceDelete(file);
+        }
+    }
+}
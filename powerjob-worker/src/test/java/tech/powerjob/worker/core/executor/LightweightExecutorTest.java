@@ -0,0 +1,103 @@
+package tech.powerjob.worker.core.executor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.common.utils.SysUtils;
+import tech.powerjob.worker.common.PowerJobWorkerConfig;
+import tech.powerjob.worker.common.constants.ThreadMode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 轻量级任务执行器测试，平台线程与虚拟线程执行 10000 个 sleep 型任务时均能按时完成，且线程数符合预期
+ *
+ * @author tjq
+ * @since 2024/3/9
+ */
+class LightweightExecutorTest {
+
+    private static final int TASK_NUM = 10000;
+    private static final long SLEEP_MS = 10;
+    private static final int THREAD_GROWTH_TOLERANCE = 8;
+
+    private static final String HTTP_PROCESSOR = "tech.powerjob.official.processors.impl.HttpProcessor";
+
+    @Test
+    void testFallback() {
+        PowerJobWorkerConfig config = new PowerJobWorkerConfig();
+        config.setLightweightThreadMode(ThreadMode.VIRTUAL);
+        config.setVirtualThreadProcessors(Collections.singletonList(HTTP_PROCESSOR));
+        ExecutorManager executorManager = new ExecutorManager(config);
+        try {
+            if (VirtualThreadSupport.isSupported()) {
+                Assertions.assertEquals(ThreadMode.VIRTUAL, executorManager.getLightweightThreadMode());
+                Assertions.assertSame(executorManager.getVirtualThreadExecutor(), executorManager.fetchLightweightTaskExecutor("any"));
+                Assertions.assertSame(executorManager.getVirtualProcessorPool(), executorManager.fetchSharedProcessorPool(HTTP_PROCESSOR));
+            } else {
+                Assertions.assertEquals(ThreadMode.PLATFORM, executorManager.getLightweightThreadMode());
+                Assertions.assertSame(executorManager.getLightweightTaskExecutorService(), executorManager.fetchLightweightTaskExecutor(HTTP_PROCESSOR));
+                Assertions.assertSame(executorManager.getSharedProcessorPool(), executorManager.fetchSharedProcessorPool(HTTP_PROCESSOR));
+            }
+            Assertions.assertSame(executorManager.getSharedProcessorPool(), executorManager.fetchSharedProcessorPool("tech.powerjob.samples.MapProcessor"));
+        } finally {
+            executorManager.shutdown();
+        }
+    }
+
+    @Test
+    void testPlatformThread() throws Exception {
+        PowerJobWorkerConfig config = new PowerJobWorkerConfig();
+        config.setMaxLightweightTaskNum(TASK_NUM);
+        ExecutorManager executorManager = new ExecutorManager(config);
+        try {
+            // 平台线程模式下线程数受限于轻量级任务线程池大小
+            runSleepTasks(executorManager.fetchLightweightTaskExecutor(HTTP_PROCESSOR), SysUtils.availableProcessors() * 10);
+        } finally {
+            executorManager.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualThread() throws Exception {
+        Assumptions.assumeTrue(VirtualThreadSupport.isSupported(), "virtual thread requires JDK 21+");
+        PowerJobWorkerConfig config = new PowerJobWorkerConfig();
+        config.setLightweightThreadMode(ThreadMode.VIRTUAL);
+        ExecutorManager executorManager = new ExecutorManager(config);
+        try {
+            // 虚拟线程模式下只会额外创建少量载体线程
+            runSleepTasks(executorManager.fetchLightweightTaskExecutor(HTTP_PROCESSOR), SysUtils.availableProcessors());
+        } finally {
+            executorManager.shutdown();
+        }
+    }
+
+    /**
+     * 执行 sleep 型任务，断言全部在限定时间内完成，且平台线程的增长不超过预期
+     * @param executor 执行器
+     * @param maxThreadGrowth 允许新增的平台线程数（不含 JVM 及测试框架自身的少量波动）
+     */
+    private static void runSleepTasks(ExecutorService executor, int maxThreadGrowth) throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        threadMXBean.resetPeakThreadCount();
+        int threadNumBefore = threadMXBean.getThreadCount();
+
+        CountDownLatch latch = new CountDownLatch(TASK_NUM);
+        for (int i = 0; i < TASK_NUM; i++) {
+            executor.submit(() -> {
+                CommonUtils.easySleep(SLEEP_MS);
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(2, TimeUnit.MINUTES), "tasks not finished in time, remaining: " + latch.getCount());
+
+        int threadGrowth = threadMXBean.getPeakThreadCount() - threadNumBefore;
+        Assertions.assertTrue(threadGrowth <= maxThreadGrowth + THREAD_GROWTH_TOLERANCE, "too many platform threads created: " + threadGrowth);
+    }
+}
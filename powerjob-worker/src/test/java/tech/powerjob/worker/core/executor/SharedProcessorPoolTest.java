@@ -0,0 +1,111 @@
+package tech.powerjob.worker.core.executor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.utils.CommonUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享执行线程池测试
+ *
+ * @author tjq
+ * @since 2024/3/8
+ */
+class SharedProcessorPoolTest {
+
+    @Test
+    void testQuota() throws Exception {
+        SharedProcessorPool pool = new SharedProcessorPool(16);
+        SharedProcessorPool.InstanceQueue queue = pool.newInstanceQueue(3, 128);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(30);
+        for (int i = 0; i < 30; i++) {
+            Assertions.assertTrue(queue.offer(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                CommonUtils.easySleep(10);
+                running.decrementAndGet();
+                latch.countDown();
+            }));
+        }
+        Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, maxRunning.get());
+        // latch 在任务内部释放，等待执行计数更新
+        CommonUtils.easySleep(100);
+        Assertions.assertEquals(30, queue.completedNum());
+        Assertions.assertEquals(0, queue.runningNum());
+        pool.shutdown();
+    }
+
+    @Test
+    void testFairness() throws Exception {
+        SharedProcessorPool pool = new SharedProcessorPool(2);
+        SharedProcessorPool.InstanceQueue busy = pool.newInstanceQueue(2, 128);
+        SharedProcessorPool.InstanceQueue small = pool.newInstanceQueue(2, 128);
+
+        AtomicInteger busyDone = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            busy.offer(() -> {
+                CommonUtils.easySleep(10);
+                busyDone.incrementAndGet();
+            });
+        }
+        CountDownLatch smallLatch = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            small.offer(smallLatch::countDown);
+        }
+        // 后提交的实例不需要等待先提交的实例全部执行完毕
+        Assertions.assertTrue(smallLatch.await(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(busyDone.get() < 50, "busy instance should not monopolize the pool: " + busyDone.get());
+        busy.close();
+        pool.shutdown();
+    }
+
+    @Test
+    void testCapacityAndClose() throws Exception {
+        SharedProcessorPool pool = new SharedProcessorPool(4);
+        SharedProcessorPool.InstanceQueue queue = pool.newInstanceQueue(1, 5);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Assertions.assertTrue(queue.offer(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(queue.offer(() -> { }));
+        }
+        Assertions.assertEquals(5, queue.pendingNum());
+        Assertions.assertFalse(queue.offer(() -> { }));
+
+        Assertions.assertEquals(5, queue.close());
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(queue.offer(() -> { }));
+
+        // 中断标记不能泄漏给共享线程池中的其他实例
+        SharedProcessorPool.InstanceQueue another = pool.newInstanceQueue(4, 128);
+        CountDownLatch latch = new CountDownLatch(8);
+        AtomicInteger interruptedNum = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            another.offer(() -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    interruptedNum.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, interruptedNum.get());
+        pool.shutdown();
+    }
+}
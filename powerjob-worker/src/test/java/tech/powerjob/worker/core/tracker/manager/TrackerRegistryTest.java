@@ -0,0 +1,149 @@
+package tech.powerjob.worker.core.tracker.manager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.powerjob.common.utils.CommonUtils;
+import tech.powerjob.worker.core.tracker.processor.ProcessorTracker;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracker 注册表并发压力测试
+ *
+ * @author tjq
+ * @since 2024/3/7
+ */
+class TrackerRegistryTest {
+
+    private static final int THREAD_NUM = 32;
+
+    @Test
+    void testCreateOnceUnderContention() throws Exception {
+        TrackerRegistry<Long, Object> registry = new TrackerRegistry<>();
+        Map<Long, AtomicInteger> createTimes = new ConcurrentHashMap<>();
+
+        runConcurrently(1000, () -> {
+            long key = ThreadLocalRandom.current().nextInt(64);
+            Object tracker = registry.getOrCreate(key, k -> {
+                createTimes.computeIfAbsent(k, ignore -> new AtomicInteger()).incrementAndGet();
+                // 模拟较重的创建过程
+                CommonUtils.easySleep(1);
+                return new Object();
+            });
+            Assertions.assertNotNull(tracker);
+            Assertions.assertSame(tracker, registry.get(key));
+        });
+
+        Assertions.assertEquals(64, registry.size());
+        createTimes.values().forEach(times -> Assertions.assertEquals(1, times.get()));
+    }
+
+    @Test
+    void testLifecycleAwareRemove() throws Exception {
+        TrackerRegistry<Long, Object> registry = new TrackerRegistry<>();
+        AtomicInteger createTimes = new AtomicInteger();
+
+        // 并发地创建、销毁（只移除自己）同一批 key，最终每个 key 要么不存在，要么对应最后一次创建且未被销毁的对象
+        Set<Object> destroyed = ConcurrentHashMap.newKeySet();
+        runConcurrently(2000, () -> {
+            long key = ThreadLocalRandom.current().nextInt(8);
+            Object tracker = registry.getOrCreate(key, k -> {
+                createTimes.incrementAndGet();
+                return new Object();
+            });
+            if (ThreadLocalRandom.current().nextBoolean() && destroyed.add(tracker)) {
+                registry.remove(key, tracker);
+            }
+        });
+
+        registry.forEach((key, tracker) -> Assertions.assertFalse(destroyed.contains(tracker)));
+        Assertions.assertTrue(createTimes.get() >= registry.size());
+    }
+
+    @Test
+    void testRemoveSelfDuringCreation() {
+        TrackerRegistry<Long, Object> registry = new TrackerRegistry<>();
+        // 创建失败的 Tracker 在构造过程中调用 destroy 移除自身，不能死锁，也不能留下脏数据
+        Object tracker = registry.getOrCreate(1L, k -> {
+            Object self = new Object();
+            Assertions.assertTrue(registry.remove(k, self));
+            return self;
+        });
+        Assertions.assertNotNull(tracker);
+        Assertions.assertNull(registry.get(1L));
+        Assertions.assertEquals(0, registry.size());
+
+        Assertions.assertNull(registry.getOrCreate(2L, k -> null));
+        Assertions.assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testProcessorTrackerManager() throws Exception {
+        Map<String, AtomicInteger> createTimes = new ConcurrentHashMap<>();
+        Map<String, ProcessorTracker> trackers = new ConcurrentHashMap<>();
+
+        runConcurrently(200, () -> {
+            long instanceId = 100 + ThreadLocalRandom.current().nextInt(2);
+            String address = "127.0.0.1:" + (27777 + ThreadLocalRandom.current().nextInt(2));
+            ProcessorTracker pt = ProcessorTrackerManager.getProcessorTracker(instanceId, address, () -> {
+                createTimes.computeIfAbsent(instanceId + address, ignore -> new AtomicInteger()).incrementAndGet();
+                // 参数缺失时 ProcessorTracker 会以 lethal 状态创建成功，足够用于验证注册表行为
+                return new ProcessorTracker(null, null);
+            });
+            ProcessorTracker previous = trackers.putIfAbsent(instanceId + address, pt);
+            Assertions.assertTrue(previous == null || previous == pt);
+        });
+        createTimes.values().forEach(times -> Assertions.assertEquals(1, times.get()));
+
+        ProcessorTracker pt = trackers.get("100127.0.0.1:27777");
+        ProcessorTrackerManager.removeProcessorTracker(100L, "127.0.0.1:27777", pt);
+        ProcessorTracker newPt = ProcessorTrackerManager.getProcessorTracker(100L, "127.0.0.1:27777", () -> new ProcessorTracker(null, null));
+        Assertions.assertNotSame(pt, newPt);
+        // 旧对象再次移除不会影响新对象
+        ProcessorTrackerManager.removeProcessorTracker(100L, "127.0.0.1:27777", pt);
+        Assertions.assertSame(newPt, ProcessorTrackerManager.getProcessorTracker(100L, "127.0.0.1:27777", () -> null));
+
+        Assertions.assertEquals(2, ProcessorTrackerManager.removeProcessorTracker(100L).size());
+        Assertions.assertEquals(2, ProcessorTrackerManager.removeProcessorTracker(101L).size());
+    }
+
+    private static void runConcurrently(int loop, Runnable action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREAD_NUM);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(THREAD_NUM);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        try {
+            for (int i = 0; i < THREAD_NUM; i++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        for (int j = 0; j < loop; j++) {
+                            action.run();
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    } finally {
+                        end.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            Assertions.assertTrue(end.await(60, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        if (!errors.isEmpty()) {
+            Assertions.fail(errors.size() + " worker thread(s) failed", errors.peek());
+        }
+    }
+}